@@ -0,0 +1,122 @@
+package io.micronaut.internal.build.benchmarks
+
+import groovy.transform.CompileStatic
+import org.gradle.api.DefaultTask
+import org.gradle.api.GradleException
+import org.gradle.api.file.ConfigurableFileCollection
+import org.gradle.api.file.RegularFileProperty
+import org.gradle.api.provider.Property
+import org.gradle.api.tasks.Input
+import org.gradle.api.tasks.InputFiles
+import org.gradle.api.tasks.Optional
+import org.gradle.api.tasks.OutputFile
+import org.gradle.api.tasks.PathSensitive
+import org.gradle.api.tasks.PathSensitivity
+import org.gradle.api.tasks.TaskAction
+
+/**
+ * Aggregates the gradle-profiler results of all benchmarks into a single
+ * CSV file, with one line per plugin, build size and scenario. If a baseline
+ * report (a previous output of this task) is configured, the build fails when
+ * a scenario got slower than the allowed threshold.
+ */
+@CompileStatic
+abstract class ConfigurationBenchmarkReport extends DefaultTask {
+    private static final String MEASURED_BUILD = "measured build"
+
+    /**
+     * The gradle-profiler output directories. Each directory is expected
+     * to be named after the benchmark, e.g "application-100".
+     */
+    @InputFiles
+    @PathSensitive(PathSensitivity.RELATIVE)
+    abstract ConfigurableFileCollection getResultDirectories()
+
+    @InputFiles
+    @Optional
+    @PathSensitive(PathSensitivity.NONE)
+    abstract RegularFileProperty getBaseline()
+
+    /**
+     * The maximum allowed regression, in percent of the baseline median.
+     */
+    @Input
+    abstract Property<Integer> getThreshold()
+
+    @OutputFile
+    abstract RegularFileProperty getReportFile()
+
+    @TaskAction
+    void report() {
+        Map<String, Double> medians = new TreeMap<>()
+        resultDirectories.files.each { dir ->
+            File csv = new File(dir, "benchmark.csv")
+            if (csv.exists()) {
+                medians.putAll(parse(dir.name, csv))
+            }
+        }
+        File report = reportFile.get().asFile
+        report.parentFile.mkdirs()
+        report.text = "benchmark,median (ms)\n" + medians.collect { k, v -> "$k,${String.format(Locale.ENGLISH, '%.1f', v)}" }.join('\n') + '\n'
+        medians.each { k, v -> logger.lifecycle("{}: {} ms", k, String.format(Locale.ENGLISH, '%.1f', v)) }
+        if (baseline.isPresent() && baseline.get().asFile.exists()) {
+            compareWithBaseline(medians, readReport(baseline.get().asFile))
+        }
+    }
+
+    private void compareWithBaseline(Map<String, Double> medians, Map<String, Double> reference) {
+        int allowed = threshold.get()
+        List<String> regressions = []
+        medians.each { name, value ->
+            Double base = reference[name]
+            if (base != null && base > 0) {
+                double delta = (value - base) * 100d / base
+                if (delta > allowed) {
+                    regressions << "${name}: ${String.format(Locale.ENGLISH, '%.1f', base)} ms -> ${String.format(Locale.ENGLISH, '%.1f', value)} ms (+${String.format(Locale.ENGLISH, '%.1f', delta)}%)".toString()
+                }
+            }
+        }
+        if (!regressions.isEmpty()) {
+            throw new GradleException("Configuration time regressed by more than ${allowed}% compared to the baseline:\n  " + regressions.join("\n  "))
+        }
+    }
+
+    private static Map<String, Double> readReport(File file) {
+        Map<String, Double> result = [:]
+        file.readLines().drop(1).each { line ->
+            int idx = line.lastIndexOf(',')
+            if (idx > 0) {
+                result[line.substring(0, idx)] = Double.parseDouble(line.substring(idx + 1))
+            }
+        }
+        result
+    }
+
+    /**
+     * Parses the gradle-profiler CSV output, which has one column per
+     * scenario and one line per build iteration.
+     */
+    private static Map<String, Double> parse(String benchmark, File csv) {
+        List<List<String>> rows = csv.readLines().collect { it.split(',', -1).toList() }
+        List<String> scenarios = rows.find { it[0] == 'scenario' }
+        if (scenarios == null) {
+            return [:]
+        }
+        Map<String, Double> result = [:]
+        for (int column = 1; column < scenarios.size(); column++) {
+            List<Double> values = []
+            for (List<String> row : rows) {
+                if (row[0].startsWith(MEASURED_BUILD) && column < row.size() && row[column]) {
+                    values << Double.parseDouble(row[column])
+                }
+            }
+            if (!values.isEmpty()) {
+                Collections.sort(values)
+                int mid = values.size().intdiv(2)
+                double median = values.size() % 2 == 0 ? (values[mid - 1] + values[mid]) / 2d : values[mid]
+                result["${benchmark}/${scenarios[column]}".toString()] = median
+            }
+        }
+        result
+    }
+}
@@ -0,0 +1,102 @@
+package io.micronaut.internal.build.benchmarks
+
+import groovy.transform.CompileStatic
+import org.gradle.api.DefaultTask
+import org.gradle.api.file.DirectoryProperty
+import org.gradle.api.provider.ListProperty
+import org.gradle.api.provider.Property
+import org.gradle.api.tasks.Input
+import org.gradle.api.tasks.OutputDirectory
+import org.gradle.api.tasks.TaskAction
+
+/**
+ * Generates a synthetic multi-project build where each subproject
+ * applies the plugin under test. The generated build resolves the
+ * plugins from a local repository where the current version of the
+ * plugins is published.
+ */
+@CompileStatic
+abstract class GenerateBenchmarkBuild extends DefaultTask {
+
+    /**
+     * The plugin ids applied to each subproject.
+     */
+    @Input
+    abstract ListProperty<String> getPluginIds()
+
+    @Input
+    abstract Property<Integer> getSubprojectCount()
+
+    @Input
+    abstract Property<String> getPluginVersion()
+
+    @Input
+    abstract Property<String> getMicronautVersion()
+
+    @Input
+    abstract Property<String> getPluginRepository()
+
+    @OutputDirectory
+    abstract DirectoryProperty getOutputDirectory()
+
+    @TaskAction
+    void generate() {
+        File root = outputDirectory.get().asFile
+        root.deleteDir()
+        root.mkdirs()
+        int count = subprojectCount.get()
+        List<String> ids = pluginIds.get()
+        String repository = pluginRepository.get().replace('\\', '/')
+        new File(root, "settings.gradle").text = """pluginManagement {
+    repositories {
+        maven { url = "${repository}" }
+        gradlePluginPortal()
+    }
+}
+
+rootProject.name = "benchmark"
+
+${(0..<count).collect { "include 'module-$it'" }.join('\n')}
+"""
+        new File(root, "build.gradle").text = """plugins {
+${ids.collect { "    id '$it' version '${pluginVersion.get()}' apply false" }.join('\n')}
+}
+"""
+        new File(root, "gradle.properties").text = """org.gradle.jvmargs=-Xmx2g
+micronautVersion=${micronautVersion.get()}
+"""
+        boolean application = ids.any { !it.contains('library') }
+        for (int i = 0; i < count; i++) {
+            File module = new File(root, "module-$i")
+            File sources = new File(module, "src/main/java/benchmark/module$i")
+            sources.mkdirs()
+            new File(module, "build.gradle").text = """plugins {
+${ids.collect { "    id '$it'" }.join('\n')}
+}
+
+repositories {
+    mavenCentral()
+}
+
+micronaut {
+    ${application ? 'runtime "netty"' : ''}
+    processing {
+        incremental true
+        annotations "benchmark.module${i}.*"
+    }
+}
+${application ? """
+application {
+    mainClass.set("benchmark.module${i}.Application")
+}
+""" : ''}"""
+            new File(sources, "Application.java").text = """package benchmark.module$i;
+
+public class Application {
+    public static void main(String... args) {
+    }
+}
+"""
+        }
+    }
+}
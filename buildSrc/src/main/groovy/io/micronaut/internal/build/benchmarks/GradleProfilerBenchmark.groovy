@@ -0,0 +1,72 @@
+package io.micronaut.internal.build.benchmarks
+
+import groovy.transform.CompileStatic
+import org.gradle.api.DefaultTask
+import org.gradle.api.GradleException
+import org.gradle.api.file.DirectoryProperty
+import org.gradle.api.file.RegularFileProperty
+import org.gradle.api.provider.Property
+import org.gradle.api.tasks.Input
+import org.gradle.api.tasks.InputDirectory
+import org.gradle.api.tasks.InputFile
+import org.gradle.api.tasks.OutputDirectory
+import org.gradle.api.tasks.PathSensitive
+import org.gradle.api.tasks.PathSensitivity
+import org.gradle.api.tasks.TaskAction
+import org.gradle.process.ExecOperations
+
+import javax.inject.Inject
+
+/**
+ * Runs the gradle-profiler benchmark scenarios against a generated build.
+ * The gradle-profiler executable must be available on the PATH, or
+ * configured using the {@code gradleProfilerExecutable} project property.
+ */
+@CompileStatic
+abstract class GradleProfilerBenchmark extends DefaultTask {
+
+    @Input
+    abstract Property<String> getExecutable()
+
+    @Input
+    abstract Property<String> getGradleVersion()
+
+    @InputDirectory
+    @PathSensitive(PathSensitivity.RELATIVE)
+    abstract DirectoryProperty getProjectDirectory()
+
+    @InputFile
+    @PathSensitive(PathSensitivity.NONE)
+    abstract RegularFileProperty getScenarioFile()
+
+    @OutputDirectory
+    abstract DirectoryProperty getOutputDirectory()
+
+    @Inject
+    abstract ExecOperations getExecOperations()
+
+    GradleProfilerBenchmark() {
+        // benchmarks are never up-to-date
+        outputs.upToDateWhen { false }
+    }
+
+    @TaskAction
+    void benchmark() {
+        File output = outputDirectory.get().asFile
+        output.deleteDir()
+        try {
+            execOperations.exec {
+                it.executable(executable.get())
+                it.args(
+                        "--benchmark",
+                        "--project-dir", projectDirectory.get().asFile.absolutePath,
+                        "--scenario-file", scenarioFile.get().asFile.absolutePath,
+                        "--output-dir", output.absolutePath,
+                        "--gradle-version", gradleVersion.get()
+                )
+            }
+        } catch (Exception e) {
+            throw new GradleException("Unable to run gradle-profiler. Make sure it is installed (https://github.com/gradle/gradle-profiler) and available on the PATH, or set the 'gradleProfilerExecutable' property.", e)
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package io.micronaut.gradle.aot;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the filtering applied to each entry of the main jar when
+ * building the optimized jars.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class JarExclusionSpecBenchmark {
+
+    @Param({"10000", "50000"})
+    public int entries;
+
+    @Param({"100", "5000"})
+    public int excludedResources;
+
+    private String[] paths;
+    private Set<String> excludes;
+    private final Set<String> prefixes = Collections.singleton("META-INF/services/");
+
+    @Setup
+    public void setup() {
+        paths = new String[entries];
+        excludes = new HashSet<>();
+        for (int i = 0; i < entries; i++) {
+            if (i % 10 == 0) {
+                paths[i] = "META-INF/services/io.micronaut.bench.ServiceType" + i;
+            } else {
+                paths[i] = "io/micronaut/bench/pkg" + (i % 100) + "/resource" + i + ".yml";
+            }
+        }
+        for (int i = 0; i < excludedResources; i++) {
+            excludes.add(paths[(i * 7) % entries]);
+        }
+    }
+
+    @Benchmark
+    public void filter(Blackhole blackhole) {
+        for (String path : paths) {
+            blackhole.consume(JarExclusionSpec.isExcluded(path, excludes, prefixes));
+        }
+    }
+}
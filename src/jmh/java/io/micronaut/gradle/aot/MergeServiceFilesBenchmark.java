@@ -0,0 +1,64 @@
+package io.micronaut.gradle.aot;
+
+import io.micronaut.gradle.benchmarks.SyntheticClasspath;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures merging service files coming from many classpath entries.
+ * With the defaults, the largest case merges 100k service entries.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class MergeServiceFilesBenchmark {
+
+    @Param({"100", "1000", "5000"})
+    public int classpathEntries;
+
+    @Param({"4"})
+    public int servicesPerEntry;
+
+    @Param({"5"})
+    public int entriesPerService;
+
+    private SyntheticClasspath classpath;
+    private List<File> serviceFiles;
+    private File outputDir;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        classpath = new SyntheticClasspath("merge-service-files");
+        serviceFiles = classpath.serviceFiles(classpathEntries, servicesPerEntry, entriesPerService);
+        outputDir = classpath.directory("output").toFile();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        classpath.delete();
+    }
+
+    @Benchmark
+    public File merge() {
+        MergeServiceFiles.mergeServiceFiles(serviceFiles, outputDir);
+        return outputDir;
+    }
+}
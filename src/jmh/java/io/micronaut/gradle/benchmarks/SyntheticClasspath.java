@@ -0,0 +1,141 @@
+package io.micronaut.gradle.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+
+/**
+ * Generates synthetic classpaths for benchmarks: jars with classes,
+ * resources and service files, in a reproducible way.
+ */
+public final class SyntheticClasspath {
+    private static final int SERVICE_TYPES = 50;
+
+    private final Path root;
+    private final Random random = new Random(1234L);
+
+    public SyntheticClasspath(String name) {
+        try {
+            this.root = Files.createTempDirectory("micronaut-jmh-" + name);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public Path getRoot() {
+        return root;
+    }
+
+    public static String serviceType(int i) {
+        return "io.micronaut.bench.ServiceType" + i;
+    }
+
+    /**
+     * Creates jars each containing classes, resources and service files.
+     * @param count the number of jars
+     * @param entriesPerJar the number of classes in each jar
+     * @param servicesPerJar the number of service files in each jar
+     * @return the generated jars
+     */
+    public List<File> jars(int count, int entriesPerJar, int servicesPerJar) {
+        Path dir = root.resolve("jars");
+        List<File> jars = new ArrayList<>(count);
+        try {
+            Files.createDirectories(dir);
+            byte[] payload = new byte[1024];
+            for (int i = 0; i < count; i++) {
+                File jar = dir.resolve("lib-" + i + "-1.0.jar").toFile();
+                try (JarOutputStream out = new JarOutputStream(Files.newOutputStream(jar.toPath()))) {
+                    for (int j = 0; j < entriesPerJar; j++) {
+                        random.nextBytes(payload);
+                        out.putNextEntry(new JarEntry("io/micronaut/bench/lib" + i + "/Class" + j + ".class"));
+                        out.write(payload);
+                        out.closeEntry();
+                        out.putNextEntry(new JarEntry("io/micronaut/bench/lib" + i + "/resource" + j + ".txt"));
+                        out.write(payload, 0, 128);
+                        out.closeEntry();
+                    }
+                    for (int j = 0; j < servicesPerJar; j++) {
+                        out.putNextEntry(new JarEntry("META-INF/services/" + serviceType((i + j) % SERVICE_TYPES)));
+                        out.write(("io.micronaut.bench.lib" + i + ".Impl" + j + "\n").getBytes(StandardCharsets.UTF_8));
+                        out.closeEntry();
+                    }
+                }
+                jars.add(jar);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return jars;
+    }
+
+    /**
+     * Creates exploded service files, as found in the output of the
+     * jar and of the AOT optimizer, with the given number of entries.
+     * @param directories the number of directories
+     * @param servicesPerDirectory the number of service files per directory
+     * @param entriesPerService the number of lines in each service file
+     * @return the list of service files
+     */
+    public List<File> serviceFiles(int directories, int servicesPerDirectory, int entriesPerService) {
+        List<File> files = new ArrayList<>(directories * servicesPerDirectory);
+        try {
+            for (int i = 0; i < directories; i++) {
+                Path services = root.resolve("services/dir" + i + "/META-INF/services");
+                Files.createDirectories(services);
+                for (int j = 0; j < servicesPerDirectory; j++) {
+                    Path file = services.resolve(serviceType((i + j) % SERVICE_TYPES));
+                    try (OutputStream out = Files.newOutputStream(file)) {
+                        for (int k = 0; k < entriesPerService; k++) {
+                            out.write(("io.micronaut.bench.dir" + i + ".Impl" + j + "_" + k + "\n").getBytes(StandardCharsets.UTF_8));
+                        }
+                    }
+                    files.add(file.toFile());
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return files;
+    }
+
+    public Path directory(String name) {
+        try {
+            return Files.createDirectories(root.resolve(name));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public void delete() {
+        try {
+            Files.walkFileTree(root, new SimpleFileVisitor<Path>() {
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                    Files.delete(file);
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult postVisitDirectory(Path dir, IOException exc) throws IOException {
+                    Files.delete(dir);
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package io.micronaut.gradle.docker;
+
+import io.micronaut.gradle.benchmarks.SyntheticClasspath;
+import io.micronaut.gradle.docker.model.Layer;
+import io.micronaut.gradle.docker.model.LayerKind;
+import io.micronaut.gradle.docker.model.RuntimeKind;
+import io.micronaut.gradle.docker.tasks.BuildLayersTask;
+import io.micronaut.gradle.docker.tasks.LayerStoreService;
+import org.gradle.api.Project;
+import org.gradle.testfixtures.ProjectBuilder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the creation of the Docker layers directory from a
+ * classpath of jars. The task is executed within a project created
+ * by the Gradle project builder.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+public class BuildLayersTaskBenchmark {
+
+    @Param({"100", "1000", "5000"})
+    public int classpathEntries;
+
+    @Param({"false", "true"})
+    public boolean layerStore;
+
+    private SyntheticClasspath classpath;
+    private BuildLayersTask task;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        classpath = new SyntheticClasspath("build-layers");
+        List<File> jars = classpath.jars(classpathEntries, 20, 2);
+        File projectDir = classpath.directory("project").toFile();
+        Project project = ProjectBuilder.builder().withProjectDir(projectDir).build();
+        task = project.getTasks().create("buildLayers", BuildLayersTask.class, t -> {
+            t.getOutputDir().set(new File(projectDir, "build/docker/main/layers"));
+            if (layerStore) {
+                t.getLayerStore().set(new File(projectDir, "build/docker/.layer-store"));
+                t.getLayerStoreService().set(LayerStoreService.registerIfAbsent(project));
+            }
+            Layer libs = project.getObjects().newInstance(Layer.class);
+            libs.getLayerKind().set(LayerKind.LIBS);
+            libs.getRuntimeKind().set(RuntimeKind.JIT);
+            libs.getFiles().from(jars.subList(1, jars.size()));
+            Layer app = project.getObjects().newInstance(Layer.class);
+            app.getLayerKind().set(LayerKind.APP);
+            app.getRuntimeKind().set(RuntimeKind.JIT);
+            app.getFiles().from(jars.get(0));
+            t.getLayers().add(libs);
+            t.getLayers().add(app);
+        });
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        classpath.delete();
+    }
+
+    @Benchmark
+    public BuildLayersTask buildLayers() {
+        task.action();
+        return task;
+    }
+}
@@ -0,0 +1,51 @@
+package io.micronaut.gradle.docker;
+
+import org.gradle.api.file.FileSystemLocation;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the computation of the Class-Path manifest attribute of
+ * the runner jars.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class ClassPathManifestBenchmark {
+
+    @Param({"100", "1000", "5000"})
+    public int classpathEntries;
+
+    private List<FileSystemLocation> runtimeClasspath;
+
+    @Setup
+    public void setup() {
+        runtimeClasspath = new ArrayList<>(classpathEntries);
+        for (int i = 0; i < classpathEntries; i++) {
+            File file = new File("/home/user/.gradle/caches/modules-2/files-2.1/io.micronaut.bench/lib-" + i + "/1.0/0123456789abcdef/lib-" + i + "-1.0.jar");
+            runtimeClasspath.add(() -> file);
+        }
+    }
+
+    @Benchmark
+    public String classPath() {
+        return MicronautDockerPlugin.toClassPathManifestEntry(runtimeClasspath);
+    }
+}
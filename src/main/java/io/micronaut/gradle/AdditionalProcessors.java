@@ -0,0 +1,109 @@
+/*
+ * Copyright 2003-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.micronaut.gradle;
+
+import org.gradle.api.Project;
+import org.gradle.api.artifacts.Configuration;
+import org.gradle.api.artifacts.Dependency;
+import org.gradle.api.artifacts.DependencySet;
+import org.gradle.api.artifacts.dsl.DependencyHandler;
+import org.gradle.api.provider.Provider;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+import static org.gradle.api.plugins.JavaPlugin.COMPILE_ONLY_CONFIGURATION_NAME;
+import static org.gradle.api.plugins.JavaPlugin.IMPLEMENTATION_CONFIGURATION_NAME;
+
+/**
+ * Adds the annotation processors required by the Micronaut modules used by
+ * a project, like Micronaut Data. A processor is added when a dependency of
+ * its group is declared in the {@code implementation} or {@code compileOnly}
+ * configurations. The dependencies are only looked up when a processor
+ * configuration is resolved, so that the dependencies declared at any time
+ * are taken into account, in a single pass over the declared dependencies.
+ *
+ * @since 3.2.0
+ */
+final class AdditionalProcessors {
+    private static final Map<String, String> GROUP_TO_PROCESSOR_MAP = Collections.unmodifiableMap(new LinkedHashMap<String, String>() {{
+        put("io.micronaut.data", "io.micronaut.data:micronaut-data-processor");
+        put("io.micronaut.jaxrs", "io.micronaut.jaxrs:micronaut-jaxrs-processor");
+        put("io.micronaut.security", "io.micronaut.security:micronaut-security-annotations");
+    }});
+
+    private AdditionalProcessors() {
+    }
+
+    /**
+     * Adds the processors required by the dependencies of a project to
+     * processor configurations.
+     * @param project the project
+     * @param configurations the names of the processor configurations
+     */
+    static void register(Project project, String... configurations) {
+        Provider<Map<String, String>> processors = project.getExtensions()
+                .getByType(MicronautExtension.class)
+                .getProcessing()
+                .getAdditionalProcessors();
+        DependencyHandler dependencyHandler = project.getDependencies();
+        for (String configuration : configurations) {
+            project.getConfigurations().named(configuration).configure(c ->
+                    c.withDependencies(dependencies -> {
+                        for (String processor : requiredProcessors(project, processors.get()).values()) {
+                            Dependency dependency = dependencyHandler.create(processor);
+                            if (!contains(dependencies, dependency)) {
+                                dependencies.add(dependency);
+                            }
+                        }
+                    })
+            );
+        }
+    }
+
+    private static Map<String, String> requiredProcessors(Project project, Map<String, String> additionalProcessors) {
+        Map<String, String> processors = new LinkedHashMap<>(GROUP_TO_PROCESSOR_MAP);
+        processors.putAll(additionalProcessors);
+        Map<String, String> required = new LinkedHashMap<>();
+        for (String name : new String[] {IMPLEMENTATION_CONFIGURATION_NAME, COMPILE_ONLY_CONFIGURATION_NAME}) {
+            Configuration configuration = project.getConfigurations().findByName(name);
+            if (configuration == null) {
+                continue;
+            }
+            for (Dependency dependency : configuration.getAllDependencies()) {
+                String group = dependency.getGroup();
+                if (group != null && processors.containsKey(group)) {
+                    required.put(group, processors.get(group));
+                    if (required.size() == processors.size()) {
+                        return required;
+                    }
+                }
+            }
+        }
+        return required;
+    }
+
+    private static boolean contains(DependencySet dependencies, Dependency dependency) {
+        for (Dependency candidate : dependencies) {
+            if (Objects.equals(candidate.getGroup(), dependency.getGroup()) && Objects.equals(candidate.getName(), dependency.getName())) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
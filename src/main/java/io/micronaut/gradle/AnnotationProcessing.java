@@ -3,6 +3,7 @@ package io.micronaut.gradle;
 import org.gradle.api.artifacts.Configuration;
 import org.gradle.api.model.ObjectFactory;
 import org.gradle.api.provider.ListProperty;
+import org.gradle.api.provider.MapProperty;
 import org.gradle.api.provider.Property;
 import org.gradle.api.tasks.SourceSet;
 
@@ -20,6 +21,9 @@ public class AnnotationProcessing implements AnnotationProcessingConfigBuilder {
     private final Property<String> module;
     private final ListProperty<String> annotations;
     private final ListProperty<SourceSet> additionalSourceSets;
+    private final Property<Boolean> report;
+    private final Property<Boolean> incrementalGroovy;
+    private final MapProperty<String, String> additionalProcessors;
 
     @Inject
     public AnnotationProcessing(ObjectFactory objectFactory) {
@@ -28,6 +32,9 @@ public class AnnotationProcessing implements AnnotationProcessingConfigBuilder {
         this.group = objectFactory.property(String.class);
         this.annotations = objectFactory.listProperty(String.class);
         this.additionalSourceSets = objectFactory.listProperty(SourceSet.class);
+        this.report = objectFactory.property(Boolean.class).convention(false);
+        this.additionalProcessors = objectFactory.mapProperty(String.class, String.class);
+        this.incrementalGroovy = objectFactory.property(Boolean.class).convention(false);
     }
 
     /**
@@ -65,6 +72,32 @@ public class AnnotationProcessing implements AnnotationProcessingConfigBuilder {
         return additionalSourceSets;
     }
 
+    /**
+     * @return Whether the effectiveness of incremental annotation processing is reported
+     * @since 3.2.0
+     */
+    public Property<Boolean> getReport() {
+        return report;
+    }
+
+    /**
+     * @return The annotation processors added when a dependency of a group is declared,
+     * in addition to the processors of Micronaut Data, JAX-RS and Security, keyed by group
+     * @since 3.2.0
+     */
+    public MapProperty<String, String> getAdditionalProcessors() {
+        return additionalProcessors;
+    }
+
+    /**
+     * @return Whether Groovy sources are compiled incrementally, removing the
+     * classes Micronaut generated for the recompiled sources which are not generated anymore
+     * @since 3.2.0
+     */
+    public Property<Boolean> getIncrementalGroovy() {
+        return incrementalGroovy;
+    }
+
     @Override
     public AnnotationProcessingConfigBuilder sourceSets(SourceSet... sourceSets) {
         this.additionalSourceSets.addAll(sourceSets);
@@ -104,4 +137,24 @@ public class AnnotationProcessing implements AnnotationProcessingConfigBuilder {
         }
         return this;
     }
+
+    @Override
+    public AnnotationProcessingConfigBuilder report(boolean report) {
+        this.report.set(report);
+        return this;
+    }
+
+    @Override
+    public AnnotationProcessingConfigBuilder additionalProcessor(String group, String processor) {
+        if (group != null && processor != null) {
+            this.additionalProcessors.put(group, processor);
+        }
+        return this;
+    }
+
+    @Override
+    public AnnotationProcessingConfigBuilder incrementalGroovy(boolean incrementalGroovy) {
+        this.incrementalGroovy.set(incrementalGroovy);
+        return this;
+    }
 }
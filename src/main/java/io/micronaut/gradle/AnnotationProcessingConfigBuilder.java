@@ -41,4 +41,29 @@ public interface AnnotationProcessingConfigBuilder {
      * @return This builder
      */
     AnnotationProcessingConfigBuilder sourceSets(SourceSet... sourceSets);
+
+    /**
+     * Whether the effectiveness of incremental annotation processing is reported.
+     * @param report True if the report is generated
+     * @return This builder
+     * @since 3.2.0
+     */
+    AnnotationProcessingConfigBuilder report(boolean report);
+
+    /**
+     * Adds an annotation processor when a dependency of the given group is declared.
+     * @param group The group of the dependencies requiring the processor
+     * @param processor The coordinates of the processor, like {@code com.example:example-processor}
+     * @return This builder
+     * @since 3.2.0
+     */
+    AnnotationProcessingConfigBuilder additionalProcessor(String group, String processor);
+
+    /**
+     * Whether Groovy sources are compiled incrementally.
+     * @param incrementalGroovy True if Groovy sources are compiled incrementally
+     * @return This builder
+     * @since 3.2.0
+     */
+    AnnotationProcessingConfigBuilder incrementalGroovy(boolean incrementalGroovy);
 }
@@ -0,0 +1,186 @@
+/*
+ * Copyright 2003-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.micronaut.gradle;
+
+import org.gradle.api.GradleException;
+import org.gradle.api.JavaVersion;
+import org.gradle.api.Project;
+import org.gradle.api.file.Directory;
+import org.gradle.api.file.FileCollection;
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
+import org.gradle.api.plugins.JavaPlugin;
+import org.gradle.api.plugins.JavaPluginConvention;
+import org.gradle.api.provider.Provider;
+import org.gradle.api.tasks.JavaExec;
+import org.gradle.api.tasks.SourceSet;
+import org.gradle.api.tasks.TaskProvider;
+import org.gradle.api.tasks.bundling.Jar;
+import org.gradle.jvm.toolchain.JavaLauncher;
+import org.gradle.process.CommandLineArgumentProvider;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collections;
+import java.util.concurrent.Callable;
+
+/**
+ * Configures a dynamic class data sharing (AppCDS) archive for the
+ * development run task. The archive is created when the application
+ * exits the first time, then reused by the next runs, as long as the
+ * dependencies of the application and the JDK don't change.
+ *
+ * Dynamic archives require JDK 13 or later: on older JDKs, nothing is
+ * configured. The JVM cannot archive classes if a non-empty directory
+ * appears on the classpath before a jar, so when the archive is enabled,
+ * the task runs the jar of the application instead of its classes and
+ * resources directories. The jar comes first, so that the project
+ * resources still take precedence over the resources of the dependencies.
+ */
+final class DevelopmentCds {
+    private static final Logger LOGGER = Logging.getLogger(DevelopmentCds.class);
+    private static final int MINIMUM_JAVA_VERSION = 13;
+    private static final String ARCHIVE_PREFIX = "run-";
+    private static final String ARCHIVE_EXTENSION = ".jsa";
+
+    private DevelopmentCds() {
+    }
+
+    /**
+     * Configures the archive for a task.
+     * @param project the project
+     * @param javaExec the task
+     * @param enabled whether the CDS archive is enabled
+     */
+    static void configure(Project project, JavaExec javaExec, Provider<Boolean> enabled) {
+        Provider<Integer> javaVersion = javaExec.getJavaLauncher()
+                .map(launcher -> launcher.getMetadata().getLanguageVersion().asInt())
+                .orElse(Integer.parseInt(JavaVersion.current().getMajorVersion()));
+        Provider<String> javaHome = javaExec.getJavaLauncher()
+                .map(DevelopmentCds::javaHomeOf)
+                .orElse(System.getProperty("java.home"));
+        Provider<Boolean> active = enabled.zip(javaVersion, (e, v) -> e && v >= MINIMUM_JAVA_VERSION);
+        Provider<Directory> archiveDirectory = project.getLayout().getBuildDirectory().dir("cds");
+        SourceSet mainSourceSet = project.getConvention().getPlugin(JavaPluginConvention.class)
+                .getSourceSets()
+                .getByName(SourceSet.MAIN_SOURCE_SET_NAME);
+        TaskProvider<Jar> jar = project.getTasks().named(JavaPlugin.JAR_TASK_NAME, Jar.class);
+        // the classpath set by the application plugin
+        FileCollection classpath = mainSourceSet.getRuntimeClasspath();
+        FileCollection jarClasspath = project.files(jar, classpath.minus(mainSourceSet.getOutput()));
+        javaExec.setClasspath(project.files((Callable<FileCollection>) () -> active.get() ? jarClasspath : classpath));
+        javaExec.getJvmArgumentProviders().add(new ArchiveArgumentProvider(active, javaHome, javaExec.getName(), project.provider(javaExec::getClasspath), archiveDirectory));
+    }
+
+    /**
+     * Returns the first non-empty directory of a classpath which comes before a jar.
+     * @param classpath the classpath
+     * @return the directory, or null if the directories come last
+     */
+    static File directoryBeforeJar(Iterable<File> classpath) {
+        File directory = null;
+        for (File file : classpath) {
+            if (file.isDirectory()) {
+                String[] children = file.list();
+                if (directory == null && children != null && children.length > 0) {
+                    directory = file;
+                }
+            } else if (file.isFile() && directory != null) {
+                return directory;
+            }
+        }
+        return null;
+    }
+
+    private static String javaHomeOf(JavaLauncher launcher) {
+        return launcher.getMetadata().getInstallationPath().getAsFile().getAbsolutePath();
+    }
+
+    /**
+     * Computes the key of the archive from the jars of the classpath,
+     * which are the only entries which can be archived, and the JDK.
+     */
+    static String archiveKey(String javaHome, Iterable<File> classpath) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(javaHome.getBytes(StandardCharsets.UTF_8));
+            for (File file : classpath) {
+                if (file.isFile()) {
+                    digest.update((file.getAbsolutePath() + "|" + file.length() + "|" + file.lastModified() + "\n").getBytes(StandardCharsets.UTF_8));
+                }
+            }
+            StringBuilder sb = new StringBuilder();
+            byte[] hash = digest.digest();
+            for (int i = 0; i < 8; i++) {
+                sb.append(String.format("%02x", hash[i]));
+            }
+            return sb.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new GradleException("Unable to compute the CDS archive key", e);
+        }
+    }
+
+    private static final class ArchiveArgumentProvider implements CommandLineArgumentProvider {
+        private final Provider<Boolean> active;
+        private final Provider<String> javaHome;
+        private final String taskName;
+        private final Provider<FileCollection> classpath;
+        private final Provider<Directory> archiveDirectory;
+
+        private ArchiveArgumentProvider(Provider<Boolean> active,
+                                        Provider<String> javaHome,
+                                        String taskName,
+                                        Provider<FileCollection> classpath,
+                                        Provider<Directory> archiveDirectory) {
+            this.active = active;
+            this.javaHome = javaHome;
+            this.taskName = taskName;
+            this.classpath = classpath;
+            this.archiveDirectory = archiveDirectory;
+        }
+
+        @Override
+        public Iterable<String> asArguments() {
+            if (!active.get()) {
+                return Collections.emptyList();
+            }
+            FileCollection files = classpath.get();
+            File directory = directoryBeforeJar(files);
+            if (directory != null) {
+                LOGGER.warn("The class data sharing archive is not used by task '{}' because directory {} comes before jars on its classpath", taskName, directory);
+                return Collections.emptyList();
+            }
+            File dir = archiveDirectory.get().getAsFile();
+            String archiveName = ARCHIVE_PREFIX + archiveKey(javaHome.get(), files) + ARCHIVE_EXTENSION;
+            File archive = new File(dir, archiveName);
+            if (archive.exists()) {
+                return Collections.singletonList("-XX:SharedArchiveFile=" + archive.getAbsolutePath());
+            }
+            dir.mkdirs();
+            // remove archives created for a previous classpath or JDK
+            File[] stale = dir.listFiles((d, name) -> name.startsWith(ARCHIVE_PREFIX) && name.endsWith(ARCHIVE_EXTENSION));
+            if (stale != null) {
+                for (File file : stale) {
+                    file.delete();
+                }
+            }
+            return Collections.singletonList("-XX:ArchiveClassesAtExit=" + archive.getAbsolutePath());
+        }
+    }
+
+}
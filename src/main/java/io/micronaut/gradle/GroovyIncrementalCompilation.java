@@ -0,0 +1,341 @@
+/*
+ * Copyright 2003-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.micronaut.gradle;
+
+import org.gradle.api.Action;
+import org.gradle.api.GradleException;
+import org.gradle.api.Task;
+import org.gradle.api.provider.Provider;
+import org.gradle.api.tasks.compile.GroovyCompile;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Configures the incremental compilation of Groovy sources processed by
+ * the Micronaut AST transformations.
+ *
+ * Gradle maps each class file to the Groovy source it was compiled from,
+ * and removes the classes of the changed and deleted sources before it
+ * recompiles them. The classes generated by Micronaut, like bean definitions
+ * and introspections, are written by the AST transformations, so Gradle
+ * doesn't know which source they belong to: when a bean is deleted, or loses
+ * its annotation, its definition would be left in the output and loaded at
+ * runtime.
+ *
+ * After each compilation, the plugin records which classes the sources
+ * compiled by it generated: the classes of the compiled sources, found by
+ * comparing the class files before and after the compilation. A bean
+ * definition is attributed to the compiled class it is named after, since
+ * it is generated from the source of its bean or factory class, while an
+ * introspection, which can be generated for a class of another source, is
+ * attributed to all the compiled classes. A generated class is removed when
+ * all the classes it is attributed to were compiled again, or deleted,
+ * without generating it again, as well as its service entries.
+ *
+ * @since 3.2.0
+ */
+final class GroovyIncrementalCompilation {
+    private static final String CLASS_EXTENSION = ".class";
+    private static final String DEFINITION_MARKER = "Definition";
+    private static final String INTROSPECTION_MARKER = "Introspection";
+    private static final List<String> GENERATED_MARKERS = Arrays.asList(DEFINITION_MARKER, INTROSPECTION_MARKER);
+    private static final List<String> REFERENCE_TYPES = Arrays.asList(
+            "io.micronaut.inject.BeanDefinitionReference",
+            "io.micronaut.core.beans.BeanIntrospectionReference"
+    );
+    private static final String SNAPSHOT_FILE = "micronaut-classes.txt";
+    private static final String GENERATED_FILE = "micronaut-generated-classes.txt";
+
+    private GroovyIncrementalCompilation() {
+    }
+
+    /**
+     * Enables incremental compilation for a Groovy compile task.
+     * @param task the compile task
+     * @param sourceRoots the source directories of the source set the task compiles
+     */
+    static void configure(GroovyCompile task, Provider<Set<File>> sourceRoots) {
+        task.getOptions().setIncremental(true);
+        task.doFirst(new ValidateSourceRoots(sourceRoots));
+        task.doFirst(new SnapshotClasses());
+        task.doLast(new RemoveStaleGeneratedClasses());
+    }
+
+    /**
+     * Records the classes generated by a compilation, and returns the
+     * generated classes which are stale.
+     * @param before the class files before the compilation, with their last modification time
+     * @param after the class files after the compilation, with their last modification time
+     * @param generated the classes generated by the previous compilations, updated with this compilation
+     * @return the paths of the stale classes, relative to the output directory
+     */
+    static List<String> update(Map<String, Long> before, Map<String, Long> after, Map<String, GeneratedClass> generated) {
+        Set<String> compiled = new TreeSet<>();
+        Set<String> compiledOrDeleted = new TreeSet<>();
+        after.forEach((path, lastModified) -> {
+            if (!isGenerated(path) && !lastModified.equals(before.get(path))) {
+                compiled.add(path);
+            }
+        });
+        compiledOrDeleted.addAll(compiled);
+        before.keySet().stream()
+                .filter(path -> !isGenerated(path) && !after.containsKey(path))
+                .forEach(compiledOrDeleted::add);
+        List<String> stale = new ArrayList<>();
+        after.forEach((path, lastModified) -> {
+            if (!isGenerated(path)) {
+                return;
+            }
+            if (!lastModified.equals(before.get(path))) {
+                Set<String> origins = originsOf(path, compiled);
+                if (origins.isEmpty()) {
+                    generated.remove(path);
+                } else {
+                    generated.put(path, new GeneratedClass(lastModified, origins));
+                }
+            } else {
+                GeneratedClass previous = generated.get(path);
+                // a class whose time changed since it was recorded, for example restored from the build cache, is unknown
+                if (previous != null && previous.lastModified == lastModified && compiledOrDeleted.containsAll(previous.origins)) {
+                    stale.add(path);
+                }
+            }
+        });
+        generated.keySet().removeIf(path -> !after.containsKey(path) || stale.contains(path));
+        Collections.sort(stale);
+        return stale;
+    }
+
+    private static boolean isGenerated(String path) {
+        if (!path.endsWith(CLASS_EXTENSION)) {
+            return false;
+        }
+        String simpleName = path.substring(path.lastIndexOf('/') + 1);
+        return simpleName.startsWith("$") && GENERATED_MARKERS.stream().anyMatch(simpleName::contains);
+    }
+
+    /**
+     * Returns the compiled classes a generated class is attributed to.
+     */
+    private static Set<String> originsOf(String path, Set<String> compiled) {
+        String simpleName = path.substring(path.lastIndexOf('/') + 1);
+        if (simpleName.lastIndexOf(DEFINITION_MARKER) > simpleName.lastIndexOf(INTROSPECTION_MARKER)) {
+            Set<String> origins = new TreeSet<>(originCandidates(path));
+            origins.retainAll(compiled);
+            if (!origins.isEmpty()) {
+                return origins;
+            }
+        }
+        return new TreeSet<>(compiled);
+    }
+
+    /**
+     * Returns the class files the generated class may be named after. For
+     * example, {@code $Outer$Inner$Definition$Intercepted} may originate from
+     * {@code Outer$Inner}, or from {@code Outer} for a factory method bean.
+     */
+    private static List<String> originCandidates(String path) {
+        int lastSlash = path.lastIndexOf('/');
+        String packagePath = path.substring(0, lastSlash + 1);
+        String name = path.substring(lastSlash + 2, path.length() - CLASS_EXTENSION.length());
+        // the last marker is used, so that a bean whose name contains a marker is found too
+        int end = 0;
+        for (String marker : GENERATED_MARKERS) {
+            end = Math.max(end, name.lastIndexOf(marker));
+        }
+        String origin = name.substring(0, end);
+        if (origin.endsWith("$")) {
+            origin = origin.substring(0, origin.length() - 1);
+        }
+        List<String> candidates = new ArrayList<>();
+        while (!origin.isEmpty()) {
+            candidates.add(packagePath + origin + CLASS_EXTENSION);
+            int dollar = origin.lastIndexOf('$');
+            origin = dollar > 0 ? origin.substring(0, dollar) : "";
+        }
+        return candidates;
+    }
+
+    private static Map<String, Long> snapshot(File classesDir) {
+        Map<String, Long> snapshot = new HashMap<>();
+        Path root = classesDir.toPath();
+        if (!Files.isDirectory(root)) {
+            return snapshot;
+        }
+        try (Stream<Path> files = Files.walk(root)) {
+            files.filter(f -> f.getFileName().toString().endsWith(CLASS_EXTENSION)).forEach(f ->
+                    snapshot.put(root.relativize(f).toString().replace(File.separatorChar, '/'), f.toFile().lastModified()));
+        } catch (IOException e) {
+            throw new GradleException("Unable to list the classes of " + classesDir, e);
+        }
+        return snapshot;
+    }
+
+    private static Map<String, Long> readSnapshot(File file) throws IOException {
+        Map<String, Long> snapshot = new HashMap<>();
+        if (file.isFile()) {
+            for (String line : Files.readAllLines(file.toPath(), StandardCharsets.UTF_8)) {
+                String[] parts = line.split("\t");
+                if (parts.length == 2) {
+                    snapshot.put(parts[0], Long.parseLong(parts[1]));
+                }
+            }
+        }
+        return snapshot;
+    }
+
+    private static void writeSnapshot(File file, Map<String, Long> snapshot) throws IOException {
+        List<String> lines = new ArrayList<>(snapshot.size());
+        new TreeMap<>(snapshot).forEach((path, lastModified) -> lines.add(path + "\t" + lastModified));
+        Files.write(file.toPath(), lines, StandardCharsets.UTF_8);
+    }
+
+    private static Map<String, GeneratedClass> readGenerated(File file) throws IOException {
+        Map<String, GeneratedClass> generated = new HashMap<>();
+        if (file.isFile()) {
+            for (String line : Files.readAllLines(file.toPath(), StandardCharsets.UTF_8)) {
+                String[] parts = line.split("\t");
+                if (parts.length == 3) {
+                    generated.put(parts[0], new GeneratedClass(Long.parseLong(parts[1]), new TreeSet<>(Arrays.asList(parts[2].split(",")))));
+                }
+            }
+        }
+        return generated;
+    }
+
+    private static void writeGenerated(File file, Map<String, GeneratedClass> generated) throws IOException {
+        List<String> lines = new ArrayList<>(generated.size());
+        new TreeMap<>(generated).forEach((path, generatedClass) ->
+                lines.add(path + "\t" + generatedClass.lastModified + "\t" + String.join(",", generatedClass.origins)));
+        Files.write(file.toPath(), lines, StandardCharsets.UTF_8);
+    }
+
+    private static void removeStaleReferences(File classesDir) throws IOException {
+        for (String type : REFERENCE_TYPES) {
+            File serviceFile = new File(classesDir, "META-INF/services/" + type);
+            if (serviceFile.isFile()) {
+                List<String> lines = Files.readAllLines(serviceFile.toPath(), StandardCharsets.UTF_8);
+                List<String> kept = lines.stream()
+                        .filter(line -> line.trim().isEmpty() || exists(classesDir, line.trim()))
+                        .collect(Collectors.toList());
+                if (kept.size() != lines.size()) {
+                    Files.write(serviceFile.toPath(), kept, StandardCharsets.UTF_8);
+                }
+            }
+            // Micronaut 3 writes one file per service entry
+            File[] entries = new File(classesDir, "META-INF/micronaut/" + type).listFiles();
+            if (entries != null) {
+                for (File entry : entries) {
+                    if (!exists(classesDir, entry.getName())) {
+                        Files.delete(entry.toPath());
+                    }
+                }
+            }
+        }
+    }
+
+    private static boolean exists(File classesDir, String className) {
+        return new File(classesDir, className.replace('.', '/') + CLASS_EXTENSION).isFile();
+    }
+
+    /**
+     * A class generated by a compilation: its last modification time when
+     * it was generated, and the compiled classes it is attributed to.
+     */
+    static final class GeneratedClass {
+        private final long lastModified;
+        private final Set<String> origins;
+
+        GeneratedClass(long lastModified, Set<String> origins) {
+            this.lastModified = lastModified;
+            this.origins = origins;
+        }
+
+        Set<String> getOrigins() {
+            return origins;
+        }
+    }
+
+    private static final class ValidateSourceRoots implements Action<Task> {
+        private final Provider<Set<File>> sourceRoots;
+
+        private ValidateSourceRoots(Provider<Set<File>> sourceRoots) {
+            this.sourceRoots = sourceRoots;
+        }
+
+        @Override
+        public void execute(Task task) {
+            Set<File> roots = sourceRoots.get();
+            List<File> outside = ((GroovyCompile) task).getSource().getFiles().stream()
+                    .filter(file -> roots.stream().noneMatch(root -> file.toPath().startsWith(root.toPath())))
+                    .collect(Collectors.toList());
+            if (!outside.isEmpty()) {
+                task.getLogger().warn("Task {} cannot compile incrementally, because these sources are outside of the source directories of the source set: {}",
+                        task.getPath(), outside);
+            }
+        }
+    }
+
+    private static final class SnapshotClasses implements Action<Task> {
+        @Override
+        public void execute(Task task) {
+            File classesDir = ((GroovyCompile) task).getDestinationDirectory().get().getAsFile();
+            try {
+                writeSnapshot(new File(task.getTemporaryDir(), SNAPSHOT_FILE), snapshot(classesDir));
+            } catch (IOException e) {
+                throw new GradleException("Unable to record the classes of " + classesDir, e);
+            }
+        }
+    }
+
+    private static final class RemoveStaleGeneratedClasses implements Action<Task> {
+        @Override
+        public void execute(Task task) {
+            File classesDir = ((GroovyCompile) task).getDestinationDirectory().get().getAsFile();
+            File generatedFile = new File(task.getTemporaryDir(), GENERATED_FILE);
+            try {
+                Map<String, Long> before = readSnapshot(new File(task.getTemporaryDir(), SNAPSHOT_FILE));
+                Map<String, GeneratedClass> generated = readGenerated(generatedFile);
+                List<String> stale = update(before, snapshot(classesDir), generated);
+                for (String path : stale) {
+                    task.getLogger().info("Removing stale Micronaut generated class {}", path);
+                    Files.delete(new File(classesDir, path).toPath());
+                }
+                if (classesDir.isDirectory()) {
+                    removeStaleReferences(classesDir);
+                }
+                writeGenerated(generatedFile, generated);
+            } catch (IOException e) {
+                throw new GradleException("Unable to remove the stale classes of " + classesDir, e);
+            }
+        }
+    }
+}
@@ -0,0 +1,39 @@
+/*
+ * Copyright 2003-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.micronaut.gradle;
+
+import org.gradle.api.provider.Property;
+
+/**
+ * The resources a heavy task, like building a native image, declares
+ * it needs. It is registered as the {@code heavyTask} extension of
+ * the tasks which are throttled by the {@link HeavyTaskScheduler}.
+ *
+ * @since 3.2.0
+ */
+public interface HeavyTaskCost {
+    /**
+     * The amount of memory, in megabytes, that the task needs.
+     * @return the memory cost
+     */
+    Property<Long> getMemory();
+
+    /**
+     * The number of CPUs that the task needs.
+     * @return the CPU cost
+     */
+    Property<Integer> getCpus();
+}
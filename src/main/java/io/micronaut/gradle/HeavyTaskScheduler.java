@@ -0,0 +1,321 @@
+/*
+ * Copyright 2003-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.micronaut.gradle;
+
+import org.gradle.api.Action;
+import org.gradle.api.GradleException;
+import org.gradle.api.Project;
+import org.gradle.api.Task;
+import org.gradle.api.initialization.IncludedBuild;
+import org.gradle.api.invocation.Gradle;
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
+import org.gradle.api.provider.Property;
+import org.gradle.api.provider.Provider;
+import org.gradle.api.provider.ProviderFactory;
+import org.gradle.api.services.BuildService;
+import org.gradle.api.services.BuildServiceParameters;
+import org.gradle.build.event.BuildEventsListenerRegistry;
+import org.gradle.tooling.events.FinishEvent;
+import org.gradle.tooling.events.OperationCompletionListener;
+import org.gradle.tooling.events.task.TaskFinishEvent;
+
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.lang.management.OperatingSystemMXBean;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A build service which limits the number of heavy tasks, like building
+ * native images, executing concurrently. Each task declares how much memory
+ * and how many CPUs it needs, and waits until enough resources are available.
+ * Tasks are served in order of arrival, so that a task needing a lot of
+ * resources cannot be starved by smaller ones.
+ *
+ * The resources are released when the task finishes, whatever its outcome.
+ * Tasks are identified by their path in the build tree, like
+ * {@code :included:nativeCompile} for a task of an included build, which is
+ * the path of the task completion events.
+ *
+ * @since 3.2.0
+ */
+public abstract class HeavyTaskScheduler implements BuildService<HeavyTaskScheduler.Params>, OperationCompletionListener, AutoCloseable {
+    public static final String NAME = "micronautHeavyTaskScheduler";
+    public static final String EXTENSION_NAME = "heavyTask";
+    public static final String ENABLED_PROPERTY = "micronaut.heavytasks.enabled";
+    public static final String MAX_MEMORY_PROPERTY = "micronaut.heavytasks.maxMemory";
+    public static final String MAX_CPUS_PROPERTY = "micronaut.heavytasks.maxCpus";
+
+    public static final long NATIVE_IMAGE_MEMORY = 8192;
+    public static final long AOT_OPTIMIZER_MEMORY = 2048;
+    public static final long FAT_JAR_MEMORY = 1024;
+
+    private static final Logger LOGGER = Logging.getLogger(HeavyTaskScheduler.class);
+    private static final long DEFAULT_MAX_MEMORY = 16384;
+    private static final long WAIT_LOG_THRESHOLD_MS = 100;
+
+    private final ReentrantLock lock = new ReentrantLock(true);
+    private final Condition resourcesChanged = lock.newCondition();
+    private final Deque<String> queue = new ArrayDeque<>();
+    private final Map<String, Grant> grants = new HashMap<>();
+    private boolean initialized;
+    private long availableMemory;
+    private int availableCpus;
+    private long totalWaitMillis;
+    private int waitingTasks;
+
+    public interface Params extends BuildServiceParameters {
+        Property<Long> getMaxMemory();
+
+        Property<Integer> getMaxCpus();
+    }
+
+    /**
+     * Waits until the resources required by a task are available.
+     * @param taskPath the path of the task in the build tree
+     * @param memory the required memory, in megabytes
+     * @param cpus the required CPUs
+     * @param logger the logger used to report waiting times
+     */
+    public void acquire(String taskPath, long memory, int cpus, Logger logger) {
+        long start = System.nanoTime();
+        lock.lock();
+        try {
+            init();
+            // a task asking for more than the budget runs alone
+            long requiredMemory = Math.min(memory, getParameters().getMaxMemory().get());
+            int requiredCpus = Math.min(cpus, getParameters().getMaxCpus().get());
+            queue.addLast(taskPath);
+            while (!taskPath.equals(queue.peekFirst()) || requiredMemory > availableMemory || requiredCpus > availableCpus) {
+                resourcesChanged.await();
+            }
+            queue.removeFirst();
+            availableMemory -= requiredMemory;
+            availableCpus -= requiredCpus;
+            grants.put(taskPath, new Grant(requiredMemory, requiredCpus));
+            long waited = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            if (waited >= WAIT_LOG_THRESHOLD_MS) {
+                totalWaitMillis += waited;
+                waitingTasks++;
+                logger.lifecycle("Task {} waited {} ms for {} MB of memory and {} CPU(s) to be available", taskPath, waited, requiredMemory, requiredCpus);
+            }
+            // the next task in the queue may fit in the remaining resources
+            resourcesChanged.signalAll();
+        } catch (InterruptedException e) {
+            queue.remove(taskPath);
+            resourcesChanged.signalAll();
+            Thread.currentThread().interrupt();
+            throw new GradleException("Interrupted while waiting for resources for task " + taskPath, e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Releases the resources held by a task. Does nothing if the
+     * task doesn't hold any resources.
+     * @param taskPath the path of the task in the build tree
+     */
+    public void release(String taskPath) {
+        lock.lock();
+        try {
+            Grant grant = grants.remove(taskPath);
+            if (grant != null) {
+                availableMemory += grant.memory;
+                availableCpus += grant.cpus;
+                resourcesChanged.signalAll();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return the number of tasks waiting for resources
+     */
+    int getWaitingTaskCount() {
+        lock.lock();
+        try {
+            return queue.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void onFinish(FinishEvent event) {
+        if (event instanceof TaskFinishEvent) {
+            release(((TaskFinishEvent) event).getDescriptor().getTaskPath());
+        }
+    }
+
+    @Override
+    public void close() {
+        if (waitingTasks > 0) {
+            LOGGER.info("{} heavy task(s) waited a total of {} ms for resources", waitingTasks, totalWaitMillis);
+        }
+    }
+
+    private void init() {
+        if (!initialized) {
+            availableMemory = getParameters().getMaxMemory().get();
+            availableCpus = getParameters().getMaxCpus().get();
+            initialized = true;
+        }
+    }
+
+    /**
+     * Registers the scheduler service, if not already registered, and
+     * subscribes it to task completion events.
+     * @param project the project
+     * @param listenerRegistry the build events listener registry
+     * @return the scheduler service
+     */
+    public static Provider<HeavyTaskScheduler> registerIfAbsent(Project project, BuildEventsListenerRegistry listenerRegistry) {
+        ProviderFactory providers = project.getProviders();
+        Provider<HeavyTaskScheduler> scheduler = project.getGradle().getSharedServices().registerIfAbsent(NAME, HeavyTaskScheduler.class, spec -> {
+            spec.getParameters().getMaxMemory().set(providers.gradleProperty(MAX_MEMORY_PROPERTY)
+                    .forUseAtConfigurationTime()
+                    .map(Long::parseLong)
+                    .orElse(totalPhysicalMemory()));
+            spec.getParameters().getMaxCpus().set(providers.gradleProperty(MAX_CPUS_PROPERTY)
+                    .forUseAtConfigurationTime()
+                    .map(Integer::parseInt)
+                    .orElse(Runtime.getRuntime().availableProcessors()));
+        });
+        listenerRegistry.onTaskCompletion(scheduler);
+        return scheduler;
+    }
+
+    /**
+     * Declares a task as heavy: it will wait for its resources to be available
+     * before executing. The default cost can be overridden by the user via the
+     * {@code heavyTask} extension of the task.
+     * @param task the task
+     * @param scheduler the scheduler service
+     * @param memory the default memory cost, in megabytes
+     * @param cpus the default CPU cost
+     */
+    public static void limit(Task task, Provider<HeavyTaskScheduler> scheduler, long memory, int cpus) {
+        boolean enabled = task.getProject().getProviders().gradleProperty(ENABLED_PROPERTY)
+                .forUseAtConfigurationTime()
+                .map(Boolean::parseBoolean)
+                .getOrElse(true);
+        if (!enabled || task.getExtensions().findByName(EXTENSION_NAME) != null) {
+            return;
+        }
+        HeavyTaskCost cost = task.getExtensions().create(EXTENSION_NAME, HeavyTaskCost.class);
+        cost.getMemory().convention(memory);
+        cost.getCpus().convention(cpus);
+        String identityPath = identityPathOf(task);
+        task.usesService(scheduler);
+        task.doFirst(new AcquireResources(scheduler, identityPath, cost.getMemory(), cost.getCpus()));
+        // the completion event releases the resources if the task fails
+        task.doLast(new ReleaseResources(scheduler, identityPath));
+    }
+
+    /**
+     * Returns the path of a task in the build tree, which is prefixed with
+     * the path of its build when it belongs to an included build.
+     * @param task the task
+     * @return the path of the task in the build tree
+     */
+    static String identityPathOf(Task task) {
+        return buildPathOf(task.getProject().getGradle()) + task.getPath();
+    }
+
+    private static String buildPathOf(Gradle gradle) {
+        Gradle parent = gradle.getParent();
+        if (parent == null) {
+            return "";
+        }
+        File rootDir = gradle.getRootProject().getProjectDir();
+        String name = gradle.getRootProject().getName();
+        for (IncludedBuild includedBuild : parent.getIncludedBuilds()) {
+            if (includedBuild.getProjectDir().equals(rootDir)) {
+                name = includedBuild.getName();
+                break;
+            }
+        }
+        return buildPathOf(parent) + ":" + name;
+    }
+
+    /**
+     * The default number of CPUs a native image build uses.
+     * @return the CPU cost of a native image build
+     */
+    public static int nativeImageCpus() {
+        return Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+    }
+
+    private static long totalPhysicalMemory() {
+        OperatingSystemMXBean os = ManagementFactory.getOperatingSystemMXBean();
+        if (os instanceof com.sun.management.OperatingSystemMXBean) {
+            return ((com.sun.management.OperatingSystemMXBean) os).getTotalPhysicalMemorySize() / (1024 * 1024);
+        }
+        return DEFAULT_MAX_MEMORY;
+    }
+
+    private static final class Grant {
+        private final long memory;
+        private final int cpus;
+
+        private Grant(long memory, int cpus) {
+            this.memory = memory;
+            this.cpus = cpus;
+        }
+    }
+
+    private static final class AcquireResources implements Action<Task> {
+        private final Provider<HeavyTaskScheduler> scheduler;
+        private final String identityPath;
+        private final Provider<Long> memory;
+        private final Provider<Integer> cpus;
+
+        private AcquireResources(Provider<HeavyTaskScheduler> scheduler, String identityPath, Provider<Long> memory, Provider<Integer> cpus) {
+            this.scheduler = scheduler;
+            this.identityPath = identityPath;
+            this.memory = memory;
+            this.cpus = cpus;
+        }
+
+        @Override
+        public void execute(Task task) {
+            scheduler.get().acquire(identityPath, memory.get(), cpus.get(), task.getLogger());
+        }
+    }
+
+    private static final class ReleaseResources implements Action<Task> {
+        private final Provider<HeavyTaskScheduler> scheduler;
+        private final String identityPath;
+
+        private ReleaseResources(Provider<HeavyTaskScheduler> scheduler, String identityPath) {
+            this.scheduler = scheduler;
+            this.identityPath = identityPath;
+        }
+
+        @Override
+        public void execute(Task task) {
+            scheduler.get().release(identityPath);
+        }
+    }
+}
@@ -24,13 +24,16 @@ import org.gradle.api.artifacts.dsl.DependencyHandler;
 import org.gradle.api.plugins.JavaPluginConvention;
 import org.gradle.api.plugins.PluginManager;
 import org.gradle.api.provider.ListProperty;
+import org.gradle.api.provider.Provider;
 import org.gradle.api.tasks.SourceSet;
 import org.gradle.api.tasks.SourceSetContainer;
 import org.gradle.api.tasks.TaskContainer;
 import org.gradle.api.tasks.compile.GroovyCompile;
 import org.gradle.api.tasks.compile.JavaCompile;
 import org.gradle.api.tasks.testing.Test;
+import org.gradle.build.event.BuildEventsListenerRegistry;
 
+import javax.inject.Inject;
 import java.io.File;
 import java.util.Arrays;
 import java.util.Collections;
@@ -39,7 +42,6 @@ import java.util.List;
 import java.util.Optional;
 import java.util.Set;
 
-import static io.micronaut.gradle.PluginsHelper.applyAdditionalProcessors;
 import static io.micronaut.gradle.PluginsHelper.configureAnnotationProcessors;
 import static io.micronaut.gradle.PluginsHelper.findGroovySrcDir;
 import static org.gradle.api.plugins.JavaPlugin.ANNOTATION_PROCESSOR_CONFIGURATION_NAME;
@@ -68,6 +70,13 @@ public class MicronautComponentPlugin implements Plugin<Project> {
     }});
     public static final String MICRONAUT_BOMS_CONFIGURATION = "micronautBoms";
 
+    private final BuildEventsListenerRegistry eventsListenerRegistry;
+
+    @Inject
+    public MicronautComponentPlugin(BuildEventsListenerRegistry eventsListenerRegistry) {
+        this.eventsListenerRegistry = eventsListenerRegistry;
+    }
+
     @Override
     public void apply(Project project) {
         PluginManager plugins = project.getPluginManager();
@@ -119,12 +128,6 @@ public class MicronautComponentPlugin implements Plugin<Project> {
                 });
             }
 
-            PluginsHelper.applyAdditionalProcessors(
-                    p,
-                    ANNOTATION_PROCESSOR_CONFIGURATION_NAME,
-                    TEST_ANNOTATION_PROCESSOR_CONFIGURATION_NAME
-            );
-
             Configuration testConfig = p.getConfigurations().getByName(TEST_IMPLEMENTATION_CONFIGURATION_NAME);
             boolean hasJunit5 = !testConfig.getAllDependencies()
                     .matching(dependency -> {
@@ -204,6 +207,11 @@ public class MicronautComponentPlugin implements Plugin<Project> {
     }
 
     private void configureJava(Project project, TaskContainer tasks) {
+        AdditionalProcessors.register(
+                project,
+                ANNOTATION_PROCESSOR_CONFIGURATION_NAME,
+                TEST_ANNOTATION_PROCESSOR_CONFIGURATION_NAME
+        );
 
         project.afterEvaluate(p -> {
             SourceSetContainer sourceSets = p.getConvention().getPlugin(JavaPluginConvention.class)
@@ -232,6 +240,9 @@ public class MicronautComponentPlugin implements Plugin<Project> {
                 }
             }
 
+            final Provider<ProcessingReport> processingReport = p.getExtensions().getByType(MicronautExtension.class).getProcessing().getReport().get()
+                    ? ProcessingReport.registerIfAbsent(p, eventsListenerRegistry)
+                    : null;
             tasks.withType(JavaCompile.class).configureEach(javaCompile -> {
                 final List<String> compilerArgs = javaCompile.getOptions().getCompilerArgs();
                 final MicronautExtension micronautExtension = p.getExtensions().getByType(MicronautExtension.class);
@@ -257,6 +268,10 @@ public class MicronautComponentPlugin implements Plugin<Project> {
                     compilerArgs.add("-Amicronaut.processing.group=" + group);
                     compilerArgs.add("-Amicronaut.processing.module=" + module);
                 }
+
+                if (processingReport != null) {
+                    ProcessingReport.track(javaCompile, processingReport);
+                }
             });
         });
 
@@ -308,10 +323,20 @@ public class MicronautComponentPlugin implements Plugin<Project> {
                                     configName,
                                     "io.micronaut:micronaut-inject-groovy"
                             );
-                            PluginsHelper.applyAdditionalProcessors(project, configName);
+                            AdditionalProcessors.register(project, configName);
                         }
                     }
                 }
+                if (micronautExtension.getProcessing().getIncrementalGroovy().get()) {
+                    SourceSetContainer sourceSets = convention.getSourceSets();
+                    tasks.withType(GroovyCompile.class).configureEach(groovyCompile -> sourceSets.stream()
+                            .filter(sourceSet -> sourceSet.getCompileTaskName("groovy").equals(groovyCompile.getName()))
+                            .findFirst()
+                            .ifPresent(sourceSet -> GroovyIncrementalCompilation.configure(
+                                    groovyCompile,
+                                    p.provider(() -> sourceSet.getAllSource().getSrcDirs())
+                            )));
+                }
             });
 
         });
@@ -326,7 +351,7 @@ public class MicronautComponentPlugin implements Plugin<Project> {
         SourceSet groovySourceSet = plugin.getSourceSets().findByName(sourceSetName);
         if (groovySourceSet != null) {
             Optional<File> groovySrc = findGroovySrcDir(groovySourceSet);
-            groovySrc.ifPresent((f -> applyAdditionalProcessors(p, scope)));
+            groovySrc.ifPresent((f -> AdditionalProcessors.register(p, scope)));
         }
     }
 
@@ -24,6 +24,8 @@ public abstract class MicronautExtension implements ExtensionAware {
     private final Property<Boolean> enableNativeImage;
     private final Property<MicronautRuntime> runtime;
     private final Property<MicronautTestRuntime> testRuntime;
+    private final Property<Boolean> enableDevelopmentCds;
+    private final Property<Boolean> startupOrderedJars;
 
     @Inject
     public MicronautExtension(ObjectFactory objectFactory) {
@@ -35,6 +37,10 @@ public abstract class MicronautExtension implements ExtensionAware {
                                     .convention(MicronautRuntime.NONE);
         this.testRuntime = objectFactory.property(MicronautTestRuntime.class)
                                         .convention(MicronautTestRuntime.NONE);
+        this.enableDevelopmentCds = objectFactory.property(Boolean.class)
+                                    .convention(false);
+        this.startupOrderedJars = objectFactory.property(Boolean.class)
+                                    .convention(false);
     }
 
     /**
@@ -70,6 +76,53 @@ public abstract class MicronautExtension implements ExtensionAware {
         return this;
     }
 
+    /**
+     * Whether the {@code run} task should use a class data sharing archive
+     * of the application dependencies, in order to start faster. Requires
+     * JDK 13 or later.
+     * @return True if it is enabled
+     * @since 3.2.0
+     */
+    public Property<Boolean> getEnableDevelopmentCds() {
+        return enableDevelopmentCds;
+    }
+
+    /**
+     * Sets whether the {@code run} task should use a class data sharing archive.
+     *
+     * @param b Whether the class data sharing archive is enabled.
+     * @return This extension
+     * @since 3.2.0
+     */
+    public MicronautExtension enableDevelopmentCds(boolean b) {
+        this.enableDevelopmentCds.set(b);
+        return this;
+    }
+
+    /**
+     * Whether the application jars added to Docker images should have their
+     * entries ordered by class load order, as recorded by a training run of
+     * the application, with the entries loaded during startup stored
+     * uncompressed. Defaults to false.
+     * @return True if it is enabled
+     * @since 3.2.0
+     */
+    public Property<Boolean> getStartupOrderedJars() {
+        return startupOrderedJars;
+    }
+
+    /**
+     * Sets whether the application jars should be ordered by class load order.
+     *
+     * @param b Whether the jars should be ordered.
+     * @return This extension
+     * @since 3.2.0
+     */
+    public MicronautExtension startupOrderedJars(boolean b) {
+        this.startupOrderedJars.set(b);
+        return this;
+    }
+
     /**
      * Configures the Micronaut version.
      *
@@ -109,11 +109,9 @@ public class MicronautKotlinSupport {
             }
         }
 
+        AdditionalProcessors.register(project, KAPT_CONFIGURATIONS);
+
         project.afterEvaluate(p -> {
-            PluginsHelper.applyAdditionalProcessors(
-                    p,
-                    "kapt", "kaptTest"
-            );
             final MicronautExtension micronautExtension = p
                     .getExtensions()
                     .getByType(MicronautExtension.class);
@@ -17,23 +17,39 @@ package io.micronaut.gradle;
 
 import com.github.jengelman.gradle.plugins.shadow.ShadowPlugin;
 import io.micronaut.gradle.graalvm.GraalUtil;
+import io.micronaut.gradle.launcher.HotReloadLauncher;
+import io.micronaut.gradle.launcher.PrepareLauncherTask;
+import io.micronaut.gradle.launcher.WriteClasspathFileTask;
+import io.micronaut.gradle.run.Footprints;
+import io.micronaut.gradle.run.LoadTests;
+import io.micronaut.gradle.run.StartupProfiles;
 import org.apache.tools.ant.taskdefs.condition.Os;
 import org.gradle.api.Plugin;
 import org.gradle.api.Project;
 import org.gradle.api.artifacts.Configuration;
 import org.gradle.api.artifacts.ConfigurationContainer;
 import org.gradle.api.artifacts.dsl.DependencyHandler;
+import org.gradle.api.file.FileCollection;
+import org.gradle.api.file.RegularFile;
 import org.gradle.api.file.SourceDirectorySet;
 import org.gradle.api.plugins.ApplicationPlugin;
 import org.gradle.api.plugins.JavaApplication;
 import org.gradle.api.plugins.JavaPluginConvention;
 import org.gradle.api.plugins.PluginManager;
 import org.gradle.api.provider.Property;
+import org.gradle.api.provider.Provider;
+import org.gradle.api.tasks.Classpath;
+import org.gradle.api.tasks.Input;
+import org.gradle.api.tasks.InputFile;
 import org.gradle.api.tasks.JavaExec;
+import org.gradle.api.tasks.PathSensitive;
+import org.gradle.api.tasks.PathSensitivity;
 import org.gradle.api.tasks.SourceSet;
 import org.gradle.api.tasks.SourceSetContainer;
 import org.gradle.api.tasks.SourceSetOutput;
 import org.gradle.api.tasks.TaskContainer;
+import org.gradle.api.tasks.TaskProvider;
+import org.gradle.process.CommandLineArgumentProvider;
 
 import java.io.File;
 import java.util.Arrays;
@@ -54,6 +70,7 @@ public class MicronautMinimalApplicationPlugin implements Plugin<Project> {
     public static final String CONFIGURATION_DEVELOPMENT_ONLY = "developmentOnly";
     // This flag is used for testing purposes only
     public static final String INTERNAL_CONTINUOUS_FLAG = "io.micronaut.internal.gradle.continuous";
+    public static final String HOT_RELOAD_RUN_TASK_NAME = "hotReloadRun";
 
     private static final Map<String, String> LOGGER_CONFIG_FILE_TO_DEPENDENCY = Collections.unmodifiableMap(new HashMap<String, String>() {
         {
@@ -72,11 +89,29 @@ public class MicronautMinimalApplicationPlugin implements Plugin<Project> {
         configureLogging(project);
         configureMicronautRuntime(project);
         configureJavaExecTasks(project, developmentOnly);
+        configureHotReload(project, developmentOnly);
+        configureLoadTest(project);
+    }
+
+    private void configureLoadTest(Project project) {
+        MicronautExtension micronautExtension = project.getExtensions().getByType(MicronautExtension.class);
+        LoadTests.createScenarios(project, micronautExtension);
+        Footprints.configure(project, micronautExtension);
+        TaskContainer tasks = project.getTasks();
+        LoadTests.register(project, LoadTests.LOAD_TEST_TASK_NAME, "Runs the load test scenarios against the application", task ->
+                task.launchLike(tasks.named("run", JavaExec.class).get()));
+        Footprints.register(project, "jit", task -> task.launchLike(tasks.named("run", JavaExec.class).get()));
+        StartupProfiles.register(project, StartupProfiles.PROFILE_STARTUP_TASK_NAME, "Profiles the startup of the application with JDK Flight Recorder", task ->
+                task.launchLike(tasks.named("run", JavaExec.class).get()));
     }
 
     private void configureJavaExecTasks(Project project, Configuration developmentOnly) {
         final TaskContainer tasks = project.getTasks();
         tasks.withType(JavaExec.class).configureEach(javaExec -> {
+            if (javaExec.getName().equals(HOT_RELOAD_RUN_TASK_NAME)) {
+                // the hot reload launcher builds the application classpath itself
+                return;
+            }
             if (javaExec.getName().equals("run")) {
                 javaExec.jvmArgs(
                         "-Dcom.sun.management.jmxremote"
@@ -85,6 +120,8 @@ public class MicronautMinimalApplicationPlugin implements Plugin<Project> {
                     // graal doesn't support this
                     javaExec.jvmArgs("-XX:TieredStopAtLevel=1");
                 }
+                MicronautExtension micronautExtension = project.getExtensions().getByType(MicronautExtension.class);
+                DevelopmentCds.configure(project, javaExec, micronautExtension.getEnableDevelopmentCds());
             }
             javaExec.classpath(developmentOnly);
 
@@ -100,14 +137,14 @@ public class MicronautMinimalApplicationPlugin implements Plugin<Project> {
                     Map<String, Object> sysProps = new LinkedHashMap<>();
                     sysProps.put("micronaut.io.watch.restart", true);
                     sysProps.put("micronaut.io.watch.enabled", true);
+                    FileCollection sourceDirectories = sourceSet.getAllSource().getSourceDirectories();
                     javaExec.doFirst(workaroundEagerSystemProps -> {
-                        String watchPaths = sourceSet
-                                .getAllSource()
-                                .getSrcDirs()
+                        String watchPaths = sourceDirectories
+                                .getFiles()
                                 .stream()
                                 .map(File::getPath)
                                 .collect(Collectors.joining(","));
-                        javaExec.systemProperty("micronaut.io.watch.paths", watchPaths);
+                        ((JavaExec) workaroundEagerSystemProps).systemProperty("micronaut.io.watch.paths", watchPaths);
                     });
                     javaExec.systemProperties(
                             sysProps
@@ -117,6 +154,42 @@ public class MicronautMinimalApplicationPlugin implements Plugin<Project> {
         });
     }
 
+    private void configureHotReload(Project project, Configuration developmentOnly) {
+        TaskContainer tasks = project.getTasks();
+        TaskProvider<PrepareLauncherTask> prepareLauncher = tasks.register("prepareHotReloadLauncher", PrepareLauncherTask.class, task -> {
+            task.getClassNames().add(HotReloadLauncher.class.getName());
+            task.getOutputDirectory().convention(project.getLayout().getBuildDirectory().dir("micronaut/hot-reload/launcher"));
+        });
+        // the dependencies are passed in a file, since the command line length is limited on Windows
+        TaskProvider<WriteClasspathFileTask> dependenciesFile = tasks.register("writeHotReloadClasspath", WriteClasspathFileTask.class, task -> {
+            SourceSet main = project.getConvention()
+                    .getPlugin(JavaPluginConvention.class)
+                    .getSourceSets()
+                    .getByName(SourceSet.MAIN_SOURCE_SET_NAME);
+            task.getClasspath().from(main.getRuntimeClasspath().minus(main.getOutput()), developmentOnly);
+            task.getClasspathFile().convention(project.getLayout().getBuildDirectory().file("micronaut/hot-reload/dependencies.txt"));
+        });
+        tasks.register(HOT_RELOAD_RUN_TASK_NAME, JavaExec.class, task -> {
+            task.setGroup(ApplicationPlugin.APPLICATION_GROUP);
+            task.setDescription("Runs this project as a JVM application, reloading the classes and resources of the project when they change.");
+            SourceSet main = project.getConvention()
+                    .getPlugin(JavaPluginConvention.class)
+                    .getSourceSets()
+                    .getByName(SourceSet.MAIN_SOURCE_SET_NAME);
+            JavaApplication javaApplication = project.getExtensions().getByType(JavaApplication.class);
+            task.classpath(prepareLauncher);
+            task.getMainClass().set(HotReloadLauncher.class.getName());
+            task.getJvmArgumentProviders().add(new HotReloadArgumentProvider(
+                    javaApplication.getMainClass(),
+                    dependenciesFile.flatMap(WriteClasspathFileTask::getClasspathFile),
+                    main.getOutput()
+            ));
+            if (!GraalUtil.isGraalJVM()) {
+                task.jvmArgs("-XX:TieredStopAtLevel=1");
+            }
+        });
+    }
+
     private Configuration createDevelopmentOnlyConfiguration(Project project) {
         ConfigurationContainer configurations = project.getConfigurations();
         Configuration developmentOnly = configurations.create(CONFIGURATION_DEVELOPMENT_ONLY, conf -> {
@@ -194,20 +267,58 @@ public class MicronautMinimalApplicationPlugin implements Plugin<Project> {
                     "--target", "io.micronaut.gcp.function.http.HttpFunction",
                     "--port", 8080
             ));
-            run.doFirst(t -> {
-                JavaPluginConvention plugin = project.getConvention().getPlugin(JavaPluginConvention.class);
-                SourceSet sourceSet = plugin.getSourceSets().getByName("main");
-                SourceSetOutput output = sourceSet.getOutput();
-                String runtimeClasspath = project.files(project.getConfigurations().getByName("runtimeClasspath"),
-                        output
-                ).getAsPath();
-                ((JavaExec) t).args("--classpath",
-                        runtimeClasspath
-                );
-            });
+            JavaPluginConvention plugin = project.getConvention().getPlugin(JavaPluginConvention.class);
+            SourceSetOutput output = plugin.getSourceSets().getByName("main").getOutput();
+            FileCollection functionClasspath = project.files(project.getConfigurations().getByName("runtimeClasspath"),
+                    output
+            );
+            run.doFirst(t -> ((JavaExec) t).args("--classpath",
+                    functionClasspath.getAsPath()
+            ));
         });
 
         // Google Cloud Function requires shadow packaging
         p.getPluginManager().apply(ShadowPlugin.class);
     }
+
+    /**
+     * Configures the hot reload launcher: the dependencies are loaded once,
+     * while the project outputs are reloaded on change.
+     */
+    private static final class HotReloadArgumentProvider implements CommandLineArgumentProvider {
+        private final Provider<String> mainClass;
+        private final Provider<RegularFile> dependenciesFile;
+        private final FileCollection application;
+
+        private HotReloadArgumentProvider(Provider<String> mainClass, Provider<RegularFile> dependenciesFile, FileCollection application) {
+            this.mainClass = mainClass;
+            this.dependenciesFile = dependenciesFile;
+            this.application = application;
+        }
+
+        @Input
+        public Provider<String> getMainClass() {
+            return mainClass;
+        }
+
+        @InputFile
+        @PathSensitive(PathSensitivity.NONE)
+        public Provider<RegularFile> getDependenciesFile() {
+            return dependenciesFile;
+        }
+
+        @Classpath
+        public FileCollection getApplication() {
+            return application;
+        }
+
+        @Override
+        public Iterable<String> asArguments() {
+            return Arrays.asList(
+                    "-D" + HotReloadLauncher.MAIN_CLASS_PROPERTY + "=" + mainClass.get(),
+                    "-D" + HotReloadLauncher.DEPENDENCIES_FILE_PROPERTY + "=" + dependenciesFile.get().getAsFile().getAbsolutePath(),
+                    "-D" + HotReloadLauncher.APPLICATION_PROPERTY + "=" + application.getAsPath()
+            );
+        }
+    }
 }
@@ -15,6 +15,7 @@
  */
 package io.micronaut.gradle;
 
+import io.micronaut.gradle.aot.AotFragments;
 import org.gradle.api.Plugin;
 import org.gradle.api.Project;
 import org.gradle.api.plugins.JavaLibraryPlugin;
@@ -30,5 +31,6 @@ public class MicronautMinimalLibraryPlugin implements Plugin<Project> {
         PluginManager plugins = project.getPluginManager();
         plugins.apply(JavaLibraryPlugin.class);
         plugins.apply(MicronautComponentPlugin.class);
+        AotFragments.registerLibraryFragment(project);
     }
 }
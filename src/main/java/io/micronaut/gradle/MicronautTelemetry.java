@@ -0,0 +1,361 @@
+/*
+ * Copyright 2003-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.micronaut.gradle;
+
+import org.gradle.api.Action;
+import org.gradle.api.Project;
+import org.gradle.api.Task;
+import org.gradle.api.file.DirectoryProperty;
+import org.gradle.api.file.FileCollection;
+import org.gradle.api.invocation.Gradle;
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
+import org.gradle.api.provider.Property;
+import org.gradle.api.provider.Provider;
+import org.gradle.api.provider.SetProperty;
+import org.gradle.api.services.BuildService;
+import org.gradle.api.services.BuildServiceParameters;
+import org.gradle.build.event.BuildEventsListenerRegistry;
+import org.gradle.tooling.events.FinishEvent;
+import org.gradle.tooling.events.OperationCompletionListener;
+import org.gradle.tooling.events.task.TaskFailureResult;
+import org.gradle.tooling.events.task.TaskFinishEvent;
+import org.gradle.tooling.events.task.TaskOperationResult;
+import org.gradle.tooling.events.task.TaskSkippedResult;
+import org.gradle.tooling.events.task.TaskSuccessResult;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * A build service which records the performance of the Micronaut tasks of
+ * a build: their duration and outcome, and for the tasks which execute, the
+ * number and size of their input files and the size of their outputs. The
+ * files are measured when the completion of a task is notified, so that
+ * this doesn't add to its duration. When the build finishes,
+ * a JSON and an HTML summary are written to
+ * {@code build/reports/micronaut/telemetry} in the root project, along
+ * with the history of the previous builds, which the HTML summary uses to
+ * show the trend of each task.
+ *
+ * Telemetry is disabled by default, and enabled with the
+ * {@code micronaut.telemetry.enabled} Gradle property.
+ *
+ * @since 3.2.0
+ */
+public abstract class MicronautTelemetry implements BuildService<MicronautTelemetry.Params>, OperationCompletionListener, AutoCloseable {
+    public static final String NAME = "micronautTelemetry";
+    public static final String ENABLED_PROPERTY = "micronaut.telemetry.enabled";
+    public static final String HISTORY_SIZE_PROPERTY = "micronaut.telemetry.historySize";
+
+    private static final Logger LOGGER = Logging.getLogger(MicronautTelemetry.class);
+    private static final int DEFAULT_HISTORY_SIZE = 20;
+    private static final String HISTORY_FILE = "history.tsv";
+    private static final String TRACKED_PROPERTY = "micronautTelemetryTracked";
+
+    private final Map<String, Measure> measures = new ConcurrentHashMap<>();
+
+    public interface Params extends BuildServiceParameters {
+        SetProperty<String> getTrackedTasks();
+
+        DirectoryProperty getReportDirectory();
+
+        Property<Integer> getHistorySize();
+    }
+
+    /**
+     * Records the performance of the tasks of a given type, if telemetry is enabled.
+     * @param project the project
+     * @param listenerRegistry the build events listener registry
+     * @param taskType the type of the tasks to track
+     */
+    public static void track(Project project, BuildEventsListenerRegistry listenerRegistry, Class<? extends Task> taskType) {
+        boolean enabled = project.getProviders().gradleProperty(ENABLED_PROPERTY)
+                .forUseAtConfigurationTime()
+                .map(Boolean::parseBoolean)
+                .getOrElse(false);
+        if (!enabled) {
+            return;
+        }
+        Provider<MicronautTelemetry> telemetry = registerIfAbsent(project, listenerRegistry);
+        project.getTasks().withType(taskType).configureEach(task -> {
+            task.getExtensions().getExtraProperties().set(TRACKED_PROPERTY, true);
+            task.usesService(telemetry);
+            task.doLast(new RecordFiles(telemetry));
+        });
+    }
+
+    private static Provider<MicronautTelemetry> registerIfAbsent(Project project, BuildEventsListenerRegistry listenerRegistry) {
+        Provider<MicronautTelemetry> telemetry = project.getGradle().getSharedServices().registerIfAbsent(NAME, MicronautTelemetry.class, spec -> {
+            // the tracked tasks are read from the task graph, once every project has been configured
+            Gradle gradle = project.getGradle();
+            spec.getParameters().getTrackedTasks().set(project.provider(() -> gradle.getTaskGraph().getAllTasks().stream()
+                    .filter(task -> task.getExtensions().getExtraProperties().has(TRACKED_PROPERTY))
+                    .map(Task::getPath)
+                    .collect(Collectors.toSet())));
+            spec.getParameters().getReportDirectory().set(project.getRootProject().getLayout().getBuildDirectory().dir("reports/micronaut/telemetry"));
+            spec.getParameters().getHistorySize().set(project.getProviders().gradleProperty(HISTORY_SIZE_PROPERTY)
+                    .forUseAtConfigurationTime()
+                    .map(Integer::parseInt)
+                    .orElse(DEFAULT_HISTORY_SIZE));
+        });
+        listenerRegistry.onTaskCompletion(telemetry);
+        return telemetry;
+    }
+
+    private void recordFiles(String taskPath, FileCollection inputs, FileCollection outputs) {
+        Measure measure = measures.computeIfAbsent(taskPath, Measure::new);
+        measure.inputs = inputs;
+        measure.outputs = outputs;
+    }
+
+    @Override
+    public void onFinish(FinishEvent event) {
+        if (!(event instanceof TaskFinishEvent)) {
+            return;
+        }
+        String taskPath = ((TaskFinishEvent) event).getDescriptor().getTaskPath();
+        if (!getParameters().getTrackedTasks().get().contains(taskPath)) {
+            return;
+        }
+        TaskOperationResult result = ((TaskFinishEvent) event).getResult();
+        Measure measure = measures.computeIfAbsent(taskPath, Measure::new);
+        measure.durationMillis = result.getEndTime() - result.getStartTime();
+        measure.outcome = outcomeOf(result);
+        if (measure.inputs != null) {
+            measureFiles(measure);
+        }
+    }
+
+    /**
+     * Measures the files of a task which has executed. Tasks which don't
+     * execute, because they are up-to-date, cached or skipped, only report
+     * their outcome and duration.
+     */
+    private static void measureFiles(Measure measure) {
+        long files = 0;
+        long inputSize = 0;
+        for (File file : measure.inputs) {
+            if (file.isFile()) {
+                files++;
+                inputSize += file.length();
+            }
+        }
+        long outputSize = 0;
+        for (File file : measure.outputs.getAsFileTree()) {
+            outputSize += file.length();
+        }
+        measure.inputFiles = files;
+        measure.inputSize = inputSize;
+        measure.outputSize = outputSize;
+        measure.inputs = null;
+        measure.outputs = null;
+    }
+
+    private static String outcomeOf(TaskOperationResult result) {
+        if (result instanceof TaskSuccessResult) {
+            TaskSuccessResult success = (TaskSuccessResult) result;
+            if (success.isFromCache()) {
+                return "FROM-CACHE";
+            }
+            return success.isUpToDate() ? "UP-TO-DATE" : "EXECUTED";
+        }
+        if (result instanceof TaskSkippedResult) {
+            return "SKIPPED";
+        }
+        return result instanceof TaskFailureResult ? "FAILED" : "UNKNOWN";
+    }
+
+    @Override
+    public void close() {
+        List<Measure> build = measures.values().stream()
+                .filter(m -> m.outcome != null)
+                .sorted((a, b) -> a.taskPath.compareTo(b.taskPath))
+                .collect(Collectors.toList());
+        if (build.isEmpty()) {
+            return;
+        }
+        File reportDir = getParameters().getReportDirectory().get().getAsFile();
+        String buildTime = Instant.now().toString();
+        try {
+            Files.createDirectories(reportDir.toPath());
+            Map<String, List<String[]>> history = updateHistory(new File(reportDir, HISTORY_FILE), buildTime, build);
+            Files.write(new File(reportDir, "telemetry.json").toPath(), toJson(buildTime, build).getBytes(StandardCharsets.UTF_8));
+            File html = new File(reportDir, "telemetry.html");
+            Files.write(html.toPath(), toHtml(buildTime, build, history).getBytes(StandardCharsets.UTF_8));
+            LOGGER.lifecycle("Micronaut tasks telemetry written to {}", html.toURI());
+        } catch (IOException e) {
+            // failing here would fail a build whose tasks all succeeded
+            LOGGER.warn("Unable to write the telemetry of the build to " + reportDir, e);
+        }
+    }
+
+    /**
+     * Appends the measures of this build to the history, and drops the
+     * oldest builds. Each line of the history is a tab separated record of
+     * the build time, the task path, the outcome, the duration, the number
+     * of input files, the size of the inputs and the size of the outputs.
+     * @return the history of each task, oldest build first
+     */
+    private Map<String, List<String[]>> updateHistory(File historyFile, String buildTime, List<Measure> build) throws IOException {
+        List<String> lines = new ArrayList<>();
+        if (historyFile.isFile()) {
+            lines.addAll(Files.readAllLines(historyFile.toPath(), StandardCharsets.UTF_8));
+        }
+        for (Measure measure : build) {
+            lines.add(String.join("\t", buildTime, measure.taskPath, measure.outcome,
+                    String.valueOf(measure.durationMillis), String.valueOf(measure.inputFiles),
+                    String.valueOf(measure.inputSize), String.valueOf(measure.outputSize)));
+        }
+        List<String> builds = lines.stream().map(line -> line.split("\t", 2)[0]).distinct().collect(Collectors.toList());
+        int historySize = getParameters().getHistorySize().get();
+        Set<String> kept = builds.stream().skip(Math.max(0, builds.size() - historySize)).collect(Collectors.toSet());
+        List<String> keptLines = lines.stream().filter(line -> kept.contains(line.split("\t", 2)[0])).collect(Collectors.toList());
+        Files.write(historyFile.toPath(), keptLines, StandardCharsets.UTF_8);
+        Map<String, List<String[]>> history = new TreeMap<>();
+        for (String line : keptLines) {
+            String[] record = line.split("\t");
+            if (record.length == 7) {
+                history.computeIfAbsent(record[1], k -> new ArrayList<>()).add(record);
+            }
+        }
+        return history;
+    }
+
+    private static String toJson(String buildTime, List<Measure> build) {
+        StringBuilder json = new StringBuilder();
+        json.append("{\n  \"buildTime\": \"").append(buildTime).append("\",\n  \"tasks\": [");
+        for (int i = 0; i < build.size(); i++) {
+            Measure measure = build.get(i);
+            json.append(i == 0 ? "\n" : ",\n")
+                    .append("    {\"path\": \"").append(measure.taskPath.replace("\\", "\\\\").replace("\"", "\\\"")).append('"')
+                    .append(", \"outcome\": \"").append(measure.outcome).append('"')
+                    .append(", \"durationMillis\": ").append(measure.durationMillis)
+                    .append(", \"inputFiles\": ").append(measure.inputFiles)
+                    .append(", \"inputSize\": ").append(measure.inputSize)
+                    .append(", \"outputSize\": ").append(measure.outputSize)
+                    .append('}');
+        }
+        json.append("\n  ]\n}\n");
+        return json.toString();
+    }
+
+    private static String toHtml(String buildTime, List<Measure> build, Map<String, List<String[]>> history) {
+        StringBuilder html = new StringBuilder();
+        html.append("<!DOCTYPE html>\n<html>\n<head>\n<meta charset=\"UTF-8\">\n<title>Micronaut tasks telemetry</title>\n")
+                .append("<style>body{font-family:sans-serif}table{border-collapse:collapse}td,th{padding:2px 8px;text-align:left}")
+                .append("td.n{text-align:right}tr:nth-child(even){background:#f0f0f0}</style>\n</head>\n<body>\n")
+                .append("<h1>Micronaut tasks telemetry</h1>\n<p>Build of ").append(buildTime).append("</p>\n")
+                .append("<table>\n<tr><th>Task</th><th>Outcome</th><th>Duration</th><th>Input files</th><th>Input size</th><th>Output size</th></tr>\n");
+        for (Measure measure : build) {
+            html.append("<tr><td>").append(escape(measure.taskPath)).append("</td><td>").append(measure.outcome)
+                    .append("</td><td class=\"n\">").append(measure.durationMillis).append(" ms")
+                    .append("</td><td class=\"n\">").append(measure.inputFiles)
+                    .append("</td><td class=\"n\">").append(bytes(measure.inputSize))
+                    .append("</td><td class=\"n\">").append(bytes(measure.outputSize)).append("</td></tr>\n");
+        }
+        html.append("</table>\n<h2>Trends</h2>\n<p>Duration of the executions of each task, oldest first. Up-to-date, cached and skipped executions are left out.</p>\n")
+                .append("<table>\n<tr><th>Task</th><th>Average</th><th>Last</th><th>Change</th><th>History</th></tr>\n");
+        history.forEach((taskPath, records) -> {
+            List<Long> durations = records.stream()
+                    .filter(record -> "EXECUTED".equals(record[2]))
+                    .map(record -> Long.parseLong(record[3]))
+                    .collect(Collectors.toList());
+            if (durations.isEmpty()) {
+                return;
+            }
+            long last = durations.get(durations.size() - 1);
+            double average = durations.stream().mapToLong(Long::longValue).average().orElse(0);
+            String change = average > 0 ? String.format(Locale.ROOT, "%+.0f%%", (last - average) * 100 / average) : "";
+            html.append("<tr><td>").append(escape(taskPath))
+                    .append("</td><td class=\"n\">").append(Math.round(average)).append(" ms")
+                    .append("</td><td class=\"n\">").append(last).append(" ms")
+                    .append("</td><td class=\"n\">").append(change)
+                    .append("</td><td>").append(sparkline(durations)).append("</td></tr>\n");
+        });
+        html.append("</table>\n</body>\n</html>\n");
+        return html.toString();
+    }
+
+    private static String sparkline(List<Long> durations) {
+        long max = Collections.max(durations);
+        StringBuilder svg = new StringBuilder("<svg width=\"").append(durations.size() * 6).append("\" height=\"20\">");
+        for (int i = 0; i < durations.size(); i++) {
+            long height = max > 0 ? Math.max(1, durations.get(i) * 20 / max) : 1;
+            svg.append("<rect x=\"").append(i * 6).append("\" y=\"").append(20 - height)
+                    .append("\" width=\"5\" height=\"").append(height).append("\" fill=\"#4a7ebb\"/>");
+        }
+        return svg.append("</svg>").toString();
+    }
+
+    private static String bytes(long bytes) {
+        if (bytes < 1024) {
+            return bytes + " B";
+        }
+        if (bytes < 1024 * 1024) {
+            return String.format(Locale.ROOT, "%.1f KB", bytes / 1024d);
+        }
+        return String.format(Locale.ROOT, "%.1f MB", bytes / (1024d * 1024));
+    }
+
+    private static String escape(String text) {
+        return text.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;");
+    }
+
+    private static final class Measure {
+        private final String taskPath;
+        private volatile String outcome;
+        private volatile long durationMillis;
+        private volatile long inputFiles;
+        private volatile long inputSize;
+        private volatile long outputSize;
+        private volatile FileCollection inputs;
+        private volatile FileCollection outputs;
+
+        private Measure(String taskPath) {
+            this.taskPath = taskPath;
+        }
+    }
+
+    /**
+     * Records the input and output files of a task which has executed, to
+     * measure them once its completion is notified.
+     */
+    private static final class RecordFiles implements Action<Task> {
+        private final Provider<MicronautTelemetry> telemetry;
+
+        private RecordFiles(Provider<MicronautTelemetry> telemetry) {
+            this.telemetry = telemetry;
+        }
+
+        @Override
+        public void execute(Task task) {
+            telemetry.get().recordFiles(task.getPath(), task.getInputs().getFiles(), task.getOutputs().getFiles());
+        }
+    }
+}
@@ -0,0 +1,313 @@
+/*
+ * Copyright 2003-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.micronaut.gradle;
+
+import org.gradle.api.Action;
+import org.gradle.api.GradleException;
+import org.gradle.api.Project;
+import org.gradle.api.Task;
+import org.gradle.api.file.RegularFileProperty;
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
+import org.gradle.api.logging.StandardOutputListener;
+import org.gradle.api.provider.Provider;
+import org.gradle.api.services.BuildService;
+import org.gradle.api.services.BuildServiceParameters;
+import org.gradle.api.tasks.compile.JavaCompile;
+import org.gradle.build.event.BuildEventsListenerRegistry;
+import org.gradle.tooling.events.FinishEvent;
+import org.gradle.tooling.events.OperationCompletionListener;
+import org.gradle.tooling.events.task.TaskExecutionResult;
+import org.gradle.tooling.events.task.TaskFinishEvent;
+import org.gradle.tooling.events.task.TaskOperationResult;
+import org.gradle.tooling.events.task.java.JavaCompileTaskOperationResult;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+/**
+ * A build service which reports how effective incremental annotation
+ * processing is for the Java compile tasks configured by Micronaut: whether
+ * each compilation was incremental or fell back to a full recompilation,
+ * and why, how many classes and bean definitions were recompiled, and the
+ * time spent in each annotation processor.
+ *
+ * The recompiled classes are found by comparing the class files of the
+ * task before and after its execution. The processor times, and whether
+ * Gradle executed the task incrementally, are read from the task completion
+ * events. The compiler can still fall back to a full recompilation in an
+ * incremental execution: this, and its reason, are read from the output of
+ * the task, which Gradle only writes at the info level. The report is
+ * written when the build finishes, and a failure to write it is logged
+ * instead of failing the build.
+ *
+ * @since 3.2.0
+ */
+public abstract class ProcessingReport implements BuildService<ProcessingReport.Params>, OperationCompletionListener, AutoCloseable {
+    public static final String NAME = "micronautProcessingReport";
+
+    private static final Logger LOGGER = Logging.getLogger(ProcessingReport.class);
+    private static final String FULL_RECOMPILATION = "Full recompilation is required because ";
+    private static final String ANALYSIS_TIME = ". Analysis took";
+    private static final String CLASS_EXTENSION = ".class";
+    private static final String DEFINITION_MARKER = "$Definition";
+    private static final String MICRONAUT_PROCESSOR_PREFIX = "io.micronaut.";
+
+    private final Map<String, Compilation> compilations = new ConcurrentHashMap<>();
+
+    public interface Params extends BuildServiceParameters {
+        RegularFileProperty getReportFile();
+    }
+
+    /**
+     * Registers the report service, if not already registered, and
+     * subscribes it to task completion events.
+     * @param project the project
+     * @param listenerRegistry the build events listener registry
+     * @return the report service
+     */
+    public static Provider<ProcessingReport> registerIfAbsent(Project project, BuildEventsListenerRegistry listenerRegistry) {
+        Provider<ProcessingReport> report = project.getGradle().getSharedServices().registerIfAbsent(NAME, ProcessingReport.class, spec ->
+                spec.getParameters().getReportFile().set(project.getRootProject().getLayout().getBuildDirectory().file("reports/micronaut/annotation-processing.txt")));
+        listenerRegistry.onTaskCompletion(report);
+        return report;
+    }
+
+    /**
+     * Tracks the compilations of a compile task.
+     * @param task the compile task
+     * @param report the report service
+     */
+    public static void track(JavaCompile task, Provider<ProcessingReport> report) {
+        task.usesService(report);
+        task.doFirst(new BeforeCompilation(report));
+        task.doLast(new AfterCompilation(report));
+    }
+
+    private void before(Task task, File classesDir) {
+        Compilation compilation = new Compilation(task.getPath(), classesDir, snapshot(classesDir));
+        compilations.put(task.getPath(), compilation);
+        task.getLogging().addStandardOutputListener(compilation);
+    }
+
+    private void after(Task task) {
+        Compilation compilation = compilations.get(task.getPath());
+        if (compilation != null) {
+            task.getLogging().removeStandardOutputListener(compilation);
+            compilation.complete(snapshot(compilation.classesDir));
+        }
+    }
+
+    @Override
+    public void onFinish(FinishEvent event) {
+        if (!(event instanceof TaskFinishEvent)) {
+            return;
+        }
+        Compilation compilation = compilations.get(((TaskFinishEvent) event).getDescriptor().getTaskPath());
+        if (compilation == null) {
+            return;
+        }
+        TaskOperationResult result = ((TaskFinishEvent) event).getResult();
+        compilation.durationMillis = result.getEndTime() - result.getStartTime();
+        if (result instanceof TaskExecutionResult) {
+            compilation.incremental = ((TaskExecutionResult) result).isIncremental();
+        }
+        if (result instanceof JavaCompileTaskOperationResult) {
+            List<JavaCompileTaskOperationResult.AnnotationProcessorResult> processors = ((JavaCompileTaskOperationResult) result).getAnnotationProcessorResults();
+            if (processors != null) {
+                // the service may be subscribed once per project, so the same event can be received several times
+                compilation.processors = new ArrayList<>(processors);
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        if (compilations.isEmpty()) {
+            return;
+        }
+        List<Compilation> sorted = new ArrayList<>(compilations.values());
+        sorted.sort((a, b) -> a.taskPath.compareTo(b.taskPath));
+        File reportFile = getParameters().getReportFile().get().getAsFile();
+        try {
+            Files.createDirectories(reportFile.getParentFile().toPath());
+            Files.write(reportFile.toPath(), toText(sorted), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            // failing here would fail a build whose tasks all succeeded
+            LOGGER.warn("Unable to write the annotation processing report to " + reportFile, e);
+            return;
+        }
+        long full = sorted.stream().filter(c -> c.kind() == Kind.FULL).count();
+        LOGGER.lifecycle("{} of {} compilation(s) fell back to a full recompilation. See the annotation processing report at {}",
+                full, sorted.size(), reportFile.toURI());
+    }
+
+    private static List<String> toText(List<Compilation> compilations) {
+        List<String> lines = new ArrayList<>();
+        lines.add("Micronaut annotation processing report");
+        for (Compilation compilation : compilations) {
+            lines.add("");
+            lines.add(compilation.taskPath);
+            lines.add("  Compilation: " + compilation.kind().description);
+            if (compilation.kind() == Kind.FULL) {
+                lines.add("  Reason: " + (compilation.reason != null ? compilation.reason : "Gradle didn't execute the task incrementally"));
+            } else if (compilation.kind() == Kind.INCREMENTAL && compilation.recompiledClasses == compilation.totalClasses && compilation.reason == null) {
+                lines.add("  Note: all the classes were recompiled, run the build with --info to see if the compiler fell back to a full recompilation");
+            }
+            lines.add(String.format(Locale.ROOT, "  Recompiled classes: %d of %d (bean definitions: %d)",
+                    compilation.recompiledClasses, compilation.totalClasses, compilation.recompiledDefinitions));
+            lines.add(String.format(Locale.ROOT, "  Task time: %d ms", compilation.durationMillis));
+            if (compilation.processors.isEmpty()) {
+                continue;
+            }
+            long micronautMillis = 0;
+            List<String> notIncremental = new ArrayList<>();
+            lines.add("  Annotation processors (type, time):");
+            for (JavaCompileTaskOperationResult.AnnotationProcessorResult processor : compilation.processors) {
+                long millis = processor.getDuration().toMillis();
+                lines.add(String.format(Locale.ROOT, "    %-11s %8d ms  %s", processor.getType(), millis, processor.getClassName()));
+                if (processor.getClassName().startsWith(MICRONAUT_PROCESSOR_PREFIX)) {
+                    micronautMillis += millis;
+                }
+                if (processor.getType() == JavaCompileTaskOperationResult.AnnotationProcessorResult.Type.UNKNOWN) {
+                    notIncremental.add(processor.getClassName());
+                }
+            }
+            lines.add(String.format(Locale.ROOT, "  Time in Micronaut processors: %d ms", micronautMillis));
+            if (!notIncremental.isEmpty()) {
+                lines.add("  Processors which are not incremental, and cause full recompilations: " + String.join(", ", notIncremental));
+            }
+        }
+        return lines;
+    }
+
+    private static Map<String, Long> snapshot(File classesDir) {
+        if (!classesDir.isDirectory()) {
+            return Collections.emptyMap();
+        }
+        Map<String, Long> snapshot = new HashMap<>();
+        Path root = classesDir.toPath();
+        try (Stream<Path> files = Files.walk(root)) {
+            files.filter(f -> f.getFileName().toString().endsWith(CLASS_EXTENSION)).forEach(f ->
+                    snapshot.put(root.relativize(f).toString(), f.toFile().lastModified()));
+        } catch (IOException e) {
+            throw new GradleException("Unable to list the classes of " + classesDir, e);
+        }
+        return snapshot;
+    }
+
+    private enum Kind {
+        INITIAL("initial"),
+        INCREMENTAL("incremental"),
+        FULL("full recompilation");
+
+        private final String description;
+
+        Kind(String description) {
+            this.description = description;
+        }
+    }
+
+    private static final class Compilation implements StandardOutputListener {
+        private final String taskPath;
+        private final File classesDir;
+        private final Map<String, Long> before;
+        private volatile List<JavaCompileTaskOperationResult.AnnotationProcessorResult> processors = Collections.emptyList();
+        private volatile String reason;
+        private int totalClasses;
+        private int recompiledClasses;
+        private int recompiledDefinitions;
+        private volatile long durationMillis;
+        private volatile boolean incremental;
+
+        private Compilation(String taskPath, File classesDir, Map<String, Long> before) {
+            this.taskPath = taskPath;
+            this.classesDir = classesDir;
+            this.before = before;
+        }
+
+        @Override
+        public void onOutput(CharSequence output) {
+            String text = output.toString();
+            int start = text.indexOf(FULL_RECOMPILATION);
+            if (start >= 0) {
+                int end = text.indexOf(ANALYSIS_TIME, start);
+                reason = text.substring(start + FULL_RECOMPILATION.length(), end > 0 ? end : text.length()).trim();
+            }
+        }
+
+        private void complete(Map<String, Long> after) {
+            totalClasses = after.size();
+            after.forEach((file, lastModified) -> {
+                if (!lastModified.equals(before.get(file))) {
+                    recompiledClasses++;
+                    if (file.contains(DEFINITION_MARKER)) {
+                        recompiledDefinitions++;
+                    }
+                }
+            });
+        }
+
+        /**
+         * Classifies the compilation from the mode Gradle executed the task in,
+         * and from the message of the compiler when it falls back to a full
+         * recompilation, which is only seen when the build runs at the info level.
+         */
+        private Kind kind() {
+            if (before.isEmpty()) {
+                return Kind.INITIAL;
+            }
+            return !incremental || reason != null ? Kind.FULL : Kind.INCREMENTAL;
+        }
+    }
+
+    private static final class BeforeCompilation implements Action<Task> {
+        private final Provider<ProcessingReport> report;
+
+        private BeforeCompilation(Provider<ProcessingReport> report) {
+            this.report = report;
+        }
+
+        @Override
+        public void execute(Task task) {
+            report.get().before(task, ((JavaCompile) task).getDestinationDirectory().get().getAsFile());
+        }
+    }
+
+    private static final class AfterCompilation implements Action<Task> {
+        private final Provider<ProcessingReport> report;
+
+        private AfterCompilation(Provider<ProcessingReport> report) {
+            this.report = report;
+        }
+
+        @Override
+        public void execute(Task task) {
+            report.get().after(task);
+        }
+    }
+}
@@ -0,0 +1,36 @@
+/*
+ * Copyright 2003-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.micronaut.gradle.aot;
+
+import org.gradle.api.Named;
+import org.gradle.api.provider.ListProperty;
+
+/**
+ * An environment variant of the AOT optimized application. Each variant
+ * is optimized with its own set of active Micronaut environments, so that
+ * the environment and the property sources of a deployment are fully
+ * precomputed, and produces its own optimized jar and native binary.
+ *
+ * @since 3.2.0
+ */
+public interface AOTEnvironment extends Named {
+    /**
+     * The Micronaut environments which are active when the application
+     * is optimized for this variant. Defaults to the name of the variant.
+     * @return the environment names
+     */
+    ListProperty<String> getEnvironments();
+}
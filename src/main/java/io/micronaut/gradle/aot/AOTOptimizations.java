@@ -83,6 +83,31 @@ public interface AOTOptimizations {
     @Input
     Property<Boolean> getDeduceEnvironment();
 
+    /**
+     * The service types found on the application classpath are loaded
+     * statically when service loading is optimized, if they match one of
+     * these patterns. A pattern is either a fully qualified type name, or
+     * a prefix followed by {@code *}. Defaults to {@code io.micronaut.*}.
+     *
+     * @return the service type include patterns
+     * @since 3.2.0
+     */
+    @Input
+    @Optional
+    ListProperty<String> getServiceTypeIncludes();
+
+    /**
+     * Patterns of the service types which must not be loaded statically,
+     * even if they match an include pattern. Defaults to the service types
+     * which are only used at compilation time, like type element visitors.
+     *
+     * @return the service type exclude patterns
+     * @since 3.2.0
+     */
+    @Input
+    @Optional
+    ListProperty<String> getServiceTypeExcludes();
+
     /**
      * Sets the list of possible environment names. If set, then the list of environments
      * which will be considered for some AOT optimizations will use this list, instead
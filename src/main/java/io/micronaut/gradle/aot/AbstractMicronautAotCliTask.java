@@ -26,6 +26,7 @@ import org.gradle.api.tasks.Input;
 import org.gradle.api.tasks.TaskAction;
 import org.gradle.process.ExecOperations;
 import org.gradle.process.ExecResult;
+import org.gradle.process.JavaExecSpec;
 
 import javax.inject.Inject;
 import java.io.File;
@@ -55,6 +56,10 @@ abstract class AbstractMicronautAotCliTask extends DefaultTask implements Optimi
 
     }
 
+    protected void configureJvm(JavaExecSpec spec) {
+
+    }
+
     protected void onSuccess(File outputDir) {
 
     }
@@ -74,6 +79,7 @@ abstract class AbstractMicronautAotCliTask extends DefaultTask implements Optimi
                     "--package", getTargetPackage().get()
             ));
             configureExtraArguments(args);
+            configureJvm(spec);
             spec.args(args);
             getLogger().info("Running AOT optimizer with parameters: {}", args);
             if (getDebug().get()) {
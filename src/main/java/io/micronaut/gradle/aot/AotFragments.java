@@ -0,0 +1,139 @@
+/*
+ * Copyright 2003-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.micronaut.gradle.aot;
+
+import org.gradle.api.GradleException;
+import org.gradle.api.Project;
+import org.gradle.api.artifacts.Configuration;
+import org.gradle.api.attributes.LibraryElements;
+import org.gradle.api.file.FileCollection;
+import org.gradle.api.plugins.JavaPlugin;
+import org.gradle.api.tasks.SourceSet;
+import org.gradle.api.tasks.SourceSetContainer;
+import org.gradle.api.tasks.TaskProvider;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * AOT fragments are precomputed by Micronaut libraries, and exposed as
+ * a secondary variant of their runtime elements, so that applications of
+ * the same build can compose them instead of computing the same data
+ * again. A fragment is a text file with one line per service type, in
+ * the form {@code service.<type>=<implementation>,<implementation>}.
+ *
+ * @since 3.2.0
+ */
+public final class AotFragments {
+    /**
+     * The library elements attribute value of the fragment variant.
+     */
+    public static final String LIBRARY_ELEMENTS = "micronaut-aot-fragment";
+    public static final String GENERATE_TASK_NAME = "generateAotFragment";
+
+    private AotFragments() {
+    }
+
+    /**
+     * Registers the task generating the fragment of a library, and adds
+     * it as a secondary variant of the {@code runtimeElements} configuration.
+     * @param project the library project
+     */
+    public static void registerLibraryFragment(Project project) {
+        SourceSet main = project.getExtensions().getByType(SourceSetContainer.class).getByName(SourceSet.MAIN_SOURCE_SET_NAME);
+        TaskProvider<GenerateAotFragmentTask> generate = project.getTasks().register(GENERATE_TASK_NAME, GenerateAotFragmentTask.class, task -> {
+            task.setDescription("Precomputes the Micronaut AOT data of this library");
+            task.getLibraryOutput().from(main.getOutput());
+            task.getOutputFile().convention(project.getLayout().getBuildDirectory().file("micronaut/aot/fragment.properties"));
+        });
+        Configuration runtimeElements = project.getConfigurations().getByName(JavaPlugin.RUNTIME_ELEMENTS_CONFIGURATION_NAME);
+        runtimeElements.getOutgoing().getVariants().create("aotFragment", variant -> {
+            variant.attributes(attrs -> attrs.attribute(LibraryElements.LIBRARY_ELEMENTS_ATTRIBUTE,
+                    project.getObjects().named(LibraryElements.class, LIBRARY_ELEMENTS)));
+            variant.artifact(generate.flatMap(GenerateAotFragmentTask::getOutputFile), artifact -> artifact.setType(LIBRARY_ELEMENTS));
+        });
+    }
+
+    /**
+     * Returns the fragments of the libraries found on a classpath. Libraries
+     * which don't provide a fragment, like external dependencies, are ignored.
+     * @param project the application project
+     * @param classpath the classpath of the application
+     * @return the fragment files
+     */
+    public static FileCollection fragmentsOf(Project project, Configuration classpath) {
+        return classpath.getIncoming().artifactView(view -> {
+            view.setLenient(true);
+            view.attributes(attrs -> attrs.attribute(LibraryElements.LIBRARY_ELEMENTS_ATTRIBUTE,
+                    project.getObjects().named(LibraryElements.class, LIBRARY_ELEMENTS)));
+        }).getFiles();
+    }
+
+    /**
+     * Composes the service types of several fragments.
+     * @param fragments the fragment files
+     * @return the service types, with their implementations
+     */
+    static Map<String, Set<String>> readServices(Collection<File> fragments) {
+        return ClasspathIndex.read(fragments).getServices();
+    }
+
+    static void write(Map<String, Set<String>> services, File outputFile) {
+        ClasspathIndex.write(outputFile, Collections.emptySet(), services, Collections.emptySet());
+    }
+
+    /**
+     * Reads the implementations declared in a {@code META-INF/services} file.
+     * @param serviceFile the service file
+     * @return the implementations
+     */
+    static Set<String> readServiceFile(File serviceFile) {
+        Set<String> implementations = new LinkedHashSet<>();
+        for (String line : readLines(serviceFile)) {
+            String implementation = implementationOf(line);
+            if (!implementation.isEmpty()) {
+                implementations.add(implementation);
+            }
+        }
+        return implementations;
+    }
+
+    /**
+     * Returns the implementation declared on a line of a service file.
+     * @param line the line
+     * @return the implementation, or an empty string for comments and blank lines
+     */
+    static String implementationOf(String line) {
+        int comment = line.indexOf('#');
+        return (comment >= 0 ? line.substring(0, comment) : line).trim();
+    }
+
+    static List<String> readLines(File file) {
+        try {
+            return Files.readAllLines(file.toPath(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new GradleException("Unable to read " + file, e);
+        }
+    }
+}
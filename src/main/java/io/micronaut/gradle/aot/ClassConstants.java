@@ -0,0 +1,106 @@
+/*
+ * Copyright 2003-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.micronaut.gradle.aot;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Reads the string constants of a class file which look like the name
+ * of a class. Bean definitions and introspections reference the classes
+ * of their annotation metadata, for example the classes of a
+ * {@code @Requires(classes = ...)} condition, with such constants, in order
+ * to check for their presence at runtime.
+ */
+final class ClassConstants {
+    // a qualified name, whose simple name starts with an upper case letter
+    private static final Pattern CLASS_NAME = Pattern.compile("([a-z_][a-z0-9_]*\\.)+[A-Z][A-Za-z0-9_$]*");
+    private static final int MAGIC = 0xCAFEBABE;
+
+    private ClassConstants() {
+    }
+
+    /**
+     * Returns the class names referenced as strings by a class file.
+     * @param classFile the contents of the class file
+     * @return the class names
+     * @throws IOException if the class file cannot be read
+     */
+    static Set<String> classNameConstants(InputStream classFile) throws IOException {
+        DataInputStream in = new DataInputStream(classFile);
+        if (in.readInt() != MAGIC) {
+            return new LinkedHashSet<>();
+        }
+        // minor and major versions
+        in.readUnsignedShort();
+        in.readUnsignedShort();
+        int count = in.readUnsignedShort();
+        String[] utf8 = new String[count];
+        List<Integer> strings = new ArrayList<>();
+        for (int i = 1; i < count; i++) {
+            int tag = in.readUnsignedByte();
+            switch (tag) {
+                case 1: // Utf8
+                    utf8[i] = in.readUTF();
+                    break;
+                case 8: // String
+                    strings.add(in.readUnsignedShort());
+                    break;
+                case 7: // Class
+                case 16: // MethodType
+                case 19: // Module
+                case 20: // Package
+                    in.skipBytes(2);
+                    break;
+                case 15: // MethodHandle
+                    in.skipBytes(3);
+                    break;
+                case 3: // Integer
+                case 4: // Float
+                case 9: // Fieldref
+                case 10: // Methodref
+                case 11: // InterfaceMethodref
+                case 12: // NameAndType
+                case 17: // Dynamic
+                case 18: // InvokeDynamic
+                    in.skipBytes(4);
+                    break;
+                case 5: // Long
+                case 6: // Double
+                    in.skipBytes(8);
+                    // 8 bytes constants take two entries of the constant pool
+                    i++;
+                    break;
+                default:
+                    throw new IOException("Unexpected constant pool tag " + tag);
+            }
+        }
+        Set<String> classNames = new LinkedHashSet<>();
+        for (Integer index : strings) {
+            String value = utf8[index];
+            if (value != null && CLASS_NAME.matcher(value).matches()) {
+                classNames.add(value);
+            }
+        }
+        return classNames;
+    }
+}
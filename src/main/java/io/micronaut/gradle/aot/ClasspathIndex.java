@@ -0,0 +1,116 @@
+/*
+ * Copyright 2003-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.micronaut.gradle.aot;
+
+import org.gradle.api.GradleException;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * The composed index of a classpath, read from the indexes computed by
+ * {@link ClasspathIndexTransform} and from {@link AotFragments AOT fragments}.
+ * Each line of an index is either {@code class=<name>},
+ * {@code service.<type>=<implementations>} or {@code probe=<name>}, the
+ * latter being the classes whose presence is checked by the bean
+ * definitions and introspections of the jar. Classes are only listed to
+ * tell which probes are present on the classpath.
+ */
+final class ClasspathIndex {
+    private static final String CLASS_PREFIX = "class=";
+    private static final String SERVICE_PREFIX = "service.";
+    private static final String PROBE_PREFIX = "probe=";
+
+    private final Set<String> classes = new TreeSet<>();
+    private final Map<String, Set<String>> services = new TreeMap<>();
+    private final Set<String> probes = new TreeSet<>();
+
+    private ClasspathIndex() {
+    }
+
+    static ClasspathIndex read(Collection<File> indexFiles) {
+        ClasspathIndex index = new ClasspathIndex();
+        for (File indexFile : indexFiles) {
+            for (String line : AotFragments.readLines(indexFile)) {
+                index.add(line);
+            }
+        }
+        return index;
+    }
+
+    /**
+     * Adds the classes, services and probes of a directory to this index.
+     * @param directory the directory, for example the classes of a project
+     */
+    void addDirectory(File directory) {
+        ClasspathIndexTransform.indexDirectory(directory, classes, services, probes);
+    }
+
+    private void add(String line) {
+        if (line.startsWith(CLASS_PREFIX)) {
+            classes.add(line.substring(CLASS_PREFIX.length()));
+        } else if (line.startsWith(PROBE_PREFIX)) {
+            probes.add(line.substring(PROBE_PREFIX.length()));
+        } else if (line.startsWith(SERVICE_PREFIX)) {
+            int eq = line.indexOf('=');
+            if (eq > 0) {
+                Set<String> implementations = services.computeIfAbsent(line.substring(SERVICE_PREFIX.length(), eq), k -> new TreeSet<>());
+                for (String implementation : line.substring(eq + 1).split(",")) {
+                    if (!implementation.isEmpty()) {
+                        implementations.add(implementation);
+                    }
+                }
+            }
+        }
+    }
+
+    static void write(File indexFile,
+                      Set<String> classes,
+                      Map<String, Set<String>> services,
+                      Set<String> probes) {
+        List<String> lines = new ArrayList<>(classes.size() + services.size() + probes.size());
+        classes.forEach(c -> lines.add(CLASS_PREFIX + c));
+        services.forEach((type, implementations) -> lines.add(SERVICE_PREFIX + type + "=" + String.join(",", implementations)));
+        probes.forEach(p -> lines.add(PROBE_PREFIX + p));
+        try {
+            Files.createDirectories(indexFile.getParentFile().toPath());
+            Files.write(indexFile.toPath(), lines, StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new GradleException("Unable to write classpath index " + indexFile, e);
+        }
+    }
+
+    Set<String> getClasses() {
+        return classes;
+    }
+
+    Map<String, Set<String>> getServices() {
+        return services;
+    }
+
+    Set<String> getProbes() {
+        return probes;
+    }
+}
@@ -0,0 +1,188 @@
+/*
+ * Copyright 2003-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.micronaut.gradle.aot;
+
+import org.gradle.api.GradleException;
+import org.gradle.api.artifacts.transform.CacheableTransform;
+import org.gradle.api.artifacts.transform.InputArtifact;
+import org.gradle.api.artifacts.transform.TransformAction;
+import org.gradle.api.artifacts.transform.TransformOutputs;
+import org.gradle.api.artifacts.transform.TransformParameters;
+import org.gradle.api.file.FileSystemLocation;
+import org.gradle.api.provider.Provider;
+import org.gradle.api.tasks.Classpath;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Enumeration;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * An artifact transform which computes the index of a jar: the services
+ * it declares, the classes whose presence is checked by its bean
+ * definitions, and the classes it contains which such checks can refer
+ * to. Generated bean metadata, anonymous and local classes are left out,
+ * since they cannot be named by a class literal, and so are resources.
+ * Indexes are computed once per jar and reused by all projects, and by
+ * the next builds, since artifact transforms are cached.
+ *
+ * The index uses the same format as {@link AotFragments AOT fragments},
+ * with additional {@code class=} and {@code probe=} lines.
+ *
+ * @since 3.2.0
+ */
+@CacheableTransform
+public abstract class ClasspathIndexTransform implements TransformAction<TransformParameters.None> {
+    /**
+     * The artifact type of classpath indexes.
+     */
+    public static final String INDEX_TYPE = "micronaut-classpath-index";
+
+    private static final String CLASS_EXTENSION = ".class";
+    private static final String SERVICES_PREFIX = "META-INF/services/";
+    private static final String DEFINITION_MARKER = "$Definition";
+    private static final String INTROSPECTION_MARKER = "$Introspection";
+
+    @InputArtifact
+    @Classpath
+    public abstract Provider<FileSystemLocation> getInputArtifact();
+
+    @Override
+    public void transform(TransformOutputs outputs) {
+        File jar = getInputArtifact().get().getAsFile();
+        if (!jar.isFile()) {
+            return;
+        }
+        Set<String> classes = new TreeSet<>();
+        Map<String, Set<String>> services = new TreeMap<>();
+        Set<String> probes = new TreeSet<>();
+        try (ZipFile zip = new ZipFile(jar)) {
+            Enumeration<? extends ZipEntry> entries = zip.entries();
+            while (entries.hasMoreElements()) {
+                ZipEntry entry = entries.nextElement();
+                if (!entry.isDirectory()) {
+                    index(entry.getName(), () -> zip.getInputStream(entry), classes, services, probes);
+                }
+            }
+        } catch (IOException e) {
+            throw new GradleException("Unable to index " + jar, e);
+        }
+        File index = outputs.file(jar.getName() + ".idx");
+        ClasspathIndex.write(index, classes, services, probes);
+    }
+
+    /**
+     * Indexes the files of a directory, like the classes and resources
+     * directories of a project, the same way as the entries of a jar.
+     * @param directory the directory
+     * @param classes the classes found
+     * @param services the services found
+     * @param probes the probes found
+     */
+    static void indexDirectory(File directory,
+                               Set<String> classes,
+                               Map<String, Set<String>> services,
+                               Set<String> probes) {
+        Path root = directory.toPath();
+        if (!Files.isDirectory(root)) {
+            return;
+        }
+        try (Stream<Path> files = Files.walk(root)) {
+            for (Object o : files.filter(Files::isRegularFile).toArray()) {
+                Path file = (Path) o;
+                String name = root.relativize(file).toString().replace(File.separatorChar, '/');
+                index(name, () -> Files.newInputStream(file), classes, services, probes);
+            }
+        } catch (IOException e) {
+            throw new GradleException("Unable to index " + directory, e);
+        }
+    }
+
+    private static void index(String name,
+                              EntryContents contents,
+                              Set<String> classes,
+                              Map<String, Set<String>> services,
+                              Set<String> probes) throws IOException {
+        if (name.endsWith(CLASS_EXTENSION)) {
+            String className = name.substring(0, name.length() - CLASS_EXTENSION.length()).replace('/', '.');
+            if (isBeanMetadata(className)) {
+                try (InputStream in = contents.open()) {
+                    probes.addAll(ClassConstants.classNameConstants(in));
+                }
+            } else if (isNameable(className)) {
+                classes.add(className);
+            }
+        } else if (name.startsWith(SERVICES_PREFIX) && name.length() > SERVICES_PREFIX.length()) {
+            services.computeIfAbsent(name.substring(SERVICES_PREFIX.length()), k -> new TreeSet<>())
+                    .addAll(readServiceEntry(contents));
+        }
+    }
+
+    private static boolean isBeanMetadata(String className) {
+        return className.contains(DEFINITION_MARKER) || className.contains(INTROSPECTION_MARKER);
+    }
+
+    /**
+     * Tells if a class can be referred to by a class literal: anonymous
+     * and local classes, whose binary name has a digit after a {@code $},
+     * and package or module descriptors cannot.
+     */
+    private static boolean isNameable(String className) {
+        if (className.endsWith("package-info") || className.equals("module-info")) {
+            return false;
+        }
+        int dollar = className.indexOf('$');
+        while (dollar >= 0 && dollar < className.length() - 1) {
+            if (Character.isDigit(className.charAt(dollar + 1))) {
+                return false;
+            }
+            dollar = className.indexOf('$', dollar + 1);
+        }
+        return true;
+    }
+
+    private static Set<String> readServiceEntry(EntryContents contents) throws IOException {
+        Set<String> implementations = new LinkedHashSet<>();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(contents.open(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String implementation = AotFragments.implementationOf(line);
+                if (!implementation.isEmpty()) {
+                    implementations.add(implementation);
+                }
+            }
+        }
+        return implementations;
+    }
+
+    @FunctionalInterface
+    private interface EntryContents {
+        InputStream open() throws IOException;
+    }
+}
@@ -0,0 +1,45 @@
+/*
+ * Copyright 2003-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.micronaut.gradle.aot;
+
+import org.gradle.api.tasks.Internal;
+
+import javax.inject.Inject;
+import java.util.Collections;
+
+/**
+ * The default implementation of {@link AOTEnvironment}, created by the
+ * {@code environments} container of the AOT extension. Its Micronaut
+ * environments default to the single environment named after the variant.
+ *
+ * @since 3.2.0
+ */
+public abstract class DefaultAOTEnvironment implements AOTEnvironment {
+
+    private final String name;
+
+    @Inject
+    public DefaultAOTEnvironment(String name) {
+        this.name = name;
+        getEnvironments().convention(Collections.singletonList(name));
+    }
+
+    @Override
+    @Internal
+    public String getName() {
+        return name;
+    }
+}
@@ -0,0 +1,72 @@
+/*
+ * Copyright 2003-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.micronaut.gradle.aot;
+
+import org.gradle.api.DefaultTask;
+import org.gradle.api.file.ConfigurableFileCollection;
+import org.gradle.api.file.RegularFileProperty;
+import org.gradle.api.tasks.CacheableTask;
+import org.gradle.api.tasks.InputFiles;
+import org.gradle.api.tasks.OutputFile;
+import org.gradle.api.tasks.PathSensitive;
+import org.gradle.api.tasks.PathSensitivity;
+import org.gradle.api.tasks.TaskAction;
+
+import java.io.File;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Precomputes the AOT data of a library, which is then composed by the
+ * applications depending on the library: for now, the service
+ * implementations declared by the library, which include its bean
+ * definitions and its bean introspections.
+ *
+ * @since 3.2.0
+ */
+@CacheableTask
+public abstract class GenerateAotFragmentTask extends DefaultTask {
+    private static final String SERVICES_DIRECTORY = "META-INF/services";
+
+    /**
+     * The compiled classes and resources of the library.
+     * @return the library output directories
+     */
+    @InputFiles
+    @PathSensitive(PathSensitivity.RELATIVE)
+    public abstract ConfigurableFileCollection getLibraryOutput();
+
+    @OutputFile
+    public abstract RegularFileProperty getOutputFile();
+
+    @TaskAction
+    public void generate() {
+        Map<String, Set<String>> services = new TreeMap<>();
+        for (File directory : getLibraryOutput().getFiles()) {
+            File[] serviceFiles = new File(directory, SERVICES_DIRECTORY).listFiles(File::isFile);
+            if (serviceFiles == null) {
+                continue;
+            }
+            for (File serviceFile : serviceFiles) {
+                Set<String> implementations = services.computeIfAbsent(serviceFile.getName(), k -> new TreeSet<>());
+                implementations.addAll(AotFragments.readServiceFile(serviceFile));
+            }
+        }
+        AotFragments.write(services, getOutputFile().get().getAsFile());
+    }
+}
@@ -0,0 +1,91 @@
+/*
+ * Copyright 2003-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.micronaut.gradle.aot;
+
+import org.gradle.api.Action;
+import org.gradle.api.file.FileCopyDetails;
+import org.gradle.api.file.RegularFile;
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
+import org.gradle.api.provider.Provider;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Excludes from the optimized jars the resources which are listed
+ * in the resource filter file generated by the AOT optimizer, as well
+ * as the resources matching a set of prefixes. The filter file is read
+ * lazily, the first time a file is copied, which is why the set of
+ * excludes isn't serialized with the configuration cache.
+ */
+class JarExclusionSpec implements Action<FileCopyDetails> {
+    private static final Logger LOGGER = Logging.getLogger(JarExclusionSpec.class);
+
+    private final Provider<RegularFile> filterFile;
+    private final Set<String> prefixes;
+    private transient Set<String> excludes;
+
+    JarExclusionSpec(Provider<RegularFile> filterFile,
+                     Set<String> prefixes) {
+        this.filterFile = filterFile;
+        this.prefixes = prefixes;
+    }
+
+    @Override
+    public void execute(FileCopyDetails details) {
+        if (excludes == null) {
+            excludes = readExcludes(filterFile.get().getAsFile());
+            LOGGER.debug("Excluded resources: {} ", excludes);
+        }
+        if (isExcluded(details.getRelativePath().getPathString(), excludes, prefixes)) {
+            details.exclude();
+        }
+    }
+
+    static Set<String> readExcludes(File resourceFilter) {
+        try {
+            Set<String> excludes = new HashSet<>();
+            Files.readAllLines(resourceFilter.toPath())
+                    .stream()
+                    .map(JarExclusionSpec::normalizePath)
+                    .forEach(excludes::add);
+            return excludes;
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    static boolean isExcluded(String path, Set<String> excludes, Set<String> prefixes) {
+        String normalizedPath = normalizePath(path);
+        if (excludes.contains(normalizedPath)) {
+            return true;
+        }
+        for (String prefix : prefixes) {
+            if (normalizedPath.startsWith(prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String normalizePath(String path) {
+        return path.replace('\\', '/');
+    }
+}
@@ -0,0 +1,132 @@
+/*
+ * Copyright 2003-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.micronaut.gradle.aot;
+
+import org.gradle.api.GradleException;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.ZipFile;
+
+/**
+ * Tells which classes are provided by a JDK, which isn't necessarily
+ * the JDK running Gradle: the classes of a modular JDK are read through
+ * its own {@code jrt} file system, and those of a JDK 8 from its
+ * {@code rt.jar}.
+ *
+ * @since 3.2.0
+ */
+final class JdkClasses {
+    private static final String CLASS_EXTENSION = ".class";
+
+    private JdkClasses() {
+    }
+
+    /**
+     * Returns the classes provided by a JDK among a set of classes.
+     * @param javaHome the installation directory of the JDK
+     * @param classNames the class names
+     * @return the classes provided by the JDK
+     */
+    static Set<String> presentIn(File javaHome, Collection<String> classNames) {
+        try {
+            if (new File(javaHome, "lib/modules").isFile()) {
+                return presentInModules(javaHome, classNames);
+            }
+            File rtJar = new File(javaHome, "jre/lib/rt.jar");
+            if (!rtJar.isFile()) {
+                rtJar = new File(javaHome, "lib/rt.jar");
+            }
+            if (rtJar.isFile()) {
+                return presentInJar(rtJar, classNames);
+            }
+        } catch (IOException e) {
+            throw new GradleException("Unable to read the classes of the JDK in " + javaHome, e);
+        }
+        throw new GradleException("Unable to find the classes of the JDK in " + javaHome);
+    }
+
+    /**
+     * Returns the classes provided by the JDK running Gradle among a set of classes.
+     * @param classNames the class names
+     * @return the classes provided by the JDK
+     */
+    static Set<String> presentInCurrentJdk(Collection<String> classNames) {
+        // the platform class loader only sees the classes of the JDK
+        ClassLoader platform = ClassLoader.getSystemClassLoader().getParent();
+        if (platform == null) {
+            return Collections.emptySet();
+        }
+        return classNames.stream()
+                .filter(className -> platform.getResource(resourceOf(className)) != null)
+                .collect(Collectors.toCollection(TreeSet::new));
+    }
+
+    private static Set<String> presentInModules(File javaHome, Collection<String> classNames) throws IOException {
+        // the jrt file system of the target JDK, loaded from its jrt-fs.jar when Gradle runs on JDK 8
+        URL jrtFs = new File(javaHome, "lib/jrt-fs.jar").toURI().toURL();
+        try (URLClassLoader loader = new URLClassLoader(new URL[]{jrtFs});
+             FileSystem jrt = FileSystems.newFileSystem(URI.create("jrt:/"),
+                     Collections.singletonMap("java.home", javaHome.getAbsolutePath()), loader)) {
+            List<Path> modules = new ArrayList<>();
+            try (Stream<Path> children = Files.list(jrt.getPath("/modules"))) {
+                children.forEach(modules::add);
+            }
+            Set<String> present = new TreeSet<>();
+            for (String className : classNames) {
+                String resource = resourceOf(className);
+                for (Path module : modules) {
+                    if (Files.exists(module.resolve(resource))) {
+                        present.add(className);
+                        break;
+                    }
+                }
+            }
+            return present;
+        }
+    }
+
+    private static Set<String> presentInJar(File jar, Collection<String> classNames) throws IOException {
+        Set<String> present = new TreeSet<>();
+        try (ZipFile zip = new ZipFile(jar)) {
+            for (String className : classNames) {
+                if (zip.getEntry(resourceOf(className)) != null) {
+                    present.add(className);
+                }
+            }
+        }
+        return present;
+    }
+
+    private static String resourceOf(String className) {
+        return className.replace('.', '/') + CLASS_EXTENSION;
+    }
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright 2003-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.micronaut.gradle.aot;
+
+import org.gradle.api.DefaultTask;
+import org.gradle.api.GradleException;
+import org.gradle.api.file.RegularFileProperty;
+import org.gradle.api.provider.ListProperty;
+import org.gradle.api.tasks.CacheableTask;
+import org.gradle.api.tasks.Input;
+import org.gradle.api.tasks.OutputFile;
+import org.gradle.api.tasks.TaskAction;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Writes the value of the {@code JAVA_TOOL_OPTIONS} environment variable
+ * to configure on a JVM Lambda function. The default options favor the
+ * cold start of the function over its peak performance: the JIT compiler
+ * stops at the C1 tier, which compiles quickly, and the serial garbage
+ * collector, which has the smallest footprint, is used since functions
+ * usually run on a single CPU.
+ *
+ * @since 3.2.0
+ */
+@CacheableTask
+public abstract class LambdaJavaToolOptionsTask extends DefaultTask {
+    public static final List<String> DEFAULT_OPTIONS = Arrays.asList(
+            "-XX:+TieredCompilation",
+            "-XX:TieredStopAtLevel=1",
+            "-XX:+UseSerialGC",
+            "-Xshare:auto"
+    );
+
+    @Input
+    public abstract ListProperty<String> getOptions();
+
+    @OutputFile
+    public abstract RegularFileProperty getOutputFile();
+
+    @TaskAction
+    public void write() {
+        File outputFile = getOutputFile().get().getAsFile();
+        String options = String.join(" ", getOptions().get());
+        try {
+            Files.write(outputFile.toPath(), options.getBytes(StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            throw new GradleException("Unable to write " + outputFile, e);
+        }
+        getLogger().lifecycle("Configure the Lambda function with JAVA_TOOL_OPTIONS={}", options);
+    }
+}
@@ -33,6 +33,7 @@ import java.io.OutputStreamWriter;
 import java.io.PrintWriter;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -57,6 +58,16 @@ public abstract class MergeServiceFiles extends DefaultTask {
         File outputDir = getOutputDirectory().dir("META-INF/services").get().getAsFile();
         getFileOperations().delete(outputDir);
         outputDir.mkdirs();
+        mergeServiceFiles(serviceFiles, outputDir);
+    }
+
+    /**
+     * Merges service files which have the same name into a single file
+     * in the output directory.
+     * @param serviceFiles the service files to merge
+     * @param outputDir the output directory
+     */
+    static void mergeServiceFiles(Collection<File> serviceFiles, File outputDir) {
         Map<String, List<File>> perService = serviceFiles.stream()
                 .collect(Collectors.groupingBy(File::getName));
         for (Map.Entry<String, List<File>> entry : perService.entrySet()) {
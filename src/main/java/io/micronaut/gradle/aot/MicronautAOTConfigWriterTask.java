@@ -31,18 +31,22 @@ import io.micronaut.aot.std.sourcegen.YamlPropertySourceGenerator;
 import org.gradle.api.DefaultTask;
 import org.gradle.api.GradleException;
 import org.gradle.api.InvalidUserCodeException;
+import org.gradle.api.file.ConfigurableFileCollection;
 import org.gradle.api.file.RegularFileProperty;
 import org.gradle.api.provider.ListProperty;
 import org.gradle.api.provider.Property;
 import org.gradle.api.provider.Provider;
+import org.gradle.api.tasks.Classpath;
 import org.gradle.api.tasks.Input;
 import org.gradle.api.tasks.InputFile;
+import org.gradle.api.tasks.InputFiles;
 import org.gradle.api.tasks.Nested;
 import org.gradle.api.tasks.Optional;
 import org.gradle.api.tasks.OutputFile;
 import org.gradle.api.tasks.PathSensitive;
 import org.gradle.api.tasks.PathSensitivity;
 import org.gradle.api.tasks.TaskAction;
+import org.gradle.jvm.toolchain.JavaLauncher;
 
 import java.io.File;
 import java.io.FileInputStream;
@@ -50,8 +54,15 @@ import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Properties;
+import java.util.Set;
+import java.util.TreeSet;
 
 /**
  * A task which is responsible for writing a configuration
@@ -70,9 +81,69 @@ public abstract class MicronautAOTConfigWriterTask extends DefaultTask {
     @Nested
     public abstract Property<AOTOptimizations> getAOTOptimizations();
 
+    /**
+     * The AOT fragments precomputed by the libraries of the application.
+     * @return the fragment files
+     * @since 3.2.0
+     */
+    @InputFiles
+    @PathSensitive(PathSensitivity.NONE)
+    public abstract ConfigurableFileCollection getAotFragments();
+
+    /**
+     * The indexes of the jars of the application classpath, as computed
+     * by {@link ClasspathIndexTransform}.
+     * @return the classpath indexes
+     * @since 3.2.0
+     */
+    @InputFiles
+    @PathSensitive(PathSensitivity.NONE)
+    public abstract ConfigurableFileCollection getClasspathIndexes();
+
+    /**
+     * The compiled classes and resources of the application, which are
+     * indexed like the jars of the classpath.
+     * @return the application output directories
+     * @since 3.2.0
+     */
+    @Classpath
+    public abstract ConfigurableFileCollection getApplicationOutput();
+
+    /**
+     * The Java launcher of the application, whose JDK tells which of the
+     * classes checked by bean definitions are present. If not set, the
+     * JDK running Gradle is used.
+     * @return the Java launcher
+     * @since 3.2.0
+     */
+    @Nested
+    @Optional
+    public abstract Property<JavaLauncher> getJavaLauncher();
+
+    /**
+     * The environments of an {@link AOTEnvironment environment variant}.
+     * When set, they are the only possible environments, and the
+     * environment is deduced at build time.
+     * @return the environment names
+     * @since 3.2.0
+     */
+    @Input
+    @Optional
+    public abstract ListProperty<String> getEnvironments();
+
     @OutputFile
     public abstract RegularFileProperty getOutputFile();
 
+    /**
+     * A report of the classes checked by the bean definitions of the
+     * application which are absent from the classpath.
+     * @return the known missing types report
+     * @since 3.2.0
+     */
+    @OutputFile
+    @Optional
+    public abstract RegularFileProperty getKnownMissingTypesReport();
+
     private static void booleanOptimization(Properties props, String optimizationId, Provider<Boolean> provider) {
         if (provider.isPresent()) {
             String key = optimizationId + ".enabled";
@@ -91,6 +162,98 @@ public abstract class MicronautAOTConfigWriterTask extends DefaultTask {
         }
     }
 
+    /**
+     * Computes the service types to load statically: the service types found
+     * on the application classpath, filtered by the include and exclude patterns.
+     */
+    private Set<String> serviceTypes(AOTOptimizations optimizations) {
+        List<File> indexes = new ArrayList<>(getClasspathIndexes().getFiles());
+        indexes.addAll(getAotFragments().getFiles());
+        Set<String> discovered = readIndex(indexes).getServices().keySet();
+        if (discovered.isEmpty()) {
+            return new LinkedHashSet<>(MicronautAotPlugin.SERVICE_TYPES);
+        }
+        List<String> includes = optimizations.getServiceTypeIncludes().getOrElse(Collections.emptyList());
+        List<String> excludes = optimizations.getServiceTypeExcludes().getOrElse(Collections.emptyList());
+        Set<String> serviceTypes = new LinkedHashSet<>();
+        for (String serviceType : discovered) {
+            if (matchesAny(serviceType, includes) && !matchesAny(serviceType, excludes)) {
+                serviceTypes.add(serviceType);
+            }
+        }
+        getLogger().info("Service types found on the classpath which will be loaded statically: {}", serviceTypes);
+        return serviceTypes;
+    }
+
+    /**
+     * Computes the types which the optimizer checks for existence: the
+     * classes checked by the bean definitions and introspections of the
+     * classpath and of the application which are neither on the classpath
+     * nor in the JDK of the application. The optimizer checks again that
+     * they are absent.
+     */
+    private Set<String> knownMissingTypes() {
+        ClasspathIndex index = readIndex(new ArrayList<>(getClasspathIndexes().getFiles()));
+        Set<String> candidates = new TreeSet<>(index.getProbes());
+        candidates.removeAll(index.getClasses());
+        Set<String> missing = new TreeSet<>(candidates);
+        missing.removeAll(jdkClasses(candidates));
+        int present = index.getProbes().size() - missing.size();
+        Set<String> types = new LinkedHashSet<>(MicronautAotPlugin.TYPES_TO_CHECK);
+        types.addAll(missing);
+        List<String> report = new ArrayList<>();
+        report.add("Classes checked by bean definitions and introspections: " + index.getProbes().size());
+        report.add("Present on the classpath: " + present);
+        report.add("Absent, with lookups eliminated at startup: " + missing.size());
+        report.add("");
+        report.addAll(missing);
+        writeKnownMissingTypesReport(report);
+        getLogger().info("Found {} classes checked by bean definitions which are absent from the classpath", missing.size());
+        return types;
+    }
+
+    private void writeKnownMissingTypesReport(List<String> report) {
+        if (!getKnownMissingTypesReport().isPresent()) {
+            return;
+        }
+        File reportFile = getKnownMissingTypesReport().get().getAsFile();
+        try {
+            Files.createDirectories(reportFile.getParentFile().toPath());
+            Files.write(reportFile.toPath(), report, StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new GradleException("Unable to write report " + reportFile, e);
+        }
+    }
+
+    /**
+     * Reads the indexes of the classpath, and adds the outputs of the
+     * application to them.
+     */
+    private ClasspathIndex readIndex(List<File> indexFiles) {
+        ClasspathIndex index = ClasspathIndex.read(indexFiles);
+        for (File directory : getApplicationOutput().getFiles()) {
+            index.addDirectory(directory);
+        }
+        return index;
+    }
+
+    private Set<String> jdkClasses(Set<String> classNames) {
+        if (getJavaLauncher().isPresent()) {
+            File javaHome = getJavaLauncher().get().getMetadata().getInstallationPath().getAsFile();
+            return JdkClasses.presentIn(javaHome, classNames);
+        }
+        return JdkClasses.presentInCurrentJdk(classNames);
+    }
+
+    private static boolean matchesAny(String type, List<String> patterns) {
+        for (String pattern : patterns) {
+            if (pattern.endsWith("*") ? type.startsWith(pattern.substring(0, pattern.length() - 1)) : type.equals(pattern)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     @TaskAction
     void writeConfigFile() {
         Properties props = new Properties();
@@ -105,11 +268,15 @@ public abstract class MicronautAOTConfigWriterTask extends DefaultTask {
         if (optimizations.getConfigurationProperties().isPresent()) {
             props.putAll(optimizations.getConfigurationProperties().get());
         }
-        if (!props.containsKey(KnownMissingTypesSourceGenerator.OPTION.key())) {
-            props.put(KnownMissingTypesSourceGenerator.OPTION.key(), String.join(",", MicronautAotPlugin.TYPES_TO_CHECK));
+        String knownMissingTypesKey = KnownMissingTypesSourceGenerator.OPTION.key();
+        if (!props.containsKey(knownMissingTypesKey)) {
+            props.put(knownMissingTypesKey, String.join(",", knownMissingTypes()));
+        } else {
+            // the report of a previous execution would be stale
+            writeKnownMissingTypesReport(Collections.singletonList("Not computed: the known missing types are set by the '" + knownMissingTypesKey + "' configuration key"));
         }
         if (!props.containsKey(AbstractStaticServiceLoaderSourceGenerator.SERVICE_TYPES)) {
-            props.put(AbstractStaticServiceLoaderSourceGenerator.SERVICE_TYPES, String.join(",", MicronautAotPlugin.SERVICE_TYPES));
+            props.put(AbstractStaticServiceLoaderSourceGenerator.SERVICE_TYPES, String.join(",", serviceTypes(optimizations)));
         }
         booleanOptimization(props, GraalVMOptimizationFeatureSourceGenerator.ID, getForNative());
         booleanOptimization(props, LogbackConfigurationSourceGenerator.ID, optimizations.getReplaceLogbackXml());
@@ -126,6 +293,11 @@ public abstract class MicronautAOTConfigWriterTask extends DefaultTask {
             booleanOptimization(props, ConstantPropertySourcesSourceGenerator.ID, optimizations.getConvertYamlToJava());
         }
         booleanOptimization(props, EnvironmentPropertiesSourceGenerator.ID, optimizations.getPrecomputeOperations());
+        if (getEnvironments().isPresent() && !getEnvironments().get().isEmpty()) {
+            // a variant is optimized for a single deployment, its environment is known at build time
+            props.putIfAbsent(DeduceEnvironmentSourceGenerator.ID + ".enabled", "true");
+            stringListParameter(props, Environments.POSSIBLE_ENVIRONMENTS_NAMES, getEnvironments());
+        }
         booleanOptimization(props, DeduceEnvironmentSourceGenerator.ID, optimizations.getDeduceEnvironment());
         stringListParameter(props, Environments.POSSIBLE_ENVIRONMENTS_NAMES, optimizations.getPossibleEnvironments());
         File outputFile = getOutputFile().getAsFile().get();
@@ -18,13 +18,16 @@ package io.micronaut.gradle.aot;
 import org.gradle.api.file.Directory;
 import org.gradle.api.file.RegularFile;
 import org.gradle.api.file.RegularFileProperty;
+import org.gradle.api.provider.ListProperty;
 import org.gradle.api.provider.Provider;
 import org.gradle.api.tasks.CacheableTask;
+import org.gradle.api.tasks.Input;
 import org.gradle.api.tasks.InputFile;
 import org.gradle.api.tasks.Internal;
 import org.gradle.api.tasks.Optional;
 import org.gradle.api.tasks.PathSensitive;
 import org.gradle.api.tasks.PathSensitivity;
+import org.gradle.process.JavaExecSpec;
 
 import java.util.List;
 
@@ -53,6 +56,17 @@ public abstract class MicronautAotOptimizerTask extends AbstractMicronautAotCliT
     @Optional
     public abstract RegularFileProperty getConfigurationFile();
 
+    /**
+     * The Micronaut environments which are active when the
+     * application is analyzed. If not set, the environments are
+     * deduced by the application context, as at runtime.
+     * @return the environment names
+     * @since 3.2.0
+     */
+    @Input
+    @Optional
+    public abstract ListProperty<String> getEnvironments();
+
     @Override
     protected void configureExtraArguments(List<String> args) {
         args.add("--output");
@@ -63,4 +77,11 @@ public abstract class MicronautAotOptimizerTask extends AbstractMicronautAotCliT
         }
     }
 
+    @Override
+    protected void configureJvm(JavaExecSpec spec) {
+        if (getEnvironments().isPresent() && !getEnvironments().get().isEmpty()) {
+            spec.systemProperty("micronaut.environments", String.join(",", getEnvironments().get()));
+        }
+    }
+
 }
@@ -17,23 +17,36 @@ package io.micronaut.gradle.aot;
 
 import com.github.jengelman.gradle.plugins.shadow.ShadowJavaPlugin;
 import com.github.jengelman.gradle.plugins.shadow.tasks.ShadowJar;
+import io.micronaut.gradle.HeavyTaskScheduler;
 import io.micronaut.gradle.MicronautBasePlugin;
 import io.micronaut.gradle.MicronautExtension;
 import io.micronaut.gradle.MicronautMinimalApplicationPlugin;
+import io.micronaut.gradle.MicronautRuntime;
+import io.micronaut.gradle.MicronautTelemetry;
+import io.micronaut.gradle.PluginsHelper;
 import io.micronaut.gradle.docker.MicronautDockerPlugin;
+import io.micronaut.gradle.docker.StartupOrderedJars;
+import io.micronaut.gradle.docker.model.Layer;
 import io.micronaut.gradle.docker.model.LayerKind;
 import io.micronaut.gradle.docker.model.MicronautDockerImage;
 import io.micronaut.gradle.docker.model.RuntimeKind;
+import io.micronaut.gradle.docker.tasks.StartupOrderedJarTask;
+import io.micronaut.gradle.run.Footprints;
+import io.micronaut.gradle.run.LoadTests;
+import io.micronaut.gradle.run.StartupProfiles;
 import org.graalvm.buildtools.gradle.NativeImagePlugin;
 import org.graalvm.buildtools.gradle.dsl.GraalVMExtension;
 import org.graalvm.buildtools.gradle.dsl.NativeImageOptions;
+import org.graalvm.buildtools.gradle.tasks.BuildNativeImageTask;
 import org.gradle.api.Action;
+import org.gradle.api.InvalidUserDataException;
 import org.gradle.api.NamedDomainObjectContainer;
 import org.gradle.api.Plugin;
 import org.gradle.api.Project;
 import org.gradle.api.Task;
 import org.gradle.api.artifacts.Configuration;
 import org.gradle.api.artifacts.ConfigurationContainer;
+import org.gradle.api.artifacts.type.ArtifactTypeDefinition;
 import org.gradle.api.attributes.Attribute;
 import org.gradle.api.attributes.AttributeContainer;
 import org.gradle.api.distribution.DistributionContainer;
@@ -41,34 +54,43 @@ import org.gradle.api.distribution.plugins.DistributionPlugin;
 import org.gradle.api.file.ArchiveOperations;
 import org.gradle.api.file.ConfigurableFileCollection;
 import org.gradle.api.file.Directory;
-import org.gradle.api.file.FileCopyDetails;
+import org.gradle.api.file.FileCollection;
 import org.gradle.api.file.RegularFile;
-import org.gradle.api.file.RelativePath;
 import org.gradle.api.java.archives.Attributes;
-import org.gradle.api.logging.Logger;
 import org.gradle.api.plugins.ApplicationPluginConvention;
+import org.gradle.api.plugins.BasePlugin;
+import org.gradle.api.plugins.ExtensionAware;
 import org.gradle.api.plugins.JavaApplication;
 import org.gradle.api.plugins.JavaPlugin;
 import org.gradle.api.plugins.JavaPluginConvention;
+import org.gradle.api.plugins.JavaPluginExtension;
 import org.gradle.api.provider.Provider;
 import org.gradle.api.provider.ProviderFactory;
 import org.gradle.api.tasks.JavaExec;
 import org.gradle.api.tasks.SourceSet;
+import org.gradle.api.tasks.SourceSetContainer;
 import org.gradle.api.tasks.TaskContainer;
 import org.gradle.api.tasks.TaskProvider;
 import org.gradle.api.tasks.application.CreateStartScripts;
 import org.gradle.api.tasks.bundling.Jar;
+import org.gradle.api.tasks.bundling.Zip;
+import org.gradle.api.tasks.testing.Test;
+import org.gradle.api.tasks.testing.TestFrameworkOptions;
+import org.gradle.api.tasks.testing.junit.JUnitOptions;
+import org.gradle.api.tasks.testing.junitplatform.JUnitPlatformOptions;
+import org.gradle.api.tasks.testing.testng.TestNGOptions;
+import org.gradle.build.event.BuildEventsListenerRegistry;
+import org.gradle.jvm.toolchain.JavaToolchainService;
 import org.jetbrains.annotations.NotNull;
 
 import javax.inject.Inject;
 import java.io.File;
-import java.io.IOException;
-import java.nio.file.Files;
-import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.stream.Collectors;
 
@@ -83,6 +105,10 @@ public abstract class MicronautAotPlugin implements Plugin<Project> {
     public static final String OPTIMIZED_BINARY_NAME = "optimized";
     public static final String OPTIMIZED_DIST_NAME = "optimized";
     public static final String MAIN_BINARY_NAME = "main";
+    public static final String OPTIMIZED_TEST_SUFFIX = "OptimizedJit";
+    public static final String ENVIRONMENTS_EXTENSION_NAME = "environments";
+    public static final String ASSEMBLE_ENVIRONMENTS_TASK_NAME = "assembleAotEnvironments";
+    public static final String ASSEMBLE_LAMBDA_TASK_NAME = "assembleOptimizedLambda";
 
     static final List<String> TYPES_TO_CHECK = Collections.unmodifiableList(Arrays.asList(
             "io.reactivex.Observable",
@@ -111,17 +137,41 @@ public abstract class MicronautAotPlugin implements Plugin<Project> {
             "io.micronaut.core.beans.BeanIntrospectionReference"
     ));
 
+    // services which are only used by the annotation processors
+    static final List<String> COMPILE_TIME_SERVICE_TYPES = Collections.unmodifiableList(Arrays.asList(
+            "io.micronaut.inject.visitor.*",
+            "io.micronaut.inject.annotation.*",
+            "io.micronaut.inject.ast.*"
+    ));
+
     @Inject
     protected abstract ArchiveOperations getArchiveOperations();
 
+    @Inject
+    protected abstract BuildEventsListenerRegistry getEventsListenerRegistry();
+
     @Override
     public void apply(Project project) {
         project.getPluginManager().apply(MicronautBasePlugin.class);
         MicronautExtension micronautExtension = project.getExtensions().getByType(MicronautExtension.class);
         AOTExtension aotExtension = micronautExtension.getExtensions().create("aot", AOTExtension.class);
         configureAotDefaults(aotExtension);
+        NamedDomainObjectContainer<AOTEnvironment> environments = project.getObjects().domainObjectContainer(AOTEnvironment.class, s -> project.getObjects().newInstance(DefaultAOTEnvironment.class, s));
+        ((ExtensionAware) aotExtension).getExtensions().add(ENVIRONMENTS_EXTENSION_NAME, environments);
+        rejectNameCollisions(environments);
         Configurations configurations = prepareConfigurations(project, aotExtension);
-        project.getPlugins().withType(MicronautMinimalApplicationPlugin.class, p -> registerPrepareOptimizationsTasks(project, configurations, aotExtension));
+        Provider<HeavyTaskScheduler> scheduler = HeavyTaskScheduler.registerIfAbsent(project, getEventsListenerRegistry());
+        project.getTasks().withType(MicronautAotOptimizerTask.class).configureEach(task ->
+                HeavyTaskScheduler.limit(task, scheduler, HeavyTaskScheduler.AOT_OPTIMIZER_MEMORY, 1)
+        );
+        MicronautTelemetry.track(project, getEventsListenerRegistry(), MicronautAotOptimizerTask.class);
+        MicronautTelemetry.track(project, getEventsListenerRegistry(), MergeServiceFiles.class);
+        project.getTasks().withType(ShadowJar.class).configureEach(task -> {
+            if (task.getName().startsWith("optimized")) {
+                HeavyTaskScheduler.limit(task, scheduler, HeavyTaskScheduler.FAT_JAR_MEMORY, 1);
+            }
+        });
+        project.getPlugins().withType(MicronautMinimalApplicationPlugin.class, p -> registerPrepareOptimizationsTasks(project, configurations, aotExtension, environments));
     }
 
     private void configureAotDefaults(AOTExtension aotExtension) {
@@ -133,22 +183,102 @@ public abstract class MicronautAotPlugin implements Plugin<Project> {
         aotExtension.getOptimizeClassLoading().convention(false);
         aotExtension.getPrecomputeOperations().convention(false);
         aotExtension.getDeduceEnvironment().convention(false);
+        aotExtension.getServiceTypeIncludes().convention(Collections.singletonList("io.micronaut.*"));
+        aotExtension.getServiceTypeExcludes().convention(COMPILE_TIME_SERVICE_TYPES);
     }
 
-    private void registerPrepareOptimizationsTasks(Project project, Configurations configurations, AOTExtension aotExtension) {
+    private void registerPrepareOptimizationsTasks(Project project, Configurations configurations, AOTExtension aotExtension, NamedDomainObjectContainer<AOTEnvironment> environments) {
         Configuration optimizerRuntimeClasspath = configurations.aotOptimizerRuntimeClasspath;
         Configuration applicationClasspath = configurations.aotApplicationClasspath;
         TaskContainer tasks = project.getTasks();
-        TaskProvider<MicronautAotOptimizerTask> prepareJit = registerPrepareOptimizationTask(project, optimizerRuntimeClasspath, applicationClasspath, tasks, aotExtension, OptimizerIO.TargetRuntime.JIT);
+        TaskProvider<MicronautAotOptimizerTask> prepareJit = registerPrepareOptimizationTask(project, optimizerRuntimeClasspath, applicationClasspath, tasks, aotExtension, null, OptimizerIO.TargetRuntime.JIT);
         registerJavaExecOptimizedRun(project, tasks, prepareJit);
 
-        TaskProvider<MicronautAotOptimizerTask> prepareNative = registerPrepareOptimizationTask(project, optimizerRuntimeClasspath, applicationClasspath, tasks, aotExtension, OptimizerIO.TargetRuntime.NATIVE);
+        TaskProvider<MicronautAotOptimizerTask> prepareNative = registerPrepareOptimizationTask(project, optimizerRuntimeClasspath, applicationClasspath, tasks, aotExtension, null, OptimizerIO.TargetRuntime.NATIVE);
         registerOptimizedJar(project, tasks, prepareNative, OptimizerIO.TargetRuntime.NATIVE);
-        project.getPlugins().withType(NativeImagePlugin.class, p -> registerOptimizedBinary(project, prepareNative));
+        project.getPlugins().withType(NativeImagePlugin.class, p -> registerOptimizedBinary(project, OPTIMIZED_BINARY_NAME, prepareNative));
+
+        TaskProvider<Task> assembleEnvironments = tasks.register(ASSEMBLE_ENVIRONMENTS_TASK_NAME, task ->
+                task.setDescription("Assembles the optimized jars of all the AOT environment variants"));
+        environments.all(environment -> registerEnvironmentTasks(project, optimizerRuntimeClasspath, applicationClasspath, tasks, aotExtension, environment, assembleEnvironments));
 
         registerCreateSamplesTasks(project, optimizerRuntimeClasspath, applicationClasspath, tasks);
     }
 
+    /**
+     * Registers the tasks of an environment variant. They don't depend on
+     * the tasks of the other variants, so the variants are optimized in
+     * parallel, within the limits of the heavy task scheduler.
+     */
+    private void registerEnvironmentTasks(Project project,
+                                          Configuration optimizerRuntimeClasspath,
+                                          Configuration applicationClasspath,
+                                          TaskContainer tasks,
+                                          AOTExtension aotExtension,
+                                          AOTEnvironment environment,
+                                          TaskProvider<Task> assembleEnvironments) {
+        String environmentName = taskNameOf(environment);
+        for (OptimizerIO.TargetRuntime runtime : OptimizerIO.TargetRuntime.values()) {
+            TaskProvider<MicronautAotOptimizerTask> prepare = registerPrepareOptimizationTask(project, optimizerRuntimeClasspath, applicationClasspath, tasks, aotExtension, environment, runtime);
+            TaskProvider<Jar> jar = registerOptimizedJar(project, tasks, prepare, environmentName + runtime.getCapitalizedName(), pathOf(environment) + "-" + runtime.getSimpleName());
+            assembleEnvironments.configure(task -> task.dependsOn(jar));
+            if (runtime == OptimizerIO.TargetRuntime.NATIVE) {
+                project.getPlugins().withType(NativeImagePlugin.class, p -> registerOptimizedBinary(project, OPTIMIZED_BINARY_NAME + environmentName, prepare));
+            }
+        }
+    }
+
+    /**
+     * Fails as soon as two environment variants are converted to the same
+     * part of task names or file names, like {@code prod-eu} and
+     * {@code prod_eu}, since their tasks or outputs would clash.
+     */
+    private static void rejectNameCollisions(NamedDomainObjectContainer<AOTEnvironment> environments) {
+        Map<String, String> variantsByTaskName = new HashMap<>();
+        Map<String, String> variantsByPath = new HashMap<>();
+        environments.whenObjectAdded(environment -> {
+            rejectNameCollision(variantsByTaskName, taskNameOf(environment), environment, "task names");
+            rejectNameCollision(variantsByPath, pathOf(environment), environment, "file names");
+        });
+        environments.whenObjectRemoved(environment -> {
+            variantsByTaskName.remove(taskNameOf(environment), environment.getName());
+            variantsByPath.remove(pathOf(environment), environment.getName());
+        });
+    }
+
+    private static void rejectNameCollision(Map<String, String> variants, String key, AOTEnvironment environment, String usage) {
+        String other = variants.putIfAbsent(key, environment.getName());
+        if (other != null) {
+            throw new InvalidUserDataException("The AOT environments '" + other + "' and '" + environment.getName()
+                    + "' both give '" + key + "' in " + usage + ", please rename one of them");
+        }
+    }
+
+    /**
+     * Converts the name of an environment variant to a part of task
+     * names: the name is camel-cased at each character which isn't a
+     * letter or a digit, so that {@code prod-eu} gives {@code ProdEu}.
+     */
+    private static String taskNameOf(AOTEnvironment environment) {
+        StringBuilder taskName = new StringBuilder();
+        for (String part : environment.getName().split("[^A-Za-z0-9]+")) {
+            taskName.append(capitalize(part));
+        }
+        if (taskName.length() == 0) {
+            throw new InvalidUserDataException("The name of the AOT environment '" + environment.getName() + "' must contain a letter or a digit");
+        }
+        return taskName.toString();
+    }
+
+    /**
+     * Converts the name of an environment variant to a part of file
+     * names and classifiers, where the characters which aren't letters,
+     * digits, dashes or underscores are replaced with dashes.
+     */
+    private static String pathOf(AOTEnvironment environment) {
+        return environment.getName().replaceAll("[^A-Za-z0-9_-]+", "-");
+    }
+
     private void registerCreateSamplesTasks(Project project, Configuration optimizerRuntimeClasspath, Configuration applicationClasspath, TaskContainer tasks) {
         TaskProvider<Task> createAotSampleConfigurationFiles = tasks.register("createAotSampleConfigurationFiles", task -> {
             task.setDescription("Generates Micronaut AOT sample configuration files");
@@ -189,6 +319,62 @@ public abstract class MicronautAotPlugin implements Plugin<Project> {
         }));
     }
 
+    /**
+     * Registers the deployment packages of a JVM Lambda function. The function
+     * package only contains the optimized jar, so that it stays small and
+     * quick to upload, and the dependencies are packaged as a Lambda layer,
+     * which only changes when the dependencies do. A single package,
+     * containing both, is also available. The packages are reproducible, and
+     * are only built when the runtime is Lambda.
+     */
+    private void registerLambdaPackages(Project project, TaskContainer tasks, TaskProvider<Jar> optimizedJar) {
+        Configuration runtimeClasspath = project.getConfigurations().getByName(RUNTIME_CLASSPATH_CONFIGURATION_NAME);
+        Provider<Directory> lambdaDirectory = project.getLayout().getBuildDirectory().dir("lambda");
+        Provider<Boolean> lambdaRuntime = project.provider(() -> PluginsHelper.resolveRuntime(project) == MicronautRuntime.LAMBDA);
+        TaskProvider<Zip> function = tasks.register("optimizedLambdaFunction", Zip.class, zip -> {
+            zip.setDescription("Builds the deployment package of the AOT optimized Lambda function, without its dependencies");
+            zip.onlyIf(t -> lambdaRuntime.get());
+            zip.getArchiveClassifier().convention("lambda-function");
+            zip.getDestinationDirectory().convention(lambdaDirectory);
+            zip.setPreserveFileTimestamps(false);
+            zip.setReproducibleFileOrder(true);
+            zip.into("lib", spec -> spec.from(optimizedJar));
+        });
+        TaskProvider<Zip> layer = tasks.register("optimizedLambdaLayer", Zip.class, zip -> {
+            zip.setDescription("Builds the Lambda layer containing the dependencies of the AOT optimized function");
+            zip.onlyIf(t -> lambdaRuntime.get());
+            zip.getArchiveClassifier().convention("lambda-layer");
+            zip.getDestinationDirectory().convention(lambdaDirectory);
+            zip.setPreserveFileTimestamps(false);
+            zip.setReproducibleFileOrder(true);
+            // Java layers are extracted to /opt, and /opt/java/lib is on the classpath of the function
+            zip.into("java/lib", spec -> spec.from(runtimeClasspath));
+        });
+        TaskProvider<Zip> all = tasks.register("optimizedLambdaZip", Zip.class, zip -> {
+            zip.setDescription("Builds the deployment package of the AOT optimized Lambda function, with its dependencies");
+            zip.onlyIf(t -> lambdaRuntime.get());
+            zip.getArchiveClassifier().convention("lambda");
+            zip.getDestinationDirectory().convention(lambdaDirectory);
+            zip.setPreserveFileTimestamps(false);
+            zip.setReproducibleFileOrder(true);
+            zip.into("lib", spec -> {
+                spec.from(optimizedJar);
+                spec.from(runtimeClasspath);
+            });
+        });
+        TaskProvider<LambdaJavaToolOptionsTask> javaToolOptions = tasks.register("optimizedLambdaJavaToolOptions", LambdaJavaToolOptionsTask.class, task -> {
+            task.setDescription("Writes the JAVA_TOOL_OPTIONS which reduce the cold start of the Lambda function");
+            task.onlyIf(t -> lambdaRuntime.get());
+            task.getOptions().convention(LambdaJavaToolOptionsTask.DEFAULT_OPTIONS);
+            task.getOutputFile().convention(lambdaDirectory.map(dir -> dir.file("JAVA_TOOL_OPTIONS")));
+        });
+        tasks.register(ASSEMBLE_LAMBDA_TASK_NAME, task -> {
+            task.setGroup(BasePlugin.BUILD_GROUP);
+            task.setDescription("Builds the deployment packages of the AOT optimized Lambda function");
+            task.dependsOn(function, layer, all, javaToolOptions);
+        });
+    }
+
     @SuppressWarnings("unchecked")
     private void registerDockerImage(Project project, TaskProvider<Jar> optimizedJar, OptimizerIO.TargetRuntime runtime) {
         MicronautExtension micronautExtension = project.getExtensions().getByType(MicronautExtension.class);
@@ -201,36 +387,23 @@ public abstract class MicronautAotPlugin implements Plugin<Project> {
                 JavaApplication javaApplication = project.getExtensions().getByType(JavaApplication.class);
                 Attributes attrs = manifest.getAttributes();
                 attrs.put("Main-Class", javaApplication.getMainClass());
-                attrs.put("Class-Path", project.getProviders().provider(() -> {
-                    List<String> classpath = new ArrayList<>();
-                    Configuration runtimeClasspath = project.getConfigurations()
-                            .getByName(RUNTIME_CLASSPATH_CONFIGURATION_NAME);
-
-                    for (File file : runtimeClasspath) {
-                        classpath.add("libs/" + file.getName());
-                    }
-                    classpath.add("resources/");
-                    classpath.add("classes/");
-                    return String.join(" ", classpath);
-                }));
+                attrs.put("Class-Path", MicronautDockerPlugin.classPathManifestEntry(
+                        project.getConfigurations().getByName(RUNTIME_CLASSPATH_CONFIGURATION_NAME)
+                ));
                 manifest.attributes(attrs);
             });
         });
+        // only the JIT application jar is executed as a jar, the native one is an input of native-image
+        TaskProvider<StartupOrderedJarTask> orderedRunnerJar = runtime == OptimizerIO.TargetRuntime.JIT
+                ? StartupOrderedJars.register(project, optimizedRunnerJar, project.getConfigurations().getByName(RUNTIME_CLASSPATH_CONFIGURATION_NAME))
+                : null;
         MicronautDockerImage optimized = dockerImages.findByName("optimized");
         if (optimized != null) {
             // only consider the main app
-            optimized.addLayer(layer -> {
-                layer.getLayerKind().set(LayerKind.APP);
-                layer.getRuntimeKind().set(runtime == OptimizerIO.TargetRuntime.JIT ? RuntimeKind.JIT : RuntimeKind.NATIVE);
-                layer.getFiles().from(optimizedRunnerJar);
-            });
+            optimized.addLayer(layer -> configureApplicationLayer(project, optimized, layer, optimizedRunnerJar, orderedRunnerJar, runtime));
         } else {
             dockerImages.create("optimized", image -> {
-                image.addLayer(layer -> {
-                    layer.getLayerKind().set(LayerKind.APP);
-                    layer.getRuntimeKind().set(runtime == OptimizerIO.TargetRuntime.JIT ? RuntimeKind.JIT : RuntimeKind.NATIVE);
-                    layer.getFiles().from(optimizedRunnerJar);
-                });
+                image.addLayer(layer -> configureApplicationLayer(project, image, layer, optimizedRunnerJar, orderedRunnerJar, runtime));
                 image.addLayer(layer -> {
                     layer.getLayerKind().set(LayerKind.LIBS);
                     layer.getFiles().from(layer.getFiles().from(project.getConfigurations().getByName(RUNTIME_CLASSPATH_CONFIGURATION_NAME))
@@ -240,42 +413,73 @@ public abstract class MicronautAotPlugin implements Plugin<Project> {
         }
     }
 
-    private void registerOptimizedBinary(Project project, TaskProvider<MicronautAotOptimizerTask> prepareNative) {
+    private static void configureApplicationLayer(Project project,
+                                                  MicronautDockerImage image,
+                                                  Layer layer,
+                                                  TaskProvider<Jar> optimizedRunnerJar,
+                                                  TaskProvider<StartupOrderedJarTask> orderedRunnerJar,
+                                                  OptimizerIO.TargetRuntime runtime) {
+        layer.getLayerKind().set(LayerKind.APP);
+        layer.getRuntimeKind().set(runtime == OptimizerIO.TargetRuntime.JIT ? RuntimeKind.JIT : RuntimeKind.NATIVE);
+        if (orderedRunnerJar != null) {
+            layer.getFiles().from(StartupOrderedJars.applicationJar(project, image, optimizedRunnerJar, orderedRunnerJar));
+        } else {
+            layer.getFiles().from(optimizedRunnerJar);
+        }
+    }
+
+    private void registerOptimizedBinary(Project project, String binaryName, TaskProvider<MicronautAotOptimizerTask> prepareNative) {
         GraalVMExtension graalVMExtension = project.getExtensions().getByType(GraalVMExtension.class);
         NamedDomainObjectContainer<NativeImageOptions> binaries = graalVMExtension.getBinaries();
-        binaries.create(OPTIMIZED_BINARY_NAME, binary -> {
+        binaries.create(binaryName, binary -> {
             NativeImageOptions main = binaries.getByName(MAIN_BINARY_NAME);
             binary.getMainClass().set(main.getMainClass());
             binary.getClasspath().from(main.getClasspath());
             binary.getClasspath().from(prepareNative.map(MicronautAotOptimizerTask::getGeneratedClassesDirectory));
         });
+        if (OPTIMIZED_BINARY_NAME.equals(binaryName)) {
+            LoadTests.register(project, "nativeOptimizedLoadTest", "Runs the load test scenarios against the optimized native executable", task ->
+                    task.getExecutable().set(nativeExecutable(project, "nativeOptimizedCompile")));
+            Footprints.register(project, "optimizedNative", task -> task.getExecutable().set(nativeExecutable(project, "nativeOptimizedCompile")));
+        }
+    }
+
+    private static Provider<RegularFile> nativeExecutable(Project project, String compileTaskName) {
+        return project.getTasks().named(compileTaskName, BuildNativeImageTask.class).flatMap(BuildNativeImageTask::getOutputFile);
     }
 
     private TaskProvider<Jar> registerOptimizedJar(Project project,
                                                    TaskContainer tasks,
                                                    TaskProvider<MicronautAotOptimizerTask> prepareTask,
                                                    MicronautAotOptimizerTask.TargetRuntime runtime) {
+        TaskProvider<Jar> jarTask = registerOptimizedJar(project, tasks, prepareTask, runtime.getCapitalizedName(), runtime.getSimpleName());
+        tasks.named("assemble").configure(assemble -> assemble.dependsOn(jarTask));
+        project.getPlugins().withType(MicronautDockerPlugin.class, p -> registerDockerImage(project, jarTask, runtime));
+        return jarTask;
+    }
+
+    private TaskProvider<Jar> registerOptimizedJar(Project project,
+                                                   TaskContainer tasks,
+                                                   TaskProvider<MicronautAotOptimizerTask> prepareTask,
+                                                   String variantName,
+                                                   String classifier) {
         TaskProvider<Jar> mainJar = tasks.named("jar", Jar.class);
-        TaskProvider<MergeServiceFiles> mergeTask = tasks.register("mergeServiceFilesForOptimized" + runtime.getCapitalizedName() + "Jar", MergeServiceFiles.class, task -> {
+        TaskProvider<MergeServiceFiles> mergeTask = tasks.register("mergeServiceFilesForOptimized" + variantName + "Jar", MergeServiceFiles.class, task -> {
             task.getInputFiles().from(mainJar.map(jar -> getArchiveOperations().zipTree(jar.getArchiveFile().get().getAsFile())));
             task.getInputFiles().from(prepareTask.flatMap(MicronautAotOptimizerTask::getGeneratedClassesDirectory));
-            task.getOutputDirectory().convention(project.getLayout().getBuildDirectory().dir("generated/aot/" + runtime.getSimpleName() + "-service-files"));
+            task.getOutputDirectory().convention(project.getLayout().getBuildDirectory().dir("generated/aot/" + classifier + "-service-files"));
         });
-        TaskProvider<Jar> jarTask = tasks.register("optimized" + runtime.getCapitalizedName() + "Jar", Jar.class, jar -> {
-            jar.getInputs().file(prepareTask.map(MicronautAotOptimizerTask::getGeneratedOutputResourceFilter));
-            jar.getArchiveClassifier().convention(runtime.getSimpleName());
+        return tasks.register("optimized" + variantName + "Jar", Jar.class, jar -> {
+            jar.getInputs().file(prepareTask.flatMap(MicronautAotOptimizerTask::getGeneratedOutputResourceFilter));
+            jar.getArchiveClassifier().convention(classifier);
             jar.from(mainJar.get().getSource(), spec -> spec.eachFile(
                     new JarExclusionSpec(
                             prepareTask.flatMap(MicronautAotOptimizerTask::getGeneratedOutputResourceFilter),
-                            Collections.singleton("META-INF/services/"),
-                            jar.getLogger()))
+                            Collections.singleton("META-INF/services/")))
             );
             jar.from(prepareTask.map(MicronautAotOptimizerTask::getGeneratedClassesDirectory), spec -> spec.exclude("META-INF/services/**"));
             jar.from(mergeTask);
         });
-        tasks.named("assemble").configure(assemble -> assemble.dependsOn(jarTask));
-        project.getPlugins().withType(MicronautDockerPlugin.class, p -> registerDockerImage(project, jarTask, runtime));
-        return jarTask;
     }
 
     private TaskProvider<JavaExec> registerJavaExecOptimizedRun(Project project,
@@ -285,6 +489,13 @@ public abstract class MicronautAotPlugin implements Plugin<Project> {
         TaskProvider<Jar> jarTask = registerOptimizedJar(project, tasks, prepareJit, OptimizerIO.TargetRuntime.JIT);
         project.getPlugins().withType(ShadowJavaPlugin.class, plugin -> registerShadowJar(project, tasks, jarTask));
         project.getPlugins().withType(DistributionPlugin.class, p -> registerOptimizedDistribution(project, jarTask));
+        registerLambdaPackages(project, tasks, jarTask);
+        registerOptimizedTestTasks(project, tasks, jarTask);
+        LoadTests.register(project, "optimizedLoadTest", "Runs the load test scenarios against the Micronaut application with AOT optimizations", task ->
+                task.launchLike(tasks.named("optimizedRun", JavaExec.class).get()));
+        Footprints.register(project, "optimizedJit", task -> task.launchLike(tasks.named("optimizedRun", JavaExec.class).get()));
+        StartupProfiles.register(project, "profileOptimizedStartup", "Profiles the startup of the Micronaut application with AOT optimizations with JDK Flight Recorder", task ->
+                task.launchLike(tasks.named("optimizedRun", JavaExec.class).get()));
         return tasks.register("optimizedRun", JavaExec.class, task -> {
             JavaExec runTask = tasks.named("run", JavaExec.class).get();
             JavaApplication javaApplication = project.getExtensions().getByType(JavaApplication.class);
@@ -293,26 +504,103 @@ public abstract class MicronautAotPlugin implements Plugin<Project> {
             task.setGroup(runTask.getGroup());
             task.setDescription("Executes the Micronaut application with AOT optimizations");
             task.getMainClass().convention(javaApplication.getMainClass());
-            Set<File> mainSourceSetOutput = mainSourceSet.getOutput().getFiles();
+            // The classpath is computed using lazy file collections only, so that
+            // it doesn't capture the project model and is configuration cache safe
             task.setClasspath(
-                    project.files(jarTask, mainSourceSet.getRuntimeClasspath().filter(f -> !mainJar.get().getArchiveFile().get().getAsFile().equals(f)
-                    && mainSourceSetOutput.stream().noneMatch(f::equals)
-            )));
-            task.doFirst(new Action<Task>() {
-                @Override
-                public void execute(Task t) {
-                    if (task.getLogger().isDebugEnabled()) {
-                        task.getLogger().debug(
-                                "Running optimized entry point: " + task.getMainClass().get() +
-                                        "\nClasspath:\n    " + task.getClasspath().getFiles()
-                                        .stream()
-                                        .map(File::getName)
-                                        .collect(Collectors.joining("\n    "))
-                        );
-                    }
-                }
-            });
+                    project.files(jarTask, mainSourceSet.getRuntimeClasspath()
+                            .minus(mainSourceSet.getOutput())
+                            .minus(project.files(mainJar.flatMap(Jar::getArchiveFile))))
+            );
+            task.doFirst(new LogOptimizedClasspath());
+        });
+    }
+
+    /**
+     * For each `Test` task, registers a `<test>OptimizedJit` task which runs the same tests
+     * against the optimized jar instead of the main classes, and a report comparing the
+     * setup time of the test classes in both modes.
+     */
+    private static void registerOptimizedTestTasks(Project project, TaskContainer tasks, TaskProvider<Jar> optimizedJar) {
+        // We use `afterEvaluate` for the same reason as the Micronaut GraalVM plugin:
+        // there is no API to react to the registration of tasks
+        Set<String> alreadyRegistered = new HashSet<>();
+        project.afterEvaluate(p -> tasks.withType(Test.class).getCollectionSchema().getElements().forEach(element -> {
+            String testName = element.getName();
+            if (!testName.endsWith(OPTIMIZED_TEST_SUFFIX) && !testName.endsWith("NativeImage") && alreadyRegistered.add(testName)) {
+                registerOptimizedTestTask(project, tasks, optimizedJar, testName);
+            }
+        }));
+    }
+
+    private static void registerOptimizedTestTask(Project project, TaskContainer tasks, TaskProvider<Jar> optimizedJar, String testName) {
+        String optimizedTestName = testName + OPTIMIZED_TEST_SUFFIX;
+        TaskProvider<OptimizedTestStartupReportTask> report = tasks.register(optimizedTestName + "StartupReport", OptimizedTestStartupReportTask.class, task -> {
+            Test testTask = tasks.named(testName, Test.class).get();
+            Test optimizedTestTask = tasks.named(optimizedTestName, Test.class).get();
+            task.setDescription("Compares the setup time of the test classes of the '" + testName + "' task with and without AOT optimizations");
+            task.mustRunAfter(testTask, optimizedTestTask);
+            task.getPlainResults().from(testTask.getReports().getJunitXml().getOutputLocation());
+            task.getOptimizedResults().from(optimizedTestTask.getReports().getJunitXml().getOutputLocation());
+            task.getReportFile().convention(project.getLayout().getBuildDirectory().file("reports/aot/" + optimizedTestName + "-startup.txt"));
         });
+        tasks.register(optimizedTestName, Test.class, task -> {
+            Test testTask = tasks.named(testName, Test.class).get();
+            SourceSet mainSourceSet = project.getConvention().getPlugin(JavaPluginConvention.class).getSourceSets().getByName(SourceSet.MAIN_SOURCE_SET_NAME);
+            TaskProvider<Jar> mainJar = tasks.named("jar", Jar.class);
+            task.setGroup(testTask.getGroup());
+            task.setDescription("Runs the tests of the '" + testName + "' task against the AOT optimized application");
+            // the optimized jar replaces the main classes, and the resources converted by the optimizer
+            task.setClasspath(project.files(optimizedJar, testTask.getClasspath()
+                    .minus(mainSourceSet.getOutput())
+                    .minus(project.files(mainJar.flatMap(Jar::getArchiveFile)))));
+            task.setTestClassesDirs(testTask.getTestClassesDirs());
+            task.getJavaLauncher().set(testTask.getJavaLauncher());
+            task.setForkEvery(testTask.getForkEvery());
+            task.setMaxParallelForks(testTask.getMaxParallelForks());
+            task.systemProperties(testTask.getSystemProperties());
+            task.setJvmArgs(testTask.getJvmArgs());
+            task.getJvmArgumentProviders().addAll(testTask.getJvmArgumentProviders());
+            task.setEnvironment(testTask.getEnvironment());
+            task.setMinHeapSize(testTask.getMinHeapSize());
+            task.setMaxHeapSize(testTask.getMaxHeapSize());
+            task.setIncludes(testTask.getIncludes());
+            task.setExcludes(testTask.getExcludes());
+            task.getFilter().setIncludePatterns(testTask.getFilter().getIncludePatterns().toArray(new String[0]));
+            task.getFilter().setExcludePatterns(testTask.getFilter().getExcludePatterns().toArray(new String[0]));
+            task.getFilter().setFailOnNoMatchingTests(testTask.getFilter().isFailOnNoMatchingTests());
+            copyTestFramework(testTask, task);
+            task.finalizedBy(report);
+        });
+    }
+
+    /**
+     * Uses the same test framework as the original test task, with the
+     * same engines, tags, categories or groups.
+     */
+    private static void copyTestFramework(Test from, Test to) {
+        TestFrameworkOptions options = from.getOptions();
+        if (options instanceof JUnitPlatformOptions) {
+            JUnitPlatformOptions source = (JUnitPlatformOptions) options;
+            to.useJUnitPlatform(target -> {
+                target.setIncludeEngines(source.getIncludeEngines());
+                target.setExcludeEngines(source.getExcludeEngines());
+                target.setIncludeTags(source.getIncludeTags());
+                target.setExcludeTags(source.getExcludeTags());
+            });
+        } else if (options instanceof JUnitOptions) {
+            JUnitOptions source = (JUnitOptions) options;
+            to.useJUnit(target -> {
+                target.setIncludeCategories(source.getIncludeCategories());
+                target.setExcludeCategories(source.getExcludeCategories());
+            });
+        } else if (options instanceof TestNGOptions) {
+            TestNGOptions source = (TestNGOptions) options;
+            to.useTestNG(target -> {
+                TestNGOptions testNG = (TestNGOptions) target;
+                testNG.setIncludeGroups(source.getIncludeGroups());
+                testNG.setExcludeGroups(source.getExcludeGroups());
+            });
+        }
     }
 
     protected void registerShadowJar(Project project,
@@ -344,21 +632,35 @@ public abstract class MicronautAotPlugin implements Plugin<Project> {
                                                                                     Configuration applicationClasspath,
                                                                                     TaskContainer tasks,
                                                                                     AOTExtension aotExtension,
+                                                                                    AOTEnvironment environment,
                                                                                     MicronautAotOptimizerTask.TargetRuntime runtime) {
         String runtimeName = runtime.getSimpleName();
-        String writeConfigTaskName = "write" + runtime.getCapitalizedName() + "AOTConfig";
+        // the outputs of an environment variant are in a directory named after the environment
+        String variantPath = environment == null ? runtimeName : pathOf(environment) + "/" + runtimeName;
+        String variantName = environment == null ? runtime.getCapitalizedName() : taskNameOf(environment) + runtime.getCapitalizedName();
+        String writeConfigTaskName = "write" + variantName + "AOTConfig";
         TaskProvider<MicronautAOTConfigWriterTask> configTask = tasks.register(writeConfigTaskName, MicronautAOTConfigWriterTask.class, task -> {
             task.getUserConfiguration().convention(aotExtension.getConfigFile());
             task.getAOTOptimizations().convention(aotExtension);
             task.getForNative().set(runtime == OptimizerIO.TargetRuntime.NATIVE);
-            task.getOutputFile().convention(project.getLayout().getBuildDirectory().file("generated/aot/" + runtimeName + ".properties"));
+            task.getAotFragments().from(AotFragments.fragmentsOf(project, applicationClasspath));
+            task.getClasspathIndexes().from(classpathIndexesOf(applicationClasspath));
+            task.getApplicationOutput().from(project.getExtensions().getByType(SourceSetContainer.class)
+                    .getByName(SourceSet.MAIN_SOURCE_SET_NAME).getOutput());
+            task.getJavaLauncher().convention(project.getExtensions().getByType(JavaToolchainService.class)
+                    .launcherFor(project.getExtensions().getByType(JavaPluginExtension.class).getToolchain()));
+            task.getKnownMissingTypesReport().convention(project.getLayout().getBuildDirectory().file("reports/aot/" + variantPath + "-known-missing-types.txt"));
+            task.getOutputFile().convention(project.getLayout().getBuildDirectory().file("generated/aot/" + variantPath + ".properties"));
+            if (environment != null) {
+                task.getEnvironments().set(environment.getEnvironments());
+            }
         });
-        String prepareTaskName = "prepare" + capitalize(runtimeName) + "Optimizations";
+        String prepareTaskName = "prepare" + variantName + "Optimizations";
         return tasks.register(prepareTaskName, MicronautAotOptimizerTask.class, task -> {
             task.getOptimizerClasspath().from(optimizerClasspath);
             task.getConfigurationFile().convention(configTask.flatMap(MicronautAOTConfigWriterTask::getOutputFile));
             ProviderFactory providers = project.getProviders();
-            Provider<Directory> baseDir = project.getLayout().getBuildDirectory().dir("generated/aot/" + runtimeName);
+            Provider<Directory> baseDir = project.getLayout().getBuildDirectory().dir("generated/aot/" + variantPath);
             task.getOutputDirectory().convention(baseDir);
             task.getTargetRuntime().value(runtime).finalizeValue();
             task.getTargetPackage().convention(providers.provider(() -> {
@@ -367,12 +669,27 @@ public abstract class MicronautAotPlugin implements Plugin<Project> {
                 return mainClass.substring(0, mainClass.lastIndexOf("."));
             }));
             task.getClasspath().from(applicationClasspath);
+            if (environment != null) {
+                task.getEnvironments().set(environment.getEnvironments());
+            }
         });
     }
 
+    private static FileCollection classpathIndexesOf(Configuration classpath) {
+        return classpath.getIncoming().artifactView(view -> {
+            // directories, like the classes of the project, aren't indexed
+            view.setLenient(true);
+            view.attributes(attrs -> attrs.attribute(ArtifactTypeDefinition.ARTIFACT_TYPE_ATTRIBUTE, ClasspathIndexTransform.INDEX_TYPE));
+        }).getFiles();
+    }
+
     @NotNull
     private Configurations prepareConfigurations(Project project, AOTExtension aotExtension) {
         ConfigurationContainer configurations = project.getConfigurations();
+        project.getDependencies().registerTransform(ClasspathIndexTransform.class, spec -> {
+            spec.getFrom().attribute(ArtifactTypeDefinition.ARTIFACT_TYPE_ATTRIBUTE, ArtifactTypeDefinition.JAR_TYPE);
+            spec.getTo().attribute(ArtifactTypeDefinition.ARTIFACT_TYPE_ATTRIBUTE, ClasspathIndexTransform.INDEX_TYPE);
+        });
         // Internal configurations
         Configuration aotOptimizerRuntimeClasspath = configurations.create("aotOptimizerRuntimeClasspath", c -> {
             configureAsRuntimeClasspath(configurations, c);
@@ -419,44 +736,20 @@ public abstract class MicronautAotPlugin implements Plugin<Project> {
         });
     }
 
-    private static class JarExclusionSpec implements Action<FileCopyDetails> {
-        private final Provider<RegularFile> filterFile;
-        private final Set<String> prefixes;
-        private final Logger logger;
-        private Set<String> excludes;
-
-        private JarExclusionSpec(Provider<RegularFile> filterFile,
-                                 Set<String> prefixes,
-                                 Logger logger) {
-            this.filterFile = filterFile;
-            this.prefixes = prefixes;
-            this.logger = logger;
-        }
-
+    private static class LogOptimizedClasspath implements Action<Task> {
         @Override
-        public void execute(FileCopyDetails details) {
-            if (excludes == null) {
-                File resourceFilter = filterFile.get().getAsFile();
-                try {
-                    excludes = new HashSet<>();
-                    Files.readAllLines(resourceFilter.toPath())
-                            .stream()
-                            .map(JarExclusionSpec::normalizePath)
-                            .forEach(excludes::add);
-                } catch (IOException e) {
-                    throw new RuntimeException(e);
-                }
-                logger.debug("Excluded resources: {} ", excludes);
-            }
-            RelativePath relativePath = details.getRelativePath();
-            if (excludes.contains(normalizePath(relativePath.getPathString())) || prefixes.stream().anyMatch(p -> normalizePath(relativePath.getPathString()).startsWith(p))) {
-                details.exclude();
+        public void execute(Task t) {
+            JavaExec task = (JavaExec) t;
+            if (task.getLogger().isDebugEnabled()) {
+                task.getLogger().debug(
+                        "Running optimized entry point: " + task.getMainClass().get() +
+                                "\nClasspath:\n    " + task.getClasspath().getFiles()
+                                .stream()
+                                .map(File::getName)
+                                .collect(Collectors.joining("\n    "))
+                );
             }
         }
-
-        private static String normalizePath(String path) {
-            return path.replace('\\', '/');
-        }
     }
 
     private static final class Configurations {
@@ -0,0 +1,152 @@
+/*
+ * Copyright 2003-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.micronaut.gradle.aot;
+
+import org.gradle.api.DefaultTask;
+import org.gradle.api.GradleException;
+import org.gradle.api.file.ConfigurableFileCollection;
+import org.gradle.api.file.RegularFileProperty;
+import org.gradle.api.tasks.InputFiles;
+import org.gradle.api.tasks.OutputFile;
+import org.gradle.api.tasks.PathSensitive;
+import org.gradle.api.tasks.PathSensitivity;
+import org.gradle.api.tasks.TaskAction;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Compares the durations of the test classes when they are executed
+ * against the plain application and against the AOT optimized application.
+ * Durations are read from the JUnit XML results of both test tasks. The
+ * setup time of a test class is the time of the class which isn't spent
+ * in its test methods, which, for Micronaut tests, is mostly the startup
+ * of the application context.
+ *
+ * @since 3.2.0
+ */
+public abstract class OptimizedTestStartupReportTask extends DefaultTask {
+
+    /**
+     * The JUnit XML results of the test task running against the plain application.
+     * @return the results directory
+     */
+    @InputFiles
+    @PathSensitive(PathSensitivity.RELATIVE)
+    public abstract ConfigurableFileCollection getPlainResults();
+
+    /**
+     * The JUnit XML results of the test task running against the optimized application.
+     * @return the results directory
+     */
+    @InputFiles
+    @PathSensitive(PathSensitivity.RELATIVE)
+    public abstract ConfigurableFileCollection getOptimizedResults();
+
+    @OutputFile
+    public abstract RegularFileProperty getReportFile();
+
+    @TaskAction
+    void writeReport() {
+        Map<String, Timing> plain = readResults(getPlainResults());
+        Map<String, Timing> optimized = readResults(getOptimizedResults());
+        Set<String> classes = new TreeSet<>(plain.keySet());
+        classes.addAll(optimized.keySet());
+        List<String> lines = new ArrayList<>();
+        lines.add(String.format(Locale.ROOT, "%-60s %12s %12s %12s %12s", "Test class", "Plain setup", "AOT setup", "Plain total", "AOT total"));
+        long plainSetup = 0;
+        long optimizedSetup = 0;
+        for (String testClass : classes) {
+            Timing p = plain.get(testClass);
+            Timing o = optimized.get(testClass);
+            lines.add(String.format(Locale.ROOT, "%-60s %12s %12s %12s %12s", testClass,
+                    p == null ? "n/a" : p.setup + " ms",
+                    o == null ? "n/a" : o.setup + " ms",
+                    p == null ? "n/a" : p.total + " ms",
+                    o == null ? "n/a" : o.total + " ms"));
+            if (p != null && o != null) {
+                plainSetup += p.setup;
+                optimizedSetup += o.setup;
+            }
+        }
+        lines.add("");
+        String summary = "Setup time of the test classes run in both modes: " + plainSetup + " ms plain, " + optimizedSetup + " ms optimized";
+        lines.add(summary);
+        File reportFile = getReportFile().get().getAsFile();
+        try {
+            Files.createDirectories(reportFile.getParentFile().toPath());
+            Files.write(reportFile.toPath(), lines, StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new GradleException("Unable to write report " + reportFile, e);
+        }
+        getLogger().lifecycle(summary + ", see " + reportFile);
+    }
+
+    private static Map<String, Timing> readResults(ConfigurableFileCollection results) {
+        Map<String, Timing> timings = new TreeMap<>();
+        DocumentBuilder builder;
+        try {
+            builder = DocumentBuilderFactory.newInstance().newDocumentBuilder();
+        } catch (Exception e) {
+            throw new GradleException("Unable to create an XML parser", e);
+        }
+        for (File file : results.getAsFileTree().matching(spec -> spec.include("**/TEST-*.xml")).getFiles()) {
+            try {
+                Element suite = builder.parse(file).getDocumentElement();
+                long total = millis(suite.getAttribute("time"));
+                long cases = 0;
+                NodeList testCases = suite.getElementsByTagName("testcase");
+                for (int i = 0; i < testCases.getLength(); i++) {
+                    cases += millis(((Element) testCases.item(i)).getAttribute("time"));
+                }
+                timings.put(suite.getAttribute("name"), new Timing(Math.max(0, total - cases), total));
+            } catch (Exception e) {
+                throw new GradleException("Unable to read test results " + file, e);
+            }
+        }
+        return timings;
+    }
+
+    private static long millis(String seconds) {
+        if (seconds == null || seconds.isEmpty()) {
+            return 0;
+        }
+        return Math.round(Double.parseDouble(seconds) * 1000);
+    }
+
+    private static final class Timing {
+        private final long setup;
+        private final long total;
+
+        private Timing(long setup, long total) {
+            this.setup = setup;
+            this.total = total;
+        }
+    }
+}
@@ -0,0 +1,113 @@
+/*
+ * Copyright 2003-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.micronaut.gradle.docker;
+
+import com.bmuschko.gradle.docker.tasks.image.DockerBuildImage;
+import io.micronaut.gradle.docker.tasks.DockerImageFingerprintTask;
+import io.micronaut.gradle.docker.tasks.DockerImageReuseTask;
+import org.gradle.api.Project;
+import org.gradle.api.Task;
+import org.gradle.api.file.RegularFile;
+import org.gradle.api.provider.Provider;
+import org.gradle.api.specs.Spec;
+import org.gradle.api.tasks.TaskProvider;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Skips the build of a Docker image when an image built from the same
+ * inputs exists in the local Docker daemon. The fingerprint of the inputs
+ * is stored as a label of the image, so that the image is found even after
+ * the build directory has been cleaned, or when the inputs go back to a
+ * previous state. The existing image is tagged with the names of the image
+ * to build, as if it had just been built, and its ID is the image ID of the
+ * build task.
+ *
+ * @since 3.2.0
+ */
+final class DockerImageReuse {
+
+    private DockerImageReuse() {
+    }
+
+    /**
+     * Registers the fingerprint and reuse tasks of a Docker build task, and
+     * skips the build task when an image with the same fingerprint exists.
+     * @param project the project
+     * @param buildTask the Docker build task
+     * @param contextProducers the tasks which write the build context, like the layers
+     */
+    static void configure(Project project, TaskProvider<DockerBuildImage> buildTask, Object... contextProducers) {
+        String fingerprintsDir = "docker/fingerprints/" + buildTask.getName();
+        TaskProvider<DockerImageFingerprintTask> fingerprint = project.getTasks().register(buildTask.getName() + "Fingerprint", DockerImageFingerprintTask.class, task -> {
+            DockerBuildImage build = buildTask.get();
+            task.setDescription("Computes the fingerprint of the inputs of the " + buildTask.getName() + " task");
+            task.dependsOn(contextProducers);
+            task.getDockerFile().set(build.getDockerFile());
+            task.getContextDirectory().set(build.getInputDir());
+            task.getBuildArgs().set(build.getBuildArgs());
+            task.getTarget().set(build.getTarget());
+            task.getPull().set(build.getPull());
+            task.getNoCache().set(build.getNoCache());
+            task.getLabels().set(build.getLabels().map(DockerImageReuse::withoutFingerprint));
+            task.getFingerprintFile().convention(project.getLayout().getBuildDirectory().file(fingerprintsDir + "/inputs.txt"));
+        });
+        // the locations don't carry the reuse task as producer, so that the labels of the build don't depend on it
+        Provider<RegularFile> fingerprintFile = project.getLayout().getBuildDirectory().file(fingerprintsDir + "/image.txt");
+        Provider<RegularFile> reusedImageIdFile = project.getLayout().getBuildDirectory().file(fingerprintsDir + "/reused-image-id.txt");
+        TaskProvider<DockerImageReuseTask> reuse = project.getTasks().register(buildTask.getName() + "Reuse", DockerImageReuseTask.class, task -> {
+            DockerBuildImage build = buildTask.get();
+            task.setDescription("Reuses the image built from the same inputs as the " + buildTask.getName() + " task, if it exists");
+            task.getInputsFingerprintFile().set(fingerprint.flatMap(DockerImageFingerprintTask::getFingerprintFile));
+            task.getDockerFile().set(build.getDockerFile().orElse(build.getInputDir().file("Dockerfile")));
+            task.getBuildArgs().set(build.getBuildArgs());
+            task.getImages().set(build.getImages());
+            task.getFingerprintFile().convention(fingerprintFile);
+            task.getReusedImageIdFile().convention(reusedImageIdFile);
+        });
+        buildTask.configure(task -> {
+            task.dependsOn(reuse);
+            task.getLabels().put(DockerImageReuseTask.FINGERPRINT_LABEL, project.getProviders().fileContents(fingerprintFile).getAsText()
+                    .map(String::trim)
+                    .orElse(""));
+            task.onlyIf(new ImageNotReused(reusedImageIdFile));
+            task.getImageId().convention(reusedImageIdFile.map(f -> {
+                String imageId = DockerImageFingerprintTask.read(f.getAsFile());
+                return imageId.isEmpty() ? null : imageId;
+            }));
+        });
+    }
+
+    private static Map<String, String> withoutFingerprint(Map<String, String> labels) {
+        Map<String, String> result = new TreeMap<>(labels);
+        result.remove(DockerImageReuseTask.FINGERPRINT_LABEL);
+        return result;
+    }
+
+    private static final class ImageNotReused implements Spec<Task> {
+        private final Provider<RegularFile> reusedImageIdFile;
+
+        private ImageNotReused(Provider<RegularFile> reusedImageIdFile) {
+            this.reusedImageIdFile = reusedImageIdFile;
+        }
+
+        @Override
+        public boolean isSatisfiedBy(Task task) {
+            return DockerImageFingerprintTask.read(reusedImageIdFile.get().getAsFile()).isEmpty();
+        }
+    }
+}
@@ -7,60 +7,98 @@ import com.bmuschko.gradle.docker.tasks.container.DockerRemoveContainer;
 import com.bmuschko.gradle.docker.tasks.image.DockerBuildImage;
 import com.bmuschko.gradle.docker.tasks.image.DockerPushImage;
 import com.bmuschko.gradle.docker.tasks.image.Dockerfile;
+import io.micronaut.gradle.HeavyTaskScheduler;
 import io.micronaut.gradle.MicronautBasePlugin;
 import io.micronaut.gradle.MicronautExtension;
 import io.micronaut.gradle.MicronautRuntime;
+import io.micronaut.gradle.MicronautTelemetry;
 import io.micronaut.gradle.PluginsHelper;
 import io.micronaut.gradle.docker.model.DefaultMicronautDockerImage;
 import io.micronaut.gradle.docker.model.LayerKind;
 import io.micronaut.gradle.docker.model.MicronautDockerImage;
 import io.micronaut.gradle.docker.model.RuntimeKind;
+import io.micronaut.gradle.docker.tasks.BuildLayeredJarTask;
 import io.micronaut.gradle.docker.tasks.BuildLayersTask;
+import io.micronaut.gradle.docker.tasks.LayerStoreService;
 import io.micronaut.gradle.docker.tasks.PrepareDockerContext;
+import io.micronaut.gradle.docker.tasks.StartupOrderedJarTask;
 import org.gradle.api.NamedDomainObjectContainer;
 import org.gradle.api.Plugin;
 import org.gradle.api.Project;
 import org.gradle.api.artifacts.Configuration;
 import org.gradle.api.file.FileCollection;
+import org.gradle.api.file.FileSystemLocation;
 import org.gradle.api.file.RegularFile;
 import org.gradle.api.plugins.BasePlugin;
 import org.gradle.api.plugins.ExtensionContainer;
 import org.gradle.api.plugins.JavaApplication;
 import org.gradle.api.provider.Provider;
+import org.gradle.api.specs.Spec;
 import org.gradle.api.tasks.SourceSet;
 import org.gradle.api.tasks.SourceSetContainer;
 import org.gradle.api.tasks.TaskContainer;
 import org.gradle.api.tasks.TaskProvider;
 import org.gradle.api.tasks.bundling.Jar;
+import org.gradle.build.event.BuildEventsListenerRegistry;
 import org.jetbrains.annotations.NotNull;
 
+import javax.inject.Inject;
 import java.io.File;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 import static io.micronaut.gradle.Strings.capitalize;
 import static org.gradle.api.plugins.JavaPlugin.RUNTIME_CLASSPATH_CONFIGURATION_NAME;
 
 public class MicronautDockerPlugin implements Plugin<Project> {
+    private static final String LAYER_STORE_DIRECTORY = "docker/.layer-store";
+
+    private final BuildEventsListenerRegistry eventsListenerRegistry;
+
+    @Inject
+    public MicronautDockerPlugin(BuildEventsListenerRegistry eventsListenerRegistry) {
+        this.eventsListenerRegistry = eventsListenerRegistry;
+    }
+
     @Override
     public void apply(Project project) {
         project.getPluginManager().apply(MicronautBasePlugin.class);
+        Provider<HeavyTaskScheduler> scheduler = HeavyTaskScheduler.registerIfAbsent(project, eventsListenerRegistry);
+        Stream.of(BuildLayersTask.class, PrepareDockerContext.class, DockerBuildImage.class, DockerPushImage.class)
+                .forEach(type -> MicronautTelemetry.track(project, eventsListenerRegistry, type));
         TaskContainer tasks = project.getTasks();
         ExtensionContainer extensions = project.getExtensions();
         MicronautExtension micronautExtension = extensions.getByType(MicronautExtension.class);
         NamedDomainObjectContainer<MicronautDockerImage> dockerImages = project.getObjects().domainObjectContainer(MicronautDockerImage.class, s -> project.getObjects().newInstance(DefaultMicronautDockerImage.class, s));
         micronautExtension.getExtensions().add("dockerImages", dockerImages);
         extensions.create("docker", DockerExtension.class);
-        dockerImages.all(image -> createDockerImage(project, image));
+        dockerImages.all(image -> createDockerImage(project, image, scheduler));
         TaskProvider<Jar> runnerJar = createMainRunnerJar(project, tasks);
+        SourceSet mainSourceSet = project.getExtensions().getByType(SourceSetContainer.class).getByName(SourceSet.MAIN_SOURCE_SET_NAME);
+        TaskProvider<StartupOrderedJarTask> orderedRunnerJar = StartupOrderedJars.register(project, runnerJar, project.files(
+                mainSourceSet.getOutput().getResourcesDir(),
+                project.getConfigurations().getByName(RUNTIME_CLASSPATH_CONFIGURATION_NAME)
+        ));
         dockerImages.create("main", image -> {
+            Provider<Boolean> exploded = image.getExploded();
             image.addLayer(layer -> {
                 layer.getLayerKind().set(LayerKind.APP);
-                layer.getFiles().from(runnerJar);
+                // the runner jar isn't built at all when the layout is exploded
+                layer.getFiles().from(exploded.flatMap(e -> e
+                        ? project.provider(Collections::<RegularFile>emptyList)
+                        : StartupOrderedJars.applicationJar(project, image, runnerJar, orderedRunnerJar).map(Collections::singletonList)));
+            });
+            image.addLayer(layer -> {
+                layer.getLayerKind().set(LayerKind.EXPANDED_CLASSES);
+                layer.getFiles().from(project.getExtensions().getByType(SourceSetContainer.class)
+                        .getByName(SourceSet.MAIN_SOURCE_SET_NAME).getOutput().getClassesDirs()
+                        .filter(new ExplodedLayout(exploded, true)));
             });
             image.addLayer(layer -> {
                 layer.getLayerKind().set(LayerKind.LIBS);
@@ -81,21 +119,29 @@ public class MicronautDockerPlugin implements Plugin<Project> {
         return context + capitalize(baseName);
     }
 
-    private void createDockerImage(Project project, MicronautDockerImage imageSpec) {
+    private void createDockerImage(Project project, MicronautDockerImage imageSpec, Provider<HeavyTaskScheduler> scheduler) {
         TaskContainer tasks = project.getTasks();
         String imageName = imageSpec.getName();
         project.getLogger().info("Creating docker tasks for image " + imageName);
+        Provider<LayerStoreService> layerStoreService = LayerStoreService.registerIfAbsent(project);
         TaskProvider<BuildLayersTask> buildLayersTask = tasks.register(adaptTaskName("buildLayers", imageName), BuildLayersTask.class, task -> {
             task.setGroup(BasePlugin.BUILD_GROUP);
             task.setDescription("Builds application layers for use in a Docker container (" + imageName + " image)");
             task.getLayers().set(imageSpec.findLayers(RuntimeKind.JIT));
+            task.getExploded().convention(imageSpec.getExploded());
             task.getOutputDir().convention(project.getLayout().getBuildDirectory().dir("docker/" + imageName + "/layers"));
+            task.getLayerStore().convention(project.getLayout().getBuildDirectory().dir(LAYER_STORE_DIRECTORY));
+            task.getLayerStoreService().convention(layerStoreService);
+            task.usesService(layerStoreService);
         });
         TaskProvider<BuildLayersTask> buildNativeLayersTask = tasks.register(adaptTaskName("buildNativeLayersTask", imageName), BuildLayersTask.class, task -> {
             task.setGroup(BasePlugin.BUILD_GROUP);
             task.setDescription("Builds application layers for use in a Docker container (" + imageName + " image)");
             task.getLayers().set(imageSpec.findLayers(RuntimeKind.NATIVE));
             task.getOutputDir().convention(project.getLayout().getBuildDirectory().dir("docker/native-" + imageName + "/layers"));
+            task.getLayerStore().convention(project.getLayout().getBuildDirectory().dir(LAYER_STORE_DIRECTORY));
+            task.getLayerStoreService().convention(layerStoreService);
+            task.usesService(layerStoreService);
         });
 
         tasks.configureEach(task -> {
@@ -103,9 +149,20 @@ public class MicronautDockerPlugin implements Plugin<Project> {
                 task.dependsOn(buildLayersTask);
             }
         });
+        tasks.register(adaptTaskName("layeredJar", imageName), BuildLayeredJarTask.class, task -> {
+            task.setGroup(BasePlugin.BUILD_GROUP);
+            task.setDescription("Builds an executable jar containing the application layers (" + imageName + " image)");
+            task.getLayers().set(imageSpec.findLayers(RuntimeKind.JIT));
+            JavaApplication javaApplication = project.getExtensions().findByType(JavaApplication.class);
+            if (javaApplication != null) {
+                task.getMainClass().convention(javaApplication.getMainClass());
+            }
+            String suffix = "main".equals(imageName) ? "" : "-" + imageName;
+            task.getArchiveFile().convention(project.getLayout().getBuildDirectory().file("libs/" + project.getName() + suffix + "-layered.jar"));
+        });
 
         Optional<TaskProvider<MicronautDockerfile>> dockerFileTask = configureDockerBuild(project, tasks, buildLayersTask, imageName);
-        TaskProvider<NativeImageDockerfile> nativeImageDockerFileTask = configureNativeDockerBuild(project, tasks, buildNativeLayersTask, imageName);
+        TaskProvider<NativeImageDockerfile> nativeImageDockerFileTask = configureNativeDockerBuild(project, tasks, buildNativeLayersTask, imageName, scheduler);
 
         project.afterEvaluate(eval -> {
             Optional<DockerBuildStrategy> buildStrategy;
@@ -121,6 +178,7 @@ public class MicronautDockerPlugin implements Plugin<Project> {
             });
             dockerFileTask.ifPresent(t -> t.configure(it -> {
                 buildStrategy.ifPresent(bs -> it.getBuildStrategy().set(buildStrategy.get()));
+                it.getExploded().convention(imageSpec.getExploded());
                 it.setupTaskPostEvaluate();
             }));
         });
@@ -140,27 +198,41 @@ public class MicronautDockerPlugin implements Plugin<Project> {
             FileCollection dirs = mainSourceSet.getOutput().getClassesDirs();
 
             jar.from(dirs);
+            Configuration runtimeClasspath = project.getConfigurations()
+                    .getByName(RUNTIME_CLASSPATH_CONFIGURATION_NAME);
             jar.manifest(manifest -> {
                 Map<String, Object> attrs = new HashMap<>(2);
                 JavaApplication javaApplication = project.getExtensions().getByType(JavaApplication.class);
                 attrs.put("Main-Class", javaApplication.getMainClass());
-                attrs.put("Class-Path", project.getProviders().provider(() -> {
-                    List<String> classpath = new ArrayList<>();
-                    Configuration runtimeClasspath = project.getConfigurations()
-                            .getByName(RUNTIME_CLASSPATH_CONFIGURATION_NAME);
-
-                    for (File file : runtimeClasspath) {
-                        classpath.add("libs/" + file.getName());
-                    }
-                    classpath.add("resources/");
-                    classpath.add("classes/");
-                    return String.join(" ", classpath);
-                }));
+                attrs.put("Class-Path", classPathManifestEntry(runtimeClasspath));
                 manifest.attributes(attrs);
             });
         });
     }
 
+    /**
+     * Returns a provider for the value of the {@code Class-Path} manifest attribute
+     * of a runner jar, which expects its dependencies to be found in the {@code libs}
+     * directory next to it. The provider doesn't hold any reference to the project,
+     * which makes it safe to use with the configuration cache.
+     *
+     * @param runtimeClasspath the runtime classpath of the application
+     * @return the Class-Path attribute provider
+     */
+    public static Provider<String> classPathManifestEntry(FileCollection runtimeClasspath) {
+        return runtimeClasspath.getElements().map(MicronautDockerPlugin::toClassPathManifestEntry);
+    }
+
+    static String toClassPathManifestEntry(Collection<? extends FileSystemLocation> runtimeClasspath) {
+        List<String> classpath = new ArrayList<>(runtimeClasspath.size() + 2);
+        for (FileSystemLocation location : runtimeClasspath) {
+            classpath.add("libs/" + location.getAsFile().getName());
+        }
+        classpath.add("resources/");
+        classpath.add("classes/");
+        return String.join(" ", classpath);
+    }
+
     private Optional<TaskProvider<MicronautDockerfile>> configureDockerBuild(Project project,
                                                                              TaskContainer tasks,
                                                                              TaskProvider<BuildLayersTask> buildLayersTask,
@@ -199,6 +271,7 @@ public class MicronautDockerPlugin implements Plugin<Project> {
             ;
             task.getInputDir().set(dockerFileTask.flatMap(Dockerfile::getDestDir));
         });
+        DockerImageReuse.configure(project, dockerBuildTask, buildLayersTask);
 
         TaskProvider<DockerPushImage> pushDockerImage = tasks.register(adaptTaskName("dockerPush", imageName), DockerPushImage.class, task -> {
             task.dependsOn(dockerBuildTask);
@@ -215,7 +288,8 @@ public class MicronautDockerPlugin implements Plugin<Project> {
     private TaskProvider<NativeImageDockerfile> configureNativeDockerBuild(Project project,
                                                                            TaskContainer tasks,
                                                                            TaskProvider<BuildLayersTask> buildLayersTask,
-                                                                           String imageName) {
+                                                                           String imageName,
+                                                                           Provider<HeavyTaskScheduler> scheduler) {
         File f = project.file(adaptTaskName("DockerfileNative", imageName));
 
         TaskProvider<NativeImageDockerfile> dockerFileTask;
@@ -257,7 +331,9 @@ public class MicronautDockerPlugin implements Plugin<Project> {
             task.getImages().set(Collections.singletonList(project.getName()));
             task.dependsOn(buildLayersTask);
             task.getInputDir().set(dockerFileTask.flatMap(Dockerfile::getDestDir));
+            HeavyTaskScheduler.limit(task, scheduler, HeavyTaskScheduler.NATIVE_IMAGE_MEMORY, HeavyTaskScheduler.nativeImageCpus());
         });
+        DockerImageReuse.configure(project, dockerBuildTask, buildLayersTask, prepareContext);
 
         TaskProvider<DockerPushImage> pushDockerImage = tasks.register(adaptTaskName("dockerPushNative", imageName), DockerPushImage.class);
         pushDockerImage.configure(task -> {
@@ -299,4 +375,23 @@ public class MicronautDockerPlugin implements Plugin<Project> {
         });
         return dockerFileTask;
     }
+
+    /**
+     * Selects the files of a layer depending on whether the image
+     * uses the exploded layout or not.
+     */
+    private static final class ExplodedLayout implements Spec<File> {
+        private final Provider<Boolean> exploded;
+        private final boolean includeWhenExploded;
+
+        private ExplodedLayout(Provider<Boolean> exploded, boolean includeWhenExploded) {
+            this.exploded = exploded;
+            this.includeWhenExploded = includeWhenExploded;
+        }
+
+        @Override
+        public boolean isSatisfiedBy(File file) {
+            return exploded.get() == includeWhenExploded;
+        }
+    }
 }
@@ -1,6 +1,7 @@
 package io.micronaut.gradle.docker;
 
 import com.bmuschko.gradle.docker.tasks.image.Dockerfile;
+import io.micronaut.gradle.docker.tasks.BuildLayersTask;
 import org.gradle.api.Action;
 import org.gradle.api.JavaVersion;
 import org.gradle.api.Project;
@@ -18,8 +19,13 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 public class MicronautDockerfile extends Dockerfile implements DockerBuildOptions {
+    // used instead of the argument file when the base image may run Java 8
+    private static final String EXPLODED_CLASSPATH = "classes:resources:libs/*";
+    private static final Pattern FIRST_NUMBER = Pattern.compile("\\d+");
 
     @Input
     private final Property<String> baseImage;
@@ -31,6 +37,8 @@ public class MicronautDockerfile extends Dockerfile implements DockerBuildOption
     private final Property<DockerBuildStrategy> buildStrategy;
     @Input
     private final Property<String> defaultCommand;
+    @Input
+    private final Property<Boolean> exploded;
 
     public MicronautDockerfile() {
         Project project = getProject();
@@ -44,6 +52,18 @@ public class MicronautDockerfile extends Dockerfile implements DockerBuildOption
         this.args = objects.listProperty(String.class);
         this.exposedPorts = objects.listProperty(Integer.class)
                     .convention(Collections.singletonList(8080));
+        this.exploded = objects.property(Boolean.class).convention(false);
+    }
+
+    /**
+     * Whether the application uses the exploded layout, in which case it
+     * is started using the classpath argument file generated with the
+     * layers, instead of an executable jar.
+     * @return the exploded property
+     * @since 3.2.0
+     */
+    public Property<Boolean> getExploded() {
+        return exploded;
     }
 
     @Override
@@ -58,9 +78,8 @@ public class MicronautDockerfile extends Dockerfile implements DockerBuildOption
         System.out.println("Dockerfile written to: " + getDestFile().get().getAsFile().getAbsolutePath());
     }
 
-    private void setupInstructions(List<Instruction> additionalInstructions) {
+    private void setupInstructions(List<Instruction> additionalInstructions, JavaApplication javaApplication) {
         DockerBuildStrategy buildStrategy = this.buildStrategy.getOrElse(DockerBuildStrategy.DEFAULT);
-        JavaApplication javaApplication = getProject().getExtensions().getByType(JavaApplication.class);
         String from = getBaseImage().getOrNull();
         if ("none".equalsIgnoreCase(from)) {
             from = null;
@@ -74,7 +93,9 @@ public class MicronautDockerfile extends Dockerfile implements DockerBuildOption
                 copyFile("layers/libs/*.jar", "/function/app/");
                 copyFile("layers/classes/*", "/function/app/classes/");
                 copyFile("layers/resources/*", "/function/app/resources/");
-                copyFile("layers/application.jar", "/function/app/");
+                if (!exploded.get()) {
+                    copyFile("layers/application.jar", "/function/app/");
+                }
                 String cmd = this.defaultCommand.get();
                 if ("none".equals(cmd)) {
                     super.defaultCommand("io.micronaut.oraclecloud.function.http.HttpFunction::handleRequest");
@@ -86,10 +107,29 @@ public class MicronautDockerfile extends Dockerfile implements DockerBuildOption
                 javaApplication.getMainClass().set("io.micronaut.function.aws.runtime.MicronautLambdaRuntime");
             default:
                 from(new Dockerfile.From(from != null ? from : "openjdk:17-alpine"));
-                setupResources(this);
+                boolean explodedLayout = exploded.get();
+                setupResources(this, explodedLayout);
                 exposePort(exposedPorts);
                 getInstructions().addAll(additionalInstructions);
                 if (getInstructions().get().stream().noneMatch(instruction -> instruction.getKeyword().equals(EntryPointInstruction.KEYWORD))) {
+                    if (explodedLayout) {
+                        // argument files require Java 9 or later
+                        boolean argumentFile = from == null || supportsArgumentFiles(from);
+                        entryPoint(getArgs().zip(javaApplication.getMainClass(), (strings, mainClass) -> {
+                            List<String> newList = new ArrayList<>(strings.size() + 4);
+                            newList.add("java");
+                            newList.addAll(strings);
+                            if (argumentFile) {
+                                newList.add("@/home/app/" + BuildLayersTask.CLASSPATH_ARGFILE);
+                            } else {
+                                newList.add("-cp");
+                                newList.add(EXPLODED_CLASSPATH);
+                            }
+                            newList.add(mainClass);
+                            return newList;
+                        }));
+                        break;
+                    }
                     entryPoint(getArgs().map(strings -> {
                         List<String> newList = new ArrayList<>(strings.size() + 3);
                         newList.add("java");
@@ -115,11 +155,14 @@ public class MicronautDockerfile extends Dockerfile implements DockerBuildOption
      * This is executed post project evaluation
      */
     void setupTaskPostEvaluate() {
+        // The application extension is looked up once, at configuration time, so that
+        // the generated instructions never need to access the project when executing
+        JavaApplication javaApplication = getProject().getExtensions().getByType(JavaApplication.class);
         // Get any custom instructions the user may or may not have entered, but ignoring our 'from' placeholder
         List<Instruction> additionalInstructions = new ArrayList<>(getInstructions().get().subList(1, getInstructions().get().size()));
         // Reset the instructions to empty
         getInstructions().set(new ArrayList<>());
-        setupInstructions(additionalInstructions);
+        setupInstructions(additionalInstructions, javaApplication);
     }
 
     /**
@@ -172,11 +215,42 @@ public class MicronautDockerfile extends Dockerfile implements DockerBuildOption
         return "latest";
     }
 
+    /**
+     * Tells if the JVM of a base image supports argument files, which
+     * were introduced in Java 9. The Java version is guessed from the
+     * first number of the image tag, like in {@code openjdk:17-alpine}
+     * or {@code eclipse-temurin:11-jre}: if there's no such number, the
+     * Java version is considered unknown.
+     * @param baseImage the base image
+     * @return true if the base image is known to run Java 9 or later
+     */
+    static boolean supportsArgumentFiles(String baseImage) {
+        String image = baseImage;
+        int digest = image.indexOf('@');
+        if (digest >= 0) {
+            image = image.substring(0, digest);
+        }
+        int tag = image.lastIndexOf(':');
+        if (tag < 0 || tag < image.lastIndexOf('/')) {
+            return false;
+        }
+        Matcher matcher = FIRST_NUMBER.matcher(image.substring(tag + 1));
+        return matcher.find() && Integer.parseInt(matcher.group()) >= 9;
+    }
+
     static void setupResources(Dockerfile task) {
+        setupResources(task, false);
+    }
+
+    static void setupResources(Dockerfile task, boolean exploded) {
         task.workingDir("/home/app");
         task.copyFile("layers/libs", "/home/app/libs");
         task.copyFile("layers/classes", "/home/app/classes");
         task.copyFile("layers/resources", "/home/app/resources");
-        task.copyFile("layers/application.jar", "/home/app/application.jar");
+        if (exploded) {
+            task.copyFile("layers/" + BuildLayersTask.CLASSPATH_ARGFILE, "/home/app/" + BuildLayersTask.CLASSPATH_ARGFILE);
+        } else {
+            task.copyFile("layers/application.jar", "/home/app/application.jar");
+        }
     }
 }
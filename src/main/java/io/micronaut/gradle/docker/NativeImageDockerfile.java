@@ -348,7 +348,7 @@ public abstract class NativeImageDockerfile extends Dockerfile implements Docker
     }
 
     // Everything done in this method MUST be lazy, so use providers as much as possible
-    private void setupInstructions(List<Instruction> additionalInstructions) {
+    private void setupInstructions(List<Instruction> additionalInstructions, Provider<String> applicationMainClass) {
         DockerBuildStrategy buildStrategy = getBuildStrategy().get();
         if (buildStrategy == DockerBuildStrategy.LAMBDA) {
             from(new From("amazonlinux:latest").withStage("graalvm"));
@@ -381,7 +381,7 @@ public abstract class NativeImageDockerfile extends Dockerfile implements Docker
                         .map(this::toCopyResourceDirectoryInstruction)
                         .collect(Collectors.toList())
         ));
-        runCommand(getProviders().provider(() -> String.join(" ", buildActualCommandLine(executable, buildStrategy, imageResolver))));
+        runCommand(getProviders().provider(() -> String.join(" ", buildActualCommandLine(executable, buildStrategy, imageResolver, applicationMainClass))));
         switch (buildStrategy) {
             case ORACLE_FUNCTION:
                 from(new From("fnproject/fn-java-fdk:" + getProjectFnVersion()).withStage("fnfdk"));
@@ -447,15 +447,17 @@ public abstract class NativeImageDockerfile extends Dockerfile implements Docker
         return new CopyFileInstruction(new CopyFile("config-dirs/" + resourceDirectory.getName(), "/home/app/config-dirs/" + resourceDirectory.getName()));
     }
 
-    protected List<String> buildActualCommandLine(Provider<String> executable, DockerBuildStrategy buildStrategy, BaseImageForBuildStrategyResolver imageResolver) {
+    protected List<String> buildActualCommandLine(Provider<String> executable,
+                                                  DockerBuildStrategy buildStrategy,
+                                                  BaseImageForBuildStrategyResolver imageResolver,
+                                                  Provider<String> applicationMainClass) {
         NativeImageOptions options = newNativeImageOptions("actualDockerOptions");
         prepareNativeImageOptions(options);
         if (buildStrategy == DockerBuildStrategy.ORACLE_FUNCTION) {
             options.getMainClass().set("com.fnproject.fn.runtime.EntryPoint");
             options.getBuildArgs().add("--report-unsupported-elements-at-runtime");
         } else if (buildStrategy == DockerBuildStrategy.LAMBDA) {
-            JavaApplication javaApplication = getProject().getExtensions().getByType(JavaApplication.class);
-            if (!javaApplication.getMainClass().isPresent()) {
+            if (!applicationMainClass.isPresent()) {
                 options.getMainClass().set("io.micronaut.function.aws.runtime.MicronautLambdaRuntime");
             }
             if (!options.getMainClass().isPresent()) {
@@ -526,10 +528,14 @@ public abstract class NativeImageDockerfile extends Dockerfile implements Docker
      * This is executed post project evaluation
      */
     void setupNativeImageTaskPostEvaluate() {
+        // The main class provider is captured at configuration time, so that the
+        // native-image command line can be computed without accessing the project
+        JavaApplication javaApplication = getProject().getExtensions().findByType(JavaApplication.class);
+        Provider<String> applicationMainClass = javaApplication != null ? javaApplication.getMainClass() : getObjects().property(String.class);
         List<Instruction> additionalInstructions = new ArrayList<>(getInstructions().get());
         // Reset the instructions to empty
         getInstructions().set(new ArrayList<>());
-        setupInstructions(additionalInstructions);
+        setupInstructions(additionalInstructions, applicationMainClass);
     }
 
     /**
@@ -0,0 +1,103 @@
+/*
+ * Copyright 2003-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.micronaut.gradle.docker;
+
+import io.micronaut.gradle.MicronautExtension;
+import io.micronaut.gradle.docker.model.MicronautDockerImage;
+import io.micronaut.gradle.docker.tasks.StartupOrderedJarTask;
+import io.micronaut.gradle.run.RecordClassLoadOrderTask;
+import org.gradle.api.Project;
+import org.gradle.api.file.FileCollection;
+import org.gradle.api.file.RegularFile;
+import org.gradle.api.plugins.BasePlugin;
+import org.gradle.api.plugins.JavaApplication;
+import org.gradle.api.plugins.JavaPluginExtension;
+import org.gradle.api.provider.Provider;
+import org.gradle.api.tasks.TaskContainer;
+import org.gradle.api.tasks.TaskProvider;
+import org.gradle.api.tasks.bundling.Jar;
+import org.gradle.jvm.toolchain.JavaToolchainService;
+
+import static io.micronaut.gradle.Strings.capitalize;
+
+/**
+ * Registers the tasks which build a startup-ordered variant of an
+ * application jar: a training run of the application records the class
+ * load order, which is then used to reorder the entries of the jar.
+ *
+ * @since 3.2.0
+ */
+public final class StartupOrderedJars {
+
+    private StartupOrderedJars() {
+    }
+
+    /**
+     * Registers the tasks building the startup-ordered variant of a jar.
+     * @param project the project
+     * @param jar the jar task
+     * @param runtimeClasspath the classpath required, in addition to the jar, to run the application
+     * @return the task building the ordered jar
+     */
+    public static TaskProvider<StartupOrderedJarTask> register(Project project, TaskProvider<? extends Jar> jar, FileCollection runtimeClasspath) {
+        TaskContainer tasks = project.getTasks();
+        String jarName = capitalize(jar.getName());
+        TaskProvider<RecordClassLoadOrderTask> record = tasks.register("record" + jarName + "ClassLoadOrder", RecordClassLoadOrderTask.class, task -> {
+            task.setDescription("Records the class load order of the application during startup, using the " + jar.getName() + " task output");
+            task.getClasspath().from(jar, runtimeClasspath);
+            JavaApplication javaApplication = project.getExtensions().findByType(JavaApplication.class);
+            if (javaApplication != null) {
+                task.getMainClass().convention(javaApplication.getMainClass());
+            }
+            JavaPluginExtension javaExtension = project.getExtensions().getByType(JavaPluginExtension.class);
+            task.getJavaLauncher().convention(project.getExtensions().getByType(JavaToolchainService.class)
+                    .launcherFor(javaExtension.getToolchain()));
+            task.getOutputFile().convention(project.getLayout().getBuildDirectory().file("startup-order/" + jar.getName() + ".txt"));
+        });
+        return tasks.register("startupOrdered" + jarName, StartupOrderedJarTask.class, task -> {
+            task.setGroup(BasePlugin.BUILD_GROUP);
+            task.setDescription("Builds a variant of the " + jar.getName() + " task output with entries ordered by class load order");
+            task.getJar().convention(jar.flatMap(Jar::getArchiveFile));
+            task.getClassLoadOrder().convention(record.flatMap(RecordClassLoadOrderTask::getOutputFile));
+            task.getArchiveFile().convention(project.getLayout().getBuildDirectory()
+                    .file(jar.flatMap(Jar::getArchiveFileName).map(name -> "startup-ordered/" + name)));
+        });
+    }
+
+    /**
+     * Returns the application jar of an image: the startup-ordered jar if the
+     * ordered jars are enabled in the Micronaut extension, otherwise the jar
+     * itself. Exploded images don't contain the application jar, in which
+     * case the ordered jar is never used. The choice is made lazily, so that
+     * the training run doesn't become a dependency when it's disabled.
+     * @param project the project
+     * @param image the docker image
+     * @param jar the jar task
+     * @param orderedJar the task building the ordered jar
+     * @return the application jar
+     */
+    public static Provider<RegularFile> applicationJar(Project project,
+                                                       MicronautDockerImage image,
+                                                       TaskProvider<? extends Jar> jar,
+                                                       TaskProvider<StartupOrderedJarTask> orderedJar) {
+        MicronautExtension micronautExtension = project.getExtensions().getByType(MicronautExtension.class);
+        return micronautExtension.getStartupOrderedJars()
+                .zip(image.getExploded(), (enabled, exploded) -> enabled && !exploded)
+                .flatMap(ordered -> ordered
+                        ? orderedJar.flatMap(StartupOrderedJarTask::getArchiveFile)
+                        : jar.flatMap(Jar::getArchiveFile));
+    }
+}
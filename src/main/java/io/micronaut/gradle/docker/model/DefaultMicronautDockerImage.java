@@ -28,6 +28,7 @@ public abstract class DefaultMicronautDockerImage implements MicronautDockerImag
     @Inject
     public DefaultMicronautDockerImage(String name) {
         this.name = name;
+        getExploded().convention(false);
     }
 
     @Override
@@ -18,6 +18,7 @@ package io.micronaut.gradle.docker.model;
 import org.gradle.api.Action;
 import org.gradle.api.Named;
 import org.gradle.api.provider.ListProperty;
+import org.gradle.api.provider.Property;
 
 import java.util.List;
 import java.util.stream.Collectors;
@@ -31,6 +32,16 @@ import java.util.stream.Collectors;
 public interface MicronautDockerImage extends Named {
     ListProperty<Layer> getLayers();
 
+    /**
+     * If true, the application classes are added to the image as a directory
+     * instead of a jar, and the application is started with an explicit
+     * classpath, read from an argument file, instead of an executable jar.
+     * Defaults to false.
+     * @return the exploded property
+     * @since 3.2.0
+     */
+    Property<Boolean> getExploded();
+
     void addLayer(Action<? super Layer> spec);
 
     default List<Layer> findLayers(RuntimeKind runtimeKind) {
@@ -0,0 +1,229 @@
+/*
+ * Copyright 2003-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.micronaut.gradle.docker.tasks;
+
+import io.micronaut.gradle.docker.model.Layer;
+import io.micronaut.gradle.docker.model.LayerKind;
+import io.micronaut.gradle.launcher.LauncherClasses;
+import io.micronaut.gradle.launcher.LayeredJarLauncher;
+import org.gradle.api.DefaultTask;
+import org.gradle.api.GradleException;
+import org.gradle.api.file.RegularFileProperty;
+import org.gradle.api.provider.ListProperty;
+import org.gradle.api.provider.Property;
+import org.gradle.api.tasks.CacheableTask;
+import org.gradle.api.tasks.Input;
+import org.gradle.api.tasks.Nested;
+import org.gradle.api.tasks.OutputFile;
+import org.gradle.api.tasks.TaskAction;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.GregorianCalendar;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.jar.Attributes;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+import java.util.jar.Manifest;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Builds a single executable jar containing the layers of an application,
+ * as well as an index of the layers. The jar can be executed directly, or
+ * extracted into one directory per layer, in order to build container
+ * images with a layer for each of them.
+ *
+ * @since 3.2.0
+ */
+@CacheableTask
+public abstract class BuildLayeredJarTask extends DefaultTask {
+    // Same constant as Gradle uses for reproducible archives
+    private static final long CONSTANT_TIME_FOR_ZIP_ENTRIES = new GregorianCalendar(1980, 1, 1, 0, 0, 0).getTimeInMillis();
+    private static final Map<LayerKind, String> LAYER_NAMES;
+
+    static {
+        // in the order layers should be added to an image: from the least
+        // frequently modified to the most frequently modified
+        Map<LayerKind, String> names = new LinkedHashMap<>();
+        names.put(LayerKind.LIBS, "libs");
+        names.put(LayerKind.EXPANDED_RESOURCES, "resources");
+        names.put(LayerKind.EXPANDED_CLASSES, "classes");
+        names.put(LayerKind.APP, "application");
+        LAYER_NAMES = Collections.unmodifiableMap(names);
+    }
+
+    @Nested
+    public abstract ListProperty<Layer> getLayers();
+
+    /**
+     * The main class of the application.
+     * @return the main class
+     */
+    @Input
+    public abstract Property<String> getMainClass();
+
+    @OutputFile
+    public abstract RegularFileProperty getArchiveFile();
+
+    /**
+     * A checksum of the launcher class embedded in the jar, so that the
+     * jar is rebuilt when the plugin is upgraded.
+     * @return the launcher checksum
+     */
+    @Input
+    public long getLauncherChecksum() {
+        return LauncherClasses.checksum(Collections.singletonList(LayeredJarLauncher.class.getName()));
+    }
+
+    @TaskAction
+    public void build() {
+        Map<LayerKind, Map<String, File>> contents = new EnumMap<>(LayerKind.class);
+        List<String> libraries = new ArrayList<>();
+        for (Layer layer : getLayers().get()) {
+            LayerKind kind = layer.getLayerKind().get();
+            Map<String, File> layerContents = contents.computeIfAbsent(kind, k -> new LinkedHashMap<>());
+            for (File file : layer.getFiles()) {
+                collect(kind, file, layerContents, libraries);
+            }
+        }
+        File archive = getArchiveFile().get().getAsFile();
+        archive.getParentFile().mkdirs();
+        try (JarOutputStream jar = new JarOutputStream(Files.newOutputStream(archive.toPath()), manifest())) {
+            Set<String> written = new HashSet<>();
+            String launcherPath = LauncherClasses.resourceName(LayeredJarLauncher.class.getName());
+            try (InputStream in = LauncherClasses.open(LayeredJarLauncher.class.getName())) {
+                writeEntry(jar, launcherPath, in, written);
+            }
+            List<String> layers = new ArrayList<>();
+            for (Map.Entry<LayerKind, String> layer : LAYER_NAMES.entrySet()) {
+                Map<String, File> files = contents.get(layer.getKey());
+                if (files == null || files.isEmpty()) {
+                    continue;
+                }
+                layers.add(layer.getValue());
+                for (Map.Entry<String, File> file : files.entrySet()) {
+                    try (InputStream in = Files.newInputStream(file.getValue().toPath())) {
+                        writeEntry(jar, LayeredJarLauncher.LAYERS_PREFIX + layer.getValue() + "/" + file.getKey(), in, written);
+                    }
+                }
+            }
+            writeIndex(jar, LayeredJarLauncher.LAYERS_INDEX, layers, written);
+            writeIndex(jar, LayeredJarLauncher.CLASSPATH_INDEX, classpath(contents.containsKey(LayerKind.APP) && !contents.get(LayerKind.APP).isEmpty(), libraries), written);
+        } catch (IOException e) {
+            throw new GradleException("Unable to write layered jar " + archive, e);
+        }
+    }
+
+    /**
+     * The classpath has the same order as in the runner jar manifest
+     * when there's an application jar, or the order of the exploded
+     * layout otherwise.
+     */
+    private static List<String> classpath(boolean hasApplicationJar, List<String> libraries) {
+        List<String> classpath = new ArrayList<>(libraries.size() + 3);
+        if (hasApplicationJar) {
+            classpath.add("application.jar");
+            classpath.addAll(libraries);
+            classpath.add("resources/");
+            classpath.add("classes/");
+        } else {
+            classpath.add("classes/");
+            classpath.add("resources/");
+            classpath.addAll(libraries);
+        }
+        return classpath;
+    }
+
+    private static void collect(LayerKind kind, File file, Map<String, File> layerContents, List<String> libraries) {
+        if (file.isDirectory()) {
+            String prefix = kind == LayerKind.EXPANDED_RESOURCES ? "resources/" : kind == LayerKind.EXPANDED_CLASSES ? "classes/" : "libs/";
+            Path root = file.toPath();
+            try (Stream<Path> paths = Files.walk(root)) {
+                for (Path path : paths.filter(Files::isRegularFile).sorted().collect(Collectors.toList())) {
+                    layerContents.putIfAbsent(prefix + root.relativize(path).toString().replace('\\', '/'), path.toFile());
+                }
+            } catch (IOException e) {
+                throw new GradleException("Unable to list files of " + file, e);
+            }
+        } else if (file.isFile()) {
+            switch (kind) {
+                case APP:
+                    layerContents.putIfAbsent("application.jar", file);
+                    break;
+                case LIBS:
+                    if (layerContents.putIfAbsent("libs/" + file.getName(), file) == null) {
+                        libraries.add("libs/" + file.getName());
+                    }
+                    break;
+                case EXPANDED_RESOURCES:
+                    layerContents.putIfAbsent("resources/" + file.getName(), file);
+                    break;
+                default:
+                    layerContents.putIfAbsent("classes/" + file.getName(), file);
+            }
+        }
+    }
+
+    private Manifest manifest() {
+        Manifest manifest = new Manifest();
+        Attributes attributes = manifest.getMainAttributes();
+        attributes.put(Attributes.Name.MANIFEST_VERSION, "1.0");
+        attributes.put(Attributes.Name.MAIN_CLASS, LayeredJarLauncher.class.getName());
+        attributes.putValue(LayeredJarLauncher.MAIN_CLASS_ATTRIBUTE, getMainClass().get());
+        return manifest;
+    }
+
+    private static void writeIndex(JarOutputStream jar, String path, List<String> lines, Set<String> written) throws IOException {
+        StringBuilder sb = new StringBuilder();
+        for (String line : lines) {
+            sb.append(line).append('\n');
+        }
+        writeEntry(jar, path, new ByteArrayInputStream(sb.toString().getBytes(StandardCharsets.UTF_8)), written);
+    }
+
+    private static void writeEntry(JarOutputStream jar, String path, InputStream in, Set<String> written) throws IOException {
+        if (!written.add(path)) {
+            return;
+        }
+        JarEntry entry = new JarEntry(path);
+        entry.setTime(CONSTANT_TIME_FOR_ZIP_ENTRIES);
+        jar.putNextEntry(entry);
+        copy(in, jar);
+        jar.closeEntry();
+    }
+
+    private static void copy(InputStream in, OutputStream out) throws IOException {
+        byte[] buffer = new byte[8192];
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            out.write(buffer, 0, read);
+        }
+    }
+}
@@ -3,27 +3,73 @@ package io.micronaut.gradle.docker.tasks;
 import io.micronaut.gradle.docker.model.Layer;
 import io.micronaut.gradle.docker.model.LayerKind;
 import org.gradle.api.DefaultTask;
+import org.gradle.api.GradleException;
 import org.gradle.api.file.Directory;
 import org.gradle.api.file.DirectoryProperty;
 import org.gradle.api.internal.file.FileOperations;
 import org.gradle.api.provider.ListProperty;
+import org.gradle.api.provider.Property;
 import org.gradle.api.provider.Provider;
 import org.gradle.api.tasks.CacheableTask;
+import org.gradle.api.tasks.Input;
+import org.gradle.api.tasks.Internal;
 import org.gradle.api.tasks.Nested;
 import org.gradle.api.tasks.OutputDirectory;
 import org.gradle.api.tasks.TaskAction;
 
 import javax.inject.Inject;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
 
 @CacheableTask
 public abstract class BuildLayersTask extends DefaultTask {
+    public static final String CLASSPATH_ARGFILE = "classpath.argfile";
 
     @Nested
     public abstract ListProperty<Layer> getLayers();
 
+    /**
+     * If true, a {@code classpath.argfile} file is generated next to the layers.
+     * It contains the java command line option declaring the classpath of the
+     * application, with each library listed explicitly, so that the application
+     * can be started without an executable jar.
+     * @return the exploded property
+     */
+    @Input
+    public abstract Property<Boolean> getExploded();
+
+    public BuildLayersTask() {
+        getExploded().convention(false);
+    }
+
     @OutputDirectory
     public abstract DirectoryProperty getOutputDir();
 
+    /**
+     * A directory storing each unique file once, shared by the layer tasks
+     * of all images. Layer files are hard links to the stored files, which
+     * are read-only. If not set, or if the stored files can't be protected,
+     * layer files are copied from their sources.
+     * @return the layer store directory
+     * @since 3.2.0
+     */
+    @Internal
+    public abstract DirectoryProperty getLayerStore();
+
+    /**
+     * The build service caching the hashes of the layer files, and
+     * removing the unused ones at the end of the build.
+     * @return the layer store service
+     * @since 3.2.0
+     */
+    @Internal
+    public abstract Property<LayerStoreService> getLayerStoreService();
+
     @Inject
     protected abstract FileOperations getFileOperations();
 
@@ -38,15 +84,74 @@ public abstract class BuildLayersTask extends DefaultTask {
         fileOperations.mkdir(resourcesDir);
         Provider<Directory> classesDir = getOutputDir().dir("classes");
         fileOperations.mkdir(classesDir);
+        LayerStore store = getLayerStore().isPresent() ? new LayerStore(getLayerStore().get().getAsFile(), getLayerStoreService().getOrNull()) : null;
+        boolean hasApplicationJar = false;
+        List<String> libraries = new ArrayList<>();
         for (Layer layer : getLayers().get()) {
             final Provider<Directory> layerDir = layerDirectoryOf(layer, getOutputDir(), libsDir, resourcesDir, classesDir);
-            if (layer.getLayerKind().get() == LayerKind.APP) {
+            LayerKind layerKind = layer.getLayerKind().get();
+            if (layerKind == LayerKind.APP) {
                 // special case for now
-                fileOperations.copy(copy -> copy.from(layer.getFiles()).into(getOutputDir()).rename(s -> "application.jar"));
+                hasApplicationJar |= !layer.getFiles().isEmpty();
+                if (store != null) {
+                    for (File file : layer.getFiles().filter(File::isFile)) {
+                        store.materialize(file, getOutputDir().file("application.jar").get().getAsFile().toPath());
+                    }
+                } else {
+                    fileOperations.copy(copy -> copy.from(layer.getFiles()).into(getOutputDir()).rename(s -> "application.jar"));
+                }
             } else {
-                fileOperations.copy(copy -> copy.from(layer.getFiles()).into(layerDir));
+                if (layerKind == LayerKind.LIBS) {
+                    for (File file : layer.getFiles()) {
+                        if (file.isFile()) {
+                            libraries.add("libs/" + file.getName());
+                        }
+                    }
+                }
+                if (store != null) {
+                    materialize(store, layer, layerDir.get().getAsFile().toPath());
+                } else {
+                    fileOperations.copy(copy -> copy.from(layer.getFiles()).into(layerDir));
+                }
             }
         }
+        if (store != null) {
+            getLogger().info("Stored {} bytes in the layer store, linked {} bytes and copied {} bytes to the layers",
+                    store.getStoredBytes(), store.getLinkedBytes(), store.getCopiedBytes());
+        }
+        if (getExploded().get()) {
+            writeClasspathArgFile(hasApplicationJar, libraries);
+        }
+    }
+
+    private static void materialize(LayerStore store, Layer layer, Path layerDir) {
+        // same semantics as a copy: files are copied to the layer directory,
+        // and the contents of directories are merged into it
+        for (File file : layer.getFiles()) {
+            if (file.isDirectory()) {
+                store.materializeDirectory(file, layerDir);
+            } else if (file.isFile()) {
+                store.materialize(file, layerDir.resolve(file.getName()));
+            }
+        }
+    }
+
+    private void writeClasspathArgFile(boolean hasApplicationJar, List<String> libraries) {
+        // Paths are relative to the working directory of the image
+        List<String> classpath = new ArrayList<>(libraries.size() + 3);
+        if (hasApplicationJar) {
+            classpath.add("application.jar");
+        }
+        classpath.add("classes");
+        classpath.add("resources");
+        classpath.addAll(libraries);
+        File argFile = getOutputDir().file(CLASSPATH_ARGFILE).get().getAsFile();
+        String contents = "-cp \"" + String.join(":", classpath) + "\"\n";
+        try {
+            Files.write(argFile.toPath(), contents.getBytes(StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            throw new GradleException("Unable to write classpath argument file", e);
+        }
     }
 
     private static Provider<Directory> layerDirectoryOf(Layer layer,
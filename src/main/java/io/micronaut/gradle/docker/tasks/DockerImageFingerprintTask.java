@@ -0,0 +1,171 @@
+/*
+ * Copyright 2003-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.micronaut.gradle.docker.tasks;
+
+import org.gradle.api.DefaultTask;
+import org.gradle.api.GradleException;
+import org.gradle.api.file.DirectoryProperty;
+import org.gradle.api.file.RegularFileProperty;
+import org.gradle.api.provider.MapProperty;
+import org.gradle.api.provider.Property;
+import org.gradle.api.tasks.CacheableTask;
+import org.gradle.api.tasks.Input;
+import org.gradle.api.tasks.InputDirectory;
+import org.gradle.api.tasks.InputFile;
+import org.gradle.api.tasks.Optional;
+import org.gradle.api.tasks.OutputFile;
+import org.gradle.api.tasks.PathSensitive;
+import org.gradle.api.tasks.PathSensitivity;
+import org.gradle.api.tasks.TaskAction;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Computes the fingerprint of the inputs of a Docker image: its Dockerfile,
+ * the contents of its build context, its build arguments, its target stage
+ * and the options of the build, like its labels. The base images are added
+ * by {@link DockerImageReuseTask}, since they depend on the state of the
+ * Docker daemon.
+ *
+ * @since 3.2.0
+ */
+@CacheableTask
+public abstract class DockerImageFingerprintTask extends DefaultTask {
+
+    @InputFile
+    @PathSensitive(PathSensitivity.NONE)
+    @Optional
+    public abstract RegularFileProperty getDockerFile();
+
+    @InputDirectory
+    @PathSensitive(PathSensitivity.RELATIVE)
+    public abstract DirectoryProperty getContextDirectory();
+
+    @Input
+    public abstract MapProperty<String, String> getBuildArgs();
+
+    @Input
+    @Optional
+    public abstract Property<String> getTarget();
+
+    @Input
+    @Optional
+    public abstract Property<Boolean> getPull();
+
+    @Input
+    @Optional
+    public abstract Property<Boolean> getNoCache();
+
+    @Input
+    public abstract MapProperty<String, String> getLabels();
+
+    @OutputFile
+    public abstract RegularFileProperty getFingerprintFile();
+
+    @TaskAction
+    public void fingerprint() {
+        MessageDigest digest = sha256();
+        if (getDockerFile().isPresent()) {
+            update(digest, "dockerfile");
+            update(digest, getDockerFile().get().getAsFile());
+        }
+        File context = getContextDirectory().get().getAsFile();
+        Path root = context.toPath();
+        List<Path> files;
+        try (Stream<Path> walk = Files.walk(root)) {
+            files = walk.filter(Files::isRegularFile).sorted().collect(Collectors.toList());
+        } catch (IOException e) {
+            throw new GradleException("Unable to list the files of the Docker context " + context, e);
+        }
+        for (Path file : files) {
+            update(digest, "file:" + root.relativize(file).toString().replace(File.separatorChar, '/'));
+            update(digest, file.toFile());
+        }
+        new TreeMap<>(getBuildArgs().get()).forEach((key, value) -> update(digest, "arg:" + key + "=" + value));
+        if (getTarget().isPresent()) {
+            update(digest, "target:" + getTarget().get());
+        }
+        update(digest, "pull:" + getPull().getOrElse(false));
+        update(digest, "noCache:" + getNoCache().getOrElse(false));
+        new TreeMap<>(getLabels().get()).forEach((key, value) -> update(digest, "label:" + key + "=" + value));
+        write(getFingerprintFile().get().getAsFile(), hex(digest));
+    }
+
+    static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new GradleException("SHA-256 is not available", e);
+        }
+    }
+
+    static String hex(MessageDigest digest) {
+        StringBuilder hex = new StringBuilder();
+        for (byte b : digest.digest()) {
+            hex.append(String.format("%02x", b));
+        }
+        return hex.toString();
+    }
+
+    static void update(MessageDigest digest, String text) {
+        digest.update(text.getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) 0);
+    }
+
+    private static void update(MessageDigest digest, File file) {
+        byte[] buffer = new byte[8192];
+        try (InputStream in = Files.newInputStream(file.toPath())) {
+            int read;
+            while ((read = in.read(buffer)) >= 0) {
+                digest.update(buffer, 0, read);
+            }
+        } catch (IOException e) {
+            throw new GradleException("Unable to read " + file, e);
+        }
+    }
+
+    static void write(File file, String text) {
+        try {
+            Files.write(file.toPath(), text.getBytes(StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            throw new GradleException("Unable to write " + file, e);
+        }
+    }
+
+    /**
+     * Reads a fingerprint file written by this task.
+     * @param fingerprintFile the fingerprint file
+     * @return the fingerprint
+     */
+    public static String read(File fingerprintFile) {
+        try {
+            return new String(Files.readAllBytes(fingerprintFile.toPath()), StandardCharsets.UTF_8).trim();
+        } catch (IOException e) {
+            throw new GradleException("Unable to read " + fingerprintFile, e);
+        }
+    }
+}
@@ -0,0 +1,216 @@
+/*
+ * Copyright 2003-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.micronaut.gradle.docker.tasks;
+
+import com.bmuschko.gradle.docker.tasks.AbstractDockerRemoteApiTask;
+import com.github.dockerjava.api.DockerClient;
+import com.github.dockerjava.api.exception.NotFoundException;
+import com.github.dockerjava.api.model.Image;
+import org.gradle.api.GradleException;
+import org.gradle.api.file.RegularFileProperty;
+import org.gradle.api.provider.MapProperty;
+import org.gradle.api.provider.SetProperty;
+import org.gradle.api.tasks.Input;
+import org.gradle.api.tasks.InputFile;
+import org.gradle.api.tasks.OutputFile;
+import org.gradle.api.tasks.PathSensitive;
+import org.gradle.api.tasks.PathSensitivity;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Looks for an image built from the same inputs in the local Docker daemon.
+ * The fingerprint of the image is the fingerprint of its inputs, computed
+ * by {@link DockerImageFingerprintTask}, and the IDs of its base images in
+ * the daemon, so that an image is built again when a base image is updated.
+ * When an image with this fingerprint exists, it is tagged with the names
+ * of the image to build, and its ID is written to the reused image ID file.
+ * Otherwise, that file is empty.
+ *
+ * The task is never up-to-date, since the images of the daemon are not
+ * tracked by Gradle.
+ *
+ * @since 3.2.0
+ */
+public abstract class DockerImageReuseTask extends AbstractDockerRemoteApiTask {
+    public static final String FINGERPRINT_LABEL = "io.micronaut.gradle.fingerprint";
+
+    private static final Pattern VARIABLE = Pattern.compile("\\$\\{?([A-Za-z_][A-Za-z0-9_]*)}?");
+    private static final String MISSING = "missing";
+
+    public DockerImageReuseTask() {
+        getOutputs().upToDateWhen(task -> false);
+    }
+
+    /**
+     * @return the fingerprint of the inputs of the image
+     */
+    @InputFile
+    @PathSensitive(PathSensitivity.NONE)
+    public abstract RegularFileProperty getInputsFingerprintFile();
+
+    /**
+     * @return the Dockerfile, whose {@code FROM} instructions declare the base images
+     */
+    @InputFile
+    @PathSensitive(PathSensitivity.NONE)
+    public abstract RegularFileProperty getDockerFile();
+
+    /**
+     * @return the build arguments, which may be used in the {@code FROM} instructions
+     */
+    @Input
+    public abstract MapProperty<String, String> getBuildArgs();
+
+    /**
+     * @return the names of the image to build
+     */
+    @Input
+    public abstract SetProperty<String> getImages();
+
+    /**
+     * @return the file the fingerprint of the image is written to
+     */
+    @OutputFile
+    public abstract RegularFileProperty getFingerprintFile();
+
+    /**
+     * @return the file the ID of the reused image is written to, empty if no image is reused
+     */
+    @OutputFile
+    public abstract RegularFileProperty getReusedImageIdFile();
+
+    @Override
+    public void runRemoteCommand() {
+        File reusedImageIdFile = getReusedImageIdFile().get().getAsFile();
+        DockerClient client = getDockerClient();
+        MessageDigest digest = DockerImageFingerprintTask.sha256();
+        DockerImageFingerprintTask.update(digest, DockerImageFingerprintTask.read(getInputsFingerprintFile().get().getAsFile()));
+        for (String baseImage : baseImages(readDockerfile(), getBuildArgs().get())) {
+            DockerImageFingerprintTask.update(digest, "base:" + baseImage + "=" + imageId(client, baseImage));
+        }
+        String fingerprint = DockerImageFingerprintTask.hex(digest);
+        DockerImageFingerprintTask.write(getFingerprintFile().get().getAsFile(), fingerprint);
+        List<Image> images = client.listImagesCmd()
+                .withLabelFilter(Collections.singletonMap(FINGERPRINT_LABEL, fingerprint))
+                .exec();
+        if (images.isEmpty()) {
+            DockerImageFingerprintTask.write(reusedImageIdFile, "");
+            return;
+        }
+        String imageId = images.get(0).getId();
+        for (String name : getImages().get()) {
+            tag(client, imageId, name);
+        }
+        DockerImageFingerprintTask.write(reusedImageIdFile, imageId);
+        getLogger().lifecycle("Image {} was already built from the same inputs, reusing it for {}", imageId, getImages().get());
+    }
+
+    private List<String> readDockerfile() {
+        File dockerFile = getDockerFile().get().getAsFile();
+        try {
+            return Files.readAllLines(dockerFile.toPath(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new GradleException("Unable to read " + dockerFile, e);
+        }
+    }
+
+    /**
+     * Returns the base images of a Dockerfile, in order. The stages of the
+     * Dockerfile and {@code scratch} are left out, and so are the images
+     * whose name uses an unknown variable.
+     * @param lines the lines of the Dockerfile
+     * @param buildArgs the build arguments
+     * @return the base images
+     */
+    static List<String> baseImages(List<String> lines, Map<String, String> buildArgs) {
+        Map<String, String> args = new HashMap<>();
+        Set<String> stages = new HashSet<>();
+        List<String> images = new ArrayList<>();
+        boolean first = true;
+        for (String line : lines) {
+            String[] tokens = line.trim().split("\\s+");
+            String instruction = tokens[0].toUpperCase(Locale.ROOT);
+            if (first && "ARG".equals(instruction) && tokens.length > 1) {
+                // the arguments declared before the first stage can be used by FROM
+                String[] arg = tokens[1].split("=", 2);
+                args.put(arg[0], buildArgs.getOrDefault(arg[0], arg.length > 1 ? substitute(arg[1], args) : null));
+            } else if ("FROM".equals(instruction)) {
+                first = false;
+                int i = 1;
+                while (i < tokens.length && tokens[i].startsWith("--")) {
+                    i++;
+                }
+                if (i >= tokens.length) {
+                    continue;
+                }
+                String image = substitute(tokens[i], args);
+                if (i + 2 < tokens.length && "AS".equalsIgnoreCase(tokens[i + 1])) {
+                    stages.add(tokens[i + 2].toLowerCase(Locale.ROOT));
+                }
+                if (image != null && !"scratch".equals(image) && !stages.contains(image.toLowerCase(Locale.ROOT)) && !images.contains(image)) {
+                    images.add(image);
+                }
+            }
+        }
+        return images;
+    }
+
+    private static String substitute(String text, Map<String, String> args) {
+        Matcher matcher = VARIABLE.matcher(text);
+        StringBuffer result = new StringBuffer();
+        while (matcher.find()) {
+            String value = args.get(matcher.group(1));
+            if (value == null) {
+                return null;
+            }
+            matcher.appendReplacement(result, Matcher.quoteReplacement(value));
+        }
+        matcher.appendTail(result);
+        return result.toString();
+    }
+
+    private static String imageId(DockerClient client, String image) {
+        try {
+            return client.inspectImageCmd(image).exec().getId();
+        } catch (NotFoundException e) {
+            // the build pulls it, so the next build computes another fingerprint, and builds the image once more
+            return MISSING;
+        }
+    }
+
+    private static void tag(DockerClient client, String imageId, String name) {
+        int lastColon = name.lastIndexOf(':');
+        boolean hasTag = lastColon > name.lastIndexOf('/');
+        String repository = hasTag ? name.substring(0, lastColon) : name;
+        String tag = hasTag ? name.substring(lastColon + 1) : "latest";
+        client.tagImageCmd(imageId, repository, tag).exec();
+    }
+}
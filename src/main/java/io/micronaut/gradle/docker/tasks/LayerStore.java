@@ -0,0 +1,184 @@
+/*
+ * Copyright 2003-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.micronaut.gradle.docker.tasks;
+
+import org.gradle.api.GradleException;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A content-addressed store of the files copied to Docker layers. Each
+ * unique file is stored once, named after the SHA-256 of its contents, and
+ * layer files are hard links to the stored files, so that the layers of
+ * all images share the same copy.
+ *
+ * Stored files are read-only, so that a layer file cannot be rewritten in
+ * place, which would corrupt the store, and a stored file is only reused
+ * if it is still read-only and has the size of the source file. When the
+ * file system can't protect the stored files, for example when the build
+ * runs as root, or when a link can't be created, the layer file is copied
+ * from its source instead.
+ *
+ * Files are stored with an atomic move, which makes the store safe to
+ * share between layer tasks running in parallel. Hashes are cached by the
+ * {@link LayerStoreService} for the duration of the build, which also
+ * removes the stored files which are no longer used.
+ */
+final class LayerStore {
+    private final Path root;
+    private final LayerStoreService service;
+    // used when no build service is available, for example in benchmarks
+    private final Map<File, String> hashes = new ConcurrentHashMap<>();
+    private Boolean protectable;
+    private long storedBytes;
+    private long linkedBytes;
+    private long copiedBytes;
+
+    LayerStore(File root, LayerStoreService service) {
+        this.root = root.toPath();
+        this.service = service;
+        if (service != null) {
+            service.used(this.root);
+        }
+    }
+
+    /**
+     * Creates a file with the contents of the source file, linked to the
+     * stored copy of the source file, or copied from the source file.
+     * @param source the source file
+     * @param target the file to create
+     */
+    void materialize(File source, Path target) {
+        try {
+            Files.createDirectories(target.getParent());
+            Files.deleteIfExists(target);
+            if (isProtectable()) {
+                Path stored = store(source);
+                try {
+                    Files.createLink(target, stored);
+                    linkedBytes += source.length();
+                    return;
+                } catch (IOException | UnsupportedOperationException e) {
+                    // for example when the store is on another file system
+                    Files.deleteIfExists(target);
+                }
+            }
+            Files.copy(source.toPath(), target, StandardCopyOption.REPLACE_EXISTING);
+            copiedBytes += source.length();
+        } catch (IOException e) {
+            throw new GradleException("Unable to copy " + source + " to " + target, e);
+        }
+    }
+
+    /**
+     * Materializes all the files of a directory into a target directory.
+     * @param sourceDirectory the source directory
+     * @param targetDirectory the target directory
+     */
+    void materializeDirectory(File sourceDirectory, Path targetDirectory) {
+        File[] children = sourceDirectory.listFiles();
+        if (children == null) {
+            return;
+        }
+        for (File child : children) {
+            Path target = targetDirectory.resolve(child.getName());
+            if (child.isDirectory()) {
+                materializeDirectory(child, target);
+            } else {
+                materialize(child, target);
+            }
+        }
+    }
+
+    long getStoredBytes() {
+        return storedBytes;
+    }
+
+    long getLinkedBytes() {
+        return linkedBytes;
+    }
+
+    long getCopiedBytes() {
+        return copiedBytes;
+    }
+
+    /**
+     * Tells if read-only files can't be written, which isn't the case for
+     * the root user, nor on file systems without POSIX permissions, where
+     * read-only files can't be deleted either.
+     */
+    private boolean isProtectable() throws IOException {
+        if (protectable == null) {
+            protectable = false;
+            if (FileSystems.getDefault().supportedFileAttributeViews().contains("posix")) {
+                Files.createDirectories(root);
+                Path probe = Files.createTempFile(root, "probe", ".tmp");
+                try {
+                    protectable = probe.toFile().setReadOnly() && !Files.isWritable(probe);
+                } finally {
+                    Files.deleteIfExists(probe);
+                }
+            }
+        }
+        return protectable;
+    }
+
+    private Path store(File source) throws IOException {
+        String hash = hashOf(source);
+        Path stored = root.resolve(hash.substring(0, 2)).resolve(hash);
+        if (Files.isRegularFile(stored)) {
+            if (!Files.isWritable(stored) && Files.size(stored) == source.length()) {
+                // the last modification time tells when the stored file was last used
+                Files.setLastModifiedTime(stored, FileTime.fromMillis(System.currentTimeMillis()));
+                return stored;
+            }
+            Files.delete(stored);
+        }
+        Files.createDirectories(stored.getParent());
+        Path tmp = Files.createTempFile(stored.getParent(), hash, ".tmp");
+        try {
+            Files.copy(source.toPath(), tmp, StandardCopyOption.REPLACE_EXISTING);
+            if (!tmp.toFile().setReadOnly()) {
+                throw new IOException("Unable to make " + tmp + " read-only");
+            }
+            Files.move(tmp, stored, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+        storedBytes += source.length();
+        return stored;
+    }
+
+    private String hashOf(File source) throws IOException {
+        if (service != null) {
+            return service.hashOf(source);
+        }
+        String hash = hashes.get(source);
+        if (hash == null) {
+            hash = LayerStoreService.computeHash(source);
+            hashes.put(source, hash);
+        }
+        return hash;
+    }
+}
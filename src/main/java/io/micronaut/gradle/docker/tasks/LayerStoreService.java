@@ -0,0 +1,173 @@
+/*
+ * Copyright 2003-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.micronaut.gradle.docker.tasks;
+
+import org.gradle.api.GradleException;
+import org.gradle.api.Project;
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
+import org.gradle.api.provider.Provider;
+import org.gradle.api.services.BuildService;
+import org.gradle.api.services.BuildServiceParameters;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * A build service which holds the state of the {@link LayerStore layer
+ * stores} for the duration of a build: the hashes of the files copied to
+ * layers, and the directories of the stores. When
+ * the build finishes, the stored files which haven't been used for
+ * {@link #RETENTION_DAYS} days are removed.
+ *
+ * @since 3.2.0
+ */
+public abstract class LayerStoreService implements BuildService<BuildServiceParameters.None>, AutoCloseable {
+    public static final String NAME = "micronautLayerStore";
+    public static final int RETENTION_DAYS = 7;
+
+    private static final Logger LOGGER = Logging.getLogger(LayerStoreService.class);
+
+    private final Map<FileKey, String> hashes = new ConcurrentHashMap<>();
+    private final Set<Path> roots = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Registers the layer store service, if not already registered.
+     * @param project the project
+     * @return the layer store service
+     */
+    public static Provider<LayerStoreService> registerIfAbsent(Project project) {
+        return project.getGradle().getSharedServices().registerIfAbsent(NAME, LayerStoreService.class, spec -> {
+        });
+    }
+
+    /**
+     * Returns the SHA-256 of the contents of a file. Hashes are kept until
+     * the end of the build, and computed again if the size or the last
+     * modification time of the file changes.
+     * @param file the file
+     * @return the hash of the file
+     * @throws IOException if the file cannot be read
+     */
+    String hashOf(File file) throws IOException {
+        FileKey key = new FileKey(file);
+        String hash = hashes.get(key);
+        if (hash == null) {
+            hash = computeHash(file);
+            hashes.put(key, hash);
+        }
+        return hash;
+    }
+
+    void used(Path root) {
+        roots.add(root);
+    }
+
+    @Override
+    public void close() {
+        long expiry = System.currentTimeMillis() - TimeUnit.DAYS.toMillis(RETENTION_DAYS);
+        for (Path root : roots) {
+            removeUnused(root, expiry);
+        }
+    }
+
+    /**
+     * Removes the stored files which haven't been used since a date. The
+     * last modification time of a stored file is updated each time it is used.
+     * @param root the root directory of the store
+     * @param expiry the date, in milliseconds
+     */
+    static void removeUnused(Path root, long expiry) {
+        if (!Files.isDirectory(root)) {
+            return;
+        }
+        int removed = 0;
+        try (Stream<Path> files = Files.walk(root)) {
+            for (Object o : files.filter(Files::isRegularFile).toArray()) {
+                Path file = (Path) o;
+                if (Files.getLastModifiedTime(file).toMillis() < expiry) {
+                    Files.deleteIfExists(file);
+                    removed++;
+                }
+            }
+        } catch (IOException e) {
+            LOGGER.warn("Unable to remove the unused files of the layer store " + root, e);
+        }
+        if (removed > 0) {
+            LOGGER.info("Removed {} unused file(s) from the layer store {}", removed, root);
+        }
+    }
+
+    static String computeHash(File file) throws IOException {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            byte[] buffer = new byte[65536];
+            try (InputStream in = Files.newInputStream(file.toPath())) {
+                int read;
+                while ((read = in.read(buffer)) != -1) {
+                    digest.update(buffer, 0, read);
+                }
+            }
+            StringBuilder sb = new StringBuilder(64);
+            for (byte b : digest.digest()) {
+                sb.append(String.format("%02x", b));
+            }
+            return sb.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new GradleException("SHA-256 is not available", e);
+        }
+    }
+
+    private static final class FileKey {
+        private final String path;
+        private final long length;
+        private final long lastModified;
+
+        private FileKey(File file) {
+            this.path = file.getAbsolutePath();
+            this.length = file.length();
+            this.lastModified = file.lastModified();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            FileKey fileKey = (FileKey) o;
+            return length == fileKey.length && lastModified == fileKey.lastModified && path.equals(fileKey.path);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(path, length, lastModified);
+        }
+    }
+}
@@ -0,0 +1,172 @@
+/*
+ * Copyright 2003-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.micronaut.gradle.docker.tasks;
+
+import org.gradle.api.DefaultTask;
+import org.gradle.api.GradleException;
+import org.gradle.api.file.RegularFileProperty;
+import org.gradle.api.provider.Property;
+import org.gradle.api.tasks.CacheableTask;
+import org.gradle.api.tasks.Input;
+import org.gradle.api.tasks.InputFile;
+import org.gradle.api.tasks.OutputFile;
+import org.gradle.api.tasks.PathSensitive;
+import org.gradle.api.tasks.PathSensitivity;
+import org.gradle.api.tasks.TaskAction;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Rewrites an application jar so that its entries are stored in the order
+ * classes are loaded when the application starts, as recorded by a training
+ * run. Entries needed during startup come first and are stored uncompressed,
+ * so that they are read sequentially and without inflating them. The other
+ * entries follow, compressed, in their original order.
+ *
+ * @since 3.2.0
+ */
+@CacheableTask
+public abstract class StartupOrderedJarTask extends DefaultTask {
+    private static final String MANIFEST_DIRECTORY = "META-INF/";
+    private static final String MANIFEST = "META-INF/MANIFEST.MF";
+    private static final String SERVICES_PREFIX = "META-INF/services/";
+
+    public StartupOrderedJarTask() {
+        getStoreStartupEntries().convention(true);
+    }
+
+    /**
+     * The jar to rewrite.
+     * @return the input jar
+     */
+    @InputFile
+    @PathSensitive(PathSensitivity.NONE)
+    public abstract RegularFileProperty getJar();
+
+    /**
+     * A file listing the jar entries loaded during startup, one per line, in load order.
+     * @return the class load order file
+     */
+    @InputFile
+    @PathSensitive(PathSensitivity.NONE)
+    public abstract RegularFileProperty getClassLoadOrder();
+
+    /**
+     * Whether the entries loaded during startup are stored uncompressed.
+     * Defaults to true.
+     * @return the store property
+     */
+    @Input
+    public abstract Property<Boolean> getStoreStartupEntries();
+
+    @OutputFile
+    public abstract RegularFileProperty getArchiveFile();
+
+    @TaskAction
+    public void reorder() throws IOException {
+        File inputJar = getJar().get().getAsFile();
+        File outputJar = getArchiveFile().get().getAsFile();
+        List<String> loadOrder = Files.readAllLines(getClassLoadOrder().get().getAsFile().toPath(), StandardCharsets.UTF_8);
+        boolean store = getStoreStartupEntries().get();
+        try (ZipFile zip = new ZipFile(inputJar);
+             ZipOutputStream out = new ZipOutputStream(Files.newOutputStream(outputJar.toPath()))) {
+            Map<String, ZipEntry> remaining = new LinkedHashMap<>();
+            Enumeration<? extends ZipEntry> entries = zip.entries();
+            while (entries.hasMoreElements()) {
+                ZipEntry entry = entries.nextElement();
+                remaining.put(entry.getName(), entry);
+            }
+            // the manifest must remain first for JarInputStream to find it
+            copy(zip, remaining.remove(MANIFEST_DIRECTORY), out, false);
+            copy(zip, remaining.remove(MANIFEST), out, false);
+            List<String> startupEntries = new ArrayList<>();
+            // service files are read by Micronaut before any bean is loaded
+            for (String name : remaining.keySet()) {
+                if (name.startsWith(SERVICES_PREFIX) && !name.endsWith("/")) {
+                    startupEntries.add(name);
+                }
+            }
+            startupEntries.addAll(loadOrder);
+            int ordered = 0;
+            for (String name : startupEntries) {
+                ZipEntry entry = remaining.remove(name);
+                if (entry != null) {
+                    copy(zip, entry, out, store);
+                    ordered++;
+                }
+            }
+            for (ZipEntry entry : remaining.values()) {
+                copy(zip, entry, out, false);
+            }
+            getLogger().info("Moved {} entries loaded during startup at the beginning of {}", ordered, outputJar.getName());
+        } catch (IOException e) {
+            throw new GradleException("Unable to reorder jar " + inputJar, e);
+        }
+    }
+
+    private static void copy(ZipFile zip, ZipEntry entry, ZipOutputStream out, boolean stored) throws IOException {
+        if (entry == null) {
+            return;
+        }
+        ZipEntry copy = new ZipEntry(entry.getName());
+        copy.setTime(entry.getTime());
+        if (entry.isDirectory()) {
+            out.putNextEntry(copy);
+            out.closeEntry();
+            return;
+        }
+        byte[] bytes = readAll(zip, entry);
+        if (stored) {
+            CRC32 crc = new CRC32();
+            crc.update(bytes);
+            copy.setMethod(ZipEntry.STORED);
+            copy.setSize(bytes.length);
+            copy.setCompressedSize(bytes.length);
+            copy.setCrc(crc.getValue());
+        } else {
+            copy.setMethod(ZipEntry.DEFLATED);
+        }
+        out.putNextEntry(copy);
+        out.write(bytes);
+        out.closeEntry();
+    }
+
+    private static byte[] readAll(ZipFile zip, ZipEntry entry) throws IOException {
+        try (InputStream in = zip.getInputStream(entry)) {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                bytes.write(buffer, 0, read);
+            }
+            return bytes.toByteArray();
+        }
+    }
+}
@@ -1,8 +1,12 @@
 package io.micronaut.gradle.graalvm;
 
+import io.micronaut.gradle.HeavyTaskScheduler;
 import io.micronaut.gradle.MicronautExtension;
 import io.micronaut.gradle.MicronautRuntime;
+import io.micronaut.gradle.MicronautTelemetry;
 import io.micronaut.gradle.PluginsHelper;
+import io.micronaut.gradle.run.Footprints;
+import io.micronaut.gradle.run.LoadTests;
 import org.graalvm.buildtools.gradle.NativeImagePlugin;
 import org.graalvm.buildtools.gradle.dsl.GraalVMExtension;
 import org.graalvm.buildtools.gradle.tasks.BuildNativeImageTask;
@@ -20,9 +24,11 @@ import org.gradle.api.tasks.SourceSet;
 import org.gradle.api.tasks.SourceSetContainer;
 import org.gradle.api.tasks.TaskContainer;
 import org.gradle.api.tasks.testing.Test;
+import org.gradle.build.event.BuildEventsListenerRegistry;
 import org.gradle.language.jvm.tasks.ProcessResources;
 import org.gradle.process.CommandLineArgumentProvider;
 
+import javax.inject.Inject;
 import java.io.File;
 import java.util.Arrays;
 import java.util.Collections;
@@ -42,9 +48,21 @@ public class MicronautGraalPlugin implements Plugin<Project> {
 
     private static final Set<String> SOURCE_SETS = Collections.unmodifiableSet(new HashSet<>(Arrays.asList("main", "test")));
 
+    private final BuildEventsListenerRegistry eventsListenerRegistry;
+
+    @Inject
+    public MicronautGraalPlugin(BuildEventsListenerRegistry eventsListenerRegistry) {
+        this.eventsListenerRegistry = eventsListenerRegistry;
+    }
+
     @Override
     public void apply(Project project) {
         project.getPluginManager().apply(NativeImagePlugin.class);
+        Provider<HeavyTaskScheduler> scheduler = HeavyTaskScheduler.registerIfAbsent(project, eventsListenerRegistry);
+        project.getTasks().withType(BuildNativeImageTask.class).configureEach(task ->
+                HeavyTaskScheduler.limit(task, scheduler, HeavyTaskScheduler.NATIVE_IMAGE_MEMORY, HeavyTaskScheduler.nativeImageCpus())
+        );
+        MicronautTelemetry.track(project, eventsListenerRegistry, BuildNativeImageTask.class);
         workaroundForResourcesDirectoryMissing(project);
         project.getPluginManager().withPlugin("io.micronaut.minimal.library", plugin -> {
             MicronautExtension extension = project.getExtensions().findByType(MicronautExtension.class);
@@ -53,6 +71,9 @@ public class MicronautGraalPlugin implements Plugin<Project> {
         project.getPluginManager().withPlugin("io.micronaut.minimal.application", plugin -> {
             MicronautExtension extension = project.getExtensions().findByType(MicronautExtension.class);
             configureAnnotationProcessing(project, extension);
+            LoadTests.register(project, "nativeLoadTest", "Runs the load test scenarios against the native executable", task ->
+                    task.getExecutable().set(nativeExecutable(project)));
+            Footprints.register(project, "native", task -> task.getExecutable().set(nativeExecutable(project)));
         });
         GraalVMExtension graal = project.getExtensions().findByType(GraalVMExtension.class);
         graal.getBinaries().configureEach(options ->
@@ -87,6 +108,10 @@ public class MicronautGraalPlugin implements Plugin<Project> {
         });
     }
 
+    private static Provider<RegularFile> nativeExecutable(Project project) {
+        return project.getTasks().named("nativeCompile", BuildNativeImageTask.class).flatMap(BuildNativeImageTask::getOutputFile);
+    }
+
     private void workaroundForResourcesDirectoryMissing(Project project) {
         project.getPluginManager().withPlugin("java", plugin ->
                 project.afterEvaluate(unused -> {
@@ -120,25 +145,38 @@ public class MicronautGraalPlugin implements Plugin<Project> {
                 BuildNativeImageTask nativeBuild = (BuildNativeImageTask) tasks.findByName("nativeCompile");
                 nativeImageTestTask.setForkEvery(testTask.getForkEvery());
                 nativeImageTestTask.setTestClassesDirs(testTask.getTestClassesDirs());
-                nativeImageTestTask.getJvmArgumentProviders().add(new CommandLineArgumentProvider() {
-                    @InputFile
-                    @PathSensitive(PathSensitivity.RELATIVE)
-                    Provider<RegularFile> getInputFile() {
-                        return nativeBuild.getOutputFile();
-                    }
-
-                    @Override
-                    public Iterable<String> asArguments() {
-                        return Collections.singleton(
-                                "-Dmicronaut.test.server.executable=" + getInputFile().get().getAsFile().getAbsolutePath()
-                        );
-                    }
-                });
+                nativeImageTestTask.getJvmArgumentProviders().add(new NativeImageExecutableArgumentProvider(nativeBuild.getOutputFile()));
                 nativeImageTestTask.setDescription("Runs tests against a native image build of the server. Requires the server to allow the port to configurable with 'micronaut.server.port'.");
             });
         }
     }
 
+    /**
+     * Passes the location of the native image to the tests. This is a static class, instead
+     * of an anonymous one, so that it doesn't capture the plugin instance, which cannot be
+     * stored in the configuration cache.
+     */
+    private static final class NativeImageExecutableArgumentProvider implements CommandLineArgumentProvider {
+        private final Provider<RegularFile> inputFile;
+
+        private NativeImageExecutableArgumentProvider(Provider<RegularFile> inputFile) {
+            this.inputFile = inputFile;
+        }
+
+        @InputFile
+        @PathSensitive(PathSensitivity.RELATIVE)
+        Provider<RegularFile> getInputFile() {
+            return inputFile;
+        }
+
+        @Override
+        public Iterable<String> asArguments() {
+            return Collections.singleton(
+                    "-Dmicronaut.test.server.executable=" + getInputFile().get().getAsFile().getAbsolutePath()
+            );
+        }
+    }
+
     private static void configureAnnotationProcessing(Project project, MicronautExtension extension) {
         SourceSetContainer sourceSets = project
                 .getConvention()
@@ -0,0 +1,199 @@
+/*
+ * Copyright 2003-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.micronaut.gradle.launcher;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Launches a Micronaut application in a way which allows reloading it
+ * without restarting the JVM. The dependencies of the application are
+ * loaded by a classloader which is created once, while the classes and
+ * resources of the project are loaded by a child classloader which is
+ * replaced whenever a file changes in the application directories.
+ *
+ * The application is started with the {@code io.micronaut.runtime.Micronaut}
+ * builder, using the main class for the package scanning: the {@code main}
+ * method of the application is not invoked, so that the launcher can close
+ * the application context before reloading it.
+ *
+ * This class is executed in the application JVM, not in Gradle: it must
+ * only depend on the JDK, and must not have inner classes, because it
+ * is copied as a single class file to the launcher directory.
+ */
+public final class HotReloadLauncher {
+    public static final String MAIN_CLASS_PROPERTY = "micronaut.hotreload.mainClass";
+    public static final String DEPENDENCIES_FILE_PROPERTY = "micronaut.hotreload.dependenciesFile";
+    public static final String APPLICATION_PROPERTY = "micronaut.hotreload.application";
+    public static final String QUIET_PERIOD_PROPERTY = "micronaut.hotreload.quietPeriod";
+
+    private static final String MICRONAUT_CLASS = "io.micronaut.runtime.Micronaut";
+
+    private final String mainClass;
+    private final String[] args;
+    private final URLClassLoader dependencies;
+    private final List<File> applicationDirectories;
+    private URLClassLoader applicationLoader;
+    private AutoCloseable context;
+
+    private HotReloadLauncher(String mainClass, String[] args, URLClassLoader dependencies, List<File> applicationDirectories) {
+        this.mainClass = mainClass;
+        this.args = args;
+        this.dependencies = dependencies;
+        this.applicationDirectories = applicationDirectories;
+    }
+
+    public static void main(String[] args) throws Exception {
+        String mainClass = requiredProperty(MAIN_CLASS_PROPERTY);
+        List<File> dependencyFiles = readFiles(new File(requiredProperty(DEPENDENCIES_FILE_PROPERTY)));
+        List<File> applicationDirectories = files(requiredProperty(APPLICATION_PROPERTY));
+        long quietPeriod = Long.getLong(QUIET_PERIOD_PROPERTY, 200L);
+        // The parent is the platform (or extension) classloader, so that the
+        // launcher classpath isn't visible from the application
+        URLClassLoader dependencies = new URLClassLoader(toUrls(dependencyFiles), ClassLoader.getSystemClassLoader().getParent());
+        HotReloadLauncher launcher = new HotReloadLauncher(mainClass, args, dependencies, applicationDirectories);
+        Runtime.getRuntime().addShutdownHook(new Thread(launcher::stop, "hot-reload-shutdown"));
+        launcher.start();
+        launcher.watch(quietPeriod);
+    }
+
+    private synchronized void start() throws Exception {
+        long start = System.nanoTime();
+        applicationLoader = new URLClassLoader(toUrls(applicationDirectories), dependencies);
+        Thread.currentThread().setContextClassLoader(applicationLoader);
+        Class<?> micronaut = dependencies.loadClass(MICRONAUT_CLASS);
+        Object builder = micronaut.getMethod("build", String[].class).invoke(null, (Object) args);
+        Class<?> builderType = builder.getClass();
+        builderType.getMethod("mainClass", Class.class).invoke(builder, applicationLoader.loadClass(mainClass));
+        builderType.getMethod("classLoader", ClassLoader.class).invoke(builder, applicationLoader);
+        Method startMethod = builderType.getMethod("start");
+        context = (AutoCloseable) startMethod.invoke(builder);
+        System.out.println("[hot reload] Application started in " + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) + "ms");
+    }
+
+    private synchronized void stop() {
+        if (context != null) {
+            try {
+                context.close();
+            } catch (Exception e) {
+                System.err.println("[hot reload] Error while stopping the application: " + e.getMessage());
+            }
+            context = null;
+        }
+        if (applicationLoader != null) {
+            try {
+                applicationLoader.close();
+            } catch (IOException e) {
+                // ignore, the classloader is discarded anyway
+            }
+            applicationLoader = null;
+        }
+    }
+
+    private void watch(long quietPeriod) throws Exception {
+        try (WatchService watchService = FileSystems.getDefault().newWatchService()) {
+            registerAll(watchService);
+            while (true) {
+                WatchKey key = watchService.take();
+                // wait until the build stops writing files before reloading
+                do {
+                    key.pollEvents();
+                    key.reset();
+                    key = watchService.poll(quietPeriod, TimeUnit.MILLISECONDS);
+                } while (key != null);
+                System.out.println("[hot reload] Change detected, reloading application");
+                stop();
+                try {
+                    start();
+                } catch (Exception e) {
+                    Throwable cause = e.getCause() != null ? e.getCause() : e;
+                    System.err.println("[hot reload] Application failed to start, waiting for the next change: " + cause);
+                }
+                // directories may have been created or recreated by the build
+                registerAll(watchService);
+            }
+        } catch (ClosedWatchServiceException e) {
+            // JVM is shutting down
+        }
+    }
+
+    private void registerAll(WatchService watchService) throws IOException {
+        for (File root : applicationDirectories) {
+            if (root.isDirectory()) {
+                try (Stream<Path> paths = Files.walk(root.toPath())) {
+                    for (Object dir : paths.filter(Files::isDirectory).toArray()) {
+                        ((Path) dir).register(watchService,
+                                StandardWatchEventKinds.ENTRY_CREATE,
+                                StandardWatchEventKinds.ENTRY_DELETE,
+                                StandardWatchEventKinds.ENTRY_MODIFY);
+                    }
+                }
+            }
+        }
+    }
+
+    private static String requiredProperty(String name) {
+        String value = System.getProperty(name);
+        if (value == null) {
+            throw new IllegalStateException("System property " + name + " is required");
+        }
+        return value;
+    }
+
+    private static List<File> files(String path) {
+        List<File> files = new ArrayList<>();
+        for (String entry : path.split(File.pathSeparator)) {
+            if (!entry.isEmpty()) {
+                files.add(new File(entry));
+            }
+        }
+        return files;
+    }
+
+    private static List<File> readFiles(File classpathFile) throws IOException {
+        List<File> files = new ArrayList<>();
+        for (String line : Files.readAllLines(classpathFile.toPath(), StandardCharsets.UTF_8)) {
+            if (!line.isEmpty()) {
+                files.add(new File(line));
+            }
+        }
+        return files;
+    }
+
+    private static URL[] toUrls(List<File> files) throws MalformedURLException {
+        URL[] urls = new URL[files.size()];
+        for (int i = 0; i < urls.length; i++) {
+            urls[i] = files.get(i).toURI().toURL();
+        }
+        return urls;
+    }
+}
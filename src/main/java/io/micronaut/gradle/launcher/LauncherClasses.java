@@ -0,0 +1,77 @@
+/*
+ * Copyright 2003-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.micronaut.gradle.launcher;
+
+import org.gradle.api.GradleException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.CRC32;
+
+/**
+ * Gives access to the launcher classes shipped with the plugin, which
+ * are copied to the classpath of applications.
+ *
+ * @since 3.2.0
+ */
+public final class LauncherClasses {
+    private LauncherClasses() {
+    }
+
+    /**
+     * Opens a launcher class file.
+     * @param className the fully qualified name of the class
+     * @return the class bytes
+     */
+    public static InputStream open(String className) {
+        InputStream in = LauncherClasses.class.getClassLoader().getResourceAsStream(resourceName(className));
+        if (in == null) {
+            throw new GradleException("Launcher class " + className + " not found");
+        }
+        return in;
+    }
+
+    /**
+     * Returns the path of a class file.
+     * @param className the fully qualified name of the class
+     * @return the path of the class file
+     */
+    public static String resourceName(String className) {
+        return className.replace('.', '/') + ".class";
+    }
+
+    /**
+     * Computes a checksum of launcher classes, which can be used as a
+     * task input in order to update outputs when the plugin is upgraded.
+     * @param classNames the class names
+     * @return the checksum of the classes
+     */
+    public static long checksum(Iterable<String> classNames) {
+        CRC32 crc = new CRC32();
+        byte[] buffer = new byte[8192];
+        for (String className : classNames) {
+            try (InputStream in = open(className)) {
+                int read;
+                while ((read = in.read(buffer)) != -1) {
+                    crc.update(buffer, 0, read);
+                }
+            } catch (IOException e) {
+                throw new GradleException("Unable to read launcher class " + className, e);
+            }
+        }
+        return crc.getValue();
+    }
+}
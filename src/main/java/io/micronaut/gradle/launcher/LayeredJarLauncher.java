@@ -0,0 +1,173 @@
+/*
+ * Copyright 2003-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.micronaut.gradle.launcher;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.lang.reflect.Method;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.stream.Stream;
+
+/**
+ * The entry point of layered jars. A layered jar contains the layers of the
+ * application (libraries, resources, classes and the application jar) and
+ * an index of the layers, and supports 3 modes, selected with the
+ * {@code micronaut.jarmode} system property:
+ *
+ * <ul>
+ *     <li>{@code list}: lists the layers, in the order they should be added to an image</li>
+ *     <li>{@code extract}: extracts each layer into its own directory, in the directory
+ *     passed as argument (or the current directory)</li>
+ *     <li>when not set, the application is extracted to a cache directory, then started</li>
+ * </ul>
+ *
+ * This class is executed in the application JVM: it must only depend on the
+ * JDK, and must not have inner classes, because it is copied as a single class
+ * file to the layered jar.
+ */
+public final class LayeredJarLauncher {
+    public static final String JAR_MODE_PROPERTY = "micronaut.jarmode";
+    public static final String CACHE_DIRECTORY_PROPERTY = "micronaut.layered.cache";
+    public static final String MAIN_CLASS_ATTRIBUTE = "Micronaut-Main-Class";
+    public static final String LAYERS_PREFIX = "layers/";
+    public static final String LAYERS_INDEX = "META-INF/micronaut/layers.idx";
+    public static final String CLASSPATH_INDEX = "META-INF/micronaut/classpath.idx";
+
+    private static final String EXTRACTED_MARKER = ".extracted";
+
+    private LayeredJarLauncher() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        File jar = new File(LayeredJarLauncher.class.getProtectionDomain().getCodeSource().getLocation().toURI());
+        String mode = System.getProperty(JAR_MODE_PROPERTY, "run");
+        try (JarFile jarFile = new JarFile(jar)) {
+            switch (mode) {
+                case "list":
+                    for (String layer : readIndex(jarFile, LAYERS_INDEX)) {
+                        System.out.println(layer);
+                    }
+                    break;
+                case "extract":
+                    File destination = new File(args.length > 0 ? args[0] : ".");
+                    extract(jarFile, destination, true);
+                    break;
+                case "run":
+                    run(jar, jarFile, args);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unsupported jar mode '" + mode + "'. Supported modes are 'list' and 'extract'");
+            }
+        }
+    }
+
+    private static void run(File jar, JarFile jarFile, String[] args) throws Exception {
+        String mainClass = jarFile.getManifest().getMainAttributes().getValue(MAIN_CLASS_ATTRIBUTE);
+        File cacheRoot = new File(System.getProperty(CACHE_DIRECTORY_PROPERTY, new File(System.getProperty("java.io.tmpdir"), "micronaut-layered").getPath()));
+        File applicationDir = new File(cacheRoot, jar.getName() + "-" + jar.length() + "-" + jar.lastModified());
+        if (!new File(applicationDir, EXTRACTED_MARKER).exists()) {
+            // extract to a temporary directory first, so that concurrent
+            // launches never see a partially extracted application
+            Files.createDirectories(cacheRoot.toPath());
+            Path tmp = Files.createTempDirectory(cacheRoot.toPath(), jar.getName());
+            extract(jarFile, tmp.toFile(), false);
+            Files.createFile(tmp.resolve(EXTRACTED_MARKER));
+            try {
+                Files.move(tmp, applicationDir.toPath(), StandardCopyOption.ATOMIC_MOVE);
+            } catch (IOException e) {
+                if (!new File(applicationDir, EXTRACTED_MARKER).exists()) {
+                    throw e;
+                }
+                delete(tmp);
+            }
+        }
+        List<String> classpath = readIndex(jarFile, CLASSPATH_INDEX);
+        URL[] urls = new URL[classpath.size()];
+        for (int i = 0; i < urls.length; i++) {
+            urls[i] = new File(applicationDir, classpath.get(i)).toURI().toURL();
+        }
+        // The parent is the platform (or extension) classloader, so that
+        // the layered jar itself isn't visible from the application
+        URLClassLoader loader = new URLClassLoader(urls, ClassLoader.getSystemClassLoader().getParent());
+        Thread.currentThread().setContextClassLoader(loader);
+        Method main = loader.loadClass(mainClass).getMethod("main", String[].class);
+        main.invoke(null, (Object) args);
+    }
+
+    private static void extract(JarFile jarFile, File destination, boolean perLayer) throws IOException {
+        Path root = destination.toPath().toAbsolutePath().normalize();
+        Enumeration<JarEntry> entries = jarFile.entries();
+        while (entries.hasMoreElements()) {
+            JarEntry entry = entries.nextElement();
+            String name = entry.getName();
+            if (!name.startsWith(LAYERS_PREFIX) || entry.isDirectory()) {
+                continue;
+            }
+            String path = name.substring(LAYERS_PREFIX.length());
+            if (!perLayer) {
+                // strip the layer name
+                path = path.substring(path.indexOf('/') + 1);
+            }
+            Path target = root.resolve(path).normalize();
+            if (!target.startsWith(root)) {
+                throw new IOException("Entry " + name + " is outside of the destination directory");
+            }
+            Files.createDirectories(target.getParent());
+            try (InputStream in = jarFile.getInputStream(entry)) {
+                Files.copy(in, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+    }
+
+    private static void delete(Path directory) throws IOException {
+        try (Stream<Path> paths = Files.walk(directory)) {
+            for (Object path : paths.sorted(Comparator.reverseOrder()).toArray()) {
+                Files.deleteIfExists((Path) path);
+            }
+        }
+    }
+
+    private static List<String> readIndex(JarFile jarFile, String index) throws IOException {
+        JarEntry entry = jarFile.getJarEntry(index);
+        if (entry == null) {
+            throw new IOException("Missing " + index + ": this is not a layered jar");
+        }
+        List<String> lines = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(jarFile.getInputStream(entry), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (!line.trim().isEmpty()) {
+                    lines.add(line.trim());
+                }
+            }
+        }
+        return lines;
+    }
+}
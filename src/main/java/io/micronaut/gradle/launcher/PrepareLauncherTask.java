@@ -0,0 +1,81 @@
+/*
+ * Copyright 2003-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.micronaut.gradle.launcher;
+
+import org.gradle.api.DefaultTask;
+import org.gradle.api.GradleException;
+import org.gradle.api.file.DirectoryProperty;
+import org.gradle.api.internal.file.FileOperations;
+import org.gradle.api.provider.ListProperty;
+import org.gradle.api.tasks.CacheableTask;
+import org.gradle.api.tasks.Input;
+import org.gradle.api.tasks.OutputDirectory;
+import org.gradle.api.tasks.TaskAction;
+
+import javax.inject.Inject;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * Copies launcher classes, which are shipped with the plugin, to a directory
+ * which can be used as the classpath of the application JVM.
+ *
+ * @since 3.2.0
+ */
+@CacheableTask
+public abstract class PrepareLauncherTask extends DefaultTask {
+
+    /**
+     * The fully qualified names of the classes to copy.
+     * @return the class names
+     */
+    @Input
+    public abstract ListProperty<String> getClassNames();
+
+    @OutputDirectory
+    public abstract DirectoryProperty getOutputDirectory();
+
+    @Inject
+    protected abstract FileOperations getFileOperations();
+
+    /**
+     * A checksum of the launcher classes, so that the output is
+     * updated when the plugin is upgraded.
+     * @return the checksum of the classes
+     */
+    @Input
+    public long getChecksum() {
+        return LauncherClasses.checksum(getClassNames().get());
+    }
+
+    @TaskAction
+    public void copy() {
+        File outputDir = getOutputDirectory().get().getAsFile();
+        getFileOperations().delete(outputDir);
+        for (String className : getClassNames().get()) {
+            File target = new File(outputDir, LauncherClasses.resourceName(className));
+            target.getParentFile().mkdirs();
+            try (InputStream in = LauncherClasses.open(className)) {
+                Files.copy(in, target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            } catch (IOException e) {
+                throw new GradleException("Unable to copy launcher class " + className, e);
+            }
+        }
+    }
+}
@@ -0,0 +1,72 @@
+/*
+ * Copyright 2003-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.micronaut.gradle.launcher;
+
+import org.gradle.api.DefaultTask;
+import org.gradle.api.GradleException;
+import org.gradle.api.file.ConfigurableFileCollection;
+import org.gradle.api.file.RegularFileProperty;
+import org.gradle.api.tasks.Classpath;
+import org.gradle.api.tasks.Input;
+import org.gradle.api.tasks.OutputFile;
+import org.gradle.api.tasks.TaskAction;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Writes the absolute paths of a classpath to a file, one per line, so
+ * that a launcher can read its classpath from a file instead of the
+ * command line, whose length is limited on Windows.
+ *
+ * @since 3.2.0
+ */
+public abstract class WriteClasspathFileTask extends DefaultTask {
+
+    @Classpath
+    public abstract ConfigurableFileCollection getClasspath();
+
+    /**
+     * The paths written to the file. Since they are absolute, the
+     * task output depends on the location of the files, not only on
+     * their contents.
+     * @return the paths of the classpath entries
+     */
+    @Input
+    public List<String> getPaths() {
+        return getClasspath().getFiles()
+                .stream()
+                .map(File::getAbsolutePath)
+                .collect(Collectors.toList());
+    }
+
+    @OutputFile
+    public abstract RegularFileProperty getClasspathFile();
+
+    @TaskAction
+    public void write() {
+        File classpathFile = getClasspathFile().get().getAsFile();
+        try {
+            Files.write(classpathFile.toPath(), getPaths(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new GradleException("Unable to write classpath file " + classpathFile, e);
+        }
+    }
+}
@@ -0,0 +1,186 @@
+/*
+ * Copyright 2003-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.micronaut.gradle.run;
+
+import org.gradle.api.DefaultTask;
+import org.gradle.api.GradleException;
+import org.gradle.api.file.ConfigurableFileCollection;
+import org.gradle.api.file.ProjectLayout;
+import org.gradle.api.file.RegularFileProperty;
+import org.gradle.api.provider.ListProperty;
+import org.gradle.api.provider.MapProperty;
+import org.gradle.api.provider.Property;
+import org.gradle.api.tasks.Classpath;
+import org.gradle.api.tasks.Input;
+import org.gradle.api.tasks.InputFile;
+import org.gradle.api.tasks.Internal;
+import org.gradle.api.tasks.JavaExec;
+import org.gradle.api.tasks.Nested;
+import org.gradle.api.tasks.Optional;
+import org.gradle.api.tasks.PathSensitive;
+import org.gradle.api.tasks.PathSensitivity;
+import org.gradle.jvm.toolchain.JavaLauncher;
+
+import javax.inject.Inject;
+import java.io.File;
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Base class for tasks which start the application in a separate JVM,
+ * or as a native executable, wait until it has started, then do something
+ * with the running process.
+ *
+ * @since 3.2.0
+ */
+public abstract class AbstractApplicationProcessTask extends DefaultTask {
+
+    protected AbstractApplicationProcessTask() {
+        getStartupTimeout().convention(Duration.ofMinutes(1));
+        getStartupMessage().convention(ApplicationProcess.DEFAULT_STARTUP_MESSAGE);
+    }
+
+    /**
+     * The runtime classpath of the application.
+     * @return the classpath
+     */
+    @Classpath
+    public abstract ConfigurableFileCollection getClasspath();
+
+    @Input
+    @Optional
+    public abstract Property<String> getMainClass();
+
+    /**
+     * A native executable of the application. If set, it is started instead
+     * of a JVM, and the JVM arguments, which are typically system properties,
+     * are passed to the executable.
+     * @return the native executable
+     */
+    @InputFile
+    @Optional
+    @PathSensitive(PathSensitivity.NONE)
+    public abstract RegularFileProperty getExecutable();
+
+    @Input
+    public abstract ListProperty<String> getJvmArgs();
+
+    @Input
+    public abstract ListProperty<String> getArgs();
+
+    @Input
+    public abstract MapProperty<String, String> getEnvironment();
+
+    /**
+     * The launcher of the JVM which runs the application. If not set,
+     * the JVM which runs Gradle is used.
+     * @return the java launcher
+     */
+    @Nested
+    @Optional
+    public abstract Property<JavaLauncher> getJavaLauncher();
+
+    /**
+     * The maximum time to wait for the application to start.
+     * @return the startup timeout
+     */
+    @Internal
+    public abstract Property<Duration> getStartupTimeout();
+
+    /**
+     * The message the application logs once it is started.
+     * @return the startup message
+     */
+    @Input
+    public abstract Property<String> getStartupMessage();
+
+    @Inject
+    protected abstract ProjectLayout getLayout();
+
+    /**
+     * Configures this task to start the application like a {@link JavaExec} task,
+     * for example {@code run}, but without its JVM arguments, which are
+     * typically meant for development.
+     * @param javaExec the task to start the application like
+     */
+    public void launchLike(JavaExec javaExec) {
+        getClasspath().from(javaExec.getClasspath());
+        getMainClass().convention(javaExec.getMainClass());
+        getJavaLauncher().convention(javaExec.getJavaLauncher());
+    }
+
+    /**
+     * @return a port which is free on the local machine
+     */
+    protected static int freePort() {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        } catch (IOException e) {
+            throw new GradleException("Unable to find a free port", e);
+        }
+    }
+
+    /**
+     * @return the path to the java executable used to run the application
+     */
+    protected String javaExecutable() {
+        if (getJavaLauncher().isPresent()) {
+            return getJavaLauncher().get().getExecutablePath().getAsFile().getAbsolutePath();
+        }
+        return new File(System.getProperty("java.home"), "bin/java").getAbsolutePath();
+    }
+
+    /**
+     * Starts the application and waits until it has started.
+     * @param additionalJvmArgs JVM arguments specific to the task
+     * @param lineListener a listener called for each line the application outputs
+     * @return the running application
+     */
+    protected ApplicationProcess startApplication(List<String> additionalJvmArgs, Consumer<String> lineListener) {
+        List<String> command = new ArrayList<>();
+        if (getExecutable().isPresent()) {
+            command.add(getExecutable().get().getAsFile().getAbsolutePath());
+            command.addAll(getJvmArgs().get());
+            command.addAll(additionalJvmArgs);
+        } else {
+            command.add(javaExecutable());
+            command.addAll(getJvmArgs().get());
+            command.addAll(additionalJvmArgs);
+            command.add("-cp");
+            command.add(getClasspath().getAsPath());
+            command.add(getMainClass().get());
+        }
+        command.addAll(getArgs().get());
+        getLogger().info("Starting application: {}", command);
+        ApplicationProcess process = ApplicationProcess.start(
+                command,
+                getLayout().getProjectDirectory().getAsFile(),
+                getEnvironment().get(),
+                getStartupMessage().get(),
+                lineListener
+        );
+        if (!process.awaitStartup(getStartupTimeout().get())) {
+            process.stop();
+            throw new GradleException("The application didn't start within " + getStartupTimeout().get().getSeconds() + "s. Last lines of output:\n"
+                    + String.join("\n", process.getLastLines()));
+        }
+        return process;
+    }
+}
@@ -0,0 +1,188 @@
+/*
+ * Copyright 2003-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.micronaut.gradle.run;
+
+import org.gradle.api.GradleException;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.lang.reflect.Field;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * A Micronaut application started in a separate process by a task, for
+ * example to measure or to profile its startup. The output of the
+ * application is read line by line, which makes it possible to wait until
+ * the application has started, before stopping it.
+ *
+ * @since 3.2.0
+ */
+public final class ApplicationProcess implements AutoCloseable {
+    /**
+     * The message logged by Micronaut once the application is started.
+     */
+    public static final String DEFAULT_STARTUP_MESSAGE = "Startup completed";
+
+    private static final int RETAINED_LINES = 50;
+    private static final Duration STOP_TIMEOUT = Duration.ofSeconds(10);
+
+    private final Process process;
+    private final Deque<String> lastLines = new ArrayDeque<>();
+    private final CountDownLatch startup = new CountDownLatch(1);
+    private final Thread reader;
+    private volatile boolean started;
+
+    private ApplicationProcess(Process process, String startupMessage, Consumer<String> lineListener) {
+        this.process = process;
+        this.reader = new Thread(() -> readOutput(startupMessage, lineListener), "micronaut-application-output");
+        this.reader.setDaemon(true);
+        this.reader.start();
+    }
+
+    /**
+     * Starts an application.
+     * @param command the command line, starting with the java executable
+     * @param workingDirectory the working directory of the process
+     * @param environment additional environment variables
+     * @param startupMessage the message which is logged once the application is started
+     * @param lineListener a listener called for each line the application outputs
+     * @return the application process
+     */
+    public static ApplicationProcess start(List<String> command,
+                                           File workingDirectory,
+                                           Map<String, String> environment,
+                                           String startupMessage,
+                                           Consumer<String> lineListener) {
+        ProcessBuilder builder = new ProcessBuilder(command)
+                .directory(workingDirectory)
+                .redirectErrorStream(true);
+        builder.environment().putAll(environment);
+        try {
+            return new ApplicationProcess(builder.start(), startupMessage, lineListener);
+        } catch (IOException e) {
+            throw new GradleException("Unable to start the application: " + String.join(" ", command), e);
+        }
+    }
+
+    private void readOutput(String startupMessage, Consumer<String> lineListener) {
+        try (BufferedReader br = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = br.readLine()) != null) {
+                synchronized (lastLines) {
+                    if (lastLines.size() == RETAINED_LINES) {
+                        lastLines.removeFirst();
+                    }
+                    lastLines.addLast(line);
+                }
+                lineListener.accept(line);
+                if (!started && line.contains(startupMessage)) {
+                    started = true;
+                    startup.countDown();
+                }
+            }
+        } catch (IOException e) {
+            // the stream is closed when the process is destroyed
+        } finally {
+            startup.countDown();
+        }
+    }
+
+    /**
+     * Waits until the application logs its startup message.
+     * @param timeout the maximum time to wait
+     * @return true if the application started, false if it exited or didn't start in time
+     */
+    public boolean awaitStartup(Duration timeout) {
+        try {
+            startup.await(timeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return started;
+    }
+
+    /**
+     * @return the process identifier of the application
+     */
+    public long pid() {
+        try {
+            // Process.pid() is only available on JDK 9+, while the plugin targets Java 8
+            return (Long) Process.class.getMethod("pid").invoke(process);
+        } catch (ReflectiveOperationException e) {
+            try {
+                Field pid = process.getClass().getDeclaredField("pid");
+                pid.setAccessible(true);
+                return pid.getLong(process);
+            } catch (ReflectiveOperationException ex) {
+                throw new GradleException("Unable to determine the process id of the application", ex);
+            }
+        }
+    }
+
+    /**
+     * @return true if the application is still running
+     */
+    public boolean isAlive() {
+        return process.isAlive();
+    }
+
+    /**
+     * @return the last lines the application has written, useful for error messages
+     */
+    public List<String> getLastLines() {
+        synchronized (lastLines) {
+            return new ArrayList<>(lastLines);
+        }
+    }
+
+    /**
+     * Stops the application, gracefully if possible, and waits until
+     * its whole output has been read.
+     * @return the exit code of the application
+     */
+    public int stop() {
+        try {
+            if (process.isAlive()) {
+                process.destroy();
+                if (!process.waitFor(STOP_TIMEOUT.toMillis(), TimeUnit.MILLISECONDS)) {
+                    process.destroyForcibly().waitFor();
+                }
+            }
+            reader.join(STOP_TIMEOUT.toMillis());
+            return process.exitValue();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            process.destroyForcibly();
+            throw new GradleException("Interrupted while stopping the application", e);
+        }
+    }
+
+    @Override
+    public void close() {
+        stop();
+    }
+}
@@ -0,0 +1,44 @@
+/*
+ * Copyright 2003-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.micronaut.gradle.run;
+
+import org.gradle.api.tasks.Internal;
+
+import javax.inject.Inject;
+import java.time.Duration;
+
+public abstract class DefaultLoadTestScenario implements LoadTestScenario {
+
+    private final String name;
+
+    @Inject
+    public DefaultLoadTestScenario(String name) {
+        this.name = name;
+        getMethod().convention("GET");
+        getPath().convention("/");
+        getExpectedStatus().convention(200);
+        getConnections().convention(16);
+        getWarmup().convention(Duration.ofSeconds(5));
+        getDuration().convention(Duration.ofSeconds(30));
+        getMaxErrorRate().convention(0d);
+    }
+
+    @Override
+    @Internal
+    public String getName() {
+        return name;
+    }
+}
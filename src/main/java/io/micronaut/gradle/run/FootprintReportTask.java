@@ -0,0 +1,128 @@
+/*
+ * Copyright 2003-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.micronaut.gradle.run;
+
+import org.gradle.api.DefaultTask;
+import org.gradle.api.GradleException;
+import org.gradle.api.file.ConfigurableFileCollection;
+import org.gradle.api.file.RegularFileProperty;
+import org.gradle.api.provider.Property;
+import org.gradle.api.tasks.Input;
+import org.gradle.api.tasks.InputFiles;
+import org.gradle.api.tasks.OutputFile;
+import org.gradle.api.tasks.PathSensitive;
+import org.gradle.api.tasks.PathSensitivity;
+import org.gradle.api.tasks.TaskAction;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Properties;
+
+/**
+ * Aggregates the memory footprint of the variants of the application
+ * in a comparative report, and suggests a container memory limit for
+ * each variant, from its peak resident set size.
+ *
+ * @since 3.2.0
+ */
+public abstract class FootprintReportTask extends DefaultTask {
+    private static final long MB = 1024 * 1024;
+    private static final String ROW_FORMAT = "%-20s %14s %14s %14s %14s %14s %14s";
+
+    public FootprintReportTask() {
+        getHeadroomPercent().convention(25);
+    }
+
+    @InputFiles
+    @PathSensitive(PathSensitivity.NAME_ONLY)
+    public abstract ConfigurableFileCollection getResults();
+
+    /**
+     * The headroom added to the peak resident set size to compute
+     * the suggested container memory limit. Defaults to 25%.
+     * @return the headroom, in percent
+     */
+    @Input
+    public abstract Property<Integer> getHeadroomPercent();
+
+    @OutputFile
+    public abstract RegularFileProperty getReportFile();
+
+    @TaskAction
+    void writeReport() {
+        List<String> lines = new ArrayList<>();
+        lines.add(String.format(Locale.ROOT, ROW_FORMAT, "Variant", "RSS ready", "RSS loaded", "Heap ready", "Heap loaded", "Metaspace", "Image heap"));
+        List<String> suggestions = new ArrayList<>();
+        for (File file : getResults().getFiles()) {
+            Properties result = load(file);
+            String variant = result.getProperty(MeasureFootprintTask.VARIANT);
+            lines.add(String.format(Locale.ROOT, ROW_FORMAT, variant,
+                    megabytes(result, MeasureFootprintTask.READY + MeasureFootprintTask.RSS),
+                    megabytes(result, MeasureFootprintTask.LOADED + MeasureFootprintTask.RSS),
+                    megabytes(result, MeasureFootprintTask.READY + MeasureFootprintTask.HEAP_AFTER_GC),
+                    megabytes(result, MeasureFootprintTask.LOADED + MeasureFootprintTask.HEAP_AFTER_GC),
+                    megabytes(result, lastSample(result, MeasureFootprintTask.METASPACE)),
+                    megabytes(result, MeasureFootprintTask.IMAGE_HEAP)));
+            long peak = Math.max(value(result, MeasureFootprintTask.READY + MeasureFootprintTask.RSS), value(result, MeasureFootprintTask.LOADED + MeasureFootprintTask.RSS));
+            if (peak > 0) {
+                long limit = (peak * (100 + getHeadroomPercent().get()) / 100 + MB - 1) / MB;
+                suggestions.add("Suggested container memory limit for " + variant + ": " + limit + " MiB");
+            }
+        }
+        lines.add("");
+        lines.add("Sizes are in MiB. Heap is the used heap after a full garbage collection.");
+        lines.addAll(suggestions);
+        File reportFile = getReportFile().get().getAsFile();
+        try {
+            Files.createDirectories(reportFile.getParentFile().toPath());
+            Files.write(reportFile.toPath(), lines, StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new GradleException("Unable to write report " + reportFile, e);
+        }
+        lines.forEach(getLogger()::lifecycle);
+    }
+
+    private static String lastSample(Properties result, String metric) {
+        return result.containsKey(MeasureFootprintTask.LOADED + metric) ? MeasureFootprintTask.LOADED + metric : MeasureFootprintTask.READY + metric;
+    }
+
+    private static long value(Properties result, String key) {
+        String value = result.getProperty(key);
+        return value == null ? -1 : Long.parseLong(value);
+    }
+
+    private static String megabytes(Properties result, String key) {
+        long bytes = value(result, key);
+        return bytes < 0 ? "n/a" : String.format(Locale.ROOT, "%.1f", (double) bytes / MB);
+    }
+
+    private static Properties load(File file) {
+        Properties properties = new Properties();
+        try (InputStream in = new FileInputStream(file)) {
+            properties.load(in);
+        } catch (IOException e) {
+            throw new GradleException("Unable to read " + file, e);
+        }
+        return properties;
+    }
+}
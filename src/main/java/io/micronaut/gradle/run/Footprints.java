@@ -0,0 +1,82 @@
+/*
+ * Copyright 2003-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.micronaut.gradle.run;
+
+import io.micronaut.gradle.MicronautExtension;
+import org.gradle.api.Action;
+import org.gradle.api.Project;
+import org.gradle.api.plugins.JavaBasePlugin;
+import org.gradle.api.tasks.TaskProvider;
+
+import java.time.Duration;
+
+import static io.micronaut.gradle.Strings.capitalize;
+
+/**
+ * Registers the tasks which measure the memory footprint of the variants
+ * of the application, and the report which compares them.
+ *
+ * @since 3.2.0
+ */
+public final class Footprints {
+    public static final String WARMUP_EXTENSION_NAME = "footprintWarmup";
+    public static final String REPORT_TASK_NAME = "footprintReport";
+
+    private Footprints() {
+    }
+
+    /**
+     * Creates the warmup load applied before the second sample, and
+     * registers the report task.
+     * @param project the application project
+     * @param micronautExtension the micronaut extension
+     */
+    public static void configure(Project project, MicronautExtension micronautExtension) {
+        LoadTestScenario warmup = project.getObjects().newInstance(DefaultLoadTestScenario.class, WARMUP_EXTENSION_NAME);
+        warmup.getWarmup().convention(Duration.ZERO);
+        warmup.getDuration().convention(Duration.ofSeconds(10));
+        // the warmup load only exists to reach a steady state, errors don't matter
+        warmup.getMaxErrorRate().convention(1d);
+        micronautExtension.getExtensions().add(LoadTestScenario.class, WARMUP_EXTENSION_NAME, warmup);
+        project.getTasks().register(REPORT_TASK_NAME, FootprintReportTask.class, task -> {
+            task.setGroup(JavaBasePlugin.VERIFICATION_GROUP);
+            task.setDescription("Compares the memory footprint of the variants of the application");
+            task.getReportFile().convention(project.getLayout().getBuildDirectory().file("reports/footprint/footprint.txt"));
+        });
+    }
+
+    /**
+     * Registers the task measuring the footprint of a variant of the application.
+     * @param project the application project
+     * @param variant the name of the variant, for example {@code optimizedJit}
+     * @param configuration configures the application to start
+     * @return the measurement task
+     */
+    public static TaskProvider<MeasureFootprintTask> register(Project project, String variant, Action<? super MeasureFootprintTask> configuration) {
+        TaskProvider<MeasureFootprintTask> measure = project.getTasks().register("measure" + capitalize(variant) + "Footprint", MeasureFootprintTask.class, task -> {
+            MicronautExtension micronautExtension = project.getExtensions().getByType(MicronautExtension.class);
+            task.setGroup(JavaBasePlugin.VERIFICATION_GROUP);
+            task.setDescription("Measures the memory footprint of the " + variant + " application");
+            task.getVariant().convention(variant);
+            task.getWarmupLoad().convention((LoadTestScenario) micronautExtension.getExtensions().getByName(WARMUP_EXTENSION_NAME));
+            task.getResultFile().convention(project.getLayout().getBuildDirectory().file("reports/footprint/" + variant + ".properties"));
+            configuration.execute(task);
+        });
+        project.getTasks().named(REPORT_TASK_NAME, FootprintReportTask.class).configure(report ->
+                report.getResults().from(measure.flatMap(MeasureFootprintTask::getResultFile)));
+        return measure;
+    }
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright 2003-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.micronaut.gradle.run;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Locates and executes the tools of the JDK which runs the application,
+ * like {@code jcmd} or {@code jfr}.
+ */
+final class JdkTools {
+    private static final long COMMAND_TIMEOUT_SECONDS = 60;
+
+    private JdkTools() {
+    }
+
+    /**
+     * Returns a tool of the JDK a java executable belongs to.
+     * @param javaExecutable the java executable
+     * @param name the name of the tool
+     * @return the tool executable, which may not exist if the java executable belongs to a JRE
+     */
+    static File tool(String javaExecutable, String name) {
+        boolean windows = System.getProperty("os.name").toLowerCase(Locale.ROOT).contains("windows");
+        return new File(new File(javaExecutable).getParentFile(), windows ? name + ".exe" : name);
+    }
+
+    /**
+     * Executes a command and returns its output.
+     * @param command the command line
+     * @return the output of the command
+     * @throws IOException if the command cannot be executed, or fails
+     */
+    static String execute(List<String> command) throws IOException {
+        Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (InputStream in = process.getInputStream()) {
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = in.read(buffer)) >= 0) {
+                out.write(buffer, 0, read);
+            }
+        }
+        try {
+            if (!process.waitFor(COMMAND_TIMEOUT_SECONDS, TimeUnit.SECONDS) || process.exitValue() != 0) {
+                process.destroyForcibly();
+                throw new IOException("Command failed: " + String.join(" ", command) + "\n" + out.toString("UTF-8"));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while running " + String.join(" ", command), e);
+        }
+        return out.toString("UTF-8");
+    }
+}
@@ -0,0 +1,310 @@
+/*
+ * Copyright 2003-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.micronaut.gradle.run;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Summarizes the hotspots of a startup recording, from the output of
+ * {@code jfr print}: the packages whose classes take the most time to load,
+ * the most sampled methods, the beans whose instantiation is the most
+ * sampled, and the files and sockets which are read or written.
+ */
+final class JfrStartupSummary {
+    static final List<String> EVENTS = Collections.unmodifiableList(Arrays.asList(
+            "jdk.ClassLoad",
+            "jdk.ExecutionSample",
+            "jdk.FileRead",
+            "jdk.FileWrite",
+            "jdk.SocketRead",
+            "jdk.SocketWrite"
+    ));
+
+    private static final Pattern EVENT_START = Pattern.compile("^(jdk\\.\\w+) \\{$");
+    private static final Pattern FIELD = Pattern.compile("^\\s+(\\w+) = (.*)$");
+    private static final Pattern QUANTITY = Pattern.compile("^([0-9.,]+)\\s*(\\w+)?");
+    private static final String DEFINITION = "Definition";
+
+    private final Map<String, Hotspot> classLoading = new HashMap<>();
+    private final Map<String, Hotspot> methods = new HashMap<>();
+    private final Map<String, Hotspot> beans = new HashMap<>();
+    private final Map<String, Hotspot> io = new HashMap<>();
+    private long classLoads;
+    private long samples;
+
+    private JfrStartupSummary() {
+    }
+
+    static JfrStartupSummary parse(BufferedReader reader) throws IOException {
+        JfrStartupSummary summary = new JfrStartupSummary();
+        String type = null;
+        Map<String, String> fields = new HashMap<>();
+        List<String> frames = new ArrayList<>();
+        boolean inStackTrace = false;
+        String line;
+        while ((line = reader.readLine()) != null) {
+            if (type == null) {
+                Matcher start = EVENT_START.matcher(line);
+                if (start.matches()) {
+                    type = start.group(1);
+                    fields.clear();
+                    frames.clear();
+                }
+            } else if (inStackTrace) {
+                String frame = line.trim();
+                if ("]".equals(frame)) {
+                    inStackTrace = false;
+                } else if (!"...".equals(frame)) {
+                    frames.add(frame);
+                }
+            } else if ("}".equals(line)) {
+                summary.add(type, fields, frames);
+                type = null;
+            } else {
+                Matcher field = FIELD.matcher(line);
+                if (field.matches()) {
+                    if ("stackTrace".equals(field.group(1)) && "[".equals(field.group(2).trim())) {
+                        inStackTrace = true;
+                    } else {
+                        fields.put(field.group(1), field.group(2).trim());
+                    }
+                }
+            }
+        }
+        return summary;
+    }
+
+    private void add(String type, Map<String, String> fields, List<String> frames) {
+        long duration = nanos(fields.get("duration"));
+        switch (type) {
+            case "jdk.ClassLoad":
+                classLoads++;
+                String loadedClass = fields.getOrDefault("loadedClass", "");
+                int space = loadedClass.indexOf(' ');
+                hotspot(classLoading, packageOf(space > 0 ? loadedClass.substring(0, space) : loadedClass)).add(duration, 0);
+                break;
+            case "jdk.ExecutionSample":
+                samples++;
+                if (!frames.isEmpty()) {
+                    hotspot(methods, methodOf(frames.get(0))).add(0, 0);
+                }
+                for (String frame : frames) {
+                    String bean = instantiatedBean(methodOf(frame));
+                    if (bean != null) {
+                        hotspot(beans, bean).add(0, 0);
+                        break;
+                    }
+                }
+                break;
+            case "jdk.FileRead":
+                hotspot(io, "read " + unquote(fields.get("path"))).add(duration, bytes(fields.get("bytesRead")));
+                break;
+            case "jdk.FileWrite":
+                hotspot(io, "write " + unquote(fields.get("path"))).add(duration, bytes(fields.get("bytesWritten")));
+                break;
+            case "jdk.SocketRead":
+                hotspot(io, "read " + unquote(fields.get("host")) + ":" + fields.get("port")).add(duration, bytes(fields.get("bytesRead")));
+                break;
+            case "jdk.SocketWrite":
+                hotspot(io, "write " + unquote(fields.get("host")) + ":" + fields.get("port")).add(duration, bytes(fields.get("bytesWritten")));
+                break;
+            default:
+                break;
+        }
+    }
+
+    /**
+     * Returns the bean built by a method of a bean definition, for example
+     * {@code demo.app.Service} for {@code demo.app.$Service$Definition.build}.
+     */
+    static String instantiatedBean(String method) {
+        int lastDot = method.lastIndexOf('.');
+        if (lastDot < 0) {
+            return null;
+        }
+        String name = method.substring(lastDot + 1);
+        String className = method.substring(0, lastDot);
+        if (!("build".equals(name) || "instantiate".equals(name)) || !className.endsWith(DEFINITION)) {
+            return null;
+        }
+        int classStart = className.lastIndexOf('.') + 1;
+        String simpleName = className.substring(classStart, className.length() - DEFINITION.length());
+        if (simpleName.startsWith("$")) {
+            simpleName = simpleName.substring(1);
+        }
+        if (simpleName.endsWith("$")) {
+            simpleName = simpleName.substring(0, simpleName.length() - 1);
+        }
+        return className.substring(0, classStart) + simpleName;
+    }
+
+    private static String methodOf(String frame) {
+        int paren = frame.indexOf('(');
+        return paren > 0 ? frame.substring(0, paren) : frame;
+    }
+
+    private static String packageOf(String className) {
+        int lastDot = className.lastIndexOf('.');
+        return lastDot > 0 ? className.substring(0, lastDot) : "(default package)";
+    }
+
+    private static String unquote(String value) {
+        if (value == null) {
+            return "?";
+        }
+        return value.startsWith("\"") && value.endsWith("\"") && value.length() > 1 ? value.substring(1, value.length() - 1) : value;
+    }
+
+    static long nanos(String duration) {
+        Matcher matcher = duration == null ? null : QUANTITY.matcher(duration);
+        if (matcher == null || !matcher.find()) {
+            return 0;
+        }
+        double value = Double.parseDouble(matcher.group(1).replace(",", ""));
+        String unit = matcher.group(2) == null ? "ns" : matcher.group(2);
+        switch (unit) {
+            case "s":
+                return (long) (value * 1_000_000_000L);
+            case "ms":
+                return (long) (value * 1_000_000L);
+            case "us":
+                return (long) (value * 1_000L);
+            default:
+                return (long) value;
+        }
+    }
+
+    static long bytes(String size) {
+        Matcher matcher = size == null ? null : QUANTITY.matcher(size);
+        if (matcher == null || !matcher.find()) {
+            return 0;
+        }
+        double value = Double.parseDouble(matcher.group(1).replace(",", ""));
+        String unit = matcher.group(2) == null ? "bytes" : matcher.group(2);
+        switch (unit) {
+            case "kB":
+                return (long) (value * 1024);
+            case "MB":
+                return (long) (value * 1024 * 1024);
+            case "GB":
+                return (long) (value * 1024 * 1024 * 1024);
+            default:
+                return (long) value;
+        }
+    }
+
+    private static Hotspot hotspot(Map<String, Hotspot> hotspots, String name) {
+        return hotspots.computeIfAbsent(name, Hotspot::new);
+    }
+
+    private static List<Hotspot> top(Map<String, Hotspot> hotspots, int count, boolean byDuration) {
+        return hotspots.values().stream()
+                .sorted((a, b) -> byDuration ? Long.compare(b.nanos, a.nanos) : Long.compare(b.count, a.count))
+                .limit(count)
+                .collect(Collectors.toList());
+    }
+
+    List<String> toText(int count) {
+        List<String> lines = new ArrayList<>();
+        lines.add("Classes loaded: " + classLoads + ", execution samples: " + samples);
+        lines.add("");
+        lines.add("Class loading, by package (time, classes)");
+        top(classLoading, count, true).forEach(h -> lines.add(String.format(Locale.ROOT, "  %10s %8d  %s", millis(h.nanos), h.count, h.name)));
+        lines.add("");
+        lines.add("Most sampled methods (samples)");
+        top(methods, count, false).forEach(h -> lines.add(String.format(Locale.ROOT, "  %8d  %s", h.count, h.name)));
+        lines.add("");
+        lines.add("Bean instantiation, by bean (samples)");
+        top(beans, count, false).forEach(h -> lines.add(String.format(Locale.ROOT, "  %8d  %s", h.count, h.name)));
+        lines.add("");
+        lines.add("I/O (time, operations, bytes)");
+        top(io, count, true).forEach(h -> lines.add(String.format(Locale.ROOT, "  %10s %8d %10d  %s", millis(h.nanos), h.count, h.bytes, h.name)));
+        return lines;
+    }
+
+    String toHtml(int count) {
+        StringBuilder html = new StringBuilder();
+        html.append("<!DOCTYPE html>\n<html>\n<head>\n<meta charset=\"UTF-8\">\n<title>Startup profile</title>\n")
+                .append("<style>body{font-family:sans-serif}table{border-collapse:collapse;margin-bottom:2em}")
+                .append("td,th{border:1px solid #ccc;padding:2px 8px;text-align:left}td.n{text-align:right}</style>\n")
+                .append("</head>\n<body>\n<h1>Startup profile</h1>\n")
+                .append("<p>Classes loaded: ").append(classLoads).append(", execution samples: ").append(samples).append("</p>\n");
+        table(html, "Class loading, by package", new String[]{"Time", "Classes", "Package"},
+                top(classLoading, count, true), h -> new String[]{millis(h.nanos), String.valueOf(h.count), h.name});
+        table(html, "Most sampled methods", new String[]{"Samples", "Method"},
+                top(methods, count, false), h -> new String[]{String.valueOf(h.count), h.name});
+        table(html, "Bean instantiation, by bean", new String[]{"Samples", "Bean"},
+                top(beans, count, false), h -> new String[]{String.valueOf(h.count), h.name});
+        table(html, "I/O", new String[]{"Time", "Operations", "Bytes", "Target"},
+                top(io, count, true), h -> new String[]{millis(h.nanos), String.valueOf(h.count), String.valueOf(h.bytes), h.name});
+        html.append("</body>\n</html>\n");
+        return html.toString();
+    }
+
+    private static void table(StringBuilder html, String title, String[] headers, List<Hotspot> rows, Function<Hotspot, String[]> cells) {
+        html.append("<h2>").append(escape(title)).append("</h2>\n<table>\n<tr>");
+        for (String header : headers) {
+            html.append("<th>").append(escape(header)).append("</th>");
+        }
+        html.append("</tr>\n");
+        for (Hotspot row : rows) {
+            html.append("<tr>");
+            String[] values = cells.apply(row);
+            for (int i = 0; i < values.length; i++) {
+                html.append(i < values.length - 1 ? "<td class=\"n\">" : "<td>").append(escape(values[i])).append("</td>");
+            }
+            html.append("</tr>\n");
+        }
+        html.append("</table>\n");
+    }
+
+    private static String escape(String text) {
+        return text.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;").replace("\"", "&quot;");
+    }
+
+    private static String millis(long nanos) {
+        return String.format(Locale.ROOT, "%.2f ms", nanos / 1_000_000d);
+    }
+
+    private static final class Hotspot {
+        private final String name;
+        private long count;
+        private long nanos;
+        private long bytes;
+
+        private Hotspot(String name) {
+            this.name = name;
+        }
+
+        void add(long nanos, long bytes) {
+            this.count++;
+            this.nanos += nanos;
+            this.bytes += bytes;
+        }
+    }
+}
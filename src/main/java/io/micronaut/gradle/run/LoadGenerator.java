@@ -0,0 +1,624 @@
+/*
+ * Copyright 2003-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.micronaut.gradle.run;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A non-blocking HTTP/1.1 load generator. A single thread drives a fixed
+ * number of keep-alive connections with a selector. The latency of each
+ * request completed during the measurement window is recorded, so that
+ * exact percentiles can be computed.
+ *
+ * With a fixed rate, requests are due at regular intervals, and their
+ * latency is measured from the time they were due, whether or not a
+ * connection was available to send them then, so that a stalled server
+ * isn't hidden by the load generator waiting for it (the coordinated
+ * omission problem). Without a rate, each connection sends a new request
+ * as soon as it received the response to the previous one: the latencies
+ * then only include the time spent by the server on the requests which
+ * were sent, and underestimate the tail percentiles.
+ */
+final class LoadGenerator {
+    private static final long RECONNECT_DELAY_NANOS = TimeUnit.MILLISECONDS.toNanos(50);
+    private static final long SELECT_TIMEOUT_MILLIS = 10;
+
+    private final InetSocketAddress address;
+    private final byte[] request;
+    private final int expectedStatus;
+
+    LoadGenerator(InetSocketAddress address, byte[] request, int expectedStatus) {
+        this.address = address;
+        this.request = request;
+        this.expectedStatus = expectedStatus;
+    }
+
+    static byte[] encodeRequest(String method, String path, String host, Map<String, String> headers, String body) {
+        byte[] content = body == null ? new byte[0] : body.getBytes(StandardCharsets.UTF_8);
+        StringBuilder sb = new StringBuilder();
+        sb.append(method).append(' ').append(path).append(" HTTP/1.1\r\n");
+        sb.append("Host: ").append(host).append("\r\n");
+        headers.forEach((name, value) -> sb.append(name).append(": ").append(value).append("\r\n"));
+        if (body != null || !"GET".equals(method) && !"HEAD".equals(method)) {
+            sb.append("Content-Length: ").append(content.length).append("\r\n");
+        }
+        sb.append("\r\n");
+        byte[] head = sb.toString().getBytes(StandardCharsets.ISO_8859_1);
+        byte[] bytes = Arrays.copyOf(head, head.length + content.length);
+        System.arraycopy(content, 0, bytes, head.length, content.length);
+        return bytes;
+    }
+
+    /**
+     * Sends requests until the end of the measurement window.
+     * @param connections the number of connections
+     * @param rate the number of requests per second, or 0 to send each request
+     * as soon as a connection is available
+     * @param warmup the time during which requests are sent but not measured
+     * @param duration the time during which requests are measured
+     * @return the result of the measurement
+     * @throws IOException if the selector cannot be opened
+     */
+    Result run(int connections, double rate, Duration warmup, Duration duration) throws IOException {
+        long start = System.nanoTime();
+        long measureStart = start + warmup.toNanos();
+        long end = measureStart + duration.toNanos();
+        Recorder recorder = new Recorder(measureStart, end);
+        Schedule schedule = rate > 0 ? new Schedule(start, rate) : null;
+        List<Connection> all = new ArrayList<>(connections);
+        try (Selector selector = Selector.open()) {
+            List<Connection> disconnected = new ArrayList<>();
+            Deque<Connection> idle = new ArrayDeque<>();
+            for (int i = 0; i < connections; i++) {
+                Connection connection = new Connection();
+                all.add(connection);
+                disconnected.add(connection);
+            }
+            long now = System.nanoTime();
+            while (now < end) {
+                Iterator<Connection> it = disconnected.iterator();
+                List<Connection> connected = new ArrayList<>();
+                while (it.hasNext()) {
+                    Connection connection = it.next();
+                    if (now >= connection.reconnectAt) {
+                        it.remove();
+                        try {
+                            if (connection.connect(selector)) {
+                                connected.add(connection);
+                            }
+                        } catch (IOException e) {
+                            recorder.error(now);
+                            connection.abort();
+                            connection.retryLater(disconnected, now + RECONNECT_DELAY_NANOS);
+                        }
+                    }
+                }
+                for (Connection connection : connected) {
+                    ready(connection, schedule, idle, now);
+                }
+                if (schedule != null) {
+                    while (!idle.isEmpty() && schedule.next <= now) {
+                        idle.poll().send(schedule.take());
+                    }
+                }
+                selector.select(selectTimeout(schedule, idle, now));
+                now = System.nanoTime();
+                for (SelectionKey key : selector.selectedKeys()) {
+                    Connection connection = (Connection) key.attachment();
+                    try {
+                        switch (connection.handle(key, recorder, now)) {
+                            case READY:
+                                ready(connection, schedule, idle, now);
+                                break;
+                            case CLOSED:
+                                // the server closed the connection after the response
+                                connection.retryLater(disconnected, now);
+                                break;
+                            default:
+                                break;
+                        }
+                    } catch (IOException e) {
+                        if (connection.canResend()) {
+                            // the server closed a keep-alive connection before reading the request,
+                            // which is sent again on a new connection
+                            connection.retryLater(disconnected, now);
+                        } else {
+                            recorder.error(now);
+                            connection.abort();
+                            connection.retryLater(disconnected, now + RECONNECT_DELAY_NANOS);
+                        }
+                    }
+                }
+                selector.selectedKeys().clear();
+            }
+            if (schedule != null) {
+                // the requests which are still in flight, or which were due but not sent because
+                // all the connections were busy, took at least until the end of the measurement
+                for (Connection connection : all) {
+                    if (connection.inFlight) {
+                        recorder.unfinished(connection.requestStart, end);
+                    }
+                }
+                while (schedule.next < end) {
+                    recorder.unfinished(schedule.take(), end);
+                }
+            }
+            for (SelectionKey key : selector.keys()) {
+                key.channel().close();
+            }
+        }
+        return recorder.toResult(duration.toNanos());
+    }
+
+    private static void ready(Connection connection, Schedule schedule, Deque<Connection> idle, long now) {
+        if (connection.inFlight) {
+            connection.resend();
+        } else if (schedule == null) {
+            connection.send(now);
+        } else {
+            connection.pause();
+            idle.add(connection);
+        }
+    }
+
+    private static long selectTimeout(Schedule schedule, Deque<Connection> idle, long now) {
+        if (schedule == null || idle.isEmpty()) {
+            return SELECT_TIMEOUT_MILLIS;
+        }
+        long untilNext = TimeUnit.NANOSECONDS.toMillis(schedule.next - now);
+        return Math.max(1, Math.min(SELECT_TIMEOUT_MILLIS, untilNext));
+    }
+
+    /**
+     * The times at which requests are due, at a fixed rate.
+     */
+    private static final class Schedule {
+        private final double intervalNanos;
+        private final long start;
+        private long count;
+        private long next;
+
+        private Schedule(long start, double rate) {
+            this.start = start;
+            this.intervalNanos = 1_000_000_000d / rate;
+            this.next = start;
+        }
+
+        long take() {
+            long due = next;
+            count++;
+            next = start + (long) (count * intervalNanos);
+            return due;
+        }
+    }
+
+    private enum Outcome {
+        BUSY,
+        READY,
+        CLOSED
+    }
+
+    private final class Connection {
+        private final ResponseParser parser = new ResponseParser();
+        private final ByteBuffer readBuffer = ByteBuffer.allocate(16 * 1024);
+        private SocketChannel channel;
+        private SelectionKey key;
+        private ByteBuffer out;
+        private long requestStart;
+        private boolean inFlight;
+        private boolean reused;
+        private long reconnectAt;
+
+        /**
+         * Opens the connection.
+         * @return true if the connection is established, false if it's pending
+         */
+        boolean connect(Selector selector) throws IOException {
+            channel = SocketChannel.open();
+            channel.configureBlocking(false);
+            channel.socket().setTcpNoDelay(true);
+            if (channel.connect(address)) {
+                key = channel.register(selector, 0, this);
+                return true;
+            }
+            key = channel.register(selector, SelectionKey.OP_CONNECT, this);
+            return false;
+        }
+
+        void retryLater(List<Connection> disconnected, long at) {
+            close();
+            reconnectAt = at;
+            disconnected.add(this);
+        }
+
+        /**
+         * Tells if the request in flight can be sent again on a new connection:
+         * this is the case when a reused connection is closed before any part
+         * of the response is received.
+         */
+        boolean canResend() {
+            return inFlight && reused && parser.isEmpty();
+        }
+
+        /**
+         * Gives up the request in flight.
+         */
+        void abort() {
+            inFlight = false;
+        }
+
+        /**
+         * Handles a selected key.
+         * @return whether the connection waits for the server, is ready to send a request,
+         * or must be opened again
+         */
+        Outcome handle(SelectionKey key, Recorder recorder, long now) throws IOException {
+            if (key.isConnectable()) {
+                channel.finishConnect();
+                return Outcome.READY;
+            } else if (key.isWritable()) {
+                channel.write(out);
+                if (!out.hasRemaining()) {
+                    key.interestOps(SelectionKey.OP_READ);
+                }
+            } else if (key.isReadable()) {
+                readBuffer.clear();
+                if (channel.read(readBuffer) < 0) {
+                    throw new IOException("Connection closed by the server");
+                }
+                readBuffer.flip();
+                parser.append(readBuffer);
+                if (parser.isComplete()) {
+                    recorder.record(requestStart, now, parser.status == expectedStatus);
+                    inFlight = false;
+                    reused = true;
+                    return parser.close ? Outcome.CLOSED : Outcome.READY;
+                }
+            }
+            return Outcome.BUSY;
+        }
+
+        /**
+         * Sends a new request.
+         * @param start the time at which the request is due
+         */
+        void send(long start) {
+            requestStart = start;
+            inFlight = true;
+            resend();
+        }
+
+        /**
+         * Sends the request in flight, keeping the time at which it was due.
+         */
+        void resend() {
+            parser.reset();
+            out = ByteBuffer.wrap(request);
+            key.interestOps(SelectionKey.OP_WRITE);
+        }
+
+        void pause() {
+            key.interestOps(0);
+        }
+
+        private void close() {
+            reused = false;
+            if (channel != null) {
+                try {
+                    channel.close();
+                } catch (IOException e) {
+                    // ignore
+                }
+                channel = null;
+                key = null;
+            }
+        }
+    }
+
+    /**
+     * An incremental parser of HTTP/1.1 responses, which supports
+     * bodies delimited by a content length or chunked.
+     */
+    static final class ResponseParser {
+        private byte[] buffer = new byte[8 * 1024];
+        private int length;
+        private int headersEnd;
+        private int chunkStart;
+        private long contentLength;
+        private boolean chunked;
+        int status;
+        boolean close;
+
+        ResponseParser() {
+            reset();
+        }
+
+        boolean isEmpty() {
+            return length == 0;
+        }
+
+        void reset() {
+            length = 0;
+            headersEnd = -1;
+            contentLength = -1;
+            chunked = false;
+            status = 0;
+            close = false;
+        }
+
+        void append(ByteBuffer bytes) {
+            int count = bytes.remaining();
+            if (length + count > buffer.length) {
+                buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, length + count));
+            }
+            bytes.get(buffer, length, count);
+            length += count;
+        }
+
+        boolean isComplete() throws IOException {
+            if (headersEnd < 0) {
+                int end = indexOfCrlf(0, true);
+                if (end < 0) {
+                    return false;
+                }
+                parseHeaders(new String(buffer, 0, end, StandardCharsets.ISO_8859_1));
+                headersEnd = end + 4;
+                chunkStart = headersEnd;
+            }
+            if (chunked) {
+                return isChunkedBodyComplete();
+            }
+            if (contentLength >= 0) {
+                return length - headersEnd >= contentLength;
+            }
+            // a body which is only delimited by the end of the connection isn't read
+            close = true;
+            return true;
+        }
+
+        private boolean isChunkedBodyComplete() throws IOException {
+            while (true) {
+                int lineEnd = indexOfCrlf(chunkStart, false);
+                if (lineEnd < 0) {
+                    return false;
+                }
+                String sizeLine = new String(buffer, chunkStart, lineEnd - chunkStart, StandardCharsets.ISO_8859_1);
+                int extension = sizeLine.indexOf(';');
+                long size;
+                try {
+                    size = Long.parseLong((extension >= 0 ? sizeLine.substring(0, extension) : sizeLine).trim(), 16);
+                } catch (NumberFormatException e) {
+                    throw new IOException("Invalid chunk size: " + sizeLine);
+                }
+                if (size == 0) {
+                    // the last chunk is followed by optional trailers, then an empty line
+                    int lineStart = lineEnd + 2;
+                    while (true) {
+                        int trailerEnd = indexOfCrlf(lineStart, false);
+                        if (trailerEnd < 0) {
+                            return false;
+                        }
+                        if (trailerEnd == lineStart) {
+                            return true;
+                        }
+                        lineStart = trailerEnd + 2;
+                    }
+                }
+                long next = lineEnd + 2 + size + 2;
+                if (length < next) {
+                    return false;
+                }
+                chunkStart = (int) next;
+            }
+        }
+
+        private void parseHeaders(String headers) throws IOException {
+            String[] lines = headers.split("\r\n");
+            String[] statusLine = lines[0].split(" ", 3);
+            if (statusLine.length < 2 || !statusLine[0].startsWith("HTTP/")) {
+                throw new IOException("Invalid status line: " + lines[0]);
+            }
+            try {
+                status = Integer.parseInt(statusLine[1]);
+            } catch (NumberFormatException e) {
+                throw new IOException("Invalid status line: " + lines[0]);
+            }
+            close = "HTTP/1.0".equals(statusLine[0]);
+            for (int i = 1; i < lines.length; i++) {
+                String line = lines[i];
+                int colon = line.indexOf(':');
+                if (colon <= 0) {
+                    continue;
+                }
+                String name = line.substring(0, colon).trim().toLowerCase(Locale.ROOT);
+                String value = line.substring(colon + 1).trim().toLowerCase(Locale.ROOT);
+                switch (name) {
+                    case "content-length":
+                        contentLength = Long.parseLong(value);
+                        break;
+                    case "transfer-encoding":
+                        chunked = value.contains("chunked");
+                        break;
+                    case "connection":
+                        close = value.contains("close");
+                        break;
+                    default:
+                        break;
+                }
+            }
+            if (status == 204 || status == 304 || status < 200) {
+                contentLength = 0;
+            }
+        }
+
+        private int indexOfCrlf(int from, boolean twice) {
+            int needed = twice ? 4 : 2;
+            for (int i = from; i + needed <= length; i++) {
+                if (buffer[i] == '\r' && buffer[i + 1] == '\n'
+                        && (!twice || buffer[i + 2] == '\r' && buffer[i + 3] == '\n')) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+    }
+
+    private static final class Recorder {
+        private final long measureStart;
+        private final long measureEnd;
+        private long[] latencies = new long[64 * 1024];
+        private int count;
+        private long responses;
+        private long errors;
+        private long failures;
+
+        private Recorder(long measureStart, long measureEnd) {
+            this.measureStart = measureStart;
+            this.measureEnd = measureEnd;
+        }
+
+        /**
+         * Records a response. The throughput counts the responses received
+         * during the measurement, and the latencies are the ones of the
+         * requests due during the measurement.
+         */
+        void record(long start, long end, boolean success) {
+            if (end >= measureStart && end <= measureEnd) {
+                responses++;
+            }
+            if (start < measureStart || end > measureEnd) {
+                return;
+            }
+            if (!success) {
+                errors++;
+            }
+            addLatency(start, end);
+        }
+
+        /**
+         * Records the latency of a request which had no response at the
+         * end of the measurement, which isn't a response for the throughput.
+         */
+        void unfinished(long start, long end) {
+            if (start >= measureStart && end <= measureEnd) {
+                addLatency(start, end);
+            }
+        }
+
+        private void addLatency(long start, long end) {
+            if (count == latencies.length) {
+                latencies = Arrays.copyOf(latencies, count * 2);
+            }
+            latencies[count++] = end - start;
+        }
+
+        /**
+         * Records a request which failed without a response.
+         */
+        void error(long now) {
+            if (now >= measureStart && now <= measureEnd) {
+                errors++;
+                failures++;
+            }
+        }
+
+        Result toResult(long durationNanos) {
+            long[] sorted = Arrays.copyOf(latencies, count);
+            Arrays.sort(sorted);
+            return new Result(sorted, responses, errors, failures, durationNanos);
+        }
+    }
+
+    static final class Result {
+        private final long[] sortedLatencies;
+        private final long responses;
+        private final long errors;
+        private final long failures;
+        private final long durationNanos;
+
+        Result(long[] sortedLatencies, long responses, long errors, long failures, long durationNanos) {
+            this.sortedLatencies = sortedLatencies;
+            this.responses = responses;
+            this.errors = errors;
+            this.failures = failures;
+            this.durationNanos = durationNanos;
+        }
+
+        /**
+         * @return the number of requests, including the ones which failed without a response,
+         * and the ones without a response at the end of the measurement
+         */
+        long getRequests() {
+            return sortedLatencies.length + failures;
+        }
+
+        /**
+         * @return the number of responses received during the measurement, whenever their request was due
+         */
+        long getResponses() {
+            return responses;
+        }
+
+        long getErrors() {
+            return errors;
+        }
+
+        double getErrorRate() {
+            long total = getRequests();
+            return total == 0 ? 1d : (double) errors / total;
+        }
+
+        /**
+         * @return the number of responses per second
+         */
+        double getThroughput() {
+            return responses / (durationNanos / 1_000_000_000d);
+        }
+
+        /**
+         * Returns a latency percentile, in nanoseconds.
+         * @param percentile the percentile, between 0 and 100
+         * @return the latency
+         */
+        long percentile(double percentile) {
+            if (sortedLatencies.length == 0) {
+                return 0;
+            }
+            int index = (int) Math.ceil(percentile / 100 * sortedLatencies.length) - 1;
+            return sortedLatencies[Math.max(0, Math.min(index, sortedLatencies.length - 1))];
+        }
+
+        long max() {
+            return sortedLatencies.length == 0 ? 0 : sortedLatencies[sortedLatencies.length - 1];
+        }
+    }
+}
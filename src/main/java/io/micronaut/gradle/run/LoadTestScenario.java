@@ -0,0 +1,127 @@
+/*
+ * Copyright 2003-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.micronaut.gradle.run;
+
+import org.gradle.api.Named;
+import org.gradle.api.provider.MapProperty;
+import org.gradle.api.provider.Property;
+import org.gradle.api.tasks.Input;
+import org.gradle.api.tasks.Optional;
+
+import java.time.Duration;
+
+/**
+ * An HTTP load test scenario: a request which is sent repeatedly to the
+ * application, by a number of concurrent connections, for a given duration,
+ * and the service level objectives the results are checked against.
+ *
+ * @since 3.2.0
+ */
+public interface LoadTestScenario extends Named {
+    /**
+     * The HTTP method of the request. Defaults to {@code GET}.
+     * @return the method
+     */
+    @Input
+    Property<String> getMethod();
+
+    /**
+     * The path of the request, including the query string. Defaults to {@code /}.
+     * @return the path
+     */
+    @Input
+    Property<String> getPath();
+
+    @Input
+    MapProperty<String, String> getHeaders();
+
+    @Input
+    @Optional
+    Property<String> getBody();
+
+    /**
+     * The status of a successful response. Other statuses are counted as errors.
+     * Defaults to 200.
+     * @return the expected status
+     */
+    @Input
+    Property<Integer> getExpectedStatus();
+
+    /**
+     * The number of connections. Without a {@link #getRate() rate}, each
+     * connection sends a request as soon as it received the response to
+     * the previous one. Defaults to 16.
+     * @return the number of connections
+     */
+    @Input
+    Property<Integer> getConnections();
+
+    /**
+     * The number of requests sent per second. When set, the latency of
+     * each request is measured from the time it was due, even if all the
+     * connections were busy then. Required by the {@link #getMaxP99() p99}
+     * and {@link #getMaxP999() p99.9} objectives, since without a rate, the
+     * latencies don't include the time requests would have waited while
+     * the server was stalled, and underestimate the tail percentiles.
+     * @return the request rate
+     */
+    @Input
+    @Optional
+    Property<Double> getRate();
+
+    /**
+     * The time during which requests are sent before measuring, so that
+     * the application is warmed up. Defaults to 5 seconds.
+     * @return the warmup duration
+     */
+    @Input
+    Property<Duration> getWarmup();
+
+    /**
+     * The time during which the requests are measured. Defaults to 30 seconds.
+     * @return the measurement duration
+     */
+    @Input
+    Property<Duration> getDuration();
+
+    /**
+     * The minimum number of requests per second.
+     * @return the minimum throughput
+     */
+    @Input
+    @Optional
+    Property<Double> getMinThroughput();
+
+    @Input
+    @Optional
+    Property<Duration> getMaxP50();
+
+    @Input
+    @Optional
+    Property<Duration> getMaxP99();
+
+    @Input
+    @Optional
+    Property<Duration> getMaxP999();
+
+    /**
+     * The maximum ratio of requests which fail, or get an unexpected
+     * status. Defaults to 0.
+     * @return the maximum error rate
+     */
+    @Input
+    Property<Double> getMaxErrorRate();
+}
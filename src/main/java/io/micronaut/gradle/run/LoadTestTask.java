@@ -0,0 +1,166 @@
+/*
+ * Copyright 2003-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.micronaut.gradle.run;
+
+import org.gradle.api.GradleException;
+import org.gradle.api.InvalidUserDataException;
+import org.gradle.api.file.RegularFileProperty;
+import org.gradle.api.provider.ListProperty;
+import org.gradle.api.tasks.Nested;
+import org.gradle.api.tasks.OutputFile;
+import org.gradle.api.tasks.TaskAction;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Starts the application on a free port, then drives the load test
+ * scenarios against it, one after the other, and reports the throughput
+ * and latency percentiles of each scenario. The task fails if a scenario
+ * doesn't meet its service level objectives.
+ *
+ * @since 3.2.0
+ */
+public abstract class LoadTestTask extends AbstractApplicationProcessTask {
+    static final String HOST = "localhost";
+
+    public LoadTestTask() {
+        // the results depend on the machine, so the load test is always executed
+        getOutputs().upToDateWhen(t -> false);
+    }
+
+    @Nested
+    public abstract ListProperty<LoadTestScenario> getScenarios();
+
+    @OutputFile
+    public abstract RegularFileProperty getReportFile();
+
+    @TaskAction
+    public void loadTest() {
+        List<LoadTestScenario> scenarios = getScenarios().get();
+        if (scenarios.isEmpty()) {
+            throw new GradleException("No load test scenario is declared. Declare scenarios in the 'micronaut.loadTests' block.");
+        }
+        for (LoadTestScenario scenario : scenarios) {
+            if (!scenario.getRate().isPresent() && (scenario.getMaxP99().isPresent() || scenario.getMaxP999().isPresent())) {
+                throw new InvalidUserDataException("Load test scenario '" + scenario.getName() + "' checks the p99 or p99.9 latency, which requires a rate: "
+                        + "without a fixed rate of requests, the tail latencies are underestimated.");
+            }
+        }
+        int port = freePort();
+        List<String> report = new ArrayList<>();
+        List<String> violations = new ArrayList<>();
+        try (ApplicationProcess process = startApplication(Collections.singletonList("-Dmicronaut.server.port=" + port), line -> getLogger().debug(line))) {
+            InetSocketAddress address = new InetSocketAddress(HOST, port);
+            for (LoadTestScenario scenario : scenarios) {
+                getLogger().lifecycle("Running load test scenario '{}' for {}s", scenario.getName(), scenario.getDuration().get().getSeconds());
+                LoadGenerator.Result result = run(scenario, address, port);
+                if (!process.isAlive()) {
+                    throw new GradleException("The application stopped during the load test. Last lines of output:\n"
+                            + String.join("\n", process.getLastLines()));
+                }
+                report.addAll(describe(scenario, result));
+                violations.addAll(checkObjectives(scenario, result));
+            }
+        }
+        writeReport(report, violations);
+        if (!violations.isEmpty()) {
+            throw new GradleException("The load test doesn't meet its service level objectives:\n  " + String.join("\n  ", violations)
+                    + "\nSee the report at " + getReportFile().get().getAsFile());
+        }
+    }
+
+    static LoadGenerator.Result run(LoadTestScenario scenario, InetSocketAddress address, int port) {
+        byte[] request = LoadGenerator.encodeRequest(
+                scenario.getMethod().get(),
+                scenario.getPath().get(),
+                HOST + ":" + port,
+                scenario.getHeaders().get(),
+                scenario.getBody().getOrNull()
+        );
+        LoadGenerator generator = new LoadGenerator(address, request, scenario.getExpectedStatus().get());
+        try {
+            return generator.run(scenario.getConnections().get(), scenario.getRate().getOrElse(0d), scenario.getWarmup().get(), scenario.getDuration().get());
+        } catch (IOException e) {
+            throw new GradleException("Load test scenario '" + scenario.getName() + "' failed", e);
+        }
+    }
+
+    private static List<String> describe(LoadTestScenario scenario, LoadGenerator.Result result) {
+        List<String> lines = new ArrayList<>();
+        lines.add("Scenario " + scenario.getName() + ": " + scenario.getMethod().get() + " " + scenario.getPath().get()
+                + ", " + scenario.getConnections().get() + " connections, "
+                + (scenario.getRate().isPresent() ? String.format(Locale.ROOT, "%.1f req/s, ", scenario.getRate().get()) : "")
+                + scenario.getDuration().get().getSeconds() + "s");
+        lines.add("  Requests: " + result.getRequests() + ", responses: " + result.getResponses() + ", errors: " + result.getErrors());
+        lines.add(String.format(Locale.ROOT, "  Throughput: %.1f req/s", result.getThroughput()));
+        lines.add(String.format(Locale.ROOT, "  Latency: p50 %s, p99 %s, p99.9 %s, max %s",
+                millis(result.percentile(50)), millis(result.percentile(99)), millis(result.percentile(99.9)), millis(result.max())));
+        lines.add("");
+        return lines;
+    }
+
+    private static List<String> checkObjectives(LoadTestScenario scenario, LoadGenerator.Result result) {
+        List<String> violations = new ArrayList<>();
+        String name = scenario.getName();
+        if (result.getErrorRate() > scenario.getMaxErrorRate().get()) {
+            violations.add(String.format(Locale.ROOT, "%s: error rate is %.4f, the maximum is %.4f", name, result.getErrorRate(), scenario.getMaxErrorRate().get()));
+        }
+        if (scenario.getMinThroughput().isPresent() && result.getThroughput() < scenario.getMinThroughput().get()) {
+            violations.add(String.format(Locale.ROOT, "%s: throughput is %.1f req/s, the minimum is %.1f req/s", name, result.getThroughput(), scenario.getMinThroughput().get()));
+        }
+        checkLatency(violations, name, "p50", result.percentile(50), scenario.getMaxP50().getOrNull());
+        checkLatency(violations, name, "p99", result.percentile(99), scenario.getMaxP99().getOrNull());
+        checkLatency(violations, name, "p99.9", result.percentile(99.9), scenario.getMaxP999().getOrNull());
+        return violations;
+    }
+
+    private static void checkLatency(List<String> violations, String name, String percentile, long latencyNanos, Duration max) {
+        if (max != null && latencyNanos > max.toNanos()) {
+            violations.add(name + ": " + percentile + " latency is " + millis(latencyNanos) + ", the maximum is " + millis(max.toNanos()));
+        }
+    }
+
+    private static String millis(long nanos) {
+        return String.format(Locale.ROOT, "%.3f ms", nanos / 1_000_000d);
+    }
+
+    private void writeReport(List<String> report, List<String> violations) {
+        List<String> lines = new ArrayList<>(report);
+        if (violations.isEmpty()) {
+            lines.add("All service level objectives are met");
+        } else {
+            lines.add("Service level objectives which are not met:");
+            violations.forEach(v -> lines.add("  " + v));
+        }
+        File reportFile = getReportFile().get().getAsFile();
+        try {
+            Files.createDirectories(reportFile.getParentFile().toPath());
+            Files.write(reportFile.toPath(), lines, StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new GradleException("Unable to write report " + reportFile, e);
+        }
+        report.forEach(getLogger()::lifecycle);
+    }
+}
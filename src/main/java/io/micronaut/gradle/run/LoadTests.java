@@ -0,0 +1,74 @@
+/*
+ * Copyright 2003-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.micronaut.gradle.run;
+
+import io.micronaut.gradle.MicronautExtension;
+import org.gradle.api.Action;
+import org.gradle.api.NamedDomainObjectContainer;
+import org.gradle.api.Project;
+import org.gradle.api.plugins.JavaBasePlugin;
+import org.gradle.api.tasks.TaskProvider;
+
+import java.util.ArrayList;
+
+/**
+ * Registers the load test tasks, which all drive the scenarios declared
+ * in the {@code micronaut.loadTests} container against one artifact of
+ * the application.
+ *
+ * @since 3.2.0
+ */
+public final class LoadTests {
+    public static final String EXTENSION_NAME = "loadTests";
+    public static final String LOAD_TEST_TASK_NAME = "loadTest";
+
+    private LoadTests() {
+    }
+
+    /**
+     * Creates the container of the load test scenarios.
+     * @param project the application project
+     * @param micronautExtension the micronaut extension
+     * @return the scenarios
+     */
+    public static NamedDomainObjectContainer<LoadTestScenario> createScenarios(Project project, MicronautExtension micronautExtension) {
+        NamedDomainObjectContainer<LoadTestScenario> scenarios = project.getObjects().domainObjectContainer(LoadTestScenario.class,
+                name -> project.getObjects().newInstance(DefaultLoadTestScenario.class, name));
+        micronautExtension.getExtensions().add(EXTENSION_NAME, scenarios);
+        return scenarios;
+    }
+
+    /**
+     * Registers a load test task.
+     * @param project the application project
+     * @param name the name of the task
+     * @param description the description of the task
+     * @param configuration configures the application to start
+     * @return the load test task
+     */
+    @SuppressWarnings("unchecked")
+    public static TaskProvider<LoadTestTask> register(Project project, String name, String description, Action<? super LoadTestTask> configuration) {
+        return project.getTasks().register(name, LoadTestTask.class, task -> {
+            MicronautExtension micronautExtension = project.getExtensions().getByType(MicronautExtension.class);
+            NamedDomainObjectContainer<LoadTestScenario> scenarios = (NamedDomainObjectContainer<LoadTestScenario>) micronautExtension.getExtensions().getByName(EXTENSION_NAME);
+            task.setGroup(JavaBasePlugin.VERIFICATION_GROUP);
+            task.setDescription(description);
+            task.getScenarios().set(project.provider(() -> new ArrayList<>(scenarios)));
+            task.getReportFile().convention(project.getLayout().getBuildDirectory().file("reports/loadtest/" + name + ".txt"));
+            configuration.execute(task);
+        });
+    }
+}
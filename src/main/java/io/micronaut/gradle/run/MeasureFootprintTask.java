@@ -0,0 +1,119 @@
+/*
+ * Copyright 2003-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.micronaut.gradle.run;
+
+import org.gradle.api.GradleException;
+import org.gradle.api.file.RegularFileProperty;
+import org.gradle.api.provider.Property;
+import org.gradle.api.tasks.Input;
+import org.gradle.api.tasks.Nested;
+import org.gradle.api.tasks.Optional;
+import org.gradle.api.tasks.OutputFile;
+import org.gradle.api.tasks.TaskAction;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.Collections;
+import java.util.Properties;
+
+/**
+ * Starts a variant of the application, and samples its memory once it is
+ * ready, then again after a warmup load: the resident set size, and, for
+ * a JVM, the used heap after a full garbage collection and the used
+ * metaspace. For a native executable, the size of the image heap is
+ * recorded instead. The samples are written to a properties file, which
+ * is aggregated by {@link FootprintReportTask}.
+ *
+ * @since 3.2.0
+ */
+public abstract class MeasureFootprintTask extends AbstractApplicationProcessTask {
+    static final String VARIANT = "variant";
+    static final String READY = "ready";
+    static final String LOADED = "loaded";
+    static final String RSS = ".rss";
+    static final String HEAP_AFTER_GC = ".heapAfterGc";
+    static final String METASPACE = ".metaspace";
+    static final String IMAGE_HEAP = "imageHeap";
+
+    public MeasureFootprintTask() {
+        // the results depend on the machine, so the measurement is always executed
+        getOutputs().upToDateWhen(t -> false);
+    }
+
+    /**
+     * The name of the variant of the application, used in the report.
+     * @return the variant name
+     */
+    @Input
+    public abstract Property<String> getVariant();
+
+    /**
+     * The load applied to the application before the second sample, by
+     * default the {@code footprintWarmup} scenario of the micronaut extension.
+     * If not set, the application is only sampled once it is ready.
+     * @return the warmup load
+     */
+    @Nested
+    @Optional
+    public abstract Property<LoadTestScenario> getWarmupLoad();
+
+    @OutputFile
+    public abstract RegularFileProperty getResultFile();
+
+    @TaskAction
+    public void measure() {
+        Properties result = new Properties();
+        result.put(VARIANT, getVariant().get());
+        int port = freePort();
+        try (ApplicationProcess process = startApplication(Collections.singletonList("-Dmicronaut.server.port=" + port), line -> getLogger().debug(line))) {
+            sample(process, READY, result);
+            if (getWarmupLoad().isPresent()) {
+                LoadTestScenario load = getWarmupLoad().get();
+                getLogger().lifecycle("Applying the warmup load to the {} application for {}s", getVariant().get(), load.getDuration().get().getSeconds());
+                LoadTestTask.run(load, new InetSocketAddress(LoadTestTask.HOST, port), port);
+                sample(process, LOADED, result);
+            }
+            if (!process.isAlive()) {
+                throw new GradleException("The application stopped during the measurement. Last lines of output:\n"
+                        + String.join("\n", process.getLastLines()));
+            }
+        }
+        if (getExecutable().isPresent()) {
+            result.put(IMAGE_HEAP, String.valueOf(ProcessMemory.imageHeapSize(getExecutable().get().getAsFile())));
+        }
+        File resultFile = getResultFile().get().getAsFile();
+        resultFile.getParentFile().mkdirs();
+        try (OutputStream out = new FileOutputStream(resultFile)) {
+            result.store(out, "Memory footprint of the " + getVariant().get() + " application, in bytes");
+        } catch (IOException e) {
+            throw new GradleException("Unable to write " + resultFile, e);
+        }
+    }
+
+    private void sample(ApplicationProcess process, String phase, Properties result) {
+        long pid = process.pid();
+        // the resident set size is sampled first, since forcing a GC may change it
+        result.put(phase + RSS, String.valueOf(ProcessMemory.residentSetSize(pid)));
+        if (!getExecutable().isPresent()) {
+            long[] memory = ProcessMemory.jvmMemoryAfterGc(JdkTools.tool(javaExecutable(), "jcmd"), pid);
+            result.put(phase + HEAP_AFTER_GC, String.valueOf(memory[0]));
+            result.put(phase + METASPACE, String.valueOf(memory[1]));
+        }
+    }
+}
@@ -0,0 +1,177 @@
+/*
+ * Copyright 2003-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.micronaut.gradle.run;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Samples the memory of a running application. Every method returns
+ * -1 when the value cannot be determined on the current platform.
+ */
+final class ProcessMemory {
+    // " garbage-first heap   total 258048K, used 10123K [...]", or one line per generation
+    private static final Pattern HEAP_USED = Pattern.compile("\\btotal \\d+[KMG], used (\\d+)([KMG])");
+    // " ZHeap           used 8M, capacity 32M, max capacity 4096M"
+    private static final Pattern ZHEAP_USED = Pattern.compile("^\\s*ZHeap\\s+used (\\d+)([KMG])");
+    private static final Pattern METASPACE_USED = Pattern.compile("^\\s*Metaspace\\s+used (\\d+)([KMG])");
+    private static final String IMAGE_HEAP_SECTION = ".svm_heap";
+
+    private ProcessMemory() {
+    }
+
+    /**
+     * @return the resident set size of a process, in bytes
+     */
+    static long residentSetSize(long pid) {
+        Path status = Paths.get("/proc", String.valueOf(pid), "status");
+        try {
+            if (Files.exists(status)) {
+                for (String line : Files.readAllLines(status, StandardCharsets.UTF_8)) {
+                    if (line.startsWith("VmRSS:")) {
+                        return parseKilobytes(line.substring("VmRSS:".length()));
+                    }
+                }
+                return -1;
+            }
+            return parseKilobytes(JdkTools.execute(Arrays.asList("ps", "-o", "rss=", "-p", String.valueOf(pid))));
+        } catch (IOException | NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Runs a full garbage collection in a JVM, then reads the heap
+     * and metaspace usage.
+     * @param jcmd the jcmd executable of the JDK running the application
+     * @param pid the process id of the JVM
+     * @return the used heap and the used metaspace, in bytes
+     */
+    static long[] jvmMemoryAfterGc(File jcmd, long pid) {
+        long[] memory = {-1, -1};
+        if (!jcmd.canExecute()) {
+            return memory;
+        }
+        try {
+            JdkTools.execute(Arrays.asList(jcmd.getAbsolutePath(), String.valueOf(pid), "GC.run"));
+            String heapInfo = JdkTools.execute(Arrays.asList(jcmd.getAbsolutePath(), String.valueOf(pid), "GC.heap_info"));
+            return parseHeapInfo(Arrays.asList(heapInfo.split("\\R")));
+        } catch (IOException e) {
+            return memory;
+        }
+    }
+
+    static long[] parseHeapInfo(List<String> lines) {
+        long heap = -1;
+        long metaspace = -1;
+        for (String line : lines) {
+            Matcher matcher = METASPACE_USED.matcher(line);
+            if (matcher.find()) {
+                metaspace = bytes(matcher.group(1), matcher.group(2));
+                // the lines after the metaspace describe its class space
+                break;
+            }
+            matcher = HEAP_USED.matcher(line);
+            if (!matcher.find()) {
+                matcher = ZHEAP_USED.matcher(line);
+                if (!matcher.find()) {
+                    continue;
+                }
+            }
+            heap = Math.max(heap, 0) + bytes(matcher.group(1), matcher.group(2));
+        }
+        return new long[]{heap, metaspace};
+    }
+
+    /**
+     * Returns the size of the image heap of a native executable, which
+     * is stored in a section of the executable. Only ELF executables are
+     * supported.
+     * @param executable the native executable
+     * @return the size of the image heap, in bytes
+     */
+    static long imageHeapSize(File executable) {
+        try (RandomAccessFile file = new RandomAccessFile(executable, "r"); FileChannel channel = file.getChannel()) {
+            ByteBuffer header = ByteBuffer.allocate(64);
+            channel.read(header, 0);
+            header.flip();
+            // ELF magic, 64-bit class
+            if (header.remaining() < 64 || header.getInt(0) != 0x7F454C46 || header.get(4) != 2) {
+                return -1;
+            }
+            header.order(header.get(5) == 1 ? ByteOrder.LITTLE_ENDIAN : ByteOrder.BIG_ENDIAN);
+            long sectionsOffset = header.getLong(0x28);
+            int sectionSize = header.getShort(0x3A) & 0xFFFF;
+            int sectionCount = header.getShort(0x3C) & 0xFFFF;
+            int namesIndex = header.getShort(0x3E) & 0xFFFF;
+            ByteBuffer sections = ByteBuffer.allocate(sectionSize * sectionCount).order(header.order());
+            channel.read(sections, sectionsOffset);
+            long namesOffset = sections.getLong(namesIndex * sectionSize + 0x18);
+            long namesSize = sections.getLong(namesIndex * sectionSize + 0x20);
+            ByteBuffer names = ByteBuffer.allocate((int) namesSize);
+            channel.read(names, namesOffset);
+            for (int i = 0; i < sectionCount; i++) {
+                int name = sections.getInt(i * sectionSize);
+                if (IMAGE_HEAP_SECTION.equals(readName(names, name))) {
+                    return sections.getLong(i * sectionSize + 0x20);
+                }
+            }
+            return -1;
+        } catch (IOException | RuntimeException e) {
+            return -1;
+        }
+    }
+
+    private static String readName(ByteBuffer names, int offset) {
+        int end = offset;
+        while (end < names.capacity() && names.get(end) != 0) {
+            end++;
+        }
+        byte[] bytes = new byte[end - offset];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = names.get(offset + i);
+        }
+        return new String(bytes, StandardCharsets.US_ASCII);
+    }
+
+    private static long parseKilobytes(String value) {
+        return Long.parseLong(value.replace("kB", "").trim()) * 1024;
+    }
+
+    private static long bytes(String value, String unit) {
+        long amount = Long.parseLong(value);
+        switch (unit) {
+            case "G":
+                return amount * 1024 * 1024 * 1024;
+            case "M":
+                return amount * 1024 * 1024;
+            default:
+                return amount * 1024;
+        }
+    }
+}
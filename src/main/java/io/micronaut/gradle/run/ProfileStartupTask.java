@@ -0,0 +1,159 @@
+/*
+ * Copyright 2003-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.micronaut.gradle.run;
+
+import org.gradle.api.GradleException;
+import org.gradle.api.file.DirectoryProperty;
+import org.gradle.api.file.RegularFileProperty;
+import org.gradle.api.provider.Property;
+import org.gradle.api.tasks.Input;
+import org.gradle.api.tasks.InputFile;
+import org.gradle.api.tasks.Optional;
+import org.gradle.api.tasks.OutputDirectory;
+import org.gradle.api.tasks.PathSensitive;
+import org.gradle.api.tasks.PathSensitivity;
+import org.gradle.api.tasks.TaskAction;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Starts the application with a JDK Flight Recorder recording focused on
+ * startup, and stops the recording as soon as the application has started.
+ * The raw recording, {@code startup.jfr}, is summarized in a text and an
+ * HTML report, which list the class loading, bean instantiation and I/O
+ * hotspots. The application must run on JDK 11 or above.
+ *
+ * @since 3.2.0
+ */
+public abstract class ProfileStartupTask extends AbstractApplicationProcessTask {
+    private static final String RECORDING_NAME = "micronaut-startup";
+    private static final String DEFAULT_SETTINGS = "startup.jfc";
+
+    public ProfileStartupTask() {
+        // a profile is only meaningful when it's taken, so the task is always executed
+        getOutputs().upToDateWhen(t -> false);
+        getTopCount().convention(20);
+    }
+
+    /**
+     * The JFR configuration of the recording. If not set, a configuration
+     * focused on startup, which records class loading and I/O events, and
+     * samples execution every 2ms, is used.
+     * @return the JFR configuration file
+     */
+    @InputFile
+    @Optional
+    @PathSensitive(PathSensitivity.NONE)
+    public abstract RegularFileProperty getJfrSettings();
+
+    /**
+     * The number of hotspots listed in each section of the report. Defaults to 20.
+     * @return the number of hotspots
+     */
+    @Input
+    public abstract Property<Integer> getTopCount();
+
+    @OutputDirectory
+    public abstract DirectoryProperty getOutputDirectory();
+
+    @TaskAction
+    public void profile() {
+        File outputDir = getOutputDirectory().get().getAsFile();
+        File recording = new File(outputDir, "startup.jfr");
+        String settings = settingsFile().getAbsolutePath();
+        List<String> jvmArgs = Arrays.asList(
+                "-Dmicronaut.server.port=" + freePort(),
+                "-XX:StartFlightRecording=name=" + RECORDING_NAME
+                        + ",settings=" + settings
+                        + ",dumponexit=true,filename=" + recording.getAbsolutePath());
+        try (ApplicationProcess process = startApplication(jvmArgs, line -> getLogger().debug(line))) {
+            File jcmd = JdkTools.tool(javaExecutable(), "jcmd");
+            try {
+                // stopping the recording right away keeps the shutdown of the application out of it
+                JdkTools.execute(Arrays.asList(jcmd.getAbsolutePath(), String.valueOf(process.pid()), "JFR.stop",
+                        "name=" + RECORDING_NAME, "filename=" + recording.getAbsolutePath()));
+            } catch (IOException e) {
+                getLogger().info("Unable to stop the recording with jcmd, it will be dumped when the application stops", e);
+            }
+        }
+        if (!recording.isFile()) {
+            throw new GradleException("No recording was written to " + recording + ". Startup profiling requires JDK 11 or above.");
+        }
+        getLogger().lifecycle("Startup recording written to {}", recording);
+        summarize(recording, outputDir);
+    }
+
+    private File settingsFile() {
+        if (getJfrSettings().isPresent()) {
+            return getJfrSettings().get().getAsFile();
+        }
+        File settings = new File(getTemporaryDir(), DEFAULT_SETTINGS);
+        try (InputStream in = ProfileStartupTask.class.getResourceAsStream(DEFAULT_SETTINGS)) {
+            Files.copy(in, settings.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            throw new GradleException("Unable to extract the JFR configuration", e);
+        }
+        return settings;
+    }
+
+    private void summarize(File recording, File outputDir) {
+        File jfr = JdkTools.tool(javaExecutable(), "jfr");
+        if (!jfr.canExecute()) {
+            getLogger().warn("The jfr tool wasn't found next to {}, the startup report isn't generated", javaExecutable());
+            return;
+        }
+        List<String> command = Arrays.asList(jfr.getAbsolutePath(), "print",
+                "--events", String.join(",", JfrStartupSummary.EVENTS),
+                "--stack-depth", "64",
+                recording.getAbsolutePath());
+        JfrStartupSummary summary;
+        try {
+            Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+            // the output can be large, so it's parsed while it's read
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+                summary = JfrStartupSummary.parse(reader);
+            }
+            if (process.waitFor() != 0) {
+                throw new GradleException("Unable to read the recording with " + String.join(" ", command));
+            }
+        } catch (IOException e) {
+            throw new GradleException("Unable to read the recording " + recording, e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new GradleException("Interrupted while reading the recording " + recording, e);
+        }
+        List<String> text = summary.toText(getTopCount().get());
+        File textReport = new File(outputDir, "startup.txt");
+        File htmlReport = new File(outputDir, "startup.html");
+        try {
+            Files.write(textReport.toPath(), text, StandardCharsets.UTF_8);
+            Files.write(htmlReport.toPath(), summary.toHtml(getTopCount().get()).getBytes(StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            throw new GradleException("Unable to write the startup report", e);
+        }
+        text.forEach(getLogger()::lifecycle);
+        getLogger().lifecycle("See the report at {}", htmlReport.toURI());
+    }
+}
@@ -0,0 +1,84 @@
+/*
+ * Copyright 2003-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.micronaut.gradle.run;
+
+import org.gradle.api.GradleException;
+import org.gradle.api.file.RegularFileProperty;
+import org.gradle.api.tasks.OutputFile;
+import org.gradle.api.tasks.TaskAction;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Starts the application once, as a training run, and records the
+ * order in which classes are loaded until the application has started.
+ * The output file contains one class file name per line, for example
+ * {@code io/micronaut/runtime/Micronaut.class}, in load order.
+ *
+ * @since 3.2.0
+ */
+public abstract class RecordClassLoadOrderTask extends AbstractApplicationProcessTask {
+    // -verbose:class output on JDK 8: [Loaded java.lang.Object from /path/to/rt.jar]
+    private static final Pattern LEGACY_FORMAT = Pattern.compile("^\\[Loaded (\\S+) from .*");
+    // -verbose:class output on JDK 9+: [0.010s][info][class,load] java.lang.Object source: jrt:/java.base
+    private static final Pattern UNIFIED_LOGGING_FORMAT = Pattern.compile("\\[class,load\\s*]\\s+(\\S+)\\s+source:");
+
+    @OutputFile
+    public abstract RegularFileProperty getOutputFile();
+
+    @TaskAction
+    public void record() {
+        Set<String> classes = Collections.synchronizedSet(new LinkedHashSet<>());
+        ApplicationProcess process = startApplication(Arrays.asList("-Dmicronaut.server.port=" + freePort(), "-verbose:class"), line -> {
+            String className = parseClassName(line);
+            if (className != null) {
+                classes.add(className.replace('.', '/') + ".class");
+            }
+        });
+        process.stop();
+        File outputFile = getOutputFile().get().getAsFile();
+        try {
+            synchronized (classes) {
+                Files.write(outputFile.toPath(), new ArrayList<>(classes), StandardCharsets.UTF_8);
+            }
+        } catch (IOException e) {
+            throw new GradleException("Unable to write class load order file", e);
+        }
+        getLogger().info("Recorded the load order of {} classes", classes.size());
+    }
+
+    static String parseClassName(String line) {
+        Matcher matcher = UNIFIED_LOGGING_FORMAT.matcher(line);
+        if (matcher.find()) {
+            return matcher.group(1);
+        }
+        matcher = LEGACY_FORMAT.matcher(line);
+        if (matcher.find()) {
+            return matcher.group(1);
+        }
+        return null;
+    }
+}
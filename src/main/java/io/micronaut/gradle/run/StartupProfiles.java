@@ -0,0 +1,54 @@
+/*
+ * Copyright 2003-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.micronaut.gradle.run;
+
+import org.gradle.api.Action;
+import org.gradle.api.Project;
+import org.gradle.api.tasks.TaskProvider;
+
+/**
+ * Registers the tasks which profile the startup of the application.
+ *
+ * @since 3.2.0
+ */
+public final class StartupProfiles {
+    public static final String PROFILE_GROUP = "profiling";
+    public static final String PROFILE_STARTUP_TASK_NAME = "profileStartup";
+
+    private StartupProfiles() {
+    }
+
+    /**
+     * Registers a startup profiling task, whose reports are written
+     * to {@code build/reports/profile/<task name>}.
+     * @param project the application project
+     * @param name the name of the task
+     * @param description the description of the task
+     * @param configuration configures the application to start
+     * @return the profiling task
+     */
+    public static TaskProvider<ProfileStartupTask> register(Project project,
+                                                            String name,
+                                                            String description,
+                                                            Action<? super ProfileStartupTask> configuration) {
+        return project.getTasks().register(name, ProfileStartupTask.class, task -> {
+            task.setGroup(PROFILE_GROUP);
+            task.setDescription(description);
+            task.getOutputDirectory().convention(project.getLayout().getBuildDirectory().dir("reports/profile/" + name));
+            configuration.execute(task);
+        });
+    }
+}
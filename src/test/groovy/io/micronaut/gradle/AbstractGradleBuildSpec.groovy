@@ -70,6 +70,14 @@ abstract class AbstractGradleBuildSpec extends Specification {
     }
 
     BuildResult build(String... args) {
+        newRunner(args).build()
+    }
+
+    BuildResult fails(String... args) {
+        newRunner(args).buildAndFail()
+    }
+
+    protected GradleRunner newRunner(String... args) {
         prepareBuild()
         def runner = GradleRunner.create()
         if (Jvm.current.java16Compatible) {
@@ -90,7 +98,6 @@ abstract class AbstractGradleBuildSpec extends Specification {
                 .forwardStdError(System.err.newWriter())
                 .withPluginClasspath()
                 .withDebug(true)
-                .build()
     }
 
     static String normalizeLineEndings(String s) {
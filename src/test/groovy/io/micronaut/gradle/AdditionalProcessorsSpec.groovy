@@ -0,0 +1,53 @@
+package io.micronaut.gradle
+
+import org.gradle.testfixtures.ProjectBuilder
+import spock.lang.Specification
+
+class AdditionalProcessorsSpec extends Specification {
+
+    def "adds the processors of the Micronaut modules which are used"() {
+        def project = ProjectBuilder.builder().build()
+
+        when:
+        project.plugins.apply("io.micronaut.minimal.library")
+        project.dependencies.add("implementation", "io.micronaut.data:micronaut-data-jdbc")
+        def processors = processorsOf(project, "annotationProcessor")
+
+        then:
+        processors.contains("io.micronaut.data:micronaut-data-processor")
+        !processors.contains("io.micronaut.security:micronaut-security-annotations")
+        processorsOf(project, "testAnnotationProcessor").contains("io.micronaut.data:micronaut-data-processor")
+    }
+
+    def "doesn't add a processor which is already declared"() {
+        def project = ProjectBuilder.builder().build()
+
+        when:
+        project.plugins.apply("io.micronaut.minimal.library")
+        project.dependencies.add("compileOnly", "io.micronaut.security:micronaut-security")
+        project.dependencies.add("annotationProcessor", "io.micronaut.security:micronaut-security-annotations:3.2.0")
+
+        then:
+        processorsOf(project, "annotationProcessor").count { it.startsWith("io.micronaut.security:micronaut-security-annotations") } == 1
+    }
+
+    def "processors can be registered for other groups"() {
+        def project = ProjectBuilder.builder().build()
+
+        when:
+        project.plugins.apply("io.micronaut.minimal.library")
+        project.extensions.getByType(MicronautExtension).processing {
+            it.additionalProcessor("com.example", "com.example:example-processor")
+        }
+        project.dependencies.add("implementation", "com.example:example-core")
+
+        then:
+        processorsOf(project, "annotationProcessor").contains("com.example:example-processor")
+    }
+
+    private static List<String> processorsOf(project, String configuration) {
+        project.configurations.getByName(configuration).incoming.dependencies.collect {
+            it.version ? "${it.group}:${it.name}:${it.version}".toString() : "${it.group}:${it.name}".toString()
+        }
+    }
+}
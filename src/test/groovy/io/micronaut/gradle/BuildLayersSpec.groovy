@@ -3,6 +3,10 @@ package io.micronaut.gradle
 
 import org.gradle.testkit.runner.TaskOutcome
 
+import java.nio.file.FileSystems
+import java.nio.file.Files
+import java.util.concurrent.TimeUnit
+
 class BuildLayersSpec extends AbstractGradleBuildSpec {
 
     void 'test build layers with custom build directory'() {
@@ -40,4 +44,262 @@ class BuildLayersSpec extends AbstractGradleBuildSpec {
         new File(testProjectDir.root, "build-custom/docker/main/layers").exists()
         !new File(testProjectDir.root, "build/docker/main/layers").exists()
     }
+
+    void 'test build layers with exploded layout'() {
+        given:
+        settingsFile << "rootProject.name = 'hello-world'"
+        buildFile << """
+            plugins {
+                id "io.micronaut.application"
+            }
+
+            micronaut {
+                version "2.4.2"
+                runtime "netty"
+                dockerImages {
+                    main {
+                        exploded = true
+                    }
+                }
+            }
+
+            $repositoriesBlock
+
+            dependencies {
+                runtimeOnly("ch.qos.logback:logback-classic")
+            }
+            mainClassName="example.Application"
+        """
+        def javaFile = file("src/main/java/example/Application.java")
+        javaFile.parentFile.mkdirs()
+        javaFile << """
+package example;
+
+class Application {
+    public static void main(String... args) {
+
+    }
+}
+"""
+
+        when:
+        def result = build('buildLayers', 'dockerfile')
+
+        then:
+        result.task(":buildLayers").outcome == TaskOutcome.SUCCESS
+        result.task(":runnerJar") == null
+        new File(testProjectDir.root, "build/docker/main/layers/classes/example/Application.class").exists()
+        !new File(testProjectDir.root, "build/docker/main/layers/application.jar").exists()
+
+        def argFile = new File(testProjectDir.root, "build/docker/main/layers/classpath.argfile").text
+        argFile.startsWith('-cp "classes:resources:libs/')
+        argFile.contains('libs/logback-classic-')
+
+        def dockerfile = new File(testProjectDir.root, "build/docker/main/Dockerfile").text
+        dockerfile.contains('COPY layers/classpath.argfile /home/app/classpath.argfile')
+        !dockerfile.contains('application.jar')
+        dockerfile.contains('ENTRYPOINT ["java", "@/home/app/classpath.argfile", "example.Application"]')
+    }
+
+    void 'layers of different images share files from the layer store'() {
+        given:
+        settingsFile << "rootProject.name = 'hello-world'"
+        buildFile << """
+            plugins {
+                id "io.micronaut.application"
+            }
+
+            micronaut {
+                version "2.4.2"
+                runtime "netty"
+                dockerImages {
+                    other {
+                        addLayer {
+                            layerKind = io.micronaut.gradle.docker.model.LayerKind.LIBS
+                            files.from(configurations.runtimeClasspath)
+                        }
+                    }
+                }
+            }
+
+            $repositoriesBlock
+
+            dependencies {
+                runtimeOnly("ch.qos.logback:logback-classic")
+            }
+            mainClassName="example.Application"
+        """
+        def javaFile = file("src/main/java/example/Application.java")
+        javaFile.parentFile.mkdirs()
+        javaFile << """
+package example;
+
+class Application {
+    public static void main(String... args) {
+
+    }
+}
+"""
+
+        when:
+        def result = build('buildLayers', 'otherBuildLayers')
+
+        then:
+        result.task(":buildLayers").outcome == TaskOutcome.SUCCESS
+        result.task(":otherBuildLayers").outcome == TaskOutcome.SUCCESS
+        def mainLib = new File(testProjectDir.root, "build/docker/main/layers/libs").listFiles().find { it.name.startsWith("logback-classic-") }
+        def otherLib = new File(testProjectDir.root, "build/docker/other/layers/libs").listFiles().find { it.name.startsWith("logback-classic-") }
+        mainLib != null
+        otherLib != null
+        mainLib.bytes == otherLib.bytes
+        // links to the same stored file, unless read-only files can be written
+        Files.isSameFile(mainLib.toPath(), otherLib.toPath()) == storeProtectsFiles()
+        storeProtectsFiles() ? !Files.isWritable(mainLib.toPath()) : true
+    }
+
+    void 'a layer file which changes but keeps the same size is copied again'() {
+        given:
+        settingsFile << "rootProject.name = 'hello-world'"
+        buildFile << """
+            plugins {
+                id "io.micronaut.application"
+            }
+
+            micronaut {
+                version "2.4.2"
+                runtime "netty"
+                dockerImages {
+                    main {
+                        addLayer {
+                            layerKind = io.micronaut.gradle.docker.model.LayerKind.EXPANDED_RESOURCES
+                            files.from("data")
+                        }
+                    }
+                }
+            }
+
+            $repositoriesBlock
+
+            mainClassName="example.Application"
+        """
+        def javaFile = file("src/main/java/example/Application.java")
+        javaFile.parentFile.mkdirs()
+        javaFile << """
+package example;
+
+class Application {
+    public static void main(String... args) {
+
+    }
+}
+"""
+        def data = file("data/greeting.txt")
+        data.parentFile.mkdirs()
+        data.text = "Hello"
+        def lastModified = data.lastModified()
+
+        when:
+        build('buildLayers')
+        data.text = "Howdy"
+        data.setLastModified(lastModified)
+        def result = build('buildLayers', '--rerun-tasks')
+
+        then:
+        result.task(":buildLayers").outcome == TaskOutcome.SUCCESS
+        new File(testProjectDir.root, "build/docker/main/layers/resources/greeting.txt").text == "Howdy"
+    }
+
+    void 'unused files are removed from the layer store'() {
+        given:
+        settingsFile << "rootProject.name = 'hello-world'"
+        buildFile << """
+            plugins {
+                id "io.micronaut.application"
+            }
+
+            micronaut {
+                version "2.4.2"
+                runtime "netty"
+            }
+
+            $repositoriesBlock
+
+            mainClassName="example.Application"
+        """
+        def javaFile = file("src/main/java/example/Application.java")
+        javaFile.parentFile.mkdirs()
+        javaFile << """
+package example;
+
+class Application {
+    public static void main(String... args) {
+
+    }
+}
+"""
+        def unused = file("build/docker/.layer-store/00/00unused")
+        unused.parentFile.mkdirs()
+        unused.text = "unused"
+        unused.setLastModified(System.currentTimeMillis() - TimeUnit.DAYS.toMillis(30))
+
+        when:
+        def result = build('buildLayers')
+
+        then:
+        result.task(":buildLayers").outcome == TaskOutcome.SUCCESS
+        !unused.exists()
+        new File(testProjectDir.root, "build/docker/main/layers/application.jar").exists()
+    }
+
+    void 'exploded layout falls back to an explicit classpath when the base image may run Java 8'() {
+        given:
+        settingsFile << "rootProject.name = 'hello-world'"
+        buildFile << """
+            plugins {
+                id "io.micronaut.application"
+            }
+
+            micronaut {
+                version "2.4.2"
+                runtime "netty"
+                dockerImages {
+                    main {
+                        exploded = true
+                    }
+                }
+            }
+
+            $repositoriesBlock
+
+            dockerfile {
+                baseImage("$baseImage")
+            }
+            mainClassName="example.Application"
+        """
+
+        when:
+        build('dockerfile')
+
+        then:
+        def dockerfile = new File(testProjectDir.root, "build/docker/main/Dockerfile").text
+        dockerfile.contains(entryPoint)
+
+        where:
+        baseImage                       | entryPoint
+        "openjdk:8-jre"                 | 'ENTRYPOINT ["java", "-cp", "classes:resources:libs/*", "example.Application"]'
+        "example.com:5000/custom-image" | 'ENTRYPOINT ["java", "-cp", "classes:resources:libs/*", "example.Application"]'
+        "eclipse-temurin:17-jre"        | 'ENTRYPOINT ["java", "@/home/app/classpath.argfile", "example.Application"]'
+    }
+
+    private static boolean storeProtectsFiles() {
+        if (!FileSystems.default.supportedFileAttributeViews().contains("posix")) {
+            return false
+        }
+        def probe = File.createTempFile("probe", ".tmp")
+        try {
+            probe.setReadOnly() && !Files.isWritable(probe.toPath())
+        } finally {
+            probe.delete()
+        }
+    }
 }
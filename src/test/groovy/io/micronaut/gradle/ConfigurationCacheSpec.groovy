@@ -0,0 +1,126 @@
+package io.micronaut.gradle
+
+import org.gradle.testkit.runner.TaskOutcome
+import spock.lang.Requires
+
+@Requires({ jvm.isJava11Compatible() })
+class ConfigurationCacheSpec extends AbstractGradleBuildSpec {
+
+    def "docker tasks are compatible with the configuration cache"() {
+        given:
+        settingsFile << "rootProject.name = 'hello-world'"
+        buildFile << """
+            plugins {
+                id "io.micronaut.application"
+            }
+
+            micronaut {
+                version "3.2.0"
+                runtime "netty"
+            }
+
+            $repositoriesBlock
+
+            application {
+                mainClass.set("example.Application")
+            }
+        """
+        def javaFile = file("src/main/java/example/Application.java")
+        javaFile.parentFile.mkdirs()
+        javaFile << """
+package example;
+
+class Application {
+    public static void main(String... args) {
+
+    }
+}
+"""
+
+        when:
+        def result = build('runnerJar', 'buildLayers', 'dockerfile', 'dockerfileNative', '--configuration-cache')
+
+        then:
+        result.task(":buildLayers").outcome == TaskOutcome.SUCCESS
+        result.output.contains("Configuration cache entry stored")
+
+        when:
+        result = build('runnerJar', 'buildLayers', 'dockerfile', 'dockerfileNative', '--configuration-cache')
+
+        then:
+        result.task(":buildLayers").outcome == TaskOutcome.UP_TO_DATE
+        result.output.contains("Configuration cache entry reused")
+    }
+
+    def "docker and native image tasks can be stored in the configuration cache"() {
+        given:
+        settingsFile << "rootProject.name = 'hello-world'"
+        buildFile << """
+            plugins {
+                id "io.micronaut.application"
+            }
+
+            micronaut {
+                version "3.2.0"
+                runtime "netty"
+            }
+
+            $repositoriesBlock
+
+            application {
+                mainClass.set("example.Application")
+            }
+        """
+
+        when:
+        // no Docker daemon nor GraalVM is required to store the task graph
+        def result = build('dockerBuild', 'dockerPush', 'nativeCompile', '--dry-run', '--configuration-cache')
+
+        then:
+        result.task(":dockerBuild").outcome == TaskOutcome.SKIPPED
+        result.task(":dockerPush").outcome == TaskOutcome.SKIPPED
+        result.task(":nativeCompile").outcome == TaskOutcome.SKIPPED
+        result.output.contains("Configuration cache entry stored")
+
+        when:
+        result = build('dockerBuild', 'dockerPush', 'nativeCompile', '--dry-run', '--configuration-cache')
+
+        then:
+        result.output.contains("Configuration cache entry reused")
+    }
+
+    def "AOT optimized jar is compatible with the configuration cache"() {
+        withSample("aot/basic-app")
+
+        when:
+        def result = build('optimizedJitJar', '--configuration-cache')
+
+        then:
+        result.task(":optimizedJitJar").outcome == TaskOutcome.SUCCESS
+        result.output.contains("Configuration cache entry stored")
+
+        when:
+        result = build('optimizedJitJar', '--configuration-cache')
+
+        then:
+        result.task(":optimizedJitJar").outcome == TaskOutcome.UP_TO_DATE
+        result.output.contains("Configuration cache entry reused")
+    }
+
+    def "AOT optimized run can be stored in the configuration cache"() {
+        withSample("aot/basic-app")
+
+        when:
+        def result = build('optimizedRun', '--dry-run', '--configuration-cache')
+
+        then:
+        result.task(":optimizedRun").outcome == TaskOutcome.SKIPPED
+        result.output.contains("Configuration cache entry stored")
+
+        when:
+        result = build('optimizedRun', '--dry-run', '--configuration-cache')
+
+        then:
+        result.output.contains("Configuration cache entry reused")
+    }
+}
@@ -0,0 +1,116 @@
+package io.micronaut.gradle
+
+import org.gradle.testkit.runner.TaskOutcome
+import spock.lang.Requires
+
+@Requires({ jvm.isJavaVersionCompatible(13) })
+class DevelopmentCdsSpec extends AbstractGradleBuildSpec {
+
+    def setup() {
+        settingsFile << """
+            rootProject.name = 'hello-world'
+            include 'lib'
+        """
+        buildFile << """
+            plugins {
+                id "io.micronaut.minimal.application"
+            }
+
+            micronaut {
+                version "3.2.0"
+                enableDevelopmentCds true
+            }
+
+            $repositoriesBlock
+
+            dependencies {
+                implementation(project(":lib"))
+            }
+
+            application {
+                mainClass.set("example.Application")
+            }
+        """
+        file("lib").mkdirs()
+        file("lib/build.gradle") << """
+            plugins {
+                id "java-library"
+            }
+        """
+        writeFile("lib/src/main/resources/greeting.txt", "Hello from the library")
+        writeFile("src/main/resources/greeting.txt", "Hello from the application")
+        writeFile("src/main/java/example/Application.java", """
+            package example;
+
+            import java.io.InputStream;
+            import java.nio.charset.StandardCharsets;
+            import java.util.Scanner;
+
+            public class Application {
+                public static void main(String... args) {
+                    InputStream in = Application.class.getResourceAsStream("/greeting.txt");
+                    System.out.println("Greeting: " + new Scanner(in, StandardCharsets.UTF_8.name()).nextLine());
+                }
+            }
+        """)
+    }
+
+    def "the archive is created then reused"() {
+        when:
+        def result = build("run", "--info")
+
+        then:
+        result.task(":run").outcome == TaskOutcome.SUCCESS
+        result.task(":jar").outcome == TaskOutcome.SUCCESS
+        result.output.contains("Greeting: Hello from the application")
+        result.output.contains("-XX:ArchiveClassesAtExit=")
+        !result.output.contains("The class data sharing archive is not used")
+        def archives = file("build/cds").listFiles()
+        archives.length == 1
+        archives[0].name.endsWith(".jsa")
+
+        when:
+        def lastModified = archives[0].lastModified()
+        result = build("run", "--info")
+
+        then:
+        result.task(":run").outcome == TaskOutcome.SUCCESS
+        result.output.contains("Greeting: Hello from the application")
+        result.output.contains("-XX:SharedArchiveFile=${archives[0].absolutePath}")
+        !result.output.contains("-XX:ArchiveClassesAtExit=")
+        file("build/cds").listFiles().length == 1
+        archives[0].lastModified() == lastModified
+    }
+
+    def "a new archive is created when the application changes"() {
+        when:
+        build("run")
+        def archive = file("build/cds").listFiles()[0]
+        writeFile("src/main/resources/greeting.txt", "Hello again from the application")
+        def result = build("run", "--info")
+
+        then:
+        result.output.contains("Greeting: Hello again from the application")
+        result.output.contains("-XX:ArchiveClassesAtExit=")
+        !archive.exists()
+        file("build/cds").listFiles().length == 1
+    }
+
+    def "no archive is used by default"() {
+        buildFile.text = buildFile.text.replace("enableDevelopmentCds true", "")
+
+        when:
+        def result = build("run", "--info")
+
+        then:
+        result.output.contains("Greeting: Hello from the application")
+        !result.output.contains("-XX:ArchiveClassesAtExit=")
+        !result.output.contains("The class data sharing archive is not used")
+    }
+
+    private void writeFile(String path, String text) {
+        def f = file(path)
+        f.parentFile.mkdirs()
+        f.text = text
+    }
+}
@@ -57,6 +57,65 @@ class Application {
         ]
     }
 
+    def "reuses the image built from the same inputs"() {
+        given:
+        settingsFile << "rootProject.name = 'hello-world'"
+        buildFile << """
+            plugins {
+                id 'io.micronaut.application'
+            }
+
+            micronaut {
+                version "2.3.3"
+            }
+
+            $repositoriesBlock
+
+            mainClassName="example.Application"
+        """
+        testProjectDir.newFolder("src", "main", "java", "example")
+        def javaFile = testProjectDir.newFile("src/main/java/example/Application.java")
+        javaFile << """
+package example;
+
+class Application {
+    public static void main(String... args) {
+    }
+}
+"""
+
+        when:
+        def result = build('dockerBuild')
+
+        then:
+        result.task(":dockerBuildFingerprint").outcome == TaskOutcome.SUCCESS
+        result.task(":dockerBuild").outcome == TaskOutcome.SUCCESS
+
+        when:
+        // the image ID file is the output of the task: without it, the task is out of date
+        file("build/.docker").deleteDir()
+        result = build('dockerBuild')
+
+        then:
+        result.task(":dockerBuildFingerprint").outcome == TaskOutcome.UP_TO_DATE
+        result.task(":dockerBuildReuse").outcome == TaskOutcome.SUCCESS
+        result.task(":dockerBuild").outcome == TaskOutcome.SKIPPED
+        result.output.contains("was already built from the same inputs")
+        !file("build/docker/fingerprints/dockerBuild/reused-image-id.txt").text.empty
+
+        when:
+        buildFile << """
+            tasks.named("dockerBuild") {
+                labels.put("org.opencontainers.image.title", "hello-world")
+            }
+        """
+        result = build('dockerBuild')
+
+        then:
+        result.task(":dockerBuildFingerprint").outcome == TaskOutcome.SUCCESS
+        result.task(":dockerBuild").outcome == TaskOutcome.SUCCESS
+    }
+
     @Requires({ AbstractGradleBuildSpec.graalVmAvailable })
     @Unroll
     @Requires({ jvm.java11 }) // no NI images for JDK 16
@@ -0,0 +1,71 @@
+package io.micronaut.gradle
+
+import org.gradle.testkit.runner.TaskOutcome
+import spock.lang.IgnoreIf
+
+class FootprintSpec extends AbstractGradleBuildSpec {
+
+    @IgnoreIf({ !os.linux })
+    void 'measures the memory footprint of the application'() {
+        given:
+        settingsFile << "rootProject.name = 'hello-world'"
+        buildFile << """
+            plugins {
+                id "io.micronaut.application"
+            }
+
+            micronaut {
+                version "2.4.2"
+                runtime "netty"
+                footprintWarmup {
+                    path = "/hello"
+                    duration = java.time.Duration.ofSeconds(1)
+                }
+            }
+
+            $repositoriesBlock
+
+            mainClassName="example.Application"
+        """
+        def javaFile = file("src/main/java/example/Application.java")
+        javaFile.parentFile.mkdirs()
+        javaFile << """
+package example;
+
+import com.sun.net.httpserver.HttpServer;
+
+import java.net.InetSocketAddress;
+
+class Application {
+    public static void main(String... args) throws Exception {
+        HttpServer server = HttpServer.create(new InetSocketAddress(Integer.getInteger("micronaut.server.port")), 0);
+        server.createContext("/hello", exchange -> {
+            exchange.sendResponseHeaders(204, -1);
+            exchange.close();
+        });
+        server.start();
+        System.out.println("Startup completed in 1ms");
+    }
+}
+"""
+
+        when:
+        def result = build('footprintReport')
+
+        then:
+        result.task(":measureJitFootprint").outcome == TaskOutcome.SUCCESS
+        result.task(":footprintReport").outcome == TaskOutcome.SUCCESS
+
+        and:
+        def measurement = new Properties()
+        file("build/reports/footprint/jit.properties").withInputStream { measurement.load(it) }
+        measurement.getProperty("variant") == "jit"
+        (measurement.getProperty("ready.rss") as long) > 0
+        (measurement.getProperty("loaded.rss") as long) > 0
+
+        and:
+        def report = file("build/reports/footprint/footprint.txt").text
+        report.contains("RSS ready")
+        report.contains("Suggested container memory limit for jit")
+    }
+}
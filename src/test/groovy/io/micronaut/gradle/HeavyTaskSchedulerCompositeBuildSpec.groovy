@@ -0,0 +1,47 @@
+package io.micronaut.gradle
+
+import org.gradle.testkit.runner.TaskOutcome
+
+class HeavyTaskSchedulerCompositeBuildSpec extends AbstractGradleBuildSpec {
+
+    def "releases the resources of heavy tasks of an included build"() {
+        given:
+        settingsFile << """
+            rootProject.name = 'root'
+            includeBuild 'included'
+        """
+        buildFile << """
+            tasks.register("heavy") {
+                dependsOn gradle.includedBuild("included").task(":second")
+            }
+        """
+        file("included/settings.gradle") << "rootProject.name = 'included'"
+        file("included/build.gradle") << """
+            plugins {
+                id "io.micronaut.minimal.library"
+            }
+
+            def scheduler = io.micronaut.gradle.HeavyTaskScheduler.registerIfAbsent(project,
+                    services.get(org.gradle.build.event.BuildEventsListenerRegistry))
+
+            tasks.register("first") {
+                io.micronaut.gradle.HeavyTaskScheduler.limit(it, scheduler, 1024L, 1)
+                doLast { println "first done" }
+            }
+
+            tasks.register("second") {
+                dependsOn "first"
+                io.micronaut.gradle.HeavyTaskScheduler.limit(it, scheduler, 1024L, 1)
+                doLast { println "second done" }
+            }
+        """
+
+        when:
+        def result = build('heavy', '-Pmicronaut.heavytasks.maxMemory=1024', '-Pmicronaut.heavytasks.maxCpus=1')
+
+        then:
+        result.task(":included:first").outcome == TaskOutcome.SUCCESS
+        result.task(":included:second").outcome == TaskOutcome.SUCCESS
+        result.output.contains("second done")
+    }
+}
@@ -0,0 +1,154 @@
+package io.micronaut.gradle
+
+import org.gradle.api.GradleException
+import org.gradle.api.logging.Logging
+import org.gradle.testfixtures.ProjectBuilder
+import org.gradle.tooling.events.task.TaskFinishEvent
+import org.gradle.tooling.events.task.TaskOperationDescriptor
+import spock.lang.Specification
+import spock.util.concurrent.PollingConditions
+
+import java.util.concurrent.CopyOnWriteArrayList
+
+class HeavyTaskSchedulerConcurrencySpec extends Specification {
+    private static final def LOGGER = Logging.getLogger(HeavyTaskSchedulerConcurrencySpec)
+
+    private final PollingConditions conditions = new PollingConditions(timeout: 10)
+    private final List<String> acquired = new CopyOnWriteArrayList<>()
+    private final List<Throwable> failures = new CopyOnWriteArrayList<>()
+    private final List<Thread> threads = []
+
+    def cleanup() {
+        threads*.interrupt()
+        threads*.join(5000)
+    }
+
+    def "tasks are served in order of arrival"() {
+        def scheduler = scheduler(10, 10)
+        scheduler.acquire(":a", 8, 1, LOGGER)
+
+        when:
+        acquireInThread(scheduler, ":b", 5, 1)
+        conditions.eventually { assert scheduler.waitingTaskCount == 1 }
+        // :c fits in the remaining resources, but must wait behind :b
+        acquireInThread(scheduler, ":c", 1, 1)
+        conditions.eventually { assert scheduler.waitingTaskCount == 2 }
+
+        then:
+        acquired.empty
+
+        when:
+        scheduler.release(":a")
+
+        then:
+        conditions.eventually { assert acquired == [":b", ":c"] }
+        failures.empty
+    }
+
+    def "a task requiring more than the budget runs alone"() {
+        def scheduler = scheduler(10, 2)
+
+        when:
+        scheduler.acquire(":big", 100, 8, LOGGER)
+        acquireInThread(scheduler, ":small", 1, 1)
+        conditions.eventually { assert scheduler.waitingTaskCount == 1 }
+
+        then:
+        acquired.empty
+
+        when:
+        scheduler.release(":big")
+
+        then:
+        conditions.eventually { assert acquired == [":small"] }
+    }
+
+    def "resources are released when a task fails"() {
+        def scheduler = scheduler(10, 10)
+        def failing = new Thread({
+            scheduler.acquire(":failing", 10, 1, LOGGER)
+            throw new IllegalStateException("task failed")
+        })
+        failing.uncaughtExceptionHandler = { t, e -> } as Thread.UncaughtExceptionHandler
+        failing.start()
+        failing.join(5000)
+
+        when:
+        acquireInThread(scheduler, ":next", 10, 1)
+        conditions.eventually { assert scheduler.waitingTaskCount == 1 }
+        scheduler.onFinish(taskFinished(":failing"))
+
+        then:
+        conditions.eventually { assert acquired == [":next"] }
+    }
+
+    def "releasing a task which holds no resources does nothing"() {
+        def scheduler = scheduler(10, 10)
+        scheduler.acquire(":a", 10, 10, LOGGER)
+
+        when:
+        scheduler.release(":unknown")
+        acquireInThread(scheduler, ":b", 1, 1)
+        conditions.eventually { assert scheduler.waitingTaskCount == 1 }
+
+        then:
+        acquired.empty
+    }
+
+    def "an interrupted task leaves the queue"() {
+        def scheduler = scheduler(10, 10)
+        scheduler.acquire(":a", 8, 1, LOGGER)
+
+        when:
+        def waiting = acquireInThread(scheduler, ":b", 5, 1)
+        conditions.eventually { assert scheduler.waitingTaskCount == 1 }
+        acquireInThread(scheduler, ":c", 1, 1)
+        conditions.eventually { assert scheduler.waitingTaskCount == 2 }
+        waiting.interrupt()
+
+        then:
+        conditions.eventually {
+            assert acquired == [":c"]
+            assert failures.size() == 1
+            assert failures[0] instanceof GradleException
+            assert scheduler.waitingTaskCount == 0
+        }
+    }
+
+    private Thread acquireInThread(HeavyTaskScheduler scheduler, String path, long memory, int cpus) {
+        def thread = new Thread({
+            try {
+                scheduler.acquire(path, memory, cpus, LOGGER)
+                acquired << path
+            } catch (Throwable e) {
+                failures << e
+            }
+        }, path)
+        threads << thread
+        thread.start()
+        thread
+    }
+
+    private TaskFinishEvent taskFinished(String path) {
+        def descriptor = Stub(TaskOperationDescriptor) {
+            getTaskPath() >> path
+        }
+        Stub(TaskFinishEvent) {
+            getDescriptor() >> descriptor
+        }
+    }
+
+    private HeavyTaskScheduler scheduler(long maxMemory, int maxCpus) {
+        def objects = ProjectBuilder.builder().build().objects
+        def params = Stub(HeavyTaskScheduler.Params) {
+            getMaxMemory() >> objects.property(Long).value(maxMemory)
+            getMaxCpus() >> objects.property(Integer).value(maxCpus)
+        }
+        new HeavyTaskScheduler() {
+            @Override
+            HeavyTaskScheduler.Params getParameters() {
+                params
+            }
+        }
+    }
+}
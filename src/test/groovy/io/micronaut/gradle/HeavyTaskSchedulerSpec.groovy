@@ -0,0 +1,56 @@
+package io.micronaut.gradle
+
+import org.gradle.testfixtures.ProjectBuilder
+import spock.lang.Specification
+
+class HeavyTaskSchedulerSpec extends Specification {
+
+    def "native image task declares its cost"() {
+        def project = ProjectBuilder.builder().build()
+
+        when:
+        project.plugins.apply("io.micronaut.application")
+        def cost = project.tasks.getByName("nativeCompile").extensions.getByType(HeavyTaskCost)
+
+        then:
+        cost.memory.get() == HeavyTaskScheduler.NATIVE_IMAGE_MEMORY
+        cost.cpus.get() == HeavyTaskScheduler.nativeImageCpus()
+        project.gradle.sharedServices.registrations.findByName(HeavyTaskScheduler.NAME) != null
+    }
+
+    def "AOT optimizer task declares its cost"() {
+        def project = ProjectBuilder.builder().build()
+
+        when:
+        project.plugins.apply("io.micronaut.minimal.application")
+        project.plugins.apply("io.micronaut.aot")
+        def cost = project.tasks.getByName("prepareJitOptimizations").extensions.getByType(HeavyTaskCost)
+
+        then:
+        cost.memory.get() == HeavyTaskScheduler.AOT_OPTIMIZER_MEMORY
+        cost.cpus.get() == 1
+    }
+
+    def "cost can be overridden"() {
+        def project = ProjectBuilder.builder().build()
+
+        when:
+        project.plugins.apply("io.micronaut.application")
+        project.tasks.named("nativeCompile") {
+            it.extensions.getByType(HeavyTaskCost).memory.set(4096L)
+        }
+
+        then:
+        project.tasks.getByName("nativeCompile").extensions.getByType(HeavyTaskCost).memory.get() == 4096L
+    }
+
+    def "tasks of the root build are identified by their path"() {
+        def project = ProjectBuilder.builder().build()
+
+        when:
+        def task = project.tasks.create("heavy")
+
+        then:
+        HeavyTaskScheduler.identityPathOf(task) == ":heavy"
+    }
+}
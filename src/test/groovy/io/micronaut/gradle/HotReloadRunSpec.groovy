@@ -0,0 +1,130 @@
+package io.micronaut.gradle
+
+import io.micronaut.gradle.launcher.HotReloadLauncher
+import org.gradle.testkit.runner.BuildResult
+import org.gradle.testkit.runner.TaskOutcome
+import spock.util.concurrent.PollingConditions
+
+class HotReloadRunSpec extends AbstractGradleBuildSpec {
+
+    def "hot reload launcher is prepared"() {
+        given:
+        settingsFile << "rootProject.name = 'hello-world'"
+        buildFile << """
+            plugins {
+                id "io.micronaut.minimal.application"
+            }
+
+            micronaut {
+                version "3.2.0"
+            }
+
+            $repositoriesBlock
+
+            application {
+                mainClass.set("example.Application")
+            }
+        """
+
+        when:
+        def result = build('prepareHotReloadLauncher')
+
+        then:
+        result.task(":prepareHotReloadLauncher").outcome == TaskOutcome.SUCCESS
+        file("build/micronaut/hot-reload/launcher/${HotReloadLauncher.name.replace('.', '/')}.class").exists()
+
+        when:
+        result = build('prepareHotReloadLauncher')
+
+        then:
+        result.task(":prepareHotReloadLauncher").outcome == TaskOutcome.UP_TO_DATE
+    }
+
+    def "reloads the application when a class changes"() {
+        given:
+        settingsFile << "rootProject.name = 'hello-world'"
+        buildFile << """
+            plugins {
+                id "io.micronaut.minimal.application"
+            }
+
+            micronaut {
+                version "3.2.0"
+            }
+
+            $repositoriesBlock
+
+            dependencies {
+                implementation("io.micronaut:micronaut-runtime")
+            }
+
+            application {
+                mainClass.set("example.Application")
+            }
+        """
+        file("src/main/java/example").mkdirs()
+        file("src/main/java/example/Application.java") << """
+            package example;
+
+            import io.micronaut.runtime.Micronaut;
+
+            public class Application {
+                public static void main(String... args) {
+                    Micronaut.run(Application.class, args);
+                }
+            }
+        """
+        def greeter = file("src/main/java/example/Greeter.java")
+        greeter.text = greeterSource("Hello", false)
+        def output = new StringWriter()
+        BuildResult runResult = null
+        def conditions = new PollingConditions(timeout: 120)
+
+        when:
+        def run = Thread.start {
+            runResult = newRunner("hotReloadRun").forwardStdOutput(output).build()
+        }
+
+        then:
+        conditions.eventually {
+            assert output.toString().contains("Greeting: Hello")
+        }
+        file("build/micronaut/hot-reload/dependencies.txt").readLines().any { it.contains("micronaut-runtime") }
+
+        when:
+        // the new version of the bean stops the application once started
+        greeter.text = greeterSource("Bonjour", true)
+        build("classes")
+
+        then:
+        conditions.eventually {
+            assert output.toString().contains("Change detected, reloading application")
+            assert output.toString().contains("Greeting: Bonjour")
+        }
+
+        when:
+        run.join(60_000)
+
+        then:
+        runResult?.task(":hotReloadRun")?.outcome == TaskOutcome.SUCCESS
+    }
+
+    private static String greeterSource(String greeting, boolean exit) {
+        """
+            package example;
+
+            import io.micronaut.context.event.StartupEvent;
+            import io.micronaut.runtime.event.annotation.EventListener;
+            import jakarta.inject.Singleton;
+
+            @Singleton
+            public class Greeter {
+                @EventListener
+                void onStartup(StartupEvent event) {
+                    System.out.println("Greeting: $greeting");
+                    ${exit ? 'new Thread(() -> System.exit(0)).start();' : ''}
+                }
+            }
+        """
+    }
+}
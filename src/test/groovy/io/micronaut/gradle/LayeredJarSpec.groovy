@@ -0,0 +1,66 @@
+package io.micronaut.gradle
+
+import io.micronaut.gradle.launcher.LayeredJarLauncher
+import org.gradle.testkit.runner.TaskOutcome
+
+import java.util.jar.JarFile
+
+class LayeredJarSpec extends AbstractGradleBuildSpec {
+
+    void 'builds a layered jar which can be extracted'() {
+        given:
+        settingsFile << "rootProject.name = 'hello-world'"
+        buildFile << """
+            plugins {
+                id "io.micronaut.application"
+            }
+
+            micronaut {
+                version "2.4.2"
+                runtime "netty"
+            }
+
+            $repositoriesBlock
+
+            dependencies {
+                runtimeOnly("ch.qos.logback:logback-classic")
+            }
+            mainClassName="example.Application"
+
+            tasks.register("extract", JavaExec) {
+                classpath(tasks.named("layeredJar"))
+                mainClass.set("${LayeredJarLauncher.name}")
+                systemProperty("${LayeredJarLauncher.JAR_MODE_PROPERTY}", "extract")
+                args(layout.buildDirectory.dir("extracted").get().asFile.absolutePath)
+            }
+        """
+        def javaFile = file("src/main/java/example/Application.java")
+        javaFile.parentFile.mkdirs()
+        javaFile << """
+package example;
+
+class Application {
+    public static void main(String... args) {
+
+    }
+}
+"""
+
+        when:
+        def result = build('layeredJar', 'extract')
+
+        then:
+        result.task(":layeredJar").outcome == TaskOutcome.SUCCESS
+
+        def jarFile = new JarFile(file("build/libs/hello-world-layered.jar"))
+        jarFile.manifest.mainAttributes.getValue("Main-Class") == LayeredJarLauncher.name
+        jarFile.manifest.mainAttributes.getValue(LayeredJarLauncher.MAIN_CLASS_ATTRIBUTE) == "example.Application"
+        jarFile.getInputStream(jarFile.getJarEntry(LayeredJarLauncher.LAYERS_INDEX)).text == "libs\napplication\n"
+        jarFile.getJarEntry("layers/application/application.jar") != null
+        jarFile.entries().toList().any { it.name.startsWith("layers/libs/libs/logback-classic-") }
+        jarFile.close()
+
+        file("build/extracted/application/application.jar").exists()
+        file("build/extracted/libs/libs").listFiles().any { it.name.startsWith("logback-classic-") }
+    }
+}
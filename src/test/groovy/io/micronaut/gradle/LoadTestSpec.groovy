@@ -0,0 +1,183 @@
+package io.micronaut.gradle
+
+import org.gradle.testkit.runner.TaskOutcome
+
+class LoadTestSpec extends AbstractGradleBuildSpec {
+
+    def setup() {
+        settingsFile << "rootProject.name = 'hello-world'"
+        buildFile << """
+            plugins {
+                id "io.micronaut.application"
+            }
+
+            micronaut {
+                version "2.4.2"
+                runtime "netty"
+            }
+
+            $repositoriesBlock
+
+            mainClassName="example.Application"
+        """
+        def javaFile = file("src/main/java/example/Application.java")
+        javaFile.parentFile.mkdirs()
+        // a plain HTTP server, which listens on the port passed by the load test task
+        javaFile << """
+package example;
+
+import com.sun.net.httpserver.HttpServer;
+
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+
+class Application {
+    public static void main(String... args) throws Exception {
+        int port = Integer.getInteger("micronaut.server.port");
+        HttpServer server = HttpServer.create(new InetSocketAddress(port), 0);
+        server.createContext("/hello", exchange -> {
+            byte[] body = "Hello".getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(200, body.length);
+            exchange.getResponseBody().write(body);
+            exchange.close();
+        });
+        server.createContext("/slow", exchange -> {
+            try {
+                Thread.sleep(500);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            exchange.sendResponseHeaders(204, -1);
+            exchange.close();
+        });
+        server.start();
+        System.out.println("Startup completed in 1ms");
+    }
+}
+"""
+    }
+
+    void 'reports the throughput and latency of the scenarios'() {
+        given:
+        buildFile << """
+            micronaut {
+                loadTests {
+                    hello {
+                        path = "/hello"
+                        connections = 4
+                        warmup = java.time.Duration.ofSeconds(1)
+                        duration = java.time.Duration.ofSeconds(2)
+                        minThroughput = 1d
+                    }
+                }
+            }
+        """
+
+        when:
+        def result = build('loadTest')
+
+        then:
+        result.task(":loadTest").outcome == TaskOutcome.SUCCESS
+        def report = file("build/reports/loadtest/loadTest.txt").text
+        report.contains("Scenario hello: GET /hello, 4 connections, 2s")
+        report.contains("errors: 0")
+        report.contains("p99.9")
+        report.contains("All service level objectives are met")
+    }
+
+    void 'fails when a service level objective is not met'() {
+        given:
+        buildFile << """
+            micronaut {
+                loadTests {
+                    missing {
+                        path = "/missing"
+                        warmup = java.time.Duration.ZERO
+                        duration = java.time.Duration.ofSeconds(1)
+                    }
+                }
+            }
+        """
+
+        when:
+        def result = fails('loadTest')
+
+        then:
+        result.output.contains("The load test doesn't meet its service level objectives")
+        result.output.contains("missing: error rate is 1.0000, the maximum is 0.0000")
+    }
+
+    void 'measures the latency from a fixed rate schedule'() {
+        given:
+        buildFile << """
+            micronaut {
+                loadTests {
+                    hello {
+                        path = "/hello"
+                        connections = 4
+                        rate = 20d
+                        warmup = java.time.Duration.ofSeconds(1)
+                        duration = java.time.Duration.ofSeconds(2)
+                        maxP99 = java.time.Duration.ofSeconds(5)
+                    }
+                }
+            }
+        """
+
+        when:
+        def result = build('loadTest')
+
+        then:
+        result.task(":loadTest").outcome == TaskOutcome.SUCCESS
+        def report = file("build/reports/loadtest/loadTest.txt").text
+        report.contains("Scenario hello: GET /hello, 4 connections, 20.0 req/s, 2s")
+        report.contains("errors: 0")
+    }
+
+    void 'the requests without a response do not count in the throughput'() {
+        given:
+        buildFile << """
+            micronaut {
+                loadTests {
+                    slow {
+                        path = "/slow"
+                        expectedStatus = 204
+                        connections = 2
+                        rate = 50d
+                        warmup = java.time.Duration.ZERO
+                        duration = java.time.Duration.ofSeconds(2)
+                        minThroughput = 20d
+                    }
+                }
+            }
+        """
+
+        when:
+        def result = fails('loadTest')
+
+        then:
+        result.output.contains("The load test doesn't meet its service level objectives")
+        result.output.contains("slow: throughput is ")
+        result.output.contains("the minimum is 20.0 req/s")
+    }
+
+    void 'requires a rate to check the tail latencies'() {
+        given:
+        buildFile << """
+            micronaut {
+                loadTests {
+                    hello {
+                        path = "/hello"
+                        maxP99 = java.time.Duration.ofMillis(20)
+                    }
+                }
+            }
+        """
+
+        when:
+        def result = fails('loadTest')
+
+        then:
+        result.output.contains("Load test scenario 'hello' checks the p99 or p99.9 latency, which requires a rate")
+    }
+}
@@ -617,4 +617,155 @@ class Foo {}
         ).exists()
         result.output.contains("Generating OpenAPI Documentation")
     }
+
+    def "removes the stale bean definitions of incremental Groovy compilations"() {
+        given:
+        settingsFile << "rootProject.name = 'hello-world'"
+        buildFile << """
+            plugins {
+                id "io.micronaut.library"
+                id "groovy"
+            }
+
+            micronaut {
+                version "2.3.3"
+                processing {
+                    incrementalGroovy true
+                }
+            }
+
+            $repositoriesBlock
+        """
+        testProjectDir.newFolder("src", "main", "groovy", "example")
+        testProjectDir.newFile("src/main/groovy/example/Foo.groovy") << """
+package example
+
+@javax.inject.Singleton
+class Foo {}
+"""
+        def bar = testProjectDir.newFile("src/main/groovy/example/Bar.groovy")
+        bar << """
+package example
+
+@javax.inject.Singleton
+class Bar {}
+"""
+
+        when:
+        def result = build('compileGroovy')
+
+        then:
+        result.task(":compileGroovy").outcome == TaskOutcome.SUCCESS
+        file('build/classes/groovy/main/example/$BarDefinition.class').exists()
+
+        when:
+        bar.text = """
+package example
+
+class Bar {}
+"""
+        result = build('compileGroovy')
+
+        then:
+        result.task(":compileGroovy").outcome == TaskOutcome.SUCCESS
+        !file('build/classes/groovy/main/example/$BarDefinition.class').exists()
+        file('build/classes/groovy/main/example/$FooDefinition.class').exists()
+        !file('build/classes/groovy/main/META-INF/services/io.micronaut.inject.BeanDefinitionReference').text.contains('example.$BarDefinitionClass')
+
+        when:
+        bar.text = """
+package example
+
+@javax.inject.Singleton
+class Bar {}
+"""
+        result = build('compileGroovy')
+
+        then:
+        result.task(":compileGroovy").outcome == TaskOutcome.SUCCESS
+        file('build/classes/groovy/main/example/$BarDefinition.class').exists()
+
+        when:
+        bar.delete()
+        result = build('compileGroovy')
+
+        then:
+        result.task(":compileGroovy").outcome == TaskOutcome.SUCCESS
+        !file('build/classes/groovy/main/example/$BarDefinition.class').exists()
+        file('build/classes/groovy/main/example/$FooDefinition.class').exists()
+        !file('build/classes/groovy/main/META-INF/services/io.micronaut.inject.BeanDefinitionReference').text.contains('example.$BarDefinitionClass')
+    }
+
+    def "keeps the introspections of other classes in incremental Groovy compilations"() {
+        given:
+        settingsFile << "rootProject.name = 'hello-world'"
+        buildFile << """
+            plugins {
+                id "io.micronaut.library"
+                id "groovy"
+            }
+
+            micronaut {
+                version "2.3.3"
+                processing {
+                    incrementalGroovy true
+                }
+            }
+
+            $repositoriesBlock
+        """
+        testProjectDir.newFolder("src", "main", "groovy", "example", "model")
+        def person = testProjectDir.newFile("src/main/groovy/example/model/Person.groovy")
+        person << """
+package example.model
+
+class Person {
+    String name
+}
+"""
+        testProjectDir.newFile("src/main/groovy/example/Introspections.groovy") << """
+package example
+
+@io.micronaut.core.annotation.Introspected(classes = example.model.Person)
+class Introspections {}
+"""
+        def other = testProjectDir.newFile("src/main/groovy/example/Other.groovy")
+        other << """
+package example
+
+class Other {}
+"""
+
+        when:
+        def result = build('compileGroovy')
+        def introspections = generatedIntrospections()
+
+        then:
+        result.task(":compileGroovy").outcome == TaskOutcome.SUCCESS
+        !introspections.empty
+
+        when:
+        person << """
+class Address {}
+"""
+        other << """
+class Another {}
+"""
+        result = build('compileGroovy')
+
+        then:
+        result.task(":compileGroovy").outcome == TaskOutcome.SUCCESS
+        generatedIntrospections() == introspections
+    }
+
+    private Set<String> generatedIntrospections() {
+        def classesDir = file('build/classes/groovy/main')
+        def introspections = [] as Set<String>
+        classesDir.eachFileRecurse { f ->
+            if (f.name.startsWith('$') && f.name.contains('Introspection')) {
+                introspections << classesDir.toPath().relativize(f.toPath()).toString()
+            }
+        }
+        introspections
+    }
 }
@@ -0,0 +1,141 @@
+package io.micronaut.gradle
+
+import org.gradle.testkit.runner.TaskOutcome
+
+class MicronautTelemetrySpec extends AbstractGradleBuildSpec {
+
+    void 'records the telemetry of the Micronaut tasks'() {
+        given:
+        settingsFile << "rootProject.name = 'hello-world'"
+        buildFile << """
+            plugins {
+                id "io.micronaut.application"
+            }
+
+            micronaut {
+                version "2.4.2"
+                runtime "netty"
+            }
+
+            $repositoriesBlock
+
+            mainClassName="example.Application"
+        """
+        file("gradle.properties") << "micronaut.telemetry.enabled=true"
+
+        when:
+        def result = build('buildLayers')
+
+        then:
+        result.task(":buildLayers").outcome == TaskOutcome.SUCCESS
+        result.output.contains("Micronaut tasks telemetry written to")
+        def json = file("build/reports/micronaut/telemetry/telemetry.json").text
+        json.contains('{"path": ":buildLayers", "outcome": "EXECUTED"')
+        def outputSize = (json =~ /"path": ":buildLayers".*"outputSize": (\d+)/)[0][1] as long
+        outputSize > 0
+        json.contains('"inputSize": ')
+        file("build/reports/micronaut/telemetry/telemetry.html").text.contains(":buildLayers")
+
+        when:
+        result = build('buildLayers')
+
+        then:
+        result.task(":buildLayers").outcome == TaskOutcome.UP_TO_DATE
+        file("build/reports/micronaut/telemetry/telemetry.json").text.contains('{"path": ":buildLayers", "outcome": "UP-TO-DATE"')
+        file("build/reports/micronaut/telemetry/history.tsv").readLines().findAll { it.contains("\t:buildLayers\t") }.size() == 2
+    }
+
+    void 'a telemetry which cannot be written does not fail the build'() {
+        given:
+        settingsFile << "rootProject.name = 'hello-world'"
+        buildFile << """
+            plugins {
+                id "io.micronaut.application"
+            }
+
+            micronaut {
+                version "2.4.2"
+                runtime "netty"
+            }
+
+            $repositoriesBlock
+
+            mainClassName="example.Application"
+        """
+        file("gradle.properties") << "micronaut.telemetry.enabled=true"
+        // a file in place of the report directory
+        def reportDir = file("build/reports/micronaut/telemetry")
+        reportDir.parentFile.mkdirs()
+        reportDir.text = ""
+
+        when:
+        def result = build('buildLayers')
+
+        then:
+        result.task(":buildLayers").outcome == TaskOutcome.SUCCESS
+        result.output.contains("Unable to write the telemetry of the build")
+    }
+
+    void 'telemetry is disabled by default'() {
+        given:
+        settingsFile << "rootProject.name = 'hello-world'"
+        buildFile << """
+            plugins {
+                id "io.micronaut.application"
+            }
+
+            micronaut {
+                version "2.4.2"
+                runtime "netty"
+            }
+
+            $repositoriesBlock
+
+            mainClassName="example.Application"
+        """
+
+        when:
+        def result = build('buildLayers')
+
+        then:
+        result.task(":buildLayers").outcome == TaskOutcome.SUCCESS
+        !file("build/reports/micronaut/telemetry").exists()
+    }
+
+    void 'records the tasks of every project'() {
+        given:
+        settingsFile << """
+            rootProject.name = 'hello-world'
+            include 'one', 'two'
+        """
+        buildFile << ""
+        ['one', 'two'].each { name ->
+            file(name).mkdirs()
+            file("$name/build.gradle") << """
+                plugins {
+                    id "io.micronaut.application"
+                }
+
+                micronaut {
+                    version "2.4.2"
+                    runtime "netty"
+                }
+
+                $repositoriesBlock
+
+                mainClassName="example.Application"
+            """
+        }
+        file("gradle.properties") << "micronaut.telemetry.enabled=true"
+
+        when:
+        def result = build('buildLayers')
+
+        then:
+        result.task(":one:buildLayers").outcome == TaskOutcome.SUCCESS
+        result.task(":two:buildLayers").outcome == TaskOutcome.SUCCESS
+        def json = file("build/reports/micronaut/telemetry/telemetry.json").text
+        json.contains('{"path": ":one:buildLayers", "outcome": "EXECUTED"')
+        json.contains('{"path": ":two:buildLayers", "outcome": "EXECUTED"')
+    }
+}
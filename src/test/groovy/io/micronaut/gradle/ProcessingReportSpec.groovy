@@ -0,0 +1,125 @@
+package io.micronaut.gradle
+
+import org.gradle.testkit.runner.TaskOutcome
+
+class ProcessingReportSpec extends AbstractGradleBuildSpec {
+
+    def "reports the effectiveness of incremental annotation processing"() {
+        given:
+        settingsFile << "rootProject.name = 'hello-world'"
+        buildFile << """
+            plugins {
+                id "io.micronaut.library"
+            }
+
+            micronaut {
+                version "2.3.3"
+                processing {
+                    incremental true
+                    report true
+                }
+            }
+
+            $repositoriesBlock
+        """
+        def bean = file("src/main/java/example/Greeter.java")
+        bean.parentFile.mkdirs()
+        bean.text = """
+package example;
+
+import javax.inject.Singleton;
+
+@Singleton
+public class Greeter {
+    public String greet() {
+        return "Hello";
+    }
+}
+"""
+        file("src/main/java/example/Other.java") << """
+package example;
+
+@javax.inject.Singleton
+public class Other {
+}
+"""
+
+        when:
+        def result = build('compileJava')
+
+        then:
+        result.task(":compileJava").outcome == TaskOutcome.SUCCESS
+        def report = file("build/reports/micronaut/annotation-processing.txt").text
+        report.contains(":compileJava")
+        report.contains("Compilation: initial")
+
+        when:
+        bean.text = bean.text.replace('"Hello"', '"Bonjour"')
+        result = build('compileJava')
+
+        then:
+        result.task(":compileJava").outcome == TaskOutcome.SUCCESS
+        result.output.contains("See the annotation processing report")
+        def secondReport = file("build/reports/micronaut/annotation-processing.txt").text
+        secondReport.contains("Recompiled classes: ")
+        secondReport.contains("Annotation processors (type, time):")
+        secondReport.contains("Time in Micronaut processors:")
+        secondReport.contains("Compilation: incremental")
+
+        when:
+        buildFile << """
+            tasks.named("compileJava", JavaCompile) {
+                options.compilerArgs.add("-parameters")
+            }
+        """
+        result = build('compileJava')
+
+        then:
+        result.task(":compileJava").outcome == TaskOutcome.SUCCESS
+        def thirdReport = file("build/reports/micronaut/annotation-processing.txt").text
+        thirdReport.contains("Compilation: full recompilation")
+        thirdReport.contains("Reason: Gradle didn't execute the task incrementally")
+    }
+
+    def "classifies a change recompiling every class of a small module as incremental"() {
+        given:
+        settingsFile << "rootProject.name = 'hello-world'"
+        buildFile << """
+            plugins {
+                id "io.micronaut.library"
+            }
+
+            micronaut {
+                version "2.3.3"
+                processing {
+                    incremental true
+                    report true
+                }
+            }
+
+            $repositoriesBlock
+        """
+        def source = file("src/main/java/example/Greeter.java")
+        source.parentFile.mkdirs()
+        source.text = """
+package example;
+
+public class Greeter {
+    public String greet() {
+        return "Hello";
+    }
+}
+"""
+
+        when:
+        build('compileJava')
+        source.text = source.text.replace('"Hello"', '"Bonjour"')
+        def result = build('compileJava')
+
+        then:
+        result.task(":compileJava").outcome == TaskOutcome.SUCCESS
+        def report = file("build/reports/micronaut/annotation-processing.txt").text
+        report.contains("Compilation: incremental")
+        report.contains("Recompiled classes: 1 of 1")
+    }
+}
@@ -0,0 +1,62 @@
+package io.micronaut.gradle
+
+import org.gradle.api.JavaVersion
+import org.gradle.testkit.runner.TaskOutcome
+import spock.lang.IgnoreIf
+
+class ProfileStartupSpec extends AbstractGradleBuildSpec {
+
+    @IgnoreIf({ !JavaVersion.current().isJava11Compatible() })
+    void 'profiles the startup of the application'() {
+        given:
+        settingsFile << "rootProject.name = 'hello-world'"
+        buildFile << """
+            plugins {
+                id "io.micronaut.application"
+            }
+
+            micronaut {
+                version "2.4.2"
+                runtime "netty"
+            }
+
+            $repositoriesBlock
+
+            mainClassName="example.Application"
+
+            tasks.named("profileStartup") {
+                topCount = 5
+            }
+        """
+        def javaFile = file("src/main/java/example/Application.java")
+        javaFile.parentFile.mkdirs()
+        javaFile << """
+package example;
+
+import com.sun.net.httpserver.HttpServer;
+
+import java.net.InetSocketAddress;
+
+class Application {
+    public static void main(String... args) throws Exception {
+        HttpServer server = HttpServer.create(new InetSocketAddress(Integer.getInteger("micronaut.server.port")), 0);
+        server.start();
+        System.out.println("Startup completed in 1ms");
+    }
+}
+"""
+
+        when:
+        def result = build('profileStartup')
+
+        then:
+        result.task(":profileStartup").outcome == TaskOutcome.SUCCESS
+        file("build/reports/profile/profileStartup/startup.jfr").length() > 0
+
+        and:
+        def report = file("build/reports/profile/profileStartup/startup.txt").text
+        report.contains("Class loading, by package")
+        report.contains("com.sun.net.httpserver")
+        file("build/reports/profile/profileStartup/startup.html").text.contains("<title>Startup profile</title>")
+    }
+}
@@ -0,0 +1,70 @@
+package io.micronaut.gradle
+
+import org.gradle.testkit.runner.TaskOutcome
+
+import java.util.zip.ZipEntry
+import java.util.zip.ZipFile
+
+class StartupOrderedJarSpec extends AbstractGradleBuildSpec {
+
+    void 'orders the runner jar entries by class load order'() {
+        given:
+        settingsFile << "rootProject.name = 'hello-world'"
+        buildFile << """
+            plugins {
+                id "io.micronaut.application"
+            }
+
+            micronaut {
+                version "2.4.2"
+                runtime "netty"
+                startupOrderedJars = true
+            }
+
+            $repositoriesBlock
+
+            mainClassName="example.Application"
+        """
+        writeClass("Unused", "")
+        writeClass("Service", "")
+        writeClass("Application", """
+    public static void main(String... args) throws Exception {
+        new Service();
+        // the training run must not use the default port, which may be in use
+        new java.net.ServerSocket(Integer.parseInt(System.getProperty("micronaut.server.port"))).close();
+        System.out.println("Startup completed in 1ms");
+        Thread.sleep(60_000);
+    }
+""")
+
+        when:
+        def result = build('startupOrderedRunnerJar')
+
+        then:
+        result.task(":recordRunnerJarClassLoadOrder").outcome == TaskOutcome.SUCCESS
+        result.task(":startupOrderedRunnerJar").outcome == TaskOutcome.SUCCESS
+        file("build/startup-order/runnerJar.txt").readLines().containsAll(["example/Application.class", "example/Service.class"])
+
+        def zip = new ZipFile(file("build/startup-ordered/hello-world-runner.jar"))
+        List<ZipEntry> entries = zip.entries().toList()
+        def names = entries*.name
+        names.indexOf("META-INF/MANIFEST.MF") < names.indexOf("example/Application.class")
+        names.indexOf("example/Application.class") < names.indexOf("example/Service.class")
+        names.indexOf("example/Service.class") < names.indexOf("example/Unused.class")
+        zip.getEntry("example/Service.class").method == ZipEntry.STORED
+        zip.getEntry("example/Unused.class").method == ZipEntry.DEFLATED
+        zip.close()
+    }
+
+    private void writeClass(String name, String body) {
+        def javaFile = file("src/main/java/example/${name}.java")
+        javaFile.parentFile.mkdirs()
+        javaFile << """
+package example;
+
+class $name {
+$body
+}
+"""
+    }
+}
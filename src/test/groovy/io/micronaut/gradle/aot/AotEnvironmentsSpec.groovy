@@ -0,0 +1,89 @@
+package io.micronaut.gradle.aot
+
+import org.gradle.testkit.runner.TaskOutcome
+
+class AotEnvironmentsSpec extends AbstractAOTPluginSpec {
+
+    def "builds an optimized jar per environment variant"() {
+        withSample("aot/basic-app")
+        buildFile << """
+            micronaut {
+                aot {
+                    environments {
+                        prod
+                        eu {
+                            environments = ["prod", "eu"]
+                        }
+                    }
+                }
+            }
+        """
+
+        when:
+        def result = build "assembleAotEnvironments"
+
+        then:
+        result.task(":prepareProdJitOptimizations").outcome == TaskOutcome.SUCCESS
+        result.task(":prepareEuNativeOptimizations").outcome == TaskOutcome.SUCCESS
+        result.task(":optimizedProdJitJar").outcome == TaskOutcome.SUCCESS
+        result.task(":optimizedEuNativeJar").outcome == TaskOutcome.SUCCESS
+        result.task(":prepareJitOptimizations") == null
+
+        and:
+        hasAOTConfiguration("prod/jit") {
+            withProperty('possible.environments', 'prod')
+            withProperty('deduce.environment.enabled', 'true')
+        }
+        hasAOTConfiguration("eu/native") {
+            withProperty('possible.environments', 'prod,eu')
+        }
+        file("build/generated/aot/prod/jit/classes").directory
+        file("build/libs/basic-app-0.1-prod-jit.jar").exists()
+        file("build/libs/basic-app-0.1-eu-native.jar").exists()
+    }
+
+    def "sanitizes the names of environment variants"() {
+        withSample("aot/basic-app")
+        buildFile << """
+            micronaut {
+                aot {
+                    environments {
+                        register("prod-eu west") {
+                            environments = ["prod", "eu"]
+                        }
+                    }
+                }
+            }
+        """
+
+        when:
+        def result = build "optimizedProdEuWestJitJar"
+
+        then:
+        result.task(":prepareProdEuWestJitOptimizations").outcome == TaskOutcome.SUCCESS
+        hasAOTConfiguration("prod-eu-west/jit") {
+            withProperty('possible.environments', 'prod,eu')
+        }
+        file("build/libs/basic-app-0.1-prod-eu-west-jit.jar").exists()
+    }
+
+    def "rejects environment variants with colliding names"() {
+        withSample("aot/basic-app")
+        buildFile << """
+            micronaut {
+                aot {
+                    environments {
+                        register("prod-eu")
+                        register("prod_eu")
+                    }
+                }
+            }
+        """
+
+        when:
+        def result = fails "assembleAotEnvironments"
+
+        then:
+        result.output.contains("The AOT environments 'prod-eu' and 'prod_eu' both give 'ProdEu' in task names")
+    }
+}
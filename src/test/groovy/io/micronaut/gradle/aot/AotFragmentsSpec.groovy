@@ -0,0 +1,48 @@
+package io.micronaut.gradle.aot
+
+import org.gradle.testkit.runner.TaskOutcome
+
+class AotFragmentsSpec extends AbstractAOTPluginSpec {
+
+    def "composes the AOT fragments of the libraries of the build"() {
+        withSample("aot/basic-app")
+        settingsFile << """
+            include 'lib'
+        """
+        buildFile << """
+            dependencies {
+                implementation(project(":lib"))
+            }
+        """
+        file("lib").mkdirs()
+        file("lib/build.gradle") << """
+            plugins {
+                id("io.micronaut.library")
+            }
+
+            repositories {
+                mavenCentral()
+            }
+
+            micronaut {
+                version = "3.2.0"
+            }
+        """
+        def serviceFile = file("lib/src/main/resources/META-INF/services/io.micronaut.example.CustomService")
+        serviceFile.parentFile.mkdirs()
+        serviceFile << """# a custom service
+demo.lib.CustomServiceImpl
+"""
+
+        when:
+        def result = build "writeJitAOTConfig"
+
+        then:
+        result.task(":lib:generateAotFragment").outcome == TaskOutcome.SUCCESS
+        file("lib/build/micronaut/aot/fragment.properties").text.contains("service.io.micronaut.example.CustomService=demo.lib.CustomServiceImpl")
+        hasAOTConfiguration("jit") {
+            withProperty('service.types')
+            assert props.get('service.types').toString().split(',').contains('io.micronaut.example.CustomService')
+        }
+    }
+}
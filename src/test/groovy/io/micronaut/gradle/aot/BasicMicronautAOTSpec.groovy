@@ -124,4 +124,84 @@ class BasicMicronautAOTSpec extends AbstractAOTPluginSpec {
 
     }
 
+    def "loads the service types found on the classpath statically"() {
+        withSample("aot/basic-app")
+        buildFile << """
+            micronaut {
+                aot {
+                    serviceTypeExcludes.add("io.micronaut.http.HttpResponseFactory")
+                }
+            }
+        """
+
+        when:
+        build "writeJitAOTConfig"
+
+        then:
+        hasAOTConfiguration("jit") {
+            withProperty('service.types')
+            def serviceTypes = props.get('service.types').toString().split(',') as Set
+            assert serviceTypes.contains('io.micronaut.inject.BeanDefinitionReference')
+            assert serviceTypes.every { it.startsWith('io.micronaut.') }
+            assert !serviceTypes.contains('io.micronaut.http.HttpResponseFactory')
+            assert !serviceTypes.any { it.startsWith('io.micronaut.inject.visitor.') }
+        }
+    }
+
+    def "loads the service types declared by the application statically"() {
+        withSample("aot/basic-app")
+        def serviceFile = file("src/main/resources/META-INF/services/io.micronaut.example.AppService")
+        serviceFile.parentFile.mkdirs()
+        serviceFile << "demo.app.AppServiceImpl"
+
+        when:
+        build "writeJitAOTConfig"
+
+        then:
+        hasAOTConfiguration("jit") {
+            withProperty('service.types')
+            assert props.get('service.types').toString().split(',').contains('io.micronaut.example.AppService')
+        }
+    }
+
+    def "computes the known missing types from the bean definitions"() {
+        withSample("aot/basic-app")
+
+        when:
+        build "writeJitAOTConfig"
+
+        then:
+        def report = file("build/reports/aot/jit-known-missing-types.txt").readLines()
+        report[0].startsWith("Classes checked by bean definitions and introspections: ")
+        report[2].startsWith("Absent, with lookups eliminated at startup: ")
+        hasAOTConfiguration("jit") {
+            withProperty('known.missing.types.list')
+            def types = props.get('known.missing.types.list').toString().split(',') as Set
+            assert types.containsAll(MicronautAotPlugin.TYPES_TO_CHECK)
+            // present on the classpath of the sample
+            assert !types.contains('io.micronaut.http.client.HttpClient')
+        }
+    }
+
+    def "doesn't compute the known missing types when they are configured"() {
+        withSample("aot/basic-app")
+        file("aot.properties") << "known.missing.types.list=demo.app.Missing"
+        buildFile << """
+            micronaut {
+                aot {
+                    configFile = file("aot.properties")
+                }
+            }
+        """
+
+        when:
+        build "writeJitAOTConfig"
+
+        then:
+        file("build/reports/aot/jit-known-missing-types.txt").text.startsWith("Not computed")
+        hasAOTConfiguration("jit") {
+            withProperty('known.missing.types.list', 'demo.app.Missing')
+        }
+    }
+
 }
@@ -0,0 +1,78 @@
+package io.micronaut.gradle.aot
+
+import org.gradle.testkit.runner.TaskOutcome
+
+import java.time.Instant
+import java.time.ZoneId
+import java.util.zip.ZipFile
+
+class OptimizedLambdaSpec extends AbstractAOTPluginSpec {
+
+    def "builds the deployment packages of an optimized JVM Lambda function"() {
+        withSample("aot/basic-app")
+        buildFile << """
+            micronaut {
+                runtime("lambda")
+            }
+        """
+
+        when:
+        def result = build "assembleOptimizedLambda"
+
+        then:
+        result.task(":optimizedLambdaFunction").outcome == TaskOutcome.SUCCESS
+        result.task(":optimizedLambdaLayer").outcome == TaskOutcome.SUCCESS
+        result.task(":optimizedLambdaZip").outcome == TaskOutcome.SUCCESS
+        result.task(":optimizedLambdaJavaToolOptions").outcome == TaskOutcome.SUCCESS
+
+        and:
+        entries("build/lambda/basic-app-0.1-lambda-function.zip") == ["lib/basic-app-0.1-jit.jar"]
+        entries("build/lambda/basic-app-0.1-lambda-layer.zip").every { it.startsWith("java/lib/") }
+        entries("build/lambda/basic-app-0.1-lambda-layer.zip").any { it.startsWith("java/lib/micronaut-runtime-") }
+        entries("build/lambda/basic-app-0.1-lambda.zip").contains("lib/basic-app-0.1-jit.jar")
+        file("build/lambda/JAVA_TOOL_OPTIONS").text == "-XX:+TieredCompilation -XX:TieredStopAtLevel=1 -XX:+UseSerialGC -Xshare:auto"
+    }
+
+    def "doesn't build Lambda packages for other runtimes"() {
+        withSample("aot/basic-app")
+
+        when:
+        def result = build "assembleOptimizedLambda"
+
+        then:
+        result.task(":optimizedLambdaFunction").outcome == TaskOutcome.SKIPPED
+        result.task(":optimizedLambdaLayer").outcome == TaskOutcome.SKIPPED
+        result.task(":optimizedLambdaZip").outcome == TaskOutcome.SKIPPED
+        result.task(":optimizedLambdaJavaToolOptions").outcome == TaskOutcome.SKIPPED
+        !file("build/lambda").exists()
+    }
+
+    def "builds reproducible Lambda packages"() {
+        withSample("aot/basic-app")
+        buildFile << """
+            micronaut {
+                runtime("lambda")
+            }
+        """
+
+        when:
+        build "assembleOptimizedLambda"
+
+        then:
+        ["lambda-function", "lambda-layer", "lambda"].every { classifier ->
+            entryYears("build/lambda/basic-app-0.1-${classifier}.zip") == [1980] as Set
+        }
+    }
+
+    private List<String> entries(String path) {
+        new ZipFile(file(path)).withCloseable { zip ->
+            zip.entries().toList().findAll { !it.directory }*.name
+        }
+    }
+
+    private Set<Integer> entryYears(String path) {
+        new ZipFile(file(path)).withCloseable { zip ->
+            zip.entries().toList().collect { Instant.ofEpochMilli(it.time).atZone(ZoneId.systemDefault()).year } as Set
+        }
+    }
+}
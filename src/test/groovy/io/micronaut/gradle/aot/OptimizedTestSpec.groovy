@@ -0,0 +1,118 @@
+package io.micronaut.gradle.aot
+
+import org.gradle.testkit.runner.TaskOutcome
+
+class OptimizedTestSpec extends AbstractAOTPluginSpec {
+
+    def "runs the tests against the optimized application"() {
+        withSample("aot/basic-app")
+        buildFile << """
+            dependencies {
+                testImplementation("io.micronaut.test:micronaut-test-junit5")
+            }
+        """
+        def testFile = file("src/test/java/demo/app/ApplicationTest.java")
+        testFile.parentFile.mkdirs()
+        testFile << """package demo.app;
+
+import io.micronaut.runtime.EmbeddedApplication;
+import io.micronaut.test.extensions.junit5.annotation.MicronautTest;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import jakarta.inject.Inject;
+
+@MicronautTest
+class ApplicationTest {
+    @Inject
+    EmbeddedApplication<?> application;
+
+    @Test
+    void startsTheApplication() {
+        Assertions.assertTrue(application.isRunning());
+    }
+}
+"""
+
+        when:
+        def result = build "test", "testOptimizedJit"
+
+        then:
+        result.task(":prepareJitOptimizations").outcome == TaskOutcome.SUCCESS
+        result.task(":optimizedJitJar").outcome == TaskOutcome.SUCCESS
+        result.task(":testOptimizedJit").outcome == TaskOutcome.SUCCESS
+        result.task(":testOptimizedJitStartupReport").outcome == TaskOutcome.SUCCESS
+        file("build/test-results/testOptimizedJit/TEST-demo.app.ApplicationTest.xml").exists()
+
+        and:
+        def report = file("build/reports/aot/testOptimizedJit-startup.txt").text
+        report.contains("demo.app.ApplicationTest")
+        report.contains("Setup time of the test classes run in both modes")
+        !report.contains("n/a")
+    }
+
+    def "runs the optimized tests with the settings of the original test task"() {
+        withSample("aot/basic-app")
+        buildFile << """
+            dependencies {
+                testImplementation("io.micronaut.test:micronaut-test-junit5")
+            }
+
+            tasks.named("test", Test) {
+                useJUnitPlatform {
+                    excludeTags "slow"
+                }
+                systemProperty "demo.greeting", "hello"
+                environment "DEMO_TARGET", "world"
+                jvmArgs "-Ddemo.punctuation=!"
+                filter {
+                    excludeTestsMatching "*.ExcludedTest"
+                }
+            }
+        """
+        def testFile = file("src/test/java/demo/app/SettingsTest.java")
+        testFile.parentFile.mkdirs()
+        testFile << """package demo.app;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+class SettingsTest {
+    @Test
+    void usesTheSettingsOfTheTestTask() {
+        Assertions.assertEquals("hello", System.getProperty("demo.greeting"));
+        Assertions.assertEquals("world", System.getenv("DEMO_TARGET"));
+        Assertions.assertEquals("!", System.getProperty("demo.punctuation"));
+    }
+
+    @Test
+    @Tag("slow")
+    void excludedByTag() {
+        Assertions.fail("tests tagged 'slow' are excluded");
+    }
+}
+"""
+        file("src/test/java/demo/app/ExcludedTest.java") << """package demo.app;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class ExcludedTest {
+    @Test
+    void excludedByFilter() {
+        Assertions.fail("excluded by the test filter");
+    }
+}
+"""
+
+        when:
+        def result = build "testOptimizedJit"
+
+        then:
+        result.task(":testOptimizedJit").outcome == TaskOutcome.SUCCESS
+        def results = file("build/test-results/testOptimizedJit/TEST-demo.app.SettingsTest.xml").text
+        results.contains('tests="1"')
+        !file("build/test-results/testOptimizedJit/TEST-demo.app.ExcludedTest.xml").exists()
+    }
+}